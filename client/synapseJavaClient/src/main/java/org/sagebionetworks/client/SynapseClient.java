@@ -115,6 +115,8 @@ import org.sagebionetworks.repo.model.doi.v2.DoiAssociation;
 import org.sagebionetworks.repo.model.doi.v2.DoiResponse;
 import org.sagebionetworks.repo.model.entity.query.SortDirection;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleCreate;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
 import org.sagebionetworks.repo.model.file.AddFileToDownloadListRequest;
@@ -430,6 +432,8 @@ public interface SynapseClient extends BaseClient {
 	public EntityBundle getEntityBundleV2(String entityId, Long versionNumber,
 										  EntityBundleRequest bundleV2Request) throws SynapseException;
 
+	public EntityBundleBatchResponse getEntityBundlesV2(EntityBundleBatchRequest request) throws SynapseException;
+
 	public PaginatedResults<VersionInfo> getEntityVersions(String entityId,
 			int offset, int limit) throws SynapseException;
 
@@ -149,6 +149,8 @@ import org.sagebionetworks.repo.model.doi.v2.DoiResponse;
 import org.sagebionetworks.repo.model.entity.EntityLookupRequest;
 import org.sagebionetworks.repo.model.entity.query.SortDirection;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleCreate;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
 import org.sagebionetworks.repo.model.file.AddFileToDownloadListRequest;
@@ -972,6 +974,20 @@ public class SynapseClientImpl extends BaseClientImpl implements SynapseClient {
 		return postJSONEntity(getRepoEndpoint(), url, bundleV2Request, EntityBundle.class);
 	}
 
+	/**
+	 * Get the bundles of the current version of many entities in a single call.
+	 * 
+	 * @param request
+	 * @return
+	 * @throws SynapseException
+	 */
+	@Override
+	public EntityBundleBatchResponse getEntityBundlesV2(EntityBundleBatchRequest request) throws SynapseException {
+		ValidateArgument.required(request, "request");
+		String url = ENTITY_URI_PATH + BUNDLE_V2 + "/batch";
+		return postJSONEntity(getRepoEndpoint(), url, request, EntityBundleBatchResponse.class);
+	}
+
 	/**
 	 * 
 	 * @param entityId
@@ -4,6 +4,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import com.thoughtworks.xstream.XStream;
 
@@ -16,12 +22,27 @@ import com.thoughtworks.xstream.XStream;
  * Hold on to the built object for as long as possible.
  * http://x-stream.github.io/faq.html#Scalability
  *
+ * The builder also records the allowed types and omitted fields so that blob codecs other than XStream
+ * (see JDOSecondaryPropertyUtils) can enforce the same restrictions.
+ *
  */
 public class UnmodifiableXStream {
 	private final XStream xStream;
-
-	private UnmodifiableXStream(XStream xStream){
-		this.xStream = xStream;
+	private final Set<Class> allowedTypes;
+	private final Set<Class> allowedTypeHierarchies;
+	private final Map<Class, Set<String>> omittedFields;
+	private final boolean jsonEntityBlobCodec;
+
+	private UnmodifiableXStream(Builder builder){
+		this.xStream = builder.xStream;
+		this.allowedTypes = Collections.unmodifiableSet(new HashSet<>(builder.allowedTypes));
+		this.allowedTypeHierarchies = Collections.unmodifiableSet(new HashSet<>(builder.allowedTypeHierarchies));
+		Map<Class, Set<String>> omitted = new HashMap<>();
+		for(Map.Entry<Class, Set<String>> entry: builder.omittedFields.entrySet()){
+			omitted.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+		}
+		this.omittedFields = Collections.unmodifiableMap(omitted);
+		this.jsonEntityBlobCodec = builder.jsonEntityBlobCodec;
 	}
 
 	public void toXML(Object obj, Writer out){
@@ -48,6 +69,52 @@ public class UnmodifiableXStream {
 		return xStream.fromXML(input, root);
 	}
 
+	/**
+	 * Is the given type, or one of its super types, allowed by this configuration?
+	 * @param type
+	 * @return
+	 */
+	public boolean isTypeAllowed(Class type){
+		if(type == null){
+			return false;
+		}
+		for(Class allowed: allowedTypes){
+			if(allowed.isAssignableFrom(type)){
+				return true;
+			}
+		}
+		for(Class hierarchy: allowedTypeHierarchies){
+			if(hierarchy.isAssignableFrom(type)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The names of the fields that should be omitted when serializing the given type,
+	 * including the fields omitted for any of its super types.
+	 * @param type
+	 * @return
+	 */
+	public Set<String> getOmittedFields(Class type){
+		Set<String> results = new LinkedHashSet<>();
+		for(Map.Entry<Class, Set<String>> entry: omittedFields.entrySet()){
+			if(entry.getKey().isAssignableFrom(type)){
+				results.addAll(entry.getValue());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * When true, JSONEntity objects should be written with the compact JSON blob codec rather than as XStream XML.
+	 * @return
+	 */
+	public boolean isJSONEntityBlobCodec(){
+		return jsonEntityBlobCodec;
+	}
+
 	///////////
 	// Builder
 	///////////
@@ -58,6 +125,10 @@ public class UnmodifiableXStream {
 
 	public static class Builder{
 		private XStream xStream;
+		private Set<Class> allowedTypes = new HashSet<>();
+		private Set<Class> allowedTypeHierarchies = new HashSet<>();
+		private Map<Class, Set<String>> omittedFields = new HashMap<>();
+		private boolean jsonEntityBlobCodec = false;
 
 		private Builder(){
 			this.xStream = new XStream();
@@ -72,21 +143,34 @@ public class UnmodifiableXStream {
 
 		public Builder allowTypes(Class... types){
 			xStream.allowTypes(types);
+			Collections.addAll(allowedTypes, types);
 			return this;
 		}
 
 		public Builder allowTypeHierarchy(Class type){
 			xStream.allowTypeHierarchy(type);
+			allowedTypeHierarchies.add(type);
 			return this;
 		}
 
 		public Builder omitField(Class definedIn, String fieldName){
 			xStream.omitField(definedIn, fieldName);
+			omittedFields.computeIfAbsent(definedIn, k -> new LinkedHashSet<>()).add(fieldName);
+			return this;
+		}
+
+		/**
+		 * Write JSONEntity objects using the compact JSON blob codec. Blobs that were written
+		 * as XStream XML remain readable.
+		 * @return
+		 */
+		public Builder jsonEntityBlobCodec(){
+			this.jsonEntityBlobCodec = true;
 			return this;
 		}
 
 		public UnmodifiableXStream build(){
-			return new UnmodifiableXStream(xStream);
+			return new UnmodifiableXStream(this);
 		}
 	}
 }
@@ -0,0 +1,231 @@
+package org.sagebionetworks.repo.model.dbo;
+
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ACTIVITY_ETAG;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ACTIVITY_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ACTIVITY_SERIALIZED_OBJECT;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DATA_ACCESS_REQUEST_ETAG;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DATA_ACCESS_REQUEST_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DATA_ACCESS_REQUEST_REQUEST_SERIALIZED;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DATA_ACCESS_SUBMISSION_ETAG;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DATA_ACCESS_SUBMISSION_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DATA_ACCESS_SUBMISSION_SUBMISSION_SERIALIZED;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_MEMBERSHIP_INVITATION_ETAG;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_MEMBERSHIP_INVITATION_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_MEMBERSHIP_INVITATION_PROPERTIES;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_MEMBERSHIP_REQUEST_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_MEMBERSHIP_REQUEST_PROPERTIES;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_TEAM_ETAG;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_TEAM_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_TEAM_PROPERTIES;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_PROFILE_ETAG;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_PROFILE_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_PROFILE_PROPS_BLOB;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_ACTIVITY;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DATA_ACCESS_REQUEST;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DATA_ACCESS_SUBMISSION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_MEMBERSHIP_INVITATION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_MEMBERSHIP_REQUEST;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_TEAM;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_USER_PROFILE;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.repo.model.UnmodifiableXStream;
+import org.sagebionetworks.repo.model.dbo.dao.ActivityUtils;
+import org.sagebionetworks.repo.model.dbo.dao.MembershipInvitationUtils;
+import org.sagebionetworks.repo.model.dbo.dao.MembershipRequestUtils;
+import org.sagebionetworks.repo.model.dbo.dao.TeamUtils;
+import org.sagebionetworks.repo.model.dbo.dao.UserProfileUtils;
+import org.sagebionetworks.repo.model.dbo.dao.dataaccess.RequestUtils;
+import org.sagebionetworks.repo.model.dbo.dao.dataaccess.SubmissionUtils;
+import org.sagebionetworks.repo.model.jdo.JDOSecondaryPropertyUtils;
+import org.sagebionetworks.util.ValidateArgument;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Background re-encoding of legacy XStream blobs to the codec used for new
+ * writes (see {@link JDOSecondaryPropertyUtils#reEncodeObject(UnmodifiableXStream, byte[])}).
+ * Rows are scanned in pages ordered by their numeric primary key so the scan
+ * can be resumed from the last ID returned. A row is only updated if its blob
+ * has not changed since it was read. The etag of each re-encoded row is
+ * changed as well, so migration sees the row as changed and copies the new
+ * blob to the destination stack.
+ *
+ */
+public class BlobReEncoder {
+
+	static private Logger log = LogManager.getLogger(BlobReEncoder.class);
+
+	/**
+	 * A blob column keyed by a numeric primary key, with the configuration of
+	 * the DAO that owns it and the etag column of the row, if any.
+	 */
+	public static class Target {
+
+		private final String tableName;
+		private final String idColumn;
+		private final String blobColumn;
+		private final String etagColumn;
+		private final UnmodifiableXStream xStream;
+
+		public Target(String tableName, String idColumn, String blobColumn, String etagColumn, UnmodifiableXStream xStream) {
+			this.tableName = tableName;
+			this.idColumn = idColumn;
+			this.blobColumn = blobColumn;
+			this.etagColumn = etagColumn;
+			this.xStream = xStream;
+		}
+
+		public String getTableName() {
+			return tableName;
+		}
+
+		public String getIdColumn() {
+			return idColumn;
+		}
+
+		public String getBlobColumn() {
+			return blobColumn;
+		}
+
+		/**
+		 * @return The etag column of the table, or null if the table has no etag.
+		 */
+		public String getEtagColumn() {
+			return etagColumn;
+		}
+
+		public UnmodifiableXStream getXStream() {
+			return xStream;
+		}
+
+		@Override
+		public String toString() {
+			return tableName + "." + blobColumn;
+		}
+	}
+
+	/**
+	 * The blobs that are written with a codec and have a numeric primary key.
+	 * Node revisions and access requirement revisions are keyed by (ID,
+	 * NUMBER) and asynchronous job bodies expire, so they are not re-encoded.
+	 * Membership requests have no etag, so only their blob is rewritten.
+	 */
+	public static final List<Target> TARGETS = Collections.unmodifiableList(Arrays.asList(
+			new Target(TABLE_TEAM, COL_TEAM_ID, COL_TEAM_PROPERTIES, COL_TEAM_ETAG, TeamUtils.X_STREAM),
+			new Target(TABLE_USER_PROFILE, COL_USER_PROFILE_ID, COL_USER_PROFILE_PROPS_BLOB, COL_USER_PROFILE_ETAG, UserProfileUtils.X_STREAM),
+			new Target(TABLE_ACTIVITY, COL_ACTIVITY_ID, COL_ACTIVITY_SERIALIZED_OBJECT, COL_ACTIVITY_ETAG, ActivityUtils.X_STREAM),
+			new Target(TABLE_MEMBERSHIP_INVITATION, COL_MEMBERSHIP_INVITATION_ID, COL_MEMBERSHIP_INVITATION_PROPERTIES, COL_MEMBERSHIP_INVITATION_ETAG, MembershipInvitationUtils.X_STREAM),
+			new Target(TABLE_MEMBERSHIP_REQUEST, COL_MEMBERSHIP_REQUEST_ID, COL_MEMBERSHIP_REQUEST_PROPERTIES, null, MembershipRequestUtils.X_STREAM),
+			new Target(TABLE_DATA_ACCESS_REQUEST, COL_DATA_ACCESS_REQUEST_ID, COL_DATA_ACCESS_REQUEST_REQUEST_SERIALIZED, COL_DATA_ACCESS_REQUEST_ETAG, RequestUtils.X_STREAM),
+			new Target(TABLE_DATA_ACCESS_SUBMISSION, COL_DATA_ACCESS_SUBMISSION_ID, COL_DATA_ACCESS_SUBMISSION_SUBMISSION_SERIALIZED, COL_DATA_ACCESS_SUBMISSION_ETAG, SubmissionUtils.X_STREAM)));
+
+	private JdbcTemplate jdbcTemplate;
+
+	public BlobReEncoder(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Re-encode a single page of blobs.
+	 * 
+	 * @param tableName
+	 * @param idColumn      The numeric primary key column.
+	 * @param blobColumn
+	 * @param etagColumn    The etag column to change with each re-encoded blob, or null if the table has no etag.
+	 * @param xStream       The configuration used by the DAO that owns the blob.
+	 * @param afterId       Only rows with an ID greater than this are scanned.
+	 * @param limit
+	 * @return The ID of the last row scanned, or null if there were no more rows.
+	 * @throws IOException
+	 */
+	public Long reEncodePage(String tableName, String idColumn, String blobColumn, String etagColumn,
+			UnmodifiableXStream xStream, long afterId, int limit) throws IOException {
+		ValidateArgument.required(tableName, "tableName");
+		ValidateArgument.required(idColumn, "idColumn");
+		ValidateArgument.required(blobColumn, "blobColumn");
+		ValidateArgument.required(xStream, "xStream");
+		String select = "SELECT " + idColumn + ", " + blobColumn + " FROM " + tableName + " WHERE " + idColumn
+				+ " > ? ORDER BY " + idColumn + " LIMIT ?";
+		Map<Long, byte[]> page = new LinkedHashMap<>();
+		jdbcTemplate.query(select, (RowCallbackHandler) (rs) -> {
+			page.put(rs.getLong(1), rs.getBytes(2));
+		}, afterId, limit);
+		if (page.isEmpty()) {
+			return null;
+		}
+		String update = "UPDATE " + tableName + " SET " + blobColumn + " = ? WHERE " + idColumn + " = ? AND "
+				+ blobColumn + " = ?";
+		if (etagColumn != null) {
+			update = "UPDATE " + tableName + " SET " + blobColumn + " = ?, " + etagColumn + " = ? WHERE " + idColumn
+					+ " = ? AND " + blobColumn + " = ?";
+		}
+		Long lastId = null;
+		int count = 0;
+		for (Map.Entry<Long, byte[]> entry : page.entrySet()) {
+			lastId = entry.getKey();
+			byte[] reEncoded = JDOSecondaryPropertyUtils.reEncodeObject(xStream, entry.getValue());
+			if (reEncoded == null) {
+				continue;
+			}
+			if (etagColumn != null) {
+				count += jdbcTemplate.update(update, reEncoded, UUID.randomUUID().toString(), entry.getKey(), entry.getValue());
+			} else {
+				count += jdbcTemplate.update(update, reEncoded, entry.getKey(), entry.getValue());
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Re-encoded " + count + " of " + page.size() + " blobs of " + tableName + "." + blobColumn);
+		}
+		return lastId;
+	}
+
+	/**
+	 * Re-encode a single page of blobs of the given target.
+	 * 
+	 * @param target
+	 * @param afterId
+	 * @param limit
+	 * @return The ID of the last row scanned, or null if there were no more rows.
+	 * @throws IOException
+	 */
+	public Long reEncodePage(Target target, long afterId, int limit) throws IOException {
+		ValidateArgument.required(target, "target");
+		return reEncodePage(target.getTableName(), target.getIdColumn(), target.getBlobColumn(), target.getEtagColumn(),
+				target.getXStream(), afterId, limit);
+	}
+
+	/**
+	 * Re-encode all of the blobs of a table, one page at a time.
+	 * 
+	 * @param tableName
+	 * @param idColumn
+	 * @param blobColumn
+	 * @param etagColumn
+	 * @param xStream
+	 * @param pageSize
+	 * @return The number of pages scanned.
+	 * @throws IOException
+	 */
+	public long reEncodeAll(String tableName, String idColumn, String blobColumn, String etagColumn,
+			UnmodifiableXStream xStream, int pageSize) throws IOException {
+		long pages = 0;
+		long afterId = Long.MIN_VALUE;
+		Long lastId;
+		while ((lastId = reEncodePage(tableName, idColumn, blobColumn, etagColumn, xStream, afterId, pageSize)) != null) {
+			pages++;
+			afterId = lastId;
+		}
+		log.info("Finished re-encoding blobs of " + tableName + "." + blobColumn + " (" + pages + " pages)");
+		return pages;
+	}
+}
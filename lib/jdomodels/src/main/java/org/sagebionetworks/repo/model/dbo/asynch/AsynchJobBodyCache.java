@@ -0,0 +1,165 @@
+package org.sagebionetworks.repo.model.dbo.asynch;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sagebionetworks.util.ValidateArgument;
+
+/**
+ * Least-recently-used cache of compressed job bodies keyed by job ID, bounded
+ * by the total size of the cached bodies.
+ *
+ * A request body never changes once the job is started so it can be cached
+ * as soon as it is read. A response body is only cached for a complete job
+ * and is tagged with the job's etag, which changes whenever the job is
+ * updated.
+ *
+ * The compressed bytes are cached rather than the decoded bodies, since
+ * callers are free to modify the bodies they are given. Each read must decode
+ * its own copy and the cached bytes must never be modified.
+ *
+ */
+public class AsynchJobBodyCache {
+
+	/**
+	 * Bodies can be up to 16 MB, so the cache is bounded by bytes rather than by
+	 * the number of bodies.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024L * 1024L;
+
+	private final long maxBytes;
+	// access order so the iterator starts with the least recently used.
+	private final LinkedHashMap<BodyKey, CachedBody> cache;
+	private long cachedBytes;
+
+	public AsynchJobBodyCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 *
+	 * @param maxBytes The maximum number of compressed bytes of request and
+	 *                 response bodies to keep.
+	 */
+	public AsynchJobBodyCache(long maxBytes) {
+		ValidateArgument.requirement(maxBytes > 0, "maxBytes must be greater than zero");
+		this.maxBytes = maxBytes;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true);
+		this.cachedBytes = 0L;
+	}
+
+	/**
+	 *
+	 * @param jobId
+	 * @return The compressed request body or null if it is not cached.
+	 */
+	public byte[] getRequestBody(Long jobId) {
+		CachedBody cached = get(new BodyKey(jobId, false));
+		return cached == null ? null : cached.compressed;
+	}
+
+	public void putRequestBody(Long jobId, byte[] compressed) {
+		put(new BodyKey(jobId, false), new CachedBody(null, compressed));
+	}
+
+	/**
+	 *
+	 * @param jobId
+	 * @param etag The current etag of the job.
+	 * @return The compressed response body or null if it is not cached for
+	 *         this etag.
+	 */
+	public byte[] getResponseBody(Long jobId, String etag) {
+		CachedBody cached = get(new BodyKey(jobId, true));
+		if (cached == null || !cached.etag.equals(etag)) {
+			return null;
+		}
+		return cached.compressed;
+	}
+
+	public void putResponseBody(Long jobId, String etag, byte[] compressed) {
+		put(new BodyKey(jobId, true), new CachedBody(etag, compressed));
+	}
+
+	/**
+	 * The number of compressed bytes currently cached.
+	 *
+	 * @return
+	 */
+	public long getCachedBytes() {
+		synchronized (cache) {
+			return cachedBytes;
+		}
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+			cachedBytes = 0L;
+		}
+	}
+
+	private CachedBody get(BodyKey key) {
+		synchronized (cache) {
+			return cache.get(key);
+		}
+	}
+
+	private void put(BodyKey key, CachedBody toCache) {
+		if (toCache.compressed == null || toCache.size() > maxBytes) {
+			return;
+		}
+		synchronized (cache) {
+			CachedBody replaced = cache.put(key, toCache);
+			if (replaced != null) {
+				cachedBytes -= replaced.size();
+			}
+			cachedBytes += toCache.size();
+			Iterator<Map.Entry<BodyKey, CachedBody>> iterator = cache.entrySet().iterator();
+			while (cachedBytes > maxBytes && iterator.hasNext()) {
+				cachedBytes -= iterator.next().getValue().size();
+				iterator.remove();
+			}
+		}
+	}
+
+	private static class BodyKey {
+		final Long jobId;
+		final boolean response;
+
+		BodyKey(Long jobId, boolean response) {
+			this.jobId = jobId;
+			this.response = response;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * jobId.hashCode() + (response ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof BodyKey))
+				return false;
+			BodyKey other = (BodyKey) obj;
+			return jobId.equals(other.jobId) && response == other.response;
+		}
+	}
+
+	private static class CachedBody {
+		final String etag;
+		final byte[] compressed;
+
+		CachedBody(String etag, byte[] compressed) {
+			this.etag = etag;
+			this.compressed = compressed;
+		}
+
+		long size() {
+			return compressed.length;
+		}
+	}
+}
@@ -10,16 +10,22 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_J
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_PROGRESS_CURRENT;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_PROGRESS_MESSAGE;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_PROGRESS_TOTAL;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_REQUEST_BODY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_REQUEST_HASH;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_RESPONSE_BODY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_RUNTIME_MS;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_STARTED_BY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_STARTED_ON;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_STATE;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_ASYNCH_JOB_TYPE;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.sagebionetworks.ids.IdGenerator;
@@ -37,6 +43,7 @@ import org.sagebionetworks.repo.transactions.NewWriteTransaction;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 
@@ -47,10 +54,16 @@ import org.springframework.jdbc.core.RowMapper;
  *
  */
 public class AsynchJobStatusDAOImpl implements AsynchronousJobStatusDAO {
+
+	private static final String HAS_RESPONSE_BODY = "HAS_RESPONSE_BODY";
 	
 	private static final String SQL_SELECT_BY_HASH_ETAG_STARTED_BY = "SELECT * FROM " + ASYNCH_JOB_STATUS + " WHERE "
 			+ COL_ASYNCH_JOB_REQUEST_HASH + " = ? AND " + COL_ASYNCH_JOB_STARTED_BY + " = ? AND " + COL_ASYNCH_JOB_STATE
 			+ " = ? LIMIT 5";
+
+	private static final String SQL_SELECT_ID_BY_HASH = "SELECT " + COL_ASYNCH_JOB_ID + " FROM " + ASYNCH_JOB_STATUS
+			+ " WHERE " + COL_ASYNCH_JOB_REQUEST_HASH + " = ? AND " + COL_ASYNCH_JOB_STATE + " = ? ORDER BY "
+			+ COL_ASYNCH_JOB_CHANGED_ON + " DESC LIMIT 5";
 	
 	private static final String SQL_UPDATE_PROGRESS = "UPDATE " + ASYNCH_JOB_STATUS + " SET "
 			+ COL_ASYNCH_JOB_PROGRESS_CURRENT + " = ?, " + COL_ASYNCH_JOB_PROGRESS_TOTAL + " = ?, "
@@ -64,6 +77,23 @@ public class AsynchJobStatusDAOImpl implements AsynchronousJobStatusDAO {
 	private static final String SQL_SET_CANCELING = "UPDATE " + ASYNCH_JOB_STATUS + " SET " + COL_ASYNCH_JOB_CANCELING + " = true WHERE "
 			+ COL_ASYNCH_JOB_ID + " = ?";
 
+	private static final String SQL_SELECT_WITHOUT_BODIES = "SELECT " + COL_ASYNCH_JOB_ID + ", " + COL_ASYNCH_JOB_ETAG
+			+ ", " + COL_ASYNCH_JOB_STATE + ", " + COL_ASYNCH_JOB_TYPE + ", " + COL_ASYNCH_JOB_CANCELING + ", "
+			+ COL_ASYNCH_JOB_EXCEPTION + ", " + COL_ASYNCH_JOB_ERROR_MESSAGE + ", " + COL_ASYNCH_JOB_ERROR_DETAILS + ", "
+			+ COL_ASYNCH_JOB_PROGRESS_CURRENT + ", " + COL_ASYNCH_JOB_PROGRESS_TOTAL + ", " + COL_ASYNCH_JOB_PROGRESS_MESSAGE
+			+ ", " + COL_ASYNCH_JOB_STARTED_ON + ", " + COL_ASYNCH_JOB_STARTED_BY + ", " + COL_ASYNCH_JOB_CHANGED_ON + ", "
+			+ COL_ASYNCH_JOB_RUNTIME_MS + ", " + COL_ASYNCH_JOB_REQUEST_HASH + ", " + COL_ASYNCH_JOB_RESPONSE_BODY
+			+ " IS NOT NULL AS " + HAS_RESPONSE_BODY + " FROM " + ASYNCH_JOB_STATUS + " WHERE " + COL_ASYNCH_JOB_ID + " = ?";
+
+	private static final String SQL_SELECT_WITH_BODIES = "SELECT * FROM " + ASYNCH_JOB_STATUS + " WHERE "
+			+ COL_ASYNCH_JOB_ID + " = ?";
+
+	private static final String SQL_SELECT_RESPONSE_BODY = "SELECT " + COL_ASYNCH_JOB_RESPONSE_BODY + " FROM "
+			+ ASYNCH_JOB_STATUS + " WHERE " + COL_ASYNCH_JOB_ID + " = ?";
+
+	private static final String SQL_SELECT_STATE = "SELECT " + COL_ASYNCH_JOB_STATE + " FROM " + ASYNCH_JOB_STATUS
+			+ " WHERE " + COL_ASYNCH_JOB_ID + " = ?";
+
 	private static final String TRUNCATE_ALL = "DELETE FROM "+ASYNCH_JOB_STATUS+" WHERE "+COL_ASYNCH_JOB_ID+" > -1";
 
 	@Autowired
@@ -77,6 +107,39 @@ public class AsynchJobStatusDAOImpl implements AsynchronousJobStatusDAO {
 	
 	RowMapper<DBOAsynchJobStatus> statusRowMapper = new DBOAsynchJobStatus().getTableMapping();
 
+	/**
+	 * Maps the rows of SQL_SELECT_WITHOUT_BODIES. The response body is left
+	 * null; HAS_RESPONSE_BODY is read separately.
+	 */
+	private static final RowMapper<DBOAsynchJobStatus> WITHOUT_BODIES_ROW_MAPPER = (ResultSet rs, int rowNum) -> {
+		DBOAsynchJobStatus dbo = new DBOAsynchJobStatus();
+		dbo.setJobId(rs.getLong(COL_ASYNCH_JOB_ID));
+		dbo.setEtag(rs.getString(COL_ASYNCH_JOB_ETAG));
+		dbo.setJobState(JobState.valueOf(rs.getString(COL_ASYNCH_JOB_STATE)));
+		dbo.setJobType(AsynchJobType.valueOf(rs.getString(COL_ASYNCH_JOB_TYPE)));
+		dbo.setCanceling(rs.getBoolean(COL_ASYNCH_JOB_CANCELING));
+		dbo.setException(rs.getString(COL_ASYNCH_JOB_EXCEPTION));
+		dbo.setErrorMessage(rs.getString(COL_ASYNCH_JOB_ERROR_MESSAGE));
+		dbo.setErrorDetails(rs.getString(COL_ASYNCH_JOB_ERROR_DETAILS));
+		dbo.setProgressCurrent(getNullableLong(rs, COL_ASYNCH_JOB_PROGRESS_CURRENT));
+		dbo.setProgressTotal(getNullableLong(rs, COL_ASYNCH_JOB_PROGRESS_TOTAL));
+		dbo.setProgressMessage(rs.getString(COL_ASYNCH_JOB_PROGRESS_MESSAGE));
+		dbo.setStartedOn(new Date(rs.getLong(COL_ASYNCH_JOB_STARTED_ON)));
+		dbo.setStartedByUserId(rs.getLong(COL_ASYNCH_JOB_STARTED_BY));
+		dbo.setChangedOn(new Date(rs.getLong(COL_ASYNCH_JOB_CHANGED_ON)));
+		dbo.setRuntimeMS(rs.getLong(COL_ASYNCH_JOB_RUNTIME_MS));
+		dbo.setRequestHash(rs.getString(COL_ASYNCH_JOB_REQUEST_HASH));
+		return dbo;
+	};
+
+	private final AsynchJobBodyCache bodyCache = new AsynchJobBodyCache();
+
+	private final AtomicLong statusReadCount = new AtomicLong();
+	private final AtomicLong bodyBytesRead = new AtomicLong();
+	private final AtomicLong bodyReadNanos = new AtomicLong();
+	private final AtomicLong bodyDecodeNanos = new AtomicLong();
+	private final AtomicLong bodyCacheHitCount = new AtomicLong();
+
 
 	@Override
 	public AsynchronousJobStatus getJobStatus(String jobId) throws DatastoreException, NotFoundException {
@@ -89,14 +152,187 @@ public class AsynchJobStatusDAOImpl implements AsynchronousJobStatusDAO {
 		} catch (NumberFormatException e) {
 			throw new IllegalArgumentException("Cannot read job id: "+e.getMessage());
 		}
-		DBOAsynchJobStatus dbo =  basicDao.getObjectByPrimaryKey(DBOAsynchJobStatus.class, new SinglePrimaryKeySqlParameterSource(jobIdLong));
-		return AsynchJobStatusUtils.createDTOFromDBO(dbo);
+		/*
+		 * A job that is not cached is read with a single query of the whole row.
+		 * Otherwise only the status columns are read, and the response body if
+		 * it is not cached for the job's etag. The bodies are decoded on every
+		 * call so each caller gets its own copy. Callers that do not return the
+		 * bodies should use getJobStatusWithoutBodies().
+		 */
+		byte[] compressedRequest = bodyCache.getRequestBody(jobIdLong);
+		if (compressedRequest == null) {
+			return readWithBodies(jobIdLong);
+		}
+		bodyCacheHitCount.incrementAndGet();
+		StatusWithoutBodies row = readWithoutBodies(jobIdLong);
+		AsynchronousJobStatus dto = row.status;
+		long start = System.nanoTime();
+		dto.setRequestBody(AsynchJobStatusUtils.decodeRequestBody(compressedRequest));
+		bodyDecodeNanos.addAndGet(System.nanoTime() - start);
+		if (row.hasResponseBody) {
+			boolean complete = AsynchJobState.COMPLETE.equals(dto.getJobState());
+			byte[] compressedResponse = complete ? bodyCache.getResponseBody(jobIdLong, dto.getEtag()) : null;
+			if (compressedResponse == null) {
+				compressedResponse = readBody(SQL_SELECT_RESPONSE_BODY, jobIdLong);
+				if (complete) {
+					bodyCache.putResponseBody(jobIdLong, dto.getEtag(), compressedResponse);
+				}
+			} else {
+				bodyCacheHitCount.incrementAndGet();
+			}
+			start = System.nanoTime();
+			dto.setResponseBody(AsynchJobStatusUtils.decodeResponseBody(compressedResponse));
+			bodyDecodeNanos.addAndGet(System.nanoTime() - start);
+		}
+		return dto;
+	}
+
+	@Override
+	public AsynchronousJobStatus getJobStatusWithoutBodies(String jobId) throws NotFoundException {
+		if(jobId == null){
+			throw new IllegalArgumentException("Job id cannot be null");
+		}
+		try {
+			return readWithoutBodies(Long.parseLong(jobId)).status;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Cannot read job id: "+e.getMessage());
+		}
+	}
+
+	/**
+	 * Read the whole row of a job with a single query, caching its bodies.
+	 * 
+	 * @param jobId
+	 * @return
+	 */
+	private AsynchronousJobStatus readWithBodies(Long jobId) {
+		statusReadCount.incrementAndGet();
+		long start = System.nanoTime();
+		DBOAsynchJobStatus dbo;
+		try {
+			dbo = jdbcTemplate.queryForObject(SQL_SELECT_WITH_BODIES, statusRowMapper, jobId);
+		} catch (EmptyResultDataAccessException e) {
+			throw new NotFoundException("The resource you are attempting to access cannot be found");
+		}
+		bodyReadNanos.addAndGet(System.nanoTime() - start);
+		if (dbo.getRequestBody() != null) {
+			bodyBytesRead.addAndGet(dbo.getRequestBody().length);
+			bodyCache.putRequestBody(jobId, dbo.getRequestBody());
+		}
+		if (dbo.getResponseBody() != null) {
+			bodyBytesRead.addAndGet(dbo.getResponseBody().length);
+			if (JobState.COMPLETE.equals(dbo.getJobState())) {
+				bodyCache.putResponseBody(jobId, dbo.getEtag(), dbo.getResponseBody());
+			}
+		}
+		start = System.nanoTime();
+		AsynchronousJobStatus dto = AsynchJobStatusUtils.createDTOFromDBO(dbo);
+		bodyDecodeNanos.addAndGet(System.nanoTime() - start);
+		return dto;
+	}
+
+	/**
+	 * Read the status columns of a job.
+	 * 
+	 * @param jobId
+	 * @return
+	 */
+	private StatusWithoutBodies readWithoutBodies(Long jobId) {
+		statusReadCount.incrementAndGet();
+		try {
+			return jdbcTemplate.queryForObject(SQL_SELECT_WITHOUT_BODIES, (ResultSet rs, int rowNum) -> {
+				AsynchronousJobStatus status = AsynchJobStatusUtils.createStatusDTOFromDBO(WITHOUT_BODIES_ROW_MAPPER.mapRow(rs, rowNum));
+				return new StatusWithoutBodies(status, rs.getBoolean(HAS_RESPONSE_BODY));
+			}, jobId);
+		} catch (EmptyResultDataAccessException e) {
+			throw new NotFoundException("The resource you are attempting to access cannot be found");
+		}
+	}
+
+	/**
+	 * Read a single compressed body column of a job. The job can be cleared
+	 * after its status was read, so a missing row is a NotFoundException.
+	 */
+	private byte[] readBody(String sql, Long jobId) {
+		long start = System.nanoTime();
+		byte[] bytes;
+		try {
+			bytes = jdbcTemplate.queryForObject(sql, byte[].class, jobId);
+		} catch (EmptyResultDataAccessException e) {
+			throw new NotFoundException("The resource you are attempting to access cannot be found");
+		}
+		if (bytes != null) {
+			bodyBytesRead.addAndGet(bytes.length);
+		}
+		bodyReadNanos.addAndGet(System.nanoTime() - start);
+		return bytes;
+	}
+
+	private static Long getNullableLong(ResultSet rs, String column) throws SQLException {
+		long value = rs.getLong(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	/**
+	 * The number of status reads, with or without bodies.
+	 * 
+	 * @return
+	 */
+	public long getStatusReadCount() {
+		return statusReadCount.get();
+	}
+
+	/**
+	 * The total number of compressed body bytes read from the database.
+	 * 
+	 * @return
+	 */
+	public long getBodyBytesRead() {
+		return bodyBytesRead.get();
+	}
+
+	/**
+	 * The total time spent reading compressed bodies from the database, in nanoseconds.
+	 * 
+	 * @return
+	 */
+	public long getBodyReadNanos() {
+		return bodyReadNanos.get();
+	}
+
+	/**
+	 * The total CPU time spent decompressing and parsing bodies, in nanoseconds.
+	 * 
+	 * @return
+	 */
+	public long getBodyDecodeNanos() {
+		return bodyDecodeNanos.get();
+	}
+
+	/**
+	 * The number of bodies served from the cache rather than read and decoded.
+	 * 
+	 * @return
+	 */
+	public long getBodyCacheHitCount() {
+		return bodyCacheHitCount.get();
+	}
+
+	private static class StatusWithoutBodies {
+		final AsynchronousJobStatus status;
+		final boolean hasResponseBody;
+
+		StatusWithoutBodies(AsynchronousJobStatus status, boolean hasResponseBody) {
+			this.status = status;
+			this.hasResponseBody = hasResponseBody;
+		}
 	}
 
 	@WriteTransaction
 	@Override
 	public void truncateAllAsynchTableJobStatus() {
 		jdbcTemplate.update(TRUNCATE_ALL);
+		bodyCache.clear();
 	}
 	
 	/**
@@ -210,5 +446,26 @@ public class AsynchJobStatusDAOImpl implements AsynchronousJobStatusDAO {
 		}
 		return results;
 	}
+
+	@Override
+	public List<String> findCompletedJobIds(String requestHash) {
+		if(requestHash == null){
+			throw new IllegalArgumentException("requestHash cannot be null");
+		}
+		return jdbcTemplate.queryForList(SQL_SELECT_ID_BY_HASH, String.class, requestHash, AsynchJobState.COMPLETE.name());
+	}
+
+	@Override
+	public AsynchJobState getJobState(String jobId) throws NotFoundException {
+		if(jobId == null){
+			throw new IllegalArgumentException("Job id cannot be null");
+		}
+		try {
+			String state = jdbcTemplate.queryForObject(SQL_SELECT_STATE, String.class, jobId);
+			return AsynchJobState.valueOf(state);
+		} catch (EmptyResultDataAccessException e) {
+			throw new NotFoundException("Asynchronous job does not exist: " + jobId);
+		}
+	}
 	
 }
@@ -23,23 +23,23 @@ public class AsynchJobStatusUtils {
 	 * @return
 	 */
 	public static AsynchronousJobStatus createDTOFromDBO(DBOAsynchJobStatus dbo){
-		// Read in the compressed data
-		AsynchronousJobStatus dto = new AsynchronousJobStatus();
-		try {
-			// The compressed body contains the truth data for all type specific data.
-			AsynchronousRequestBody asynchronousRequestBody = (AsynchronousRequestBody) JDOSecondaryPropertyUtils.decompressObject(AsynchJobType.getRequestXStream(), dbo.getRequestBody());
-			asynchronousRequestBody.setConcreteType(asynchronousRequestBody.getClass().getName());
-			dto.setRequestBody(asynchronousRequestBody);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		AsynchronousJobStatus dto = createStatusDTOFromDBO(dbo);
+		// The compressed body contains the truth data for all type specific data.
+		dto.setRequestBody(decodeRequestBody(dbo.getRequestBody()));
 		if(dbo.getResponseBody() != null){
-			try {
-				dto.setResponseBody((AsynchronousResponseBody) JDOSecondaryPropertyUtils.decompressObject(AsynchJobType.getResponseXStream(), dbo.getResponseBody()));
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
+			dto.setResponseBody(decodeResponseBody(dbo.getResponseBody()));
 		}
+		return dto;
+	}
+
+	/**
+	 * Create a DTO from a DBO without the request and response bodies.
+	 * 
+	 * @param dbo
+	 * @return
+	 */
+	public static AsynchronousJobStatus createStatusDTOFromDBO(DBOAsynchJobStatus dbo){
+		AsynchronousJobStatus dto = new AsynchronousJobStatus();
 		// The database contains the truth data for all generic data.
 		dto.setChangedOn(dbo.getChangedOn());
 		dto.setException(dbo.getException());
@@ -57,6 +57,36 @@ public class AsynchJobStatusUtils {
 		dto.setRuntimeMS(dbo.getRuntimeMS());
 		return dto;
 	}
+
+	/**
+	 * Decompress and parse a request body.
+	 * 
+	 * @param compressed
+	 * @return
+	 */
+	public static AsynchronousRequestBody decodeRequestBody(byte[] compressed){
+		try {
+			AsynchronousRequestBody asynchronousRequestBody = (AsynchronousRequestBody) JDOSecondaryPropertyUtils.decompressObject(AsynchJobType.getRequestXStream(), compressed);
+			asynchronousRequestBody.setConcreteType(asynchronousRequestBody.getClass().getName());
+			return asynchronousRequestBody;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Decompress and parse a response body.
+	 * 
+	 * @param compressed
+	 * @return
+	 */
+	public static AsynchronousResponseBody decodeResponseBody(byte[] compressed){
+		try {
+			return (AsynchronousResponseBody) JDOSecondaryPropertyUtils.decompressObject(AsynchJobType.getResponseXStream(), compressed);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
 	
 	/**
 	 * Create DBO from a DTO
@@ -62,9 +62,9 @@ public enum AsynchJobType  {
 
 	static {
 		UnmodifiableXStream.Builder requestXStreamBuilder = UnmodifiableXStream.builder();
-		requestXStreamBuilder.allowTypeHierarchy(AsynchronousRequestBody.class);
+		requestXStreamBuilder.allowTypeHierarchy(AsynchronousRequestBody.class).jsonEntityBlobCodec();
 		UnmodifiableXStream.Builder responseXStreamBuilder = UnmodifiableXStream.builder();
-		responseXStreamBuilder.allowTypeHierarchy(AsynchronousResponseBody.class);
+		responseXStreamBuilder.allowTypeHierarchy(AsynchronousResponseBody.class).jsonEntityBlobCodec();
 
 		for (AsynchJobType type : values()) {
 			requestXStreamBuilder.alias(type.name(), type.requestClass);
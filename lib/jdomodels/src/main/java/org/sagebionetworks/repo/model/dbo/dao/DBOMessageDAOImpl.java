@@ -392,10 +392,31 @@ public class DBOMessageDAOImpl implements MessageDAO {
 		createMessageStatus(messageId, userId, status);
 	}
 	
+	@Override
+	@NewWriteTransaction
+	public void createMessageStatus_NewTransaction(String messageId, List<String> userIds, MessageStatusType status) {
+		if (userIds.isEmpty()) {
+			return;
+		}
+		List<DBOMessageStatus> batch = new ArrayList<DBOMessageStatus>(userIds.size());
+		for (String userId : userIds) {
+			batch.add(createMessageStatusDBO(messageId, userId, status));
+		}
+		basicDAO.createBatch(batch);
+		
+		touch(messageId);
+	}
+	
 	/**
 	 * Helper method for both the exposed methods that create a message status
 	 */
 	private void createMessageStatus(String messageId, String userId, MessageStatusType status) {
+		basicDAO.createNew(createMessageStatusDBO(messageId, userId, status));
+		
+		touch(messageId);
+	}
+	
+	private static DBOMessageStatus createMessageStatusDBO(String messageId, String userId, MessageStatusType status) {
 		if (status == null) {
 			status = MessageStatusType.UNREAD;
 		}
@@ -405,9 +426,7 @@ public class DBOMessageDAOImpl implements MessageDAO {
 		dbo.setRecipientId(Long.parseLong(userId));
 		dbo.setStatus(status);
 		MessageUtils.validateDBO(dbo);
-		basicDAO.createNew(dbo);
-		
-		touch(messageId);
+		return dbo;
 	}
 
 	@Override
@@ -72,6 +72,7 @@ public class DBOUserGroupDAOImpl implements UserGroupDAO {
 	private static final String SELECT_BY_IS_INDIVID_SQL_PAGINATED = 
 			"SELECT * FROM "+SqlConstants.TABLE_USER_GROUP+
 			" WHERE "+SqlConstants.COL_USER_GROUP_IS_INDIVIDUAL+"=:"+IS_INDIVIDUAL_PARAM_NAME+
+			" ORDER BY "+SqlConstants.COL_USER_GROUP_ID+
 			" LIMIT :"+LIMIT_PARAM_NAME+" OFFSET :"+OFFSET_PARAM_NAME;
 	
 	private static final String SELECT_ETAG_AND_LOCK_ROW_BY_ID = 
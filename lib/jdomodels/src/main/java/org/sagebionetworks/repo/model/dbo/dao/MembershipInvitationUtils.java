@@ -16,9 +16,10 @@ public class MembershipInvitationUtils {
 	// the 'blob' and then populate the individual fields
 
 	public static final String CLASS_ALIAS = "MembershipInvitation";
-	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder()
+	public static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder()
 			.allowTypes(MembershipInvitation.class)
 			.alias(CLASS_ALIAS, MembershipInvitation.class)
+			.jsonEntityBlobCodec()
 			.build();
 
 	public static void copyDtoToDbo(MembershipInvitation dto, DBOMembershipInvitation dbo) throws DatastoreException {
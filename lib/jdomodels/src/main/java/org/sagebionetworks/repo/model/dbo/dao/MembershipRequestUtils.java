@@ -16,9 +16,10 @@ public class MembershipRequestUtils {
 	// the 'blob' and then populate the individual fields
 
 	public static final String CLASS_ALIAS = "MembershipRequest";
-	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder()
+	public static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder()
 			.allowTypes(MembershipRequest.class)
 			.alias(CLASS_ALIAS, MembershipRequest.class)
+			.jsonEntityBlobCodec()
 			.build();
 
 	public static void copyDtoToDbo(MembershipRequest dto, DBOMembershipRequest dbo) throws DatastoreException {
@@ -287,6 +287,7 @@ public class NodeDAOImpl implements NodeDAO, InitializingBean {
 	
 	private static final String SQL_SELECT_WITHOUT_ANNOTATIONS = "SELECT N.*, R."+COL_REVISION_OWNER_NODE+", R."+COL_REVISION_NUMBER+", R."+COL_REVISION_ACTIVITY_ID+", R."+COL_REVISION_LABEL+", R."+COL_REVISION_COMMENT+", R."+COL_REVISION_MODIFIED_BY+", R."+COL_REVISION_MODIFIED_ON+", R."+COL_REVISION_FILE_HANDLE_ID+", R."+COL_REVISION_COLUMN_MODEL_IDS+", R."+COL_REVISION_SCOPE_IDS+", R."+COL_REVISION_REF_BLOB;
 	private static final String SQL_SELECT_CURRENT_NODE = SQL_SELECT_WITHOUT_ANNOTATIONS+" FROM "+TABLE_NODE+" N, "+TABLE_REVISION+" R WHERE N."+COL_NODE_ID+"= R."+COL_REVISION_OWNER_NODE+" AND N."+COL_CURRENT_REV+" = R."+COL_REVISION_NUMBER+" AND N."+COL_NODE_ID+"= ?";
+	private static final String SQL_SELECT_CURRENT_NODES = SQL_SELECT_WITHOUT_ANNOTATIONS+" FROM "+TABLE_NODE+" N, "+TABLE_REVISION+" R WHERE N."+COL_NODE_ID+"= R."+COL_REVISION_OWNER_NODE+" AND N."+COL_CURRENT_REV+" = R."+COL_REVISION_NUMBER+" AND N."+COL_NODE_ID+" IN (:"+BIND_NODE_IDS+")";
 	private static final String SQL_SELECT_NODE_VERSION = SQL_SELECT_WITHOUT_ANNOTATIONS+" FROM "+TABLE_NODE+" N, "+TABLE_REVISION+" R WHERE N."+COL_NODE_ID+"= R."+COL_REVISION_OWNER_NODE+" AND R."+COL_REVISION_NUMBER+" = ? AND N."+COL_NODE_ID+"= ?";
 
 	private static final String SELECT_FUNCTION_PROJECT_ID = "SELECT "+FUNCTION_GET_ENTITY_PROJECT_ID+"(?)";
@@ -313,6 +314,7 @@ public class NodeDAOImpl implements NodeDAO, InitializingBean {
 	private static final String SELECT_ANNOTATIONS_ONLY_SELECT_CLAUSE_PREFIX = "SELECT N."+COL_NODE_ID+", N."+COL_NODE_ETAG+", N."+COL_NODE_CREATED_ON+", N."+COL_NODE_CREATED_BY+", R.";
 
 	private static final String SELECT_ANNOTATIONS_ONLY_FROM_AND_WHERE_CLAUSE_PREFIX = " FROM  "+TABLE_NODE+" N, "+TABLE_REVISION+" R WHERE N."+COL_NODE_ID+" = :"+COL_NODE_ID +" AND R."+COL_REVISION_OWNER_NODE+" = N."+COL_NODE_ID+" AND R."+COL_REVISION_NUMBER + "=";
+	private static final String SELECT_USER_ANNOTATIONS_CURRENT_VERSIONS = "SELECT N."+COL_NODE_ID+", N."+COL_NODE_ETAG+", R."+COL_REVISION_USER_ANNOS_JSON+" FROM  "+TABLE_NODE+" N, "+TABLE_REVISION+" R WHERE N."+COL_NODE_ID+" IN (:"+BIND_NODE_IDS+") AND R."+COL_REVISION_OWNER_NODE+" = N."+COL_NODE_ID+" AND R."+COL_REVISION_NUMBER + " = N." + COL_CURRENT_REV;
 	private static final String SELECT_USER_ANNOTATIONS_ONLY_PREFIX = "SELECT N."+COL_NODE_ID+", N."+COL_NODE_ETAG+", R."+COL_REVISION_USER_ANNOS_JSON+" FROM  "+TABLE_NODE+" N, "+TABLE_REVISION+" R WHERE N."+COL_NODE_ID+" = ? AND R."+COL_REVISION_OWNER_NODE+" = N."+COL_NODE_ID+" AND R."+COL_REVISION_NUMBER + " = ";
 	private static final String CANNOT_FIND_A_NODE_WITH_ID = "Cannot find a node with id: ";
 	private static final String ERROR_RESOURCE_NOT_FOUND = "The resource you are attempting to access cannot be found";
@@ -568,6 +570,16 @@ public class NodeDAOImpl implements NodeDAO, InitializingBean {
 		}
 	}
 	
+	@Override
+	public List<Node> getNodes(List<Long> nodeIds){
+		ValidateArgument.required(nodeIds, "nodeIds");
+		if(nodeIds.isEmpty()){
+			return new LinkedList<Node>();
+		}
+		Map<String, Object> parameters = Collections.singletonMap(BIND_NODE_IDS, nodeIds);
+		return namedParameterJdbcTemplate.query(SQL_SELECT_CURRENT_NODES, parameters, new NodeMapper());
+	}
+	
 	@Override
 	public Node getNodeForVersion(String id, Long versionNumber){
 		if(id == null) throw new IllegalArgumentException("Id cannot be null");
@@ -896,6 +908,23 @@ public class NodeDAOImpl implements NodeDAO, InitializingBean {
 		}
 	}
 
+	@Override
+	public Map<Long, Annotations> getUserAnnotationsForCurrentVersions(List<Long> ids) {
+		ValidateArgument.required(ids, "ids");
+		final Map<Long, Annotations> results = new HashMap<Long, Annotations>(ids.size());
+		if(ids.isEmpty()){
+			return results;
+		}
+		Map<String, Object> parameters = Collections.singletonMap(BIND_NODE_IDS, ids);
+		namedParameterJdbcTemplate.query(SELECT_USER_ANNOTATIONS_CURRENT_VERSIONS, parameters, (ResultSet rs) -> {
+			Annotations userAnnotations = ANNOTATIONS_V2_ROW_MAPPER.mapRow(rs, 0);
+			// Remove the eTags (See PLFM-1420)
+			userAnnotations.setEtag(NodeConstants.ZERO_E_TAG);
+			results.put(rs.getLong(COL_NODE_ID), userAnnotations);
+		});
+		return results;
+	}
+
 	@WriteTransaction
 	@Override
 	public void updateEntityPropertyAnnotations(String nodeId, org.sagebionetworks.repo.model.Annotations updatedAnnos) throws NotFoundException, DatastoreException {
@@ -1654,6 +1683,29 @@ public class NodeDAOImpl implements NodeDAO, InitializingBean {
 		return KeyFactory.keyToString(benefactorId);
 	}
 
+	@Override
+	public Map<Long, Long> getBenefactors(List<Long> nodeIds) {
+		ValidateArgument.required(nodeIds, "nodeIds");
+		final Map<Long, Long> results = new HashMap<Long, Long>(nodeIds.size());
+		if(nodeIds.isEmpty()){
+			return results;
+		}
+		Map<String, Object> parameters = Collections.singletonMap(BIND_NODE_IDS, nodeIds);
+		namedParameterJdbcTemplate.query(SQL_SELECT_BENEFACTORS, parameters, (ResultSet rs) -> {
+			Long id = rs.getLong(COL_NODE_ID);
+			Long benefactorId = rs.getLong(BENEFACTOR_ALIAS);
+			if(rs.wasNull()){
+				// the node does not have a benefactor.
+				return;
+			}
+			if(benefactorId < 0){
+				throw new IllegalStateException("Infinite loop detected for: "+id);
+			}
+			results.put(id, benefactorId);
+		});
+		return results;
+	}
+
 	@Override
 	public Set<Long> getFileHandleIdsAssociatedWithFileEntity(List<Long> fileHandleIds, long entityId) {
 		ValidateArgument.required(fileHandleIds, "fileHandleIds");
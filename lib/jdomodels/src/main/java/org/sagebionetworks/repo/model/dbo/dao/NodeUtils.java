@@ -33,7 +33,7 @@ public class NodeUtils {
 	
 	public static final String ROOT_ENTITY_ID = StackConfigurationSingleton.singleton().getRootFolderEntityId();
 
-	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypes(Reference.class).build();
+	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypes(Reference.class).jsonEntityBlobCodec().build();
 
 	/**
 	 * Used to update an existing object
@@ -28,7 +28,7 @@ import org.sagebionetworks.repo.model.dbo.persistence.DBOTeam;
 import org.sagebionetworks.repo.model.jdo.JDOSecondaryPropertyUtils;
 
 public class TeamUtils {
-	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypes(Team.class).build();
+	public static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypes(Team.class).jsonEntityBlobCodec().build();
 
 	// the convention is that the individual fields take precedence
 	// over the serialized objects.  When restoring the dto we first deserialize
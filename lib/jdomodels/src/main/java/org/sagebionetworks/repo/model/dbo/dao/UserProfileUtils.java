@@ -18,7 +18,7 @@ import org.sagebionetworks.repo.model.jdo.KeyFactory;
 import org.sagebionetworks.repo.model.message.Settings;
 
 public class UserProfileUtils {
-	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypes(UserProfile.class).build();
+	public static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypes(UserProfile.class).jsonEntityBlobCodec().build();
 
 
 	public static void copyDtoToDbo(UserProfile dto, DBOUserProfile dbo) throws DatastoreException{
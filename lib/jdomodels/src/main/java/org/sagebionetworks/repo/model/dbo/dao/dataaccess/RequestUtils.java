@@ -10,7 +10,7 @@ import org.sagebionetworks.repo.model.jdo.JDOSecondaryPropertyUtils;
 
 public class RequestUtils {
 	public static String REGEX = ",";
-	private static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypeHierarchy(RequestInterface.class).build();
+	public static final UnmodifiableXStream X_STREAM = UnmodifiableXStream.builder().allowTypeHierarchy(RequestInterface.class).jsonEntityBlobCodec().build();
 
 
 	public static void copyDtoToDbo(RequestInterface dto, DBORequest dbo) throws DatastoreException{
@@ -9,14 +9,21 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSI
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_REPLY_MESSAGE_KEY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_REPLY_MODIFIED_ON;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_REPLY_THREAD_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_FORUM_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_STATS_ACTIVE_AUTHORS;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_STATS_THREAD_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_FORUM_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_FORUM_PROJECT_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_REPLY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_AUTHOR_STATS;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_STATS;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_FORUM;
 
 import java.sql.ResultSet;
@@ -30,6 +37,7 @@ import org.sagebionetworks.repo.model.dao.discussion.DiscussionReplyDAO;
 import org.sagebionetworks.repo.model.dbo.DBOBasicDao;
 import org.sagebionetworks.repo.model.dbo.persistence.discussion.DBODiscussionReply;
 import org.sagebionetworks.repo.model.dbo.persistence.discussion.DiscussionReplyUtils;
+import org.sagebionetworks.repo.model.dbo.persistence.discussion.DiscussionThreadUtils;
 import org.sagebionetworks.repo.model.discussion.DiscussionFilter;
 import org.sagebionetworks.repo.model.discussion.DiscussionReplyBundle;
 import org.sagebionetworks.repo.model.discussion.DiscussionReplyOrder;
@@ -108,13 +116,91 @@ public class DBODiscussionReplyDAOImpl implements DiscussionReplyDAO{
 			+"WHERE "+COL_DISCUSSION_REPLY_IS_DELETED+" = FALSE "
 			+"AND "+COL_DISCUSSION_REPLY_THREAD_ID+" = ?";
 
-	private static final String SQL_SELECT_THREAD_AUTHOR_STAT = "SELECT "+COL_DISCUSSION_REPLY_CREATED_BY
+	public static final int MAX_ACTIVE_AUTHORS = 5;
+
+	// Reads the top authors of a thread from the index on the author stats.
+	private static final String SQL_SELECT_THREAD_AUTHOR_STAT = "SELECT "+COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID
+			+" FROM "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS
+			+" WHERE "+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+" = ?"
+			+" AND "+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" > 0"
+			+" ORDER BY "+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" DESC"
+			+" LIMIT "+MAX_ACTIVE_AUTHORS;
+
+	// A locking read sees the author stats committed by the writers that held the thread stats row before.
+	private static final String SQL_SELECT_THREAD_AUTHOR_STAT_FOR_UPDATE = SQL_SELECT_THREAD_AUTHOR_STAT+" FOR UPDATE";
+
+	private static final String SQL_SELECT_AUTHOR_STATS_REPLY_COUNT = "SELECT IFNULL(SUM("+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+"), 0)"
+			+" FROM "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS
+			+" WHERE "+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+" = ?";
+
+	private static final String SQL_INCREMENT_AUTHOR_STATS = "INSERT INTO "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS+" ("
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+", "
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID+", "
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+") VALUES (?, ?, 1) ON DUPLICATE KEY UPDATE "
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" = "+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" + 1";
+
+	private static final String SQL_DECREMENT_AUTHOR_STATS = "UPDATE "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS
+			+" SET "+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" = "+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" - 1"
+			+" WHERE "+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+" = ?"
+			+" AND "+COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID+" = ?"
+			+" AND "+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+" > 0";
+
+	private static final String SQL_DELETE_AUTHOR_STATS = "DELETE FROM "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS
+			+" WHERE "+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+" = ?";
+
+	private static final String SQL_INSERT_AUTHOR_STATS = "INSERT INTO "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS+" ("
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+", "
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID+", "
+			+COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES+") VALUES (?, ?, ?)";
+
+	// A plain read that does not lock the replies, see recomputeThreadStats().
+	private static final String SQL_SELECT_AUTHOR_REPLY_COUNTS = "SELECT "+COL_DISCUSSION_REPLY_CREATED_BY+", COUNT(*)"
 			+" FROM "+TABLE_DISCUSSION_REPLY
 			+" WHERE "+COL_DISCUSSION_REPLY_THREAD_ID+" = ?"
-			+" AND "+COL_DISCUSSION_REPLY_IS_DELETED+" = FALSE "
-			+" GROUP BY "+COL_DISCUSSION_REPLY_CREATED_BY
-			+" ORDER BY COUNT(*) DESC"
-			+" LIMIT 5";
+			+" AND "+COL_DISCUSSION_REPLY_IS_DELETED+" = FALSE"
+			+" GROUP BY "+COL_DISCUSSION_REPLY_CREATED_BY;
+
+	/*
+	 * Every write to the author stats of a thread first locks the thread's row
+	 * in the thread stats, so the active authors are always computed from the
+	 * author stats of the previous writer, and both tables are always locked
+	 * in the same order. A writer that changes a reply locks the reply before
+	 * the thread stats row, so the stats are never rebuilt with a locking read
+	 * of the replies.
+	 */
+	private static final String SQL_ADD_REPLY_TO_THREAD_STATS = "INSERT INTO "+TABLE_DISCUSSION_THREAD_STATS+" ("
+			+COL_DISCUSSION_THREAD_STATS_THREAD_ID+", "
+			+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+", "
+			+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+") VALUES (?, 1, ?) ON DUPLICATE KEY UPDATE "
+			+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+" = IFNULL("+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+", 0) + 1, "
+			+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+" = GREATEST(IFNULL("+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+", ?), ?)";
+
+	private static final String SQL_REMOVE_REPLY_FROM_THREAD_STATS = "UPDATE "+TABLE_DISCUSSION_THREAD_STATS
+			+" SET "+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+" = GREATEST(IFNULL("+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+", 0) - 1, 0)"
+			+" WHERE "+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = ?";
+
+	// Creates the row if it is missing, so there is always a row to lock.
+	private static final String SQL_LOCK_THREAD_STATS = "INSERT INTO "+TABLE_DISCUSSION_THREAD_STATS+" ("
+			+COL_DISCUSSION_THREAD_STATS_THREAD_ID+") VALUES (?) ON DUPLICATE KEY UPDATE "
+			+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = "+COL_DISCUSSION_THREAD_STATS_THREAD_ID;
+
+	private static final String SQL_UPDATE_THREAD_STATS_ACTIVE_AUTHORS = "UPDATE "+TABLE_DISCUSSION_THREAD_STATS
+			+" SET "+COL_DISCUSSION_THREAD_STATS_ACTIVE_AUTHORS+" = ?"
+			+" WHERE "+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = ?";
+
+	private static final String SQL_UPDATE_THREAD_REPLY_STATS = "UPDATE "+TABLE_DISCUSSION_THREAD_STATS
+			+" SET "+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+" = ?, "
+			+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+" = ?"
+			+" WHERE "+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = ?";
+
+	private static final String SQL_SELECT_THREAD_STATS_REPLY_COUNT = "SELECT "+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES
+			+" FROM "+TABLE_DISCUSSION_THREAD_STATS
+			+" WHERE "+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = ?";
+
+	private static final String SQL_UPDATE_THREAD_STATS_LAST_ACTIVITY = "UPDATE "+TABLE_DISCUSSION_THREAD_STATS
+			+" SET "+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+" = ?"
+			+" WHERE "+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = ?"
+			+" AND ("+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+" IS NULL OR "+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+" < ?)";
 
 	private static final String SQL_SELECT_REPLY_COUNT = "SELECT COUNT(*)"
 			+" FROM "+TABLE_DISCUSSION_REPLY
@@ -150,6 +236,11 @@ public class DBODiscussionReplyDAOImpl implements DiscussionReplyDAO{
 	private static final String SQL_SELECT_ETAG_FOR_UPDATE = "SELECT "+COL_DISCUSSION_REPLY_ETAG
 			+" FROM "+TABLE_DISCUSSION_REPLY
 			+" WHERE "+COL_DISCUSSION_REPLY_ID+" = ? FOR UPDATE";
+	private static final String SQL_SELECT_REPLY_FOR_UPDATE = "SELECT "+COL_DISCUSSION_REPLY_THREAD_ID+", "
+			+COL_DISCUSSION_REPLY_CREATED_BY+", "
+			+COL_DISCUSSION_REPLY_IS_DELETED
+			+" FROM "+TABLE_DISCUSSION_REPLY
+			+" WHERE "+COL_DISCUSSION_REPLY_ID+" = ? FOR UPDATE";
 	private static final String SQL_MARK_REPLY_AS_DELETED = "UPDATE "+TABLE_DISCUSSION_REPLY
 			+" SET "+COL_DISCUSSION_REPLY_IS_DELETED+" = TRUE, "
 			+COL_DISCUSSION_REPLY_ETAG+" = ? "
@@ -180,9 +271,63 @@ public class DBODiscussionReplyDAOImpl implements DiscussionReplyDAO{
 		String etag = UUID.randomUUID().toString();
 		DBODiscussionReply dbo = DiscussionReplyUtils.createDBO(threadId, messageKey, userId, id, etag);
 		basicDao.createNew(dbo);
+		addReplyToStats(dbo.getThreadId(), userId, new Timestamp(dbo.getModifiedOn().getTime()));
 		return getReply(id, DEFAULT_FILTER);
 	}
 
+	/**
+	 * Count a new reply in the statistics of its thread. The stats tables are
+	 * not migrated, so a thread without a stats row can already have other
+	 * replies and its stats are recomputed instead.
+	 * 
+	 * @param threadId
+	 * @param authorId
+	 * @param modifiedOn
+	 */
+	private void addReplyToStats(long threadId, long authorId, Timestamp modifiedOn) {
+		// One row is affected when the row is inserted and two when it is updated.
+		if (jdbcTemplate.update(SQL_ADD_REPLY_TO_THREAD_STATS, threadId, modifiedOn, modifiedOn, modifiedOn) == 1) {
+			recomputeThreadStats(threadId);
+			return;
+		}
+		jdbcTemplate.update(SQL_INCREMENT_AUTHOR_STATS, threadId, authorId);
+		updateActiveAuthors(threadId);
+	}
+
+	/**
+	 * Recompute all statistics of a thread from its replies. Must be called in
+	 * the transaction that holds the lock on the thread stats row. The replies
+	 * are read without locks, so this sees every reply committed by a writer
+	 * that held the thread stats row before, while writers still waiting for
+	 * the row apply their change after this transaction commits.
+	 * 
+	 * @param threadId
+	 */
+	private void recomputeThreadStats(long threadId) {
+		jdbcTemplate.update(SQL_DELETE_AUTHOR_STATS, threadId);
+		List<Object[]> authorStats = jdbcTemplate.query(SQL_SELECT_AUTHOR_REPLY_COUNTS, (ResultSet rs, int rowNum) -> {
+			return new Object[] { threadId, rs.getLong(1), rs.getLong(2) };
+		}, threadId);
+		if (!authorStats.isEmpty()) {
+			jdbcTemplate.batchUpdate(SQL_INSERT_AUTHOR_STATS, authorStats);
+		}
+		DiscussionThreadReplyStat replyStat = getThreadReplyStat(threadId);
+		Timestamp lastActivity = replyStat.getLastActivity() == null ? null : new Timestamp(replyStat.getLastActivity());
+		jdbcTemplate.update(SQL_UPDATE_THREAD_REPLY_STATS, replyStat.getNumberOfReplies(), lastActivity, threadId);
+		updateActiveAuthors(threadId);
+	}
+
+	/**
+	 * Recompute the active authors of a thread from its author stats. Must be
+	 * called in the transaction that holds the lock on the thread stats row.
+	 * 
+	 * @param threadId
+	 */
+	private void updateActiveAuthors(long threadId) {
+		List<String> activeAuthors = jdbcTemplate.queryForList(SQL_SELECT_THREAD_AUTHOR_STAT_FOR_UPDATE, String.class, threadId);
+		jdbcTemplate.update(SQL_UPDATE_THREAD_STATS_ACTIVE_AUTHORS, DiscussionThreadUtils.toCsvString(activeAuthors), threadId);
+	}
+
 	@Override
 	public DiscussionReplyBundle getReply(long replyId, DiscussionFilter filter) {
 		String query = addCondition(SQL_GET_REPLY_BY_ID, filter);
@@ -259,8 +404,25 @@ public class DBODiscussionReplyDAOImpl implements DiscussionReplyDAO{
 	@WriteTransaction
 	@Override
 	public void markReplyAsDeleted(long replyId) {
+		List<DBODiscussionReply> results = jdbcTemplate.query(SQL_SELECT_REPLY_FOR_UPDATE, new RowMapper<DBODiscussionReply>(){
+
+			@Override
+			public DBODiscussionReply mapRow(ResultSet rs, int rowNum) throws SQLException {
+				DBODiscussionReply dbo = new DBODiscussionReply();
+				dbo.setThreadId(rs.getLong(COL_DISCUSSION_REPLY_THREAD_ID));
+				dbo.setCreatedBy(rs.getLong(COL_DISCUSSION_REPLY_CREATED_BY));
+				dbo.setIsDeleted(rs.getBoolean(COL_DISCUSSION_REPLY_IS_DELETED));
+				return dbo;
+			}
+		}, replyId);
 		String etag = UUID.randomUUID().toString();
 		jdbcTemplate.update(SQL_MARK_REPLY_AS_DELETED, etag, replyId);
+		if (results.size() == 1 && !results.get(0).getIsDeleted()) {
+			long threadId = results.get(0).getThreadId();
+			jdbcTemplate.update(SQL_REMOVE_REPLY_FROM_THREAD_STATS, threadId);
+			jdbcTemplate.update(SQL_DECREMENT_AUTHOR_STATS, threadId, results.get(0).getCreatedBy());
+			updateActiveAuthors(threadId);
+		}
 	}
 
 	@WriteTransaction
@@ -270,7 +432,11 @@ public class DBODiscussionReplyDAOImpl implements DiscussionReplyDAO{
 		String etag = UUID.randomUUID().toString();
 		Timestamp modifiedOn = new Timestamp(new Date().getTime());
 		jdbcTemplate.update(SQL_UPDATE_MESSAGE_KEY, newKey, etag, modifiedOn, replyId);
-		return getReply(replyId, DEFAULT_FILTER);
+		DiscussionReplyBundle reply = getReply(replyId, DEFAULT_FILTER);
+		if (!reply.getIsDeleted()) {
+			jdbcTemplate.update(SQL_UPDATE_THREAD_STATS_LAST_ACTIVITY, modifiedOn, Long.parseLong(reply.getThreadId()), modifiedOn);
+		}
+		return reply;
 	}
 
 	@WriteTransaction
@@ -300,11 +466,33 @@ public class DBODiscussionReplyDAOImpl implements DiscussionReplyDAO{
 
 			@Override
 			public String mapRow(ResultSet rs, int rowNum) throws SQLException {
-				return rs.getString(COL_DISCUSSION_REPLY_CREATED_BY);
+				return rs.getString(COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID);
 			}
 		}, threadId);
 	}
 
+	@Override
+	public long getAuthorStatsReplyCount(long threadId) {
+		return jdbcTemplate.queryForObject(SQL_SELECT_AUTHOR_STATS_REPLY_COUNT, Long.class, threadId);
+	}
+
+	@Override
+	public boolean isThreadStatsCurrent(long threadId) {
+		List<Long> replyCounts = jdbcTemplate.queryForList(SQL_SELECT_THREAD_STATS_REPLY_COUNT, Long.class, threadId);
+		if (replyCounts.isEmpty() || replyCounts.get(0) == null) {
+			return false;
+		}
+		long numberOfReplies = getThreadReplyStat(threadId).getNumberOfReplies();
+		return replyCounts.get(0) == numberOfReplies && getAuthorStatsReplyCount(threadId) == numberOfReplies;
+	}
+
+	@WriteTransaction
+	@Override
+	public void rebuildThreadStats(long threadId) {
+		jdbcTemplate.update(SQL_LOCK_THREAD_STATS, threadId);
+		recomputeThreadStats(threadId);
+	}
+
 	@Override
 	public String getProjectId(String replyId) {
 		List<String> queryResult = jdbcTemplate.query(SQL_SELECT_PROJECT_ID, new RowMapper<String>(){
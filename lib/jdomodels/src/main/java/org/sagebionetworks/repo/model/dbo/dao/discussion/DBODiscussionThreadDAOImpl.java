@@ -1,5 +1,9 @@
 package org.sagebionetworks.repo.model.dbo.dao.discussion;
 
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_CREATED_BY;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_CREATED_ON;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID;
@@ -22,6 +26,7 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSI
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_VIEW_USER_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_FORUM_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_FORUM_PROJECT_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_ENTITY_THREAD_COUNT;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_STATS;
@@ -36,10 +41,18 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import org.sagebionetworks.repo.model.dao.discussion.DiscussionThreadDAO;
@@ -56,6 +69,7 @@ import org.sagebionetworks.repo.model.discussion.EntityThreadCounts;
 import org.sagebionetworks.repo.model.jdo.KeyFactory;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.util.Clock;
 import org.sagebionetworks.util.ValidateArgument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -73,6 +87,13 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 	private NamedParameterJdbcTemplate namedTemplate;
 	@Autowired
 	private DBOBasicDao basicDao;
+	@Autowired
+	private Clock clock;
+
+	public static final int MAX_CACHED_ENTITIES = 10000;
+	public static final long ENTITY_THREAD_COUNT_TIME_TO_LIVE_MS = 60 * 1000L;
+
+	private final EntityThreadCountCache entityThreadCountCache = new EntityThreadCountCache(MAX_CACHED_ENTITIES, ENTITY_THREAD_COUNT_TIME_TO_LIVE_MS);
 
 	public static final Charset UTF8 = Charset.forName("UTF-8");
 	private RowMapper<DiscussionThreadBundle> DISCUSSION_THREAD_BUNDLE_ROW_MAPPER = new RowMapper<DiscussionThreadBundle>(){
@@ -171,6 +192,7 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 	private static final String SELECT_IS_DELETED = "SELECT "+COL_DISCUSSION_THREAD_IS_DELETED
 			+" FROM "+TABLE_DISCUSSION_THREAD
 			+" WHERE "+COL_DISCUSSION_THREAD_ID+" = ?";
+	private static final String SELECT_IS_DELETED_FOR_UPDATE = SELECT_IS_DELETED+" FOR UPDATE";
 
 	private static final String SELECT_THREAD_BUNDLE = "SELECT "
 			+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_ID+" AS "+COL_DISCUSSION_THREAD_ID+", "
@@ -250,22 +272,96 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 			+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID+") "
 			+ "VALUES (?,?)";
 
-	public static final String THREAD_COUNT = "THREAD_COUNT";
-
-	// get a list of (entityId, count distinct threads) for a given list of entity,
-	// with threads belong to a project in a given list
-	public static final String SQL_GET_THREAD_COUNTS = "SELECT "
-			+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID+", "
-			+"COUNT(DISTINCT "+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_THREAD_ID+") AS "+THREAD_COUNT
-			+ FORUM_THREAD_ENTITY_REF_JOIN
-			+ " AND "+ENTITY_LIST_CONDITION
-			+ " AND "+PROJECT_CONDITION
-			+" GROUP BY "+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID;
-
-	// Get a list of project that contains threads that mentioned an entity in the given list
-	public static final String SQL_GET_PROJECTS = "SELECT DISTINCT "+COL_FORUM_PROJECT_ID
+	// for the DISCUSSION_ENTITY_THREAD_COUNT table
+	private static final String NOT_DELETED_AS_COUNT = "IF("+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_IS_DELETED+", 0, 1)";
+
+	public static final String SQL_SELECT_ENTITY_THREAD_COUNTS = "SELECT "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT
+			+" FROM "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT
+			+" WHERE "+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID+" IN (:"+ENTITY_IDS+")";
+
+	// Count the references and the threads that are not deleted of the next page of referenced entities
+	public static final String SQL_COUNT_ENTITY_REFERENCES_PAGE = "SELECT "
+			+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID+", "
+			+"COUNT(*) AS "+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+", "
+			+"SUM("+NOT_DELETED_AS_COUNT+") AS "+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT
+			+" FROM "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+" JOIN "+TABLE_DISCUSSION_THREAD
+			+" ON "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_THREAD_ID
+					+" = "+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_ID
+			+" WHERE "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID+" > ?"
+			+" GROUP BY "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID
+			+" ORDER BY "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID
+			+" LIMIT ?";
+
+	private static final String SQL_ADD_ENTITY_REFERENCE_TO_COUNT = "INSERT INTO "
+			+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+" ("
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+")"
+			+" SELECT ?, "+TABLE_FORUM+"."+COL_FORUM_PROJECT_ID+", 1, "+NOT_DELETED_AS_COUNT
+			+" FROM "+TABLE_DISCUSSION_THREAD+", "+TABLE_FORUM
+			+" WHERE "+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_FORUM_ID
+					+" = "+TABLE_FORUM+"."+COL_FORUM_ID
+			+" AND "+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_ID+" = ?"
+			+" ON DUPLICATE KEY UPDATE "
+			+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT
+					+" = "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+" + 1, "
+			+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT
+					+" = "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT
+					+" + VALUES("+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+")";
+
+	// Add the given delta to the count of every entity the given thread references
+	private static final String SQL_UPDATE_THREAD_COUNT_FOR_THREAD = "UPDATE "
+			+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+", "
+			+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+", "
+			+TABLE_DISCUSSION_THREAD+", "
+			+TABLE_FORUM
+			+" SET "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT
+					+" = GREATEST("+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+" + ?, 0)"
+			+" WHERE "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_THREAD_ID
+					+" = "+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_ID
+			+" AND "+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_FORUM_ID
+					+" = "+TABLE_FORUM+"."+COL_FORUM_ID
+			+" AND "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID
+					+" = "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID
+			+" AND "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+"."+COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID
+					+" = "+TABLE_FORUM+"."+COL_FORUM_PROJECT_ID
+			+" AND "+TABLE_DISCUSSION_THREAD+"."+COL_DISCUSSION_THREAD_ID+" = ?";
+
+	private static final String SQL_SELECT_ENTITY_IDS_FOR_THREAD = "SELECT "+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID
+			+" FROM "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE
+			+" WHERE "+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_THREAD_ID+" = ?";
+
+	private static final String SQL_CLEAR_ENTITY_THREAD_COUNTS = "UPDATE "+TABLE_DISCUSSION_ENTITY_THREAD_COUNT
+			+" SET "+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+" = 0, "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+" = 0"
+			+" WHERE "+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID+" IN (:"+ENTITY_IDS+")";
+
+	// Count the references and threads of the given entities from the reference table
+	private static final String SQL_SELECT_ENTITY_THREAD_COUNTS_FROM_REFERENCES = "SELECT "
+			+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID
+					+" AS "+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID+", "
+			+TABLE_FORUM+"."+COL_FORUM_PROJECT_ID+" AS "+COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID+", "
+			+"COUNT(*) AS "+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+", "
+			+"SUM("+NOT_DELETED_AS_COUNT+") AS "+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT
 			+FORUM_THREAD_ENTITY_REF_JOIN
-			+" AND "+ENTITY_LIST_CONDITION;
+			+" AND "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+ENTITY_LIST_CONDITION
+			+" GROUP BY "+TABLE_DISCUSSION_THREAD_ENTITY_REFERENCE+"."+COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID+", "
+			+TABLE_FORUM+"."+COL_FORUM_PROJECT_ID;
+
+	private static final String SQL_SET_ENTITY_THREAD_COUNT = "INSERT INTO "
+			+TABLE_DISCUSSION_ENTITY_THREAD_COUNT+" ("
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+", "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+") VALUES (?, ?, ?, ?)"
+			+" ON DUPLICATE KEY UPDATE "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+" = VALUES("+COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT+"), "
+			+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+" = VALUES("+COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT+")";
 
 	// This query is used by the stats worker. It's critical to keep the order by threadId to prevent deadlock.
 	public static final String SQL_SELECT_ALL_THREAD_ID = "SELECT "+COL_DISCUSSION_THREAD_ID
@@ -297,6 +393,11 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 			+COL_DISCUSSION_THREAD_STATS_ACTIVE_AUTHORS+" = ?, "
 			+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_REPLIES+" = ?, "
 			+COL_DISCUSSION_THREAD_STATS_LAST_ACTIVITY+" = ? ";
+	private static final String SQL_UPDATE_THREAD_VIEW_STATS = "INSERT INTO "
+			+TABLE_DISCUSSION_THREAD_STATS+" ("
+			+COL_DISCUSSION_THREAD_STATS_THREAD_ID+", "
+			+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_VIEWS+" ) VALUES (?, ?) ON DUPLICATE KEY UPDATE "
+			+COL_DISCUSSION_THREAD_STATS_NUMBER_OF_VIEWS+" = ?";
 	public static final DiscussionFilter DEFAULT_FILTER = DiscussionFilter.NO_FILTER;
 
 	@WriteTransaction
@@ -393,8 +494,35 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 	@WriteTransaction
 	@Override
 	public void markThreadAsDeleted(long threadId) {
+		Boolean isDeleted = isThreadDeletedForUpdate(threadId);
 		String etag = UUID.randomUUID().toString();
 		jdbcTemplate.update(SQL_MARK_THREAD_AS_DELETED, etag, threadId);
+		if (Boolean.FALSE.equals(isDeleted)) {
+			updateEntityThreadCounts(threadId, -1L);
+		}
+	}
+
+	/**
+	 * Lock the thread and read its deleted flag.
+	 * 
+	 * @param threadId
+	 * @return null if the thread does not exist.
+	 */
+	private Boolean isThreadDeletedForUpdate(long threadId) {
+		List<Boolean> results = jdbcTemplate.queryForList(SELECT_IS_DELETED_FOR_UPDATE, Boolean.class, threadId);
+		return results.isEmpty() ? null : results.get(0);
+	}
+
+	/**
+	 * Add the given delta to the thread count of every entity the given thread
+	 * references, within the project of the thread.
+	 * 
+	 * @param threadId
+	 * @param delta
+	 */
+	private void updateEntityThreadCounts(long threadId, long delta) {
+		jdbcTemplate.update(SQL_UPDATE_THREAD_COUNT_FOR_THREAD, delta, threadId);
+		entityThreadCountCache.invalidate(jdbcTemplate.queryForList(SQL_SELECT_ENTITY_IDS_FOR_THREAD, Long.class, threadId));
 	}
 
 	@WriteTransaction
@@ -550,20 +678,28 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 	@WriteTransaction
 	@Override
 	public void insertEntityReference(final List<DiscussionThreadEntityReference> refs) {
-		jdbcTemplate.batchUpdate(SQL_INSERT_IGNORE_ENTITY_REFERENCE, new BatchPreparedStatementSetter(){
-
-			@Override
-			public void setValues(PreparedStatement ps, int i)
-					throws SQLException {
-				ps.setLong(1, Long.parseLong(refs.get(i).getThreadId()));
-				ps.setLong(2, KeyFactory.stringToKey(refs.get(i).getEntityId()));
-			}
-
-			@Override
-			public int getBatchSize() {
-				return refs.size();
+		// Count rows are locked in entity order so threads that mention the same entities do not deadlock.
+		List<DiscussionThreadEntityReference> sorted = new ArrayList<DiscussionThreadEntityReference>(refs);
+		Collections.sort(sorted, Comparator.comparing((DiscussionThreadEntityReference ref) -> KeyFactory.stringToKey(ref.getEntityId())));
+		Set<Long> changedEntityIds = new HashSet<Long>();
+		Set<Long> newlyCountedEntityIds = new TreeSet<Long>();
+		for (DiscussionThreadEntityReference ref : sorted) {
+			long threadId = Long.parseLong(ref.getThreadId());
+			long entityId = KeyFactory.stringToKey(ref.getEntityId());
+			// only a new reference is added to the count
+			if (jdbcTemplate.update(SQL_INSERT_IGNORE_ENTITY_REFERENCE, threadId, entityId) > 0) {
+				// One row is affected when the count row is inserted and two when it is updated.
+				if (jdbcTemplate.update(SQL_ADD_ENTITY_REFERENCE_TO_COUNT, entityId, threadId) == 1) {
+					newlyCountedEntityIds.add(entityId);
+				}
+				changedEntityIds.add(entityId);
 			}
-		});
+		}
+		if (!newlyCountedEntityIds.isEmpty()) {
+			// The count table is not migrated, so a new count row can miss older references.
+			rebuildEntityThreadCounts(newlyCountedEntityIds);
+		}
+		entityThreadCountCache.invalidate(changedEntityIds);
 	}
 
 	@Override
@@ -576,18 +712,21 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 		if (entityIds.isEmpty() || projectIds.isEmpty()) {
 			return threadCounts;
 		}
-		MapSqlParameterSource parameters = new MapSqlParameterSource(ENTITY_IDS, entityIds);
-		parameters.addValue(PROJECT_IDS, projectIds);
-		threadCounts.setList(namedTemplate.query(SQL_GET_THREAD_COUNTS, parameters, new RowMapper<EntityThreadCount>(){
-
-			@Override
-			public EntityThreadCount mapRow(ResultSet rs, int rowNum) throws SQLException {
+		Map<Long, Map<Long, Long>> projectThreadCounts = getProjectThreadCounts(entityIds);
+		for (Long entityId : new LinkedHashSet<Long>(entityIds)) {
+			long count = 0L;
+			for (Map.Entry<Long, Long> projectCount : projectThreadCounts.get(entityId).entrySet()) {
+				if (projectIds.contains(projectCount.getKey())) {
+					count += projectCount.getValue();
+				}
+			}
+			if (count > 0L) {
 				EntityThreadCount threadCount = new EntityThreadCount();
-				threadCount.setCount(rs.getLong(THREAD_COUNT));
-				threadCount.setEntityId(KeyFactory.keyToString(rs.getLong(COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID)));
-				return threadCount;
+				threadCount.setCount(count);
+				threadCount.setEntityId(KeyFactory.keyToString(entityId));
+				queryResult.add(threadCount);
 			}
-		}));
+		}
 		return threadCounts;
 	}
 
@@ -598,15 +737,179 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 		if (entityIds.isEmpty()) {
 			return result;
 		}
+		for (Map<Long, Long> projectThreadCounts : getProjectThreadCounts(entityIds).values()) {
+			result.addAll(projectThreadCounts.keySet());
+		}
+		return result;
+	}
+
+	/**
+	 * Get the thread count of each project that references the given entities,
+	 * from the cache when possible. The count table is not migrated, so
+	 * entities without counts are counted from the reference table until
+	 * {@link #reconcileEntityThreadCounts(long, long)} has reached them.
+	 * 
+	 * @param entityIds
+	 * @return The thread counts keyed by project ID, for each of the given
+	 *         entities. Projects that only have deleted threads referencing an
+	 *         entity are included with a count of zero.
+	 */
+	private Map<Long, Map<Long, Long>> getProjectThreadCounts(List<Long> entityIds) {
+		Set<Long> uniqueEntityIds = new TreeSet<Long>(entityIds);
+		long now = clock.currentTimeMillis();
+		Map<Long, Map<Long, Long>> results = entityThreadCountCache.getAll(uniqueEntityIds, now);
+		Set<Long> toLoad = new TreeSet<Long>(uniqueEntityIds);
+		toLoad.removeAll(results.keySet());
+		if (toLoad.isEmpty()) {
+			return results;
+		}
+		Map<Long, Map<Long, Long>> loaded = readEntityThreadCounts(toLoad, new HashMap<Long, Long>());
+		Set<Long> notCounted = new TreeSet<Long>(toLoad);
+		notCounted.removeAll(loaded.keySet());
+		if (!notCounted.isEmpty()) {
+			loaded.putAll(countEntityThreadsFromReferences(notCounted));
+		}
+		for (Long entityId : toLoad) {
+			Map<Long, Long> projectThreadCounts = loaded.get(entityId);
+			if (projectThreadCounts == null) {
+				projectThreadCounts = Collections.emptyMap();
+			}
+			entityThreadCountCache.put(entityId, projectThreadCounts, now);
+			results.put(entityId, projectThreadCounts);
+		}
+		return results;
+	}
+
+	/**
+	 * 
+	 * @param entityIds
+	 * @param countedReferences Filled with the number of references counted
+	 *                          for each entity.
+	 * @return The thread counts keyed by entity ID then project ID.
+	 */
+	private Map<Long, Map<Long, Long>> readEntityThreadCounts(Set<Long> entityIds, final Map<Long, Long> countedReferences) {
+		final Map<Long, Map<Long, Long>> results = new HashMap<Long, Map<Long, Long>>();
 		MapSqlParameterSource parameters = new MapSqlParameterSource(ENTITY_IDS, entityIds);
-		namedTemplate.query(SQL_GET_PROJECTS, parameters, new RowMapper<Void>(){
+		namedTemplate.query(SQL_SELECT_ENTITY_THREAD_COUNTS, parameters, new RowMapper<Void>(){
 			@Override
 			public Void mapRow(ResultSet rs, int rowNum) throws SQLException {
-				result.add(rs.getLong(COL_FORUM_PROJECT_ID));
+				long referenceCount = rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT);
+				if (referenceCount > 0L) {
+					Long entityId = rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID);
+					countedReferences.merge(entityId, referenceCount, Long::sum);
+					Map<Long, Long> projectThreadCounts = results.get(entityId);
+					if (projectThreadCounts == null) {
+						projectThreadCounts = new HashMap<Long, Long>();
+						results.put(entityId, projectThreadCounts);
+					}
+					projectThreadCounts.put(rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID),
+							rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT));
+				}
 				return null;
 			}
 		});
-		return result;
+		return results;
+	}
+
+	/**
+	 * Count the references and threads of the given entities from the
+	 * reference table, with a plain read that does not lock the references.
+	 * 
+	 * @param entityIds
+	 * @param referenceCounts Filled with the number of references of each
+	 *                        entity and project, keyed by entity ID then
+	 *                        project ID.
+	 * @return The thread counts keyed by entity ID then project ID.
+	 */
+	private Map<Long, Map<Long, Long>> countEntityThreadsFromReferences(Set<Long> entityIds,
+			final Map<Long, Map<Long, Long>> referenceCounts) {
+		final Map<Long, Map<Long, Long>> results = new HashMap<Long, Map<Long, Long>>();
+		MapSqlParameterSource parameters = new MapSqlParameterSource(ENTITY_IDS, entityIds);
+		namedTemplate.query(SQL_SELECT_ENTITY_THREAD_COUNTS_FROM_REFERENCES, parameters, new RowMapper<Void>(){
+			@Override
+			public Void mapRow(ResultSet rs, int rowNum) throws SQLException {
+				Long entityId = rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID);
+				Long projectId = rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID);
+				results.computeIfAbsent(entityId, k -> new HashMap<Long, Long>())
+						.put(projectId, rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT));
+				referenceCounts.computeIfAbsent(entityId, k -> new HashMap<Long, Long>())
+						.put(projectId, rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT));
+				return null;
+			}
+		});
+		return results;
+	}
+
+	private Map<Long, Map<Long, Long>> countEntityThreadsFromReferences(Set<Long> entityIds) {
+		return countEntityThreadsFromReferences(entityIds, new HashMap<Long, Map<Long, Long>>());
+	}
+
+	/**
+	 * Replace the counts of the given entities with counts from the reference
+	 * table. Writers lock a reference before its count row, so the references
+	 * are read without locks rather than with an INSERT ... SELECT.
+	 * 
+	 * @param entityIds
+	 */
+	private void rebuildEntityThreadCounts(Set<Long> entityIds) {
+		Map<Long, Map<Long, Long>> referenceCounts = new HashMap<Long, Map<Long, Long>>();
+		Map<Long, Map<Long, Long>> threadCounts = countEntityThreadsFromReferences(entityIds, referenceCounts);
+		// Count rows are written in key order, the order in which they are locked by other writers.
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (Map.Entry<Long, Map<Long, Long>> entity : new TreeMap<Long, Map<Long, Long>>(threadCounts).entrySet()) {
+			for (Map.Entry<Long, Long> project : new TreeMap<Long, Long>(entity.getValue()).entrySet()) {
+				rows.add(new Object[] { entity.getKey(), project.getKey(),
+						referenceCounts.get(entity.getKey()).get(project.getKey()), project.getValue() });
+			}
+		}
+		// Both writes are in this transaction, so readers never see the cleared counts.
+		namedTemplate.update(SQL_CLEAR_ENTITY_THREAD_COUNTS, new MapSqlParameterSource(ENTITY_IDS, entityIds));
+		if (!rows.isEmpty()) {
+			jdbcTemplate.batchUpdate(SQL_SET_ENTITY_THREAD_COUNT, rows);
+		}
+		entityThreadCountCache.invalidate(entityIds);
+	}
+
+	@WriteTransaction
+	@Override
+	public Long reconcileEntityThreadCounts(long afterEntityId, long limit) {
+		final Map<Long, Long> references = new LinkedHashMap<Long, Long>();
+		final Map<Long, Long> threads = new HashMap<Long, Long>();
+		jdbcTemplate.query(SQL_COUNT_ENTITY_REFERENCES_PAGE, new RowMapper<Void>(){
+			@Override
+			public Void mapRow(ResultSet rs, int rowNum) throws SQLException {
+				Long entityId = rs.getLong(COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID);
+				references.put(entityId, rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT));
+				threads.put(entityId, rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT));
+				return null;
+			}
+		}, afterEntityId, limit);
+		if (references.isEmpty()) {
+			return null;
+		}
+		Map<Long, Long> countedReferences = new HashMap<Long, Long>();
+		Map<Long, Map<Long, Long>> countedThreads = readEntityThreadCounts(references.keySet(), countedReferences);
+		Set<Long> toRebuild = new TreeSet<Long>();
+		for (Map.Entry<Long, Long> reference : references.entrySet()) {
+			Long entityId = reference.getKey();
+			long threadCount = 0L;
+			for (Long projectThreadCount : countedThreads.getOrDefault(entityId, Collections.<Long, Long>emptyMap()).values()) {
+				threadCount += projectThreadCount;
+			}
+			// A thread can be deleted or restored without updating the counts.
+			if (!reference.getValue().equals(countedReferences.getOrDefault(entityId, 0L))
+					|| threads.get(entityId) != threadCount) {
+				toRebuild.add(entityId);
+			}
+		}
+		if (!toRebuild.isEmpty()) {
+			rebuildEntityThreadCounts(toRebuild);
+		}
+		Long lastEntityId = null;
+		for (Long entityId : references.keySet()) {
+			lastEntityId = entityId;
+		}
+		return lastEntityId;
 	}
 
 	@Override
@@ -654,9 +957,19 @@ public class DBODiscussionThreadDAOImpl implements DiscussionThreadDAO {
 		});
 	}
 
+	@Override
+	public void updateThreadViewStats(long threadId, long numberOfViews) {
+		jdbcTemplate.update(SQL_UPDATE_THREAD_VIEW_STATS, threadId, numberOfViews, numberOfViews);
+	}
+
+	@WriteTransaction
 	@Override
 	public void markThreadAsNotDeleted(long threadId) {
+		Boolean isDeleted = isThreadDeletedForUpdate(threadId);
 		String etag = UUID.randomUUID().toString();
 		jdbcTemplate.update(SQL_MARK_THREAD_AS_NOT_DELETED, etag, threadId);
+		if (Boolean.TRUE.equals(isDeleted)) {
+			updateEntityThreadCounts(threadId, 1L);
+		}
 	}
 }
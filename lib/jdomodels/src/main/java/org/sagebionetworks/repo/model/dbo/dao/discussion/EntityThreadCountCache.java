@@ -0,0 +1,111 @@
+package org.sagebionetworks.repo.model.dbo.dao.discussion;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the thread counts of the most recently read entities, so an entity
+ * page does not query the DISCUSSION_ENTITY_THREAD_COUNT table for every view.
+ * Entities without any thread are cached as well, which is the common case.
+ *
+ * Entries of entities whose references change through this process are
+ * dropped. Changes made by other instances are only picked up once an entry
+ * expires, so the time to live bounds how stale a count can be.
+ *
+ */
+class EntityThreadCountCache {
+
+	private static final class Entry {
+
+		private final Map<Long, Long> projectThreadCounts;
+		private final long loadedOn;
+
+		private Entry(Map<Long, Long> projectThreadCounts, long loadedOn) {
+			this.projectThreadCounts = projectThreadCounts;
+			this.loadedOn = loadedOn;
+		}
+	}
+
+	private final Map<Long, Entry> entries;
+	private final long timeToLiveMS;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 *
+	 * @param maxEntities  The maximum number of entities to keep. The least
+	 *                     recently used entity is dropped first.
+	 * @param timeToLiveMS How long an entry is used after it was loaded.
+	 */
+	EntityThreadCountCache(final int maxEntities, long timeToLiveMS) {
+		if (maxEntities < 1) {
+			throw new IllegalArgumentException("maxEntities must be at least one");
+		}
+		this.timeToLiveMS = timeToLiveMS;
+		this.entries = Collections.synchronizedMap(new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				return size() > maxEntities;
+			}
+		});
+	}
+
+	/**
+	 * Get the cached thread counts of the given entities.
+	 *
+	 * @param entityIds
+	 * @param now       The current time in MS.
+	 * @return The thread count of each project that references the entity,
+	 *         keyed by entity ID. Entities that are not cached or have expired
+	 *         are left out.
+	 */
+	Map<Long, Map<Long, Long>> getAll(Collection<Long> entityIds, long now) {
+		Map<Long, Map<Long, Long>> results = new HashMap<Long, Map<Long, Long>>(entityIds.size());
+		for (Long entityId : entityIds) {
+			Entry entry = entries.get(entityId);
+			if (entry != null && now - entry.loadedOn < timeToLiveMS) {
+				hitCount.incrementAndGet();
+				results.put(entityId, entry.projectThreadCounts);
+			} else {
+				missCount.incrementAndGet();
+			}
+		}
+		return results;
+	}
+
+	/**
+	 *
+	 * @param entityId
+	 * @param projectThreadCounts The thread count of each project that
+	 *                            references the entity.
+	 * @param loadedOn            The time in MS before the counts were read.
+	 */
+	void put(Long entityId, Map<Long, Long> projectThreadCounts, long loadedOn) {
+		entries.put(entityId, new Entry(Collections.unmodifiableMap(new HashMap<Long, Long>(projectThreadCounts)), loadedOn));
+	}
+
+	void invalidate(Collection<Long> entityIds) {
+		for (Long entityId : entityIds) {
+			entries.remove(entityId);
+		}
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	long getHitCount() {
+		return hitCount.get();
+	}
+
+	long getMissCount() {
+		return missCount.get();
+	}
+}
@@ -15,6 +15,9 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIP
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_OBJECT_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_OBJECT_TYPE;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_SUBSCRIBER_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_TOPIC_VERSION_VERSION;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_PROFILE_EMAIL_NOTIFICATION;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_PROFILE_FIRST_NAME;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_PROFILE_ID;
@@ -24,11 +27,13 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_FORUM;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_NOTIFICATION_EMAIL;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_PRINCIPAL_ALIAS;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_SUBSCRIPTION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_SUBSCRIPTION_TOPIC_VERSION;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_USER_PROFILE;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -47,6 +52,8 @@ import org.sagebionetworks.repo.model.subscription.Subscription;
 import org.sagebionetworks.repo.model.subscription.SubscriptionObjectType;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.util.Clock;
+import org.sagebionetworks.util.SortedLongSet;
 import org.sagebionetworks.util.ValidateArgument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -71,8 +78,25 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 	private NamedParameterJdbcTemplate namedTemplate;
 	@Autowired
 	private IdGenerator idGenerator;
+	@Autowired
+	private Clock clock;
+	
+	public static final String SUBSCRIBER_IDS = "subscriberIds";
+	public static final String OBJECT_ID = "objectId";
+	
+	/**
+	 * The maximum number of topics kept in the subscriber index.
+	 */
+	public static final int MAX_INDEXED_TOPICS = 1000;
+	/**
+	 * Bounds how long a topic changed without going through this DAO can be
+	 * served from the subscriber index.
+	 */
+	public static final long INDEX_TIME_TO_LIVE_MS = 10 * 60 * 1000L;
+	
+	private final SubscriberIndex subscriberIndex = new SubscriberIndex(MAX_INDEXED_TOPICS, INDEX_TIME_TO_LIVE_MS);
 	
-	private static final String SQL_GET_EMAIL_SUBSCRIBERS = "SELECT S."
+	private static final String SQL_SELECT_EMAIL_SUBSCRIBERS = "SELECT S."
 			+ COL_SUBSCRIPTION_ID + ", S." + COL_SUBSCRIPTION_SUBSCRIBER_ID
 			+ ", U." + COL_USER_PROFILE_FIRST_NAME + ", U."
 			+ COL_USER_PROFILE_LAST_NAME + ", A1." + COL_PRINCIPAL_ALIAS_DISPLAY
@@ -80,8 +104,7 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 			+ " AS 'USERNAME' FROM " + TABLE_SUBSCRIPTION + " S, "
 			+ TABLE_USER_PROFILE + " U, " + TABLE_NOTIFICATION_EMAIL + " N, "
 			+ TABLE_PRINCIPAL_ALIAS + " A1, " + TABLE_PRINCIPAL_ALIAS
-			+ " A2 WHERE S." + COL_SUBSCRIPTION_OBJECT_ID + " = ? AND S."
-			+ COL_SUBSCRIPTION_OBJECT_TYPE + " = ? AND S."
+			+ " A2 WHERE S."
 			+ COL_SUBSCRIPTION_SUBSCRIBER_ID + " = U." + COL_USER_PROFILE_ID
 			+ " AND U." + COL_USER_PROFILE_EMAIL_NOTIFICATION
 			+ " = true AND A1." + COL_PRINCIPAL_ALIAS_PRINCIPAL_ID + " = S."
@@ -93,6 +116,15 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 			+ COL_PRINCIPAL_ALIAS_TYPE + " = '" + AliasType.USER_NAME.name()
 			+ "'";
 
+	private static final String SQL_GET_EMAIL_SUBSCRIBERS = SQL_SELECT_EMAIL_SUBSCRIBERS
+			+ " AND S." + COL_SUBSCRIPTION_OBJECT_ID + " = ?"
+			+ " AND S." + COL_SUBSCRIPTION_OBJECT_TYPE + " = ?";
+
+	private static final String SQL_GET_EMAIL_SUBSCRIBERS_FOR_IDS = SQL_SELECT_EMAIL_SUBSCRIBERS
+			+ " AND S." + COL_SUBSCRIPTION_OBJECT_ID + " = :" + OBJECT_ID
+			+ " AND S." + COL_SUBSCRIPTION_OBJECT_TYPE + " = :" + OBJECT_TYPE
+			+ " AND S." + COL_SUBSCRIPTION_SUBSCRIBER_ID + " IN (:" + SUBSCRIBER_IDS + ")";
+
 	private static final String SQL_INSERT_IGNORE = "INSERT IGNORE INTO "
 			+ TABLE_SUBSCRIPTION + " ( "
 			+ COL_SUBSCRIPTION_ID + ", "
@@ -144,6 +176,53 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 			"SELECT COUNT(DISTINCT "+COL_SUBSCRIPTION_SUBSCRIBER_ID+") "
 			+ QUERY_FOR_TOPIC;
 
+	private static final String SQL_GET_TOPIC_VERSION = "SELECT "+COL_SUBSCRIPTION_TOPIC_VERSION_VERSION+" "
+			+ "FROM "+TABLE_SUBSCRIPTION_TOPIC_VERSION+" "
+			+ "WHERE "+COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID+" = ? "
+			+ "AND "+COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE+" = ?";
+
+	private static final String SQL_INCREMENT_TOPIC_VERSION_SUFFIX = " ON DUPLICATE KEY UPDATE "
+			+ COL_SUBSCRIPTION_TOPIC_VERSION_VERSION+" = "+COL_SUBSCRIPTION_TOPIC_VERSION_VERSION+" + 1";
+
+	private static final String SQL_INCREMENT_TOPIC_VERSION_PREFIX = "INSERT INTO "+TABLE_SUBSCRIPTION_TOPIC_VERSION+" ("
+			+ COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID+", "
+			+ COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE+", "
+			+ COL_SUBSCRIPTION_TOPIC_VERSION_VERSION+")";
+
+	private static final String SQL_INCREMENT_TOPIC_VERSION = SQL_INCREMENT_TOPIC_VERSION_PREFIX
+			+ " VALUES (?, ?, 1)"
+			+ SQL_INCREMENT_TOPIC_VERSION_SUFFIX;
+
+	// Must run before the subscriptions are deleted.
+	private static final String SQL_INCREMENT_TOPIC_VERSION_OF_SUBSCRIPTION = SQL_INCREMENT_TOPIC_VERSION_PREFIX
+			+ " SELECT DISTINCT "+COL_SUBSCRIPTION_OBJECT_ID+", "+COL_SUBSCRIPTION_OBJECT_TYPE+", 1"
+			+ " FROM "+TABLE_SUBSCRIPTION
+			+ " WHERE "+COL_SUBSCRIPTION_ID+" = ?"
+			+ SQL_INCREMENT_TOPIC_VERSION_SUFFIX;
+
+	// Must run before the subscriptions are deleted.
+	private static final String SQL_INCREMENT_TOPIC_VERSION_OF_SUBSCRIBER = SQL_INCREMENT_TOPIC_VERSION_PREFIX
+			+ " SELECT DISTINCT "+COL_SUBSCRIPTION_OBJECT_ID+", "+COL_SUBSCRIPTION_OBJECT_TYPE+", 1"
+			+ " FROM "+TABLE_SUBSCRIPTION
+			+ " WHERE "+COL_SUBSCRIPTION_SUBSCRIBER_ID+" = ?"
+			+ SQL_INCREMENT_TOPIC_VERSION_SUFFIX;
+
+	private static final RowMapper<Subscriber> SUBSCRIBER_ROW_MAPPER = new RowMapper<Subscriber>(){
+
+		@Override
+		public Subscriber mapRow(ResultSet rs, int rowNum)
+				throws SQLException {
+			Subscriber sub = new Subscriber();
+			sub.setFirstName(rs.getString(COL_USER_PROFILE_FIRST_NAME));
+			sub.setLastName(rs.getString(COL_USER_PROFILE_LAST_NAME));
+			sub.setSubscriberId(rs.getString(COL_SUBSCRIPTION_SUBSCRIBER_ID));
+			sub.setSubscriptionId(rs.getString(COL_SUBSCRIPTION_ID));
+			sub.setNotificationEmail(rs.getString("EMAIL"));
+			sub.setUsername(rs.getString("USERNAME"));
+			return sub;
+		}
+	};
+
 	private static final RowMapper<Subscription> ROW_MAPPER = new RowMapper<Subscription>(){
 
 		@Override
@@ -166,7 +245,9 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 		ValidateArgument.required(objectId, "objectId");
 		ValidateArgument.required(objectType, OBJECT_TYPE);
 		long subscriptionId = idGenerator.generateNewId(IdType.SUBSCRIPTION_ID);
-		jdbcTemplate.update(SQL_INSERT_IGNORE, subscriptionId, subscriberId, objectId, objectType.name(), new Date().getTime());
+		if (jdbcTemplate.update(SQL_INSERT_IGNORE, subscriptionId, subscriberId, objectId, objectType.name(), new Date().getTime()) > 0) {
+			jdbcTemplate.update(SQL_INCREMENT_TOPIC_VERSION, objectId, objectType.name());
+		}
 		return get(subscriberId, objectId, objectType);
 	}
 
@@ -197,12 +278,14 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 	@WriteTransaction
 	@Override
 	public void delete(long subscriptionId) {
+		jdbcTemplate.update(SQL_INCREMENT_TOPIC_VERSION_OF_SUBSCRIPTION, subscriptionId);
 		jdbcTemplate.update(SQL_DELETE, subscriptionId);
 	}
 
 	@WriteTransaction
 	@Override
 	public void deleteAll(Long userId) {
+		jdbcTemplate.update(SQL_INCREMENT_TOPIC_VERSION_OF_SUBSCRIBER, userId);
 		jdbcTemplate.update(SQL_DELETE_ALL, userId);
 	}
 
@@ -227,6 +310,7 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 				ps.setLong(5, new Date().getTime());
 			}
 		});
+		jdbcTemplate.update(SQL_INCREMENT_TOPIC_VERSION, objectId, objectType.name());
 	}
 
 	@Override
@@ -241,20 +325,40 @@ public class DBOSubscriptionDAOImpl implements SubscriptionDAO{
 			SubscriptionObjectType objectType) {
 		ValidateArgument.required(objectId, "objectId");
 		ValidateArgument.required(objectType, OBJECT_TYPE);
-		return jdbcTemplate.query(SQL_GET_EMAIL_SUBSCRIBERS, new RowMapper<Subscriber>(){
+		return jdbcTemplate.query(SQL_GET_EMAIL_SUBSCRIBERS, SUBSCRIBER_ROW_MAPPER, objectId, objectType.name());
+	}
 
-			@Override
-			public Subscriber mapRow(ResultSet rs, int rowNum)
-					throws SQLException {
-				Subscriber sub = new Subscriber();
-				sub.setFirstName(rs.getString(COL_USER_PROFILE_FIRST_NAME));
-				sub.setLastName(rs.getString(COL_USER_PROFILE_LAST_NAME));
-				sub.setSubscriberId(rs.getString(COL_SUBSCRIPTION_SUBSCRIBER_ID));
-				sub.setSubscriptionId(rs.getString(COL_SUBSCRIPTION_ID));
-				sub.setNotificationEmail(rs.getString("EMAIL"));
-				sub.setUsername(rs.getString("USERNAME"));
-				return sub;
-			}},objectId, objectType.name());
+	@Override
+	public SortedLongSet getSubscriberIds(String objectId, SubscriptionObjectType objectType) {
+		ValidateArgument.required(objectId, "objectId");
+		ValidateArgument.required(objectType, OBJECT_TYPE);
+		List<Long> versions = jdbcTemplate.queryForList(SQL_GET_TOPIC_VERSION, Long.class, objectId, objectType.name());
+		// a topic that was never changed through this DAO has no version row.
+		long version = versions.isEmpty() ? 0L : versions.get(0);
+		long now = clock.currentTimeMillis();
+		SortedLongSet subscriberIds = subscriberIndex.get(objectId, objectType, version, now);
+		if (subscriberIds == null) {
+			// A change after the version was read only causes the topic to be loaded again on the next call.
+			subscriberIds = new SortedLongSet(jdbcTemplate.queryForList(SQL_GET_SUBSCRIBERS, Long.class, objectId, objectType.name()));
+			subscriberIndex.put(objectId, objectType, version, now, subscriberIds);
+		}
+		return subscriberIds;
+	}
+
+	@Override
+	public List<Subscriber> getEmailSubscribers(String objectId, SubscriptionObjectType objectType,
+			Collection<Long> subscriberIds) {
+		ValidateArgument.required(objectId, "objectId");
+		ValidateArgument.required(objectType, OBJECT_TYPE);
+		ValidateArgument.required(subscriberIds, "subscriberIds");
+		if (subscriberIds.isEmpty()) {
+			return new LinkedList<>();
+		}
+		MapSqlParameterSource parameters = new MapSqlParameterSource();
+		parameters.addValue(OBJECT_ID, objectId);
+		parameters.addValue(OBJECT_TYPE, objectType.name());
+		parameters.addValue(SUBSCRIBER_IDS, subscriberIds);
+		return namedTemplate.query(SQL_GET_EMAIL_SUBSCRIBERS_FOR_IDS, parameters, SUBSCRIBER_ROW_MAPPER);
 	}
 
 	@Override
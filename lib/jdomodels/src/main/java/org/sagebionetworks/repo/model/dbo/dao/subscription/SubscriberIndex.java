@@ -0,0 +1,116 @@
+package org.sagebionetworks.repo.model.dbo.dao.subscription;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sagebionetworks.repo.model.subscription.SubscriptionObjectType;
+import org.sagebionetworks.util.SortedLongSet;
+
+/**
+ * Keeps the subscriber IDs of the most recently used topics as compact
+ * {@link SortedLongSet}s, so a broadcast to a popular topic does not reload
+ * tens of thousands of subscriber IDs for every change.
+ *
+ * Subscriptions are changed by every repository instance, so each entry is
+ * stored with the version of the topic it was loaded for. The version of a
+ * topic is incremented whenever one of its subscriptions is created or
+ * deleted, and an entry is only used while its version still matches. Rows
+ * written without going through the DAO, such as migrated subscriptions or
+ * those removed with a deleted principal, do not change the version, so each
+ * entry also expires after a fixed time.
+ *
+ */
+class SubscriberIndex {
+
+	private static final class Entry {
+
+		private final long version;
+		private final long loadedOn;
+		private final SortedLongSet subscriberIds;
+
+		private Entry(long version, long loadedOn, SortedLongSet subscriberIds) {
+			this.version = version;
+			this.loadedOn = loadedOn;
+			this.subscriberIds = subscriberIds;
+		}
+	}
+
+	private final Map<String, Entry> entries;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final long timeToLiveMS;
+
+	/**
+	 *
+	 * @param maxTopics The maximum number of topics to keep. The least recently
+	 *                  used topic is dropped first.
+	 * @param timeToLiveMS The number of milliseconds a topic is kept even if
+	 *                  its version does not change.
+	 */
+	SubscriberIndex(final int maxTopics, long timeToLiveMS) {
+		if (maxTopics < 1) {
+			throw new IllegalArgumentException("maxTopics must be at least one");
+		}
+		this.timeToLiveMS = timeToLiveMS;
+		this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxTopics;
+			}
+		});
+	}
+
+	/**
+	 * Get the subscriber IDs of the given topic if they were loaded for the
+	 * given version and have not expired.
+	 *
+	 * @param objectId
+	 * @param objectType
+	 * @param version    The current version of the topic.
+	 * @param now
+	 * @return A copy of the cached set, or null if the topic must be loaded.
+	 */
+	SortedLongSet get(String objectId, SubscriptionObjectType objectType, long version, long now) {
+		Entry entry = entries.get(createKey(objectId, objectType));
+		if (entry == null || entry.version != version || now - entry.loadedOn >= timeToLiveMS) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return new SortedLongSet(entry.subscriberIds);
+	}
+
+	/**
+	 *
+	 * @param objectId
+	 * @param objectType
+	 * @param version       The version of the topic read before the subscriber
+	 *                      IDs were loaded.
+	 * @param now
+	 * @param subscriberIds
+	 */
+	void put(String objectId, SubscriptionObjectType objectType, long version, long now, SortedLongSet subscriberIds) {
+		entries.put(createKey(objectId, objectType), new Entry(version, now, new SortedLongSet(subscriberIds)));
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	long getHitCount() {
+		return hitCount.get();
+	}
+
+	long getMissCount() {
+		return missCount.get();
+	}
+
+	static String createKey(String objectId, SubscriptionObjectType objectType) {
+		return objectType.name() + ":" + objectId;
+	}
+}
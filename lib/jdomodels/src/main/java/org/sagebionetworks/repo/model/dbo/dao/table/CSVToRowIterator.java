@@ -12,6 +12,7 @@ import org.sagebionetworks.repo.model.table.ColumnModel;
 import org.sagebionetworks.repo.model.table.SparseRowDto;
 import org.sagebionetworks.repo.model.table.TableConstants;
 import org.sagebionetworks.table.cluster.utils.TableModelUtils;
+import org.sagebionetworks.util.csv.CSVCellReader;
 
 import au.com.bytecode.opencsv.CSVReader;
 
@@ -23,10 +24,21 @@ import au.com.bytecode.opencsv.CSVReader;
  */
 public class CSVToRowIterator implements Iterator<SparseRowDto> {
 
-	private final CSVReader reader;
+	private final RowSource reader;
 	private final Map<Long, Integer> columnIdToCsvColumnIndexMap;
 	private final List<ColumnModel> resultSchema;
+	/*
+	 * The ID of each schema column and the index of its CSV column, resolved
+	 * once rather than for each row. A null index means the CSV does not
+	 * include the column.
+	 */
+	private final String[] columnIds;
+	private final Integer[] csvColumnIndexes;
+	private final Integer rowIdIndex;
+	private final Integer rowVersionIndex;
+	private final Integer rowEtagIndex;
 
+	private boolean hasRow;
 	private String[] lastRow;
 	private int rowLineNumber;
 	private long rowsRead;
@@ -43,6 +55,27 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 	 */
 	public CSVToRowIterator(List<ColumnModel> resultSchema, CSVReader reader, boolean isFirstLineHeader, Long linesToSkipLong)
 			throws IOException {
+		this(resultSchema, new CSVReaderRowSource(reader), isFirstLineHeader, linesToSkipLong);
+	}
+
+	/**
+	 * Create a new object for each use. Only the cells of the columns in the
+	 * schema are converted to strings.
+	 * 
+	 * @param resultSchema Each row returned will match this schema.
+	 * @param reader The CSV stream that contains the source data. It is the job
+	 *        of the caller to close this stream when finished.
+	 * @param isFirstLineHeader
+	 * @param linesToSkipLong
+	 * @throws IOException
+	 */
+	public CSVToRowIterator(List<ColumnModel> resultSchema, CSVCellReader reader, boolean isFirstLineHeader, Long linesToSkipLong)
+			throws IOException {
+		this(resultSchema, new CellReaderRowSource(reader), isFirstLineHeader, linesToSkipLong);
+	}
+
+	private CSVToRowIterator(List<ColumnModel> resultSchema, RowSource reader, boolean isFirstLineHeader, Long linesToSkipLong)
+			throws IOException {
 		this.resultSchema = resultSchema;
 		this.reader = reader;
 		this.rowLineNumber = 1;
@@ -53,17 +86,27 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 		}
 		// skip any requested lines
 		for(int i=0; i<linesToSkip; i++){
-			lastRow = reader.readNext();
+			lastRow = reader.next() ? reader.toArray() : null;
 			rowLineNumber++;
 		}
 		
 		// create the headers
 		String[] headers = createHeader(isFirstLineHeader);
 		
-		lastRow = reader.readNext();
+		hasRow = reader.next();
 		rowLineNumber++;
 
 		columnIdToCsvColumnIndexMap = TableModelUtils.createColumnIdToColumnIndexMapFromFirstRow(headers, resultSchema);
+		columnIds = new String[resultSchema.size()];
+		csvColumnIndexes = new Integer[resultSchema.size()];
+		for (int i = 0; i < resultSchema.size(); i++) {
+			Long columnId = Long.parseLong(resultSchema.get(i).getId());
+			columnIds[i] = columnId.toString();
+			csvColumnIndexes[i] = columnIdToCsvColumnIndexMap.get(columnId);
+		}
+		rowIdIndex = columnIdToCsvColumnIndexMap.get(TableConstants.ROW_ID_ID);
+		rowVersionIndex = columnIdToCsvColumnIndexMap.get(TableConstants.ROW_VERSION_ID);
+		rowEtagIndex = columnIdToCsvColumnIndexMap.get(TableConstants.ROW_ETAG_ID);
 	}
 	
 	/**
@@ -86,7 +129,7 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 		if (isFirstLineHeader) {
 			// read the header
 			rowLineNumber++;
-			return reader.readNext();
+			return reader.next() ? reader.toArray() : null;
 		}
 		boolean lastRowIncludesRowIdAndVersion = false;
 		boolean includeEtag = false;
@@ -127,7 +170,7 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 
 	@Override
 	public boolean hasNext() {
-		return lastRow != null;
+		return hasRow;
 	}
 
 	@Override
@@ -137,15 +180,13 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 		SparseRowDto row = new SparseRowDto();
 		Map<String, String> values = new HashMap<>(resultSchema.size());
 		boolean anyValues = false; // no values at all in a row denotes a deletion
-		for (int i = 0; i < resultSchema.size(); i++) {
-			Long columnId = Long.parseLong(resultSchema.get(i).getId());
-			Integer csvColumnIndex = columnIdToCsvColumnIndexMap.get(columnId);
-			String value = null;
+		int rowLength = reader.length();
+		for (int i = 0; i < columnIds.length; i++) {
+			Integer csvColumnIndex = csvColumnIndexes[i];
 			if (csvColumnIndex != null) {
-				if (lastRow.length > csvColumnIndex) {
+				if (rowLength > csvColumnIndex) {
 					anyValues = true;
-					value = lastRow[csvColumnIndex];
-					values.put(columnId.toString(), value);
+					values.put(columnIds[i], reader.get(csvColumnIndex));
 				}
 			}
 		}
@@ -153,38 +194,25 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 			row.setValues(values);
 		}
 
-		Integer csvColumnIndex = columnIdToCsvColumnIndexMap.get(TableConstants.ROW_ID_ID);
-		if (csvColumnIndex != null) {
-			if (lastRow.length > csvColumnIndex) {
-				String value = lastRow[csvColumnIndex];
-				if (!StringUtils.isEmpty(value)) {
-					row.setRowId(Long.parseLong(value));
-				}
+		if (rowIdIndex != null) {
+			if (rowLength > rowIdIndex && !reader.isEmpty(rowIdIndex)) {
+				row.setRowId(reader.getLong(rowIdIndex));
 			}
 		}
-		csvColumnIndex = columnIdToCsvColumnIndexMap.get(TableConstants.ROW_VERSION_ID);
-		if (csvColumnIndex != null) {
-			if (lastRow.length > csvColumnIndex) {
-				String value = lastRow[csvColumnIndex];
-				if (!StringUtils.isEmpty(value)) {
-					row.setVersionNumber(Long.parseLong(value));
-				}
+		if (rowVersionIndex != null) {
+			if (rowLength > rowVersionIndex && !reader.isEmpty(rowVersionIndex)) {
+				row.setVersionNumber(reader.getLong(rowVersionIndex));
 			}
 		}
-		
-		csvColumnIndex = columnIdToCsvColumnIndexMap.get(TableConstants.ROW_ETAG_ID);
-		if (csvColumnIndex != null) {
-			if (lastRow.length > csvColumnIndex) {
-				String value = lastRow[csvColumnIndex];
-				if (!StringUtils.isEmpty(value)) {
-					row.setEtag(value);
-				}
+		if (rowEtagIndex != null) {
+			if (rowLength > rowEtagIndex && !reader.isEmpty(rowEtagIndex)) {
+				row.setEtag(reader.get(rowEtagIndex));
 			}
 		}
 
 		// Net the next row
 		try {
-			lastRow = this.reader.readNext();
+			hasRow = this.reader.next();
 			rowLineNumber++;
 		} catch (IOException e) {
 			throw new RuntimeException("Line number " + rowLineNumber + ": " + e.getMessage(), e);
@@ -205,4 +233,106 @@ public class CSVToRowIterator implements Iterator<SparseRowDto> {
 		return rowsRead;
 	}
 
+	/**
+	 * The current row of either a CSVReader or a CSVCellReader.
+	 */
+	private interface RowSource {
+
+		boolean next() throws IOException;
+
+		int length();
+
+		String get(int index);
+
+		boolean isEmpty(int index);
+
+		long getLong(int index);
+
+		String[] toArray();
+	}
+
+	private static class CSVReaderRowSource implements RowSource {
+
+		private final CSVReader reader;
+		private String[] row;
+
+		CSVReaderRowSource(CSVReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			row = reader.readNext();
+			return row != null;
+		}
+
+		@Override
+		public int length() {
+			return row.length;
+		}
+
+		@Override
+		public String get(int index) {
+			return row[index];
+		}
+
+		@Override
+		public boolean isEmpty(int index) {
+			return StringUtils.isEmpty(row[index]);
+		}
+
+		@Override
+		public long getLong(int index) {
+			return Long.parseLong(row[index]);
+		}
+
+		@Override
+		public String[] toArray() {
+			return row;
+		}
+	}
+
+	private static class CellReaderRowSource implements RowSource {
+
+		private final CSVCellReader reader;
+
+		CellReaderRowSource(CSVCellReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			return reader.next();
+		}
+
+		@Override
+		public int length() {
+			return reader.getCellCount();
+		}
+
+		@Override
+		public String get(int index) {
+			return reader.getString(index);
+		}
+
+		@Override
+		public boolean isEmpty(int index) {
+			return reader.isEmpty(index);
+		}
+
+		@Override
+		public long getLong(int index) {
+			return reader.getLong(index);
+		}
+
+		@Override
+		public String[] toArray() {
+			String[] row = new String[reader.getCellCount()];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = reader.getString(i);
+			}
+			return row;
+		}
+	}
+
 }
@@ -0,0 +1,159 @@
+package org.sagebionetworks.repo.model.dbo.persistence.discussion;
+
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.DDL_DISCUSSION_ENTITY_THREAD_COUNT;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_ENTITY_THREAD_COUNT;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.sagebionetworks.repo.model.dbo.DatabaseObject;
+import org.sagebionetworks.repo.model.dbo.FieldColumn;
+import org.sagebionetworks.repo.model.dbo.TableMapping;
+
+/**
+ * The number of threads of a project that reference an entity. Maintained with
+ * the entity references and the deleted flag of the threads, so the thread
+ * counts of an entity page can be read from the primary key.
+ */
+public class DBODiscussionEntityThreadCount implements DatabaseObject<DBODiscussionEntityThreadCount> {
+
+	private static final FieldColumn[] FIELDS = new FieldColumn[] {
+		new FieldColumn("entityId", COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID, true),
+		new FieldColumn("projectId", COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID, true),
+		new FieldColumn("referenceCount", COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT),
+		new FieldColumn("threadCount", COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT)
+	};
+
+	private Long entityId;
+	private Long projectId;
+	private Long referenceCount;
+	private Long threadCount;
+
+	@Override
+	public String toString() {
+		return "DBODiscussionEntityThreadCount [entityId=" + entityId
+				+ ", projectId=" + projectId + ", referenceCount="
+				+ referenceCount + ", threadCount=" + threadCount + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result
+				+ ((entityId == null) ? 0 : entityId.hashCode());
+		result = prime * result
+				+ ((projectId == null) ? 0 : projectId.hashCode());
+		result = prime * result
+				+ ((referenceCount == null) ? 0 : referenceCount.hashCode());
+		result = prime * result
+				+ ((threadCount == null) ? 0 : threadCount.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DBODiscussionEntityThreadCount other = (DBODiscussionEntityThreadCount) obj;
+		if (entityId == null) {
+			if (other.entityId != null)
+				return false;
+		} else if (!entityId.equals(other.entityId))
+			return false;
+		if (projectId == null) {
+			if (other.projectId != null)
+				return false;
+		} else if (!projectId.equals(other.projectId))
+			return false;
+		if (referenceCount == null) {
+			if (other.referenceCount != null)
+				return false;
+		} else if (!referenceCount.equals(other.referenceCount))
+			return false;
+		if (threadCount == null) {
+			if (other.threadCount != null)
+				return false;
+		} else if (!threadCount.equals(other.threadCount))
+			return false;
+		return true;
+	}
+
+	public Long getEntityId() {
+		return entityId;
+	}
+
+	public void setEntityId(Long entityId) {
+		this.entityId = entityId;
+	}
+
+	public Long getProjectId() {
+		return projectId;
+	}
+
+	public void setProjectId(Long projectId) {
+		this.projectId = projectId;
+	}
+
+	public Long getReferenceCount() {
+		return referenceCount;
+	}
+
+	public void setReferenceCount(Long referenceCount) {
+		this.referenceCount = referenceCount;
+	}
+
+	public Long getThreadCount() {
+		return threadCount;
+	}
+
+	public void setThreadCount(Long threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	@Override
+	public TableMapping<DBODiscussionEntityThreadCount> getTableMapping() {
+		return new TableMapping<DBODiscussionEntityThreadCount>(){
+
+			@Override
+			public DBODiscussionEntityThreadCount mapRow(ResultSet rs, int rowNum)
+					throws SQLException {
+				DBODiscussionEntityThreadCount dbo = new DBODiscussionEntityThreadCount();
+				dbo.setEntityId(rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID));
+				dbo.setProjectId(rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID));
+				dbo.setReferenceCount(rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT));
+				dbo.setThreadCount(rs.getLong(COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT));
+				return dbo;
+			}
+
+			@Override
+			public String getTableName() {
+				return TABLE_DISCUSSION_ENTITY_THREAD_COUNT;
+			}
+
+			@Override
+			public String getDDLFileName() {
+				return DDL_DISCUSSION_ENTITY_THREAD_COUNT;
+			}
+
+			@Override
+			public FieldColumn[] getFieldColumns() {
+				return FIELDS;
+			}
+
+			@Override
+			public Class<? extends DBODiscussionEntityThreadCount> getDBOClass() {
+				return DBODiscussionEntityThreadCount.class;
+			}
+
+		};
+	}
+}
@@ -0,0 +1,139 @@
+package org.sagebionetworks.repo.model.dbo.persistence.discussion;
+
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.DDL_DISCUSSION_THREAD_AUTHOR_STATS;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_AUTHOR_STATS;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.sagebionetworks.repo.model.dbo.DatabaseObject;
+import org.sagebionetworks.repo.model.dbo.FieldColumn;
+import org.sagebionetworks.repo.model.dbo.TableMapping;
+
+/**
+ * The number of replies each author has made to a thread. Maintained with the
+ * replies so the most active authors of a thread can be read from an index.
+ */
+public class DBODiscussionThreadAuthorStats implements DatabaseObject<DBODiscussionThreadAuthorStats> {
+
+	private static final FieldColumn[] FIELDS = new FieldColumn[] {
+		new FieldColumn("threadId", COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID, true),
+		new FieldColumn("authorId", COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID, true),
+		new FieldColumn("numberOfReplies", COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES)
+	};
+
+	private Long threadId;
+	private Long authorId;
+	private Long numberOfReplies;
+
+	@Override
+	public String toString() {
+		return "DBODiscussionThreadAuthorStats [threadId=" + threadId
+				+ ", authorId=" + authorId + ", numberOfReplies="
+				+ numberOfReplies + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result
+				+ ((authorId == null) ? 0 : authorId.hashCode());
+		result = prime * result
+				+ ((numberOfReplies == null) ? 0 : numberOfReplies.hashCode());
+		result = prime * result
+				+ ((threadId == null) ? 0 : threadId.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DBODiscussionThreadAuthorStats other = (DBODiscussionThreadAuthorStats) obj;
+		if (authorId == null) {
+			if (other.authorId != null)
+				return false;
+		} else if (!authorId.equals(other.authorId))
+			return false;
+		if (numberOfReplies == null) {
+			if (other.numberOfReplies != null)
+				return false;
+		} else if (!numberOfReplies.equals(other.numberOfReplies))
+			return false;
+		if (threadId == null) {
+			if (other.threadId != null)
+				return false;
+		} else if (!threadId.equals(other.threadId))
+			return false;
+		return true;
+	}
+
+	public Long getThreadId() {
+		return threadId;
+	}
+
+	public void setThreadId(Long threadId) {
+		this.threadId = threadId;
+	}
+
+	public Long getAuthorId() {
+		return authorId;
+	}
+
+	public void setAuthorId(Long authorId) {
+		this.authorId = authorId;
+	}
+
+	public Long getNumberOfReplies() {
+		return numberOfReplies;
+	}
+
+	public void setNumberOfReplies(Long numberOfReplies) {
+		this.numberOfReplies = numberOfReplies;
+	}
+
+	@Override
+	public TableMapping<DBODiscussionThreadAuthorStats> getTableMapping() {
+		return new TableMapping<DBODiscussionThreadAuthorStats>(){
+
+			@Override
+			public DBODiscussionThreadAuthorStats mapRow(ResultSet rs, int rowNum)
+					throws SQLException {
+				DBODiscussionThreadAuthorStats dbo = new DBODiscussionThreadAuthorStats();
+				dbo.setThreadId(rs.getLong(COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID));
+				dbo.setAuthorId(rs.getLong(COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID));
+				dbo.setNumberOfReplies(rs.getLong(COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES));
+				return dbo;
+			}
+
+			@Override
+			public String getTableName() {
+				return TABLE_DISCUSSION_THREAD_AUTHOR_STATS;
+			}
+
+			@Override
+			public String getDDLFileName() {
+				return DDL_DISCUSSION_THREAD_AUTHOR_STATS;
+			}
+
+			@Override
+			public FieldColumn[] getFieldColumns() {
+				return FIELDS;
+			}
+
+			@Override
+			public Class<? extends DBODiscussionThreadAuthorStats> getDBOClass() {
+				return DBODiscussionThreadAuthorStats.class;
+			}
+
+		};
+	}
+}
@@ -0,0 +1,139 @@
+package org.sagebionetworks.repo.model.dbo.persistence.subscription;
+
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_SUBSCRIPTION_TOPIC_VERSION_VERSION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.DDL_SUBSCRIPTION_TOPIC_VERSION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_SUBSCRIPTION_TOPIC_VERSION;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.sagebionetworks.repo.model.dbo.DatabaseObject;
+import org.sagebionetworks.repo.model.dbo.FieldColumn;
+import org.sagebionetworks.repo.model.dbo.TableMapping;
+
+/**
+ * A version of the subscribers of a topic. Incremented whenever a subscription
+ * to the topic is created or deleted, so a cached list of subscribers can be
+ * validated by reading a single row.
+ */
+public class DBOSubscriptionTopicVersion implements DatabaseObject<DBOSubscriptionTopicVersion> {
+
+	private static final FieldColumn[] FIELDS = new FieldColumn[] {
+		new FieldColumn("objectId", COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID, true),
+		new FieldColumn("objectType", COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE, true),
+		new FieldColumn("version", COL_SUBSCRIPTION_TOPIC_VERSION_VERSION)
+	};
+
+	private Long objectId;
+	private String objectType;
+	private Long version;
+
+	@Override
+	public String toString() {
+		return "DBOSubscriptionTopicVersion [objectId=" + objectId
+				+ ", objectType=" + objectType + ", version=" + version + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result
+				+ ((objectId == null) ? 0 : objectId.hashCode());
+		result = prime * result
+				+ ((objectType == null) ? 0 : objectType.hashCode());
+		result = prime * result
+				+ ((version == null) ? 0 : version.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DBOSubscriptionTopicVersion other = (DBOSubscriptionTopicVersion) obj;
+		if (objectId == null) {
+			if (other.objectId != null)
+				return false;
+		} else if (!objectId.equals(other.objectId))
+			return false;
+		if (objectType == null) {
+			if (other.objectType != null)
+				return false;
+		} else if (!objectType.equals(other.objectType))
+			return false;
+		if (version == null) {
+			if (other.version != null)
+				return false;
+		} else if (!version.equals(other.version))
+			return false;
+		return true;
+	}
+
+	public Long getObjectId() {
+		return objectId;
+	}
+
+	public void setObjectId(Long objectId) {
+		this.objectId = objectId;
+	}
+
+	public String getObjectType() {
+		return objectType;
+	}
+
+	public void setObjectType(String objectType) {
+		this.objectType = objectType;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	@Override
+	public TableMapping<DBOSubscriptionTopicVersion> getTableMapping() {
+		return new TableMapping<DBOSubscriptionTopicVersion>(){
+
+			@Override
+			public DBOSubscriptionTopicVersion mapRow(ResultSet rs, int rowNum)
+					throws SQLException {
+				DBOSubscriptionTopicVersion dbo = new DBOSubscriptionTopicVersion();
+				dbo.setObjectId(rs.getLong(COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID));
+				dbo.setObjectType(rs.getString(COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE));
+				dbo.setVersion(rs.getLong(COL_SUBSCRIPTION_TOPIC_VERSION_VERSION));
+				return dbo;
+			}
+
+			@Override
+			public String getTableName() {
+				return TABLE_SUBSCRIPTION_TOPIC_VERSION;
+			}
+
+			@Override
+			public String getDDLFileName() {
+				return DDL_SUBSCRIPTION_TOPIC_VERSION;
+			}
+
+			@Override
+			public FieldColumn[] getFieldColumns() {
+				return FIELDS;
+			}
+
+			@Override
+			public Class<? extends DBOSubscriptionTopicVersion> getDBOClass() {
+				return DBOSubscriptionTopicVersion.class;
+			}
+
+		};
+	}
+}
@@ -8,6 +8,11 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_PRINCIPA
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_NOTIFICATION_EMAIL;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_PRINCIPAL_ALIAS;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.sagebionetworks.ids.IdGenerator;
@@ -21,6 +26,9 @@ import org.sagebionetworks.repo.web.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 public class NotificationEmailDaoImpl implements NotificationEmailDAO {
 	private static final String UPDATE_FOR_PRINCIPAL = "UPDATE "+TABLE_NOTIFICATION_EMAIL+
@@ -32,6 +40,13 @@ public class NotificationEmailDaoImpl implements NotificationEmailDAO {
 			" a WHERE n."+COL_NOTIFICATION_EMAIL_ALIAS_ID+"=a."+COL_PRINCIPAL_ALIAS_ID+
 			" AND n."+COL_NOTIFICATION_EMAIL_PRINCIPAL_ID+" = ?";
 	
+	private static final String PRINCIPAL_IDS_PARAM = "principalIds";
+	
+	private static final String SELECT_NOTIFICATION_EMAILS_FOR_PRINCIPALS = 
+			"SELECT n."+COL_NOTIFICATION_EMAIL_PRINCIPAL_ID+", a."+ COL_PRINCIPAL_ALIAS_DISPLAY +" FROM "+TABLE_NOTIFICATION_EMAIL+" n, "+TABLE_PRINCIPAL_ALIAS+
+			" a WHERE n."+COL_NOTIFICATION_EMAIL_ALIAS_ID+"=a."+COL_PRINCIPAL_ALIAS_ID+
+			" AND n."+COL_NOTIFICATION_EMAIL_PRINCIPAL_ID+" IN (:"+PRINCIPAL_IDS_PARAM+")";
+	
 	@Autowired
 	private IdGenerator idGenerator;
 	
@@ -40,6 +55,9 @@ public class NotificationEmailDaoImpl implements NotificationEmailDAO {
 
 	@Autowired
 	private JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	private NamedParameterJdbcTemplate namedJdbcTemplate;
 
 	public NotificationEmailDaoImpl() {}
 	
@@ -84,4 +102,22 @@ public class NotificationEmailDaoImpl implements NotificationEmailDAO {
 		}
 	}
 
+	@Override
+	public Map<Long, String> getNotificationEmailsForPrincipals(Set<Long> principalIds) {
+		final Map<Long, String> results = new HashMap<Long, String>();
+		if (principalIds.isEmpty()) {
+			return results;
+		}
+		MapSqlParameterSource params = new MapSqlParameterSource();
+		params.addValue(PRINCIPAL_IDS_PARAM, principalIds);
+		namedJdbcTemplate.query(SELECT_NOTIFICATION_EMAILS_FOR_PRINCIPALS, params, new RowCallbackHandler() {
+
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				results.put(rs.getLong(COL_NOTIFICATION_EMAIL_PRINCIPAL_ID), rs.getString(COL_PRINCIPAL_ALIAS_DISPLAY));
+			}
+		});
+		return results;
+	}
+
 }
@@ -0,0 +1,472 @@
+package org.sagebionetworks.repo.model.dbo.principal;
+
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_PRINCIPAL_PREFIX_PRINCIPAL_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_PRINCIPAL_PREFIX_TOKEN;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_TEAM_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_GROUP_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_GROUP_IS_INDIVIDUAL;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_PRINCIPAL_PREFIX;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_TEAM;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_USER_GROUP;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.repo.model.ObjectType;
+import org.sagebionetworks.repo.model.dbo.dao.DBOChangeDAO;
+import org.sagebionetworks.repo.model.message.ChangeMessage;
+import org.sagebionetworks.repo.model.message.TransactionalMessenger;
+import org.sagebionetworks.repo.model.message.TransactionalMessengerObserver;
+import org.sagebionetworks.util.Clock;
+import org.sagebionetworks.util.SortedLongSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Serves prefix lookups from memory instead of a LIKE query per keystroke.
+ * 
+ * The PRINCIPAL_PREFIX table is loaded into a {@link PrincipalPrefixIndex}
+ * on first use and rebuilt periodically on the rebuild executor, so lookups
+ * keep using the previous index while the table is reloaded. Between
+ * rebuilds, principals that changed are kept in a small overlay index that
+ * replaces their entries in the base index:
+ * <ul>
+ * <li>Writes through the PrincipalPrefixDAO of this process and PRINCIPAL
+ * changes committed by this process are applied on the next lookup.</li>
+ * <li>PRINCIPAL changes committed elsewhere are found by polling the CHANGES
+ * table, the same change messages the PrincipalPrefixWorker processes. Since
+ * the worker updates the table some time after the change, each changed
+ * principal is re-read for a grace period.</li>
+ * </ul>
+ * Tokens are matched the way the table's case and accent insensitive
+ * collation matches them with LIKE, see {@link #normalize(String)}. Lookups
+ * scoped to the members of a team stay in the database, since a team is
+ * small compared to the table.
+ *
+ */
+public class PrincipalPrefixCache implements TransactionalMessengerObserver {
+
+	static private Logger log = LogManager.getLogger(PrincipalPrefixCache.class);
+
+	public static final long DEFAULT_CHECK_INTERVAL_MS = 1000L;
+	public static final long DEFAULT_REBUILD_INTERVAL_MS = 60 * 60 * 1000L;
+	public static final long DEFAULT_CHANGE_GRACE_PERIOD_MS = 5 * 60 * 1000L;
+	public static final int DEFAULT_MAX_OVERLAY_PRINCIPALS = 10000;
+
+	private static final int CHANGE_PAGE_SIZE = 1000;
+	private static final int PRINCIPAL_BATCH_SIZE = 1000;
+	private static final String SQL_PARAM_IDS = "ids";
+
+	private static final String SQL_SELECT_TOKENS = "SELECT P." + COL_PRINCIPAL_PREFIX_TOKEN + ", P."
+			+ COL_PRINCIPAL_PREFIX_PRINCIPAL_ID + ", U." + COL_USER_GROUP_IS_INDIVIDUAL + ", T." + COL_TEAM_ID
+			+ " FROM " + TABLE_PRINCIPAL_PREFIX + " P JOIN " + TABLE_USER_GROUP + " U ON P."
+			+ COL_PRINCIPAL_PREFIX_PRINCIPAL_ID + " = U." + COL_USER_GROUP_ID + " LEFT JOIN " + TABLE_TEAM
+			+ " T ON P." + COL_PRINCIPAL_PREFIX_PRINCIPAL_ID + " = T." + COL_TEAM_ID;
+
+	private static final String SQL_SELECT_ALL_TOKENS = SQL_SELECT_TOKENS + " ORDER BY P."
+			+ COL_PRINCIPAL_PREFIX_TOKEN + ", P." + COL_PRINCIPAL_PREFIX_PRINCIPAL_ID;
+
+	private static final String SQL_SELECT_TOKENS_FOR_PRINCIPALS = SQL_SELECT_TOKENS + " WHERE P."
+			+ COL_PRINCIPAL_PREFIX_PRINCIPAL_ID + " IN (:" + SQL_PARAM_IDS + ")";
+
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	/**
+	 * Decides if a matching principal is included in the results.
+	 */
+	public interface PrincipalFilter {
+		boolean accept(long principalId, boolean isIndividual, boolean isTeam);
+	}
+
+	public static final PrincipalFilter ALL = (principalId, isIndividual, isTeam) -> true;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private NamedParameterJdbcTemplate namedJdbcTemplate;
+	@Autowired
+	private DBOChangeDAO changeDAO;
+	@Autowired
+	private TransactionalMessenger transactionalMessenger;
+	@Autowired
+	private Clock clock;
+
+	private ExecutorService rebuildExecutor;
+	private long checkIntervalMS = DEFAULT_CHECK_INTERVAL_MS;
+	private long rebuildIntervalMS = DEFAULT_REBUILD_INTERVAL_MS;
+	private long changeGracePeriodMS = DEFAULT_CHANGE_GRACE_PERIOD_MS;
+	private int maxOverlayPrincipals = DEFAULT_MAX_OVERLAY_PRINCIPALS;
+
+	/**
+	 * Principals changed by this process, applied on the next lookup.
+	 */
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+	// The following are only accessed while holding the lock on this.
+	private final Map<Long, List<Entry>> overlayEntries = new HashMap<>();
+	private final Map<Long, Long> overlayReadOn = new HashMap<>();
+	private final Map<Long, Long> recheckUntil = new HashMap<>();
+	private long lastChangeNumber;
+	private long builtOn;
+	// Incremented by clear() so a rebuild started before is dropped.
+	private long clearCount;
+	private volatile long checkedOn;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * This is called by Spring when this bean is created. This is where we
+	 * register this class as an observer of the TransactionalMessenger
+	 */
+	public void initialize() {
+		// We only want to be in the list once
+		transactionalMessenger.removeObserver(this);
+		transactionalMessenger.registerObserver(this);
+	}
+
+	@Override
+	public void fireChangeMessage(ChangeMessage message) {
+		if (ObjectType.PRINCIPAL.equals(message.getObjectType())) {
+			principalChanged(Long.parseLong(message.getObjectId()));
+		}
+	}
+
+	/**
+	 * Called for any change to the prefixes or memberships of a principal made
+	 * by this process.
+	 * 
+	 * @param principalId
+	 */
+	public void principalChanged(Long principalId) {
+		dirty.add(principalId);
+	}
+
+	/**
+	 * Drop everything, the index is rebuilt on the next lookup.
+	 */
+	public synchronized void clear() {
+		clearCount++;
+		snapshot = null;
+		dirty.clear();
+		overlayEntries.clear();
+		overlayReadOn.clear();
+		recheckUntil.clear();
+	}
+
+	/**
+	 * The form in which tokens and prefixes are compared: lower case without
+	 * accents, as the table's case and accent insensitive collation compares
+	 * them. Tokens written by {@link PrincipalPrefixDAOImpl#preProcessToken(String)}
+	 * are already in this form.
+	 * 
+	 * @param token
+	 * @return
+	 */
+	public static String normalize(String token) {
+		String decomposed = Normalizer.normalize(token, Normalizer.Form.NFD);
+		return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * List the distinct principals with a token starting with the given
+	 * prefix in the order of their first matching token.
+	 * 
+	 * @param processedPrefix A prefix already processed with
+	 *                        {@link PrincipalPrefixDAOImpl#preProcessToken(String)}.
+	 * @param filter
+	 * @param limit
+	 * @param offset
+	 * @return
+	 */
+	public List<Long> list(String processedPrefix, PrincipalFilter filter, long limit, long offset) {
+		List<Long> results = new ArrayList<>();
+		long end = limit + offset < 0 ? Long.MAX_VALUE : limit + offset;
+		Set<Long> seen = new HashSet<>();
+		scan(processedPrefix, filter, principalId -> {
+			if (seen.add(principalId) && seen.size() > offset) {
+				results.add(principalId);
+			}
+			return seen.size() < end;
+		});
+		return results;
+	}
+
+	private interface PrincipalCallback {
+		/**
+		 * @return False to stop the scan.
+		 */
+		boolean matched(long principalId);
+	}
+
+	/**
+	 * Merge the matching entries of the base and overlay indices in token
+	 * order, skipping base entries of principals in the overlay.
+	 */
+	private void scan(String processedPrefix, PrincipalFilter filter, PrincipalCallback callback) {
+		String prefix = normalize(processedPrefix);
+		Snapshot current = getSnapshot();
+		PrincipalPrefixIndex base = current.base;
+		PrincipalPrefixIndex overlay = current.overlay;
+		int b = base.firstIndexOf(prefix);
+		int o = overlay.firstIndexOf(prefix);
+		while (true) {
+			boolean hasBase = b < base.size() && base.startsWith(b, prefix);
+			boolean hasOverlay = o < overlay.size() && overlay.startsWith(o, prefix);
+			PrincipalPrefixIndex index;
+			int i;
+			if (hasBase && (!hasOverlay || base.compareEntry(b, overlay, o) < 0)) {
+				index = base;
+				i = b++;
+				if (current.overlaid.contains(base.getPrincipalId(i))) {
+					continue;
+				}
+			} else if (hasOverlay) {
+				index = overlay;
+				i = o++;
+			} else {
+				return;
+			}
+			long principalId = index.getPrincipalId(i);
+			if (filter.accept(principalId, index.isIndividual(i), index.isTeam(i))
+					&& !callback.matched(principalId)) {
+				return;
+			}
+		}
+	}
+
+	private Snapshot getSnapshot() {
+		Snapshot current = snapshot;
+		if (current != null && dirty.isEmpty() && clock.currentTimeMillis() - checkedOn < checkIntervalMS) {
+			return current;
+		}
+		return refresh();
+	}
+
+	/**
+	 * Apply the changes since the last check. Only the first load reads the
+	 * entire table while holding the lock, later rebuilds are started on the
+	 * rebuild executor.
+	 */
+	private synchronized Snapshot refresh() {
+		long now = clock.currentTimeMillis();
+		if (snapshot != null && dirty.isEmpty() && now - checkedOn < checkIntervalMS) {
+			// Another thread just refreshed.
+			return snapshot;
+		}
+		if (snapshot == null) {
+			// Changes after this point are picked up by the next poll.
+			lastChangeNumber = changeDAO.getCurrentChangeNumber();
+			snapshot = new Snapshot(loadBase(), PrincipalPrefixIndex.EMPTY, new SortedLongSet());
+			builtOn = now;
+		} else {
+			pollChanges(now);
+		}
+		boolean changed = reloadChanged(now);
+		checkedOn = now;
+		if (changed) {
+			snapshot = createSnapshot(snapshot.base);
+		}
+		if ((now - builtOn >= rebuildIntervalMS || overlayEntries.size() > maxOverlayPrincipals)
+				&& rebuilding.compareAndSet(false, true)) {
+			startRebuild(clearCount);
+		}
+		return snapshot;
+	}
+
+	private void startRebuild(long clearCountAtStart) {
+		try {
+			rebuildExecutor.execute(() -> rebuild(clearCountAtStart));
+		} catch (RuntimeException e) {
+			rebuilding.set(false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reload the table without holding the lock and swap the new base index
+	 * in. Overlay entries read before the reload started are dropped, since
+	 * the new base index is at least as recent.
+	 */
+	private void rebuild(long clearCountAtStart) {
+		try {
+			long startedOn = clock.currentTimeMillis();
+			PrincipalPrefixIndex base = loadBase();
+			synchronized (this) {
+				if (clearCount != clearCountAtStart || snapshot == null) {
+					return;
+				}
+				for (Iterator<Map.Entry<Long, Long>> it = overlayReadOn.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<Long, Long> readOn = it.next();
+					if (readOn.getValue() < startedOn) {
+						overlayEntries.remove(readOn.getKey());
+						it.remove();
+					}
+				}
+				builtOn = startedOn;
+				snapshot = createSnapshot(base);
+			}
+		} catch (RuntimeException e) {
+			log.error("Failed to rebuild the principal prefix index", e);
+		} finally {
+			rebuilding.set(false);
+		}
+	}
+
+	private PrincipalPrefixIndex loadBase() {
+		PrincipalPrefixIndex.Builder builder = new PrincipalPrefixIndex.Builder();
+		jdbcTemplate.query(SQL_SELECT_ALL_TOKENS, rs -> {
+			builder.add(normalize(rs.getString(1)), rs.getLong(2), rs.getBoolean(3), rs.getObject(4) != null);
+		});
+		return builder.build();
+	}
+
+	private Snapshot createSnapshot(PrincipalPrefixIndex base) {
+		PrincipalPrefixIndex.Builder builder = new PrincipalPrefixIndex.Builder();
+		for (List<Entry> entries : overlayEntries.values()) {
+			for (Entry entry : entries) {
+				builder.add(entry.token, entry.principalId, entry.isIndividual, entry.isTeam);
+			}
+		}
+		return new Snapshot(base, builder.build(), new SortedLongSet(overlayEntries.keySet()));
+	}
+
+	private void pollChanges(long now) {
+		List<ChangeMessage> changes;
+		do {
+			changes = changeDAO.listChanges(lastChangeNumber + 1, ObjectType.PRINCIPAL, CHANGE_PAGE_SIZE);
+			for (ChangeMessage change : changes) {
+				Long principalId = Long.parseLong(change.getObjectId());
+				recheckUntil.put(principalId, now + changeGracePeriodMS);
+				lastChangeNumber = Math.max(lastChangeNumber, change.getChangeNumber());
+			}
+		} while (changes.size() == CHANGE_PAGE_SIZE);
+	}
+
+	/**
+	 * Re-read the entries of all principals changed by this process or still
+	 * in their grace period.
+	 * 
+	 * @return False if there was nothing to re-read.
+	 */
+	private boolean reloadChanged(long now) {
+		Set<Long> toReload = new LinkedHashSet<>();
+		for (Iterator<Long> it = dirty.iterator(); it.hasNext();) {
+			toReload.add(it.next());
+			it.remove();
+		}
+		for (Iterator<Map.Entry<Long, Long>> it = recheckUntil.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Long, Long> recheck = it.next();
+			toReload.add(recheck.getKey());
+			if (recheck.getValue() < now) {
+				// This is the last time.
+				it.remove();
+			}
+		}
+		if (toReload.isEmpty()) {
+			return false;
+		}
+		for (Long principalId : toReload) {
+			overlayEntries.put(principalId, new ArrayList<>());
+			overlayReadOn.put(principalId, now);
+		}
+		List<Long> ids = new ArrayList<>(toReload);
+		for (int start = 0; start < ids.size(); start += PRINCIPAL_BATCH_SIZE) {
+			MapSqlParameterSource params = new MapSqlParameterSource(SQL_PARAM_IDS,
+					ids.subList(start, Math.min(ids.size(), start + PRINCIPAL_BATCH_SIZE)));
+			namedJdbcTemplate.query(SQL_SELECT_TOKENS_FOR_PRINCIPALS, params, rs -> {
+				Entry entry = new Entry(normalize(rs.getString(1)), rs.getLong(2), rs.getBoolean(3), rs.getObject(4) != null);
+				overlayEntries.get(entry.principalId).add(entry);
+			});
+		}
+		return true;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param rebuildExecutor Reloads the entire table in the background.
+	 */
+	public void setRebuildExecutor(ExecutorService rebuildExecutor) {
+		this.rebuildExecutor = rebuildExecutor;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param checkIntervalMS How often to look for changes made elsewhere.
+	 */
+	public void setCheckIntervalMS(long checkIntervalMS) {
+		this.checkIntervalMS = checkIntervalMS;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param rebuildIntervalMS How often to reload the entire table.
+	 */
+	public void setRebuildIntervalMS(long rebuildIntervalMS) {
+		this.rebuildIntervalMS = rebuildIntervalMS;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param changeGracePeriodMS How long a changed principal is re-read while
+	 *                            waiting for the worker.
+	 */
+	public void setChangeGracePeriodMS(long changeGracePeriodMS) {
+		this.changeGracePeriodMS = changeGracePeriodMS;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param maxOverlayPrincipals The table is reloaded early once more than
+	 *                             this many principals have changed.
+	 */
+	public void setMaxOverlayPrincipals(int maxOverlayPrincipals) {
+		this.maxOverlayPrincipals = maxOverlayPrincipals;
+	}
+
+	private static class Snapshot {
+		final PrincipalPrefixIndex base;
+		final PrincipalPrefixIndex overlay;
+		final SortedLongSet overlaid;
+
+		Snapshot(PrincipalPrefixIndex base, PrincipalPrefixIndex overlay, SortedLongSet overlaid) {
+			this.base = base;
+			this.overlay = overlay;
+			this.overlaid = overlaid;
+		}
+	}
+
+	private static class Entry {
+		final String token;
+		final long principalId;
+		final boolean isIndividual;
+		final boolean isTeam;
+
+		Entry(String token, long principalId, boolean isIndividual, boolean isTeam) {
+			this.token = token;
+			this.principalId = principalId;
+			this.isIndividual = isIndividual;
+			this.isTeam = isTeam;
+		}
+	}
+}
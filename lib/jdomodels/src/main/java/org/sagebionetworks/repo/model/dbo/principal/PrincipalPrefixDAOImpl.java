@@ -4,13 +4,8 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_GROUP_ME
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_GROUP_MEMBERS_MEMBER_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_PRINCIPAL_PREFIX_PRINCIPAL_ID;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_PRINCIPAL_PREFIX_TOKEN;
-import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_TEAM_ID;
-import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_GROUP_ID;
-import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_USER_GROUP_IS_INDIVIDUAL;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_GROUP_MEMBERS;
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_PRINCIPAL_PREFIX;
-import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_TEAM;
-import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_USER_GROUP;
 
 import java.util.List;
 import java.util.Set;
@@ -68,33 +63,6 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 			+ " = ? AND P."
 			+ COL_PRINCIPAL_PREFIX_TOKEN + " LIKE ?";
 
-	private static final String SQL_LIST_PRINCIPALS_FOR_PREFIX = "SELECT DISTINCT "
-			+ COL_PRINCIPAL_PREFIX_PRINCIPAL_ID
-			+ " FROM "
-			+ TABLE_PRINCIPAL_PREFIX
-			+ " WHERE "
-			+ COL_PRINCIPAL_PREFIX_TOKEN
-			+ " LIKE ? LIMIT ? OFFSET ?";
-
-	private static final String SQL_LIST_PRINCIPALS_FOR_PREFIX_BY_TYPE =
-			"SELECT DISTINCT P."+COL_PRINCIPAL_PREFIX_PRINCIPAL_ID
-			+ " FROM "
-			+ TABLE_PRINCIPAL_PREFIX+" P JOIN "+TABLE_USER_GROUP+" U "
-			+ "ON (P."+COL_PRINCIPAL_PREFIX_PRINCIPAL_ID+" = U."+COL_USER_GROUP_ID
-					+" AND U."+COL_USER_GROUP_IS_INDIVIDUAL+" = ?)"
-			+ " WHERE"
-			+ " P.TOKEN LIKE ? LIMIT ? OFFSET ?";
-
-	private static final String SQL_LIST_TEAMS_FOR_PREFIX =
-			"SELECT DISTINCT P." + COL_PRINCIPAL_PREFIX_PRINCIPAL_ID
-					+ " FROM "
-					+ TABLE_PRINCIPAL_PREFIX + " P JOIN " + TABLE_USER_GROUP + " U ON P."
-					+ COL_PRINCIPAL_PREFIX_PRINCIPAL_ID + " = U." + COL_USER_GROUP_ID
-					+ " JOIN " + TABLE_TEAM + " T ON U." + COL_USER_GROUP_ID + " = T."
-					+ COL_TEAM_ID + " WHERE P." + COL_PRINCIPAL_PREFIX_TOKEN
-					+ " LIKE ? LIMIT ? OFFSET ?";
-
-
 	private static final String SQL_CLEAR_PRINCIPAL = "DELETE FROM "
 			+ TABLE_PRINCIPAL_PREFIX + " WHERE "
 			+ COL_PRINCIPAL_PREFIX_PRINCIPAL_ID + " = ?";
@@ -119,6 +87,8 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	private JdbcTemplate jdbcTemplate;
 	@Autowired
 	private NamedParameterJdbcTemplate namedJdbcTemplate;
+	@Autowired
+	private PrincipalPrefixCache principalPrefixCache;
 
 	/*
 	 * (non-Javadoc)
@@ -145,6 +115,7 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	private void insertIgnoreDuplicate(Long principalId, String token) {
 		jdbcTemplate.update(SQL_INSERT_WITH_DUPLICATE_IGNORE, token,
 				principalId);
+		principalPrefixCache.principalChanged(principalId);
 	}
 
 	/*
@@ -196,6 +167,7 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	@Override
 	public void clearPrincipal(Long principalId) {
 		jdbcTemplate.update(SQL_CLEAR_PRINCIPAL, principalId);
+		principalPrefixCache.principalChanged(principalId);
 	}
 
 	/*
@@ -208,8 +180,7 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	public List<Long> listPrincipalsForPrefix(String prefix, Long limit,
 			Long offset) {
 		String processed = preProcessToken(prefix);
-		return jdbcTemplate.queryForList(SQL_LIST_PRINCIPALS_FOR_PREFIX,
-				Long.class, processed + WILDCARD, limit, offset);
+		return principalPrefixCache.list(processed, PrincipalPrefixCache.ALL, limit, offset);
 	}
 
 	/**
@@ -219,8 +190,7 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	@Override
 	public List<Long> listTeamsForPrefix(String prefix, Long limit, Long offset) {
 		String processed = preProcessToken(prefix);
-		return jdbcTemplate.queryForList(SQL_LIST_TEAMS_FOR_PREFIX,
-				Long.class, processed + WILDCARD, limit, offset);
+		return principalPrefixCache.list(processed, (principalId, isIndividual, isTeam) -> isTeam, limit, offset);
 	}
 	
 	/*
@@ -231,8 +201,8 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	public List<Long> listPrincipalsForPrefix(String prefix,
 			boolean isIndividual, Long limit, Long offset) {
 		String processed = preProcessToken(prefix);
-		return jdbcTemplate.queryForList(SQL_LIST_PRINCIPALS_FOR_PREFIX_BY_TYPE,
-				Long.class, isIndividual, processed + WILDCARD, limit, offset);
+		return principalPrefixCache.list(processed,
+				(principalId, individual, isTeam) -> individual == isIndividual, limit, offset);
 	}
 
 	/*
@@ -305,6 +275,7 @@ public class PrincipalPrefixDAOImpl implements PrincipalPrefixDAO {
 	@Override
 	public void truncateTable() {
 		jdbcTemplate.update(SQL_TRUNCATE_TABLE);
+		principalPrefixCache.clear();
 	}
 
 }
@@ -0,0 +1,209 @@
+package org.sagebionetworks.repo.model.dbo.principal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, in-memory copy of the PRINCIPAL_PREFIX table.
+ * 
+ * Entries are sorted by token and then by principal ID, the order of the
+ * table's primary key. All tokens are packed into a single char[] with an
+ * offset per entry, so the index costs a few bytes per entry rather than a
+ * String object each. A prefix lookup is a binary search for the first token
+ * that is greater than or equal to the prefix, followed by a forward scan
+ * while tokens start with the prefix.
+ *
+ */
+public class PrincipalPrefixIndex {
+
+	private static final byte FLAG_INDIVIDUAL = 1;
+	private static final byte FLAG_TEAM = 2;
+
+	public static final PrincipalPrefixIndex EMPTY = new Builder().build();
+
+	private final char[] chars;
+	private final int[] offsets;
+	private final long[] principalIds;
+	private final byte[] flags;
+
+	private PrincipalPrefixIndex(char[] chars, int[] offsets, long[] principalIds, byte[] flags) {
+		this.chars = chars;
+		this.offsets = offsets;
+		this.principalIds = principalIds;
+		this.flags = flags;
+	}
+
+	/**
+	 * @return The number of token/principal entries.
+	 */
+	public int size() {
+		return principalIds.length;
+	}
+
+	/**
+	 * 
+	 * @param prefix
+	 * @return The index of the first entry with a token greater than or equal
+	 *         to the prefix.
+	 */
+	public int firstIndexOf(String prefix) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareToken(middle, prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * 
+	 * @param index
+	 * @param prefix
+	 * @return True if the token of the given entry starts with the prefix.
+	 */
+	public boolean startsWith(int index, String prefix) {
+		int start = offsets[index];
+		if (offsets[index + 1] - start < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (chars[start + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compare an entry of this index with an entry of another index, by token
+	 * and then by principal ID.
+	 * 
+	 * @param index
+	 * @param other
+	 * @param otherIndex
+	 * @return
+	 */
+	public int compareEntry(int index, PrincipalPrefixIndex other, int otherIndex) {
+		int start = offsets[index];
+		int length = offsets[index + 1] - start;
+		int otherStart = other.offsets[otherIndex];
+		int otherLength = other.offsets[otherIndex + 1] - otherStart;
+		int min = Math.min(length, otherLength);
+		for (int i = 0; i < min; i++) {
+			char c = chars[start + i];
+			char o = other.chars[otherStart + i];
+			if (c != o) {
+				return c - o;
+			}
+		}
+		if (length != otherLength) {
+			return length - otherLength;
+		}
+		return Long.compare(principalIds[index], other.principalIds[otherIndex]);
+	}
+
+	public String getToken(int index) {
+		return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+	}
+
+	public long getPrincipalId(int index) {
+		return principalIds[index];
+	}
+
+	public boolean isIndividual(int index) {
+		return (flags[index] & FLAG_INDIVIDUAL) != 0;
+	}
+
+	public boolean isTeam(int index) {
+		return (flags[index] & FLAG_TEAM) != 0;
+	}
+
+	private int compareToken(int index, String value) {
+		int start = offsets[index];
+		int length = offsets[index + 1] - start;
+		int min = Math.min(length, value.length());
+		for (int i = 0; i < min; i++) {
+			char c = chars[start + i];
+			char v = value.charAt(i);
+			if (c != v) {
+				return c - v;
+			}
+		}
+		return length - value.length();
+	}
+
+	/**
+	 * Collects entries in any order. Duplicate token/principal pairs are
+	 * dropped.
+	 *
+	 */
+	public static class Builder {
+
+		private final List<String> tokens = new ArrayList<>();
+		private long[] principalIds = new long[16];
+		private byte[] flags = new byte[16];
+		private boolean sorted = true;
+
+		public Builder add(String token, long principalId, boolean isIndividual, boolean isTeam) {
+			int index = tokens.size();
+			if (index == principalIds.length) {
+				principalIds = Arrays.copyOf(principalIds, index * 2);
+				flags = Arrays.copyOf(flags, index * 2);
+			}
+			if (sorted && index > 0) {
+				int compare = tokens.get(index - 1).compareTo(token);
+				sorted = compare < 0 || (compare == 0 && principalIds[index - 1] < principalId);
+			}
+			tokens.add(token);
+			principalIds[index] = principalId;
+			flags[index] = (byte) ((isIndividual ? FLAG_INDIVIDUAL : 0) | (isTeam ? FLAG_TEAM : 0));
+			return this;
+		}
+
+		public PrincipalPrefixIndex build() {
+			int size = tokens.size();
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			if (!sorted) {
+				Arrays.sort(order, Comparator.comparing((Integer i) -> tokens.get(i))
+						.thenComparingLong(i -> principalIds[i]));
+			}
+			int totalChars = 0;
+			for (String token : tokens) {
+				totalChars += token.length();
+			}
+			char[] chars = new char[totalChars];
+			int[] offsets = new int[size + 1];
+			long[] ids = new long[size];
+			byte[] entryFlags = new byte[size];
+			int count = 0;
+			int charCount = 0;
+			for (int i = 0; i < size; i++) {
+				int source = order[i];
+				String token = tokens.get(source);
+				if (count > 0 && ids[count - 1] == principalIds[source]
+						&& token.equals(tokens.get(order[i - 1]))) {
+					continue;
+				}
+				token.getChars(0, token.length(), chars, charCount);
+				offsets[count] = charCount;
+				charCount += token.length();
+				ids[count] = principalIds[source];
+				entryFlags[count] = flags[source];
+				count++;
+			}
+			offsets[count] = charCount;
+			return new PrincipalPrefixIndex(Arrays.copyOf(chars, charCount), Arrays.copyOf(offsets, count + 1), Arrays.copyOf(ids, count),
+					Arrays.copyOf(entryFlags, count));
+		}
+	}
+}
@@ -25,8 +25,6 @@ import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.V2_TABLE_WIK
 import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.V2_TABLE_WIKI_PAGE;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -37,8 +35,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
-import org.sagebionetworks.aws.SynapseS3Client;
-import org.sagebionetworks.downloadtools.FileUtils;
 import org.sagebionetworks.ids.IdGenerator;
 import org.sagebionetworks.ids.IdType;
 import org.sagebionetworks.repo.model.DatastoreException;
@@ -50,7 +46,6 @@ import org.sagebionetworks.repo.model.dao.WikiPageKeyHelper;
 import org.sagebionetworks.repo.model.dbo.DBOBasicDao;
 import org.sagebionetworks.repo.model.dbo.TableMapping;
 import org.sagebionetworks.repo.model.file.FileHandle;
-import org.sagebionetworks.repo.model.file.S3FileHandle;
 import org.sagebionetworks.repo.model.jdo.KeyFactory;
 import org.sagebionetworks.repo.model.message.ChangeType;
 import org.sagebionetworks.repo.model.message.MessageToSend;
@@ -64,7 +59,6 @@ import org.sagebionetworks.repo.model.v2.wiki.V2WikiPage;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.sagebionetworks.util.ValidateArgument;
-import org.sagebionetworks.utils.ContentTypeUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
@@ -75,7 +69,6 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
-import com.amazonaws.services.s3.model.S3Object;
 
 /**
  * The basic implementation of the V2WikiPageDao.
@@ -104,10 +97,10 @@ public class V2DBOWikiPageDaoImpl implements V2WikiPageDao {
 	private NamedParameterJdbcTemplate namedTemplate;
 	
 	@Autowired
-	private SynapseS3Client s3Client;
+	private FileHandleDao fileMetadataDao;	
 
 	@Autowired
-	private FileHandleDao fileMetadataDao;	
+	private WikiMarkdownCache wikiMarkdownCache;
 
 	/**
 	 * Used to detect if a wiki object already exists.
@@ -516,16 +509,9 @@ public class V2DBOWikiPageDaoImpl implements V2WikiPageDao {
 	
 	@Override
 	public String getMarkdown(WikiPageKey key, Long version) throws IOException, NotFoundException {
+		// The markdown file handle of a version never changes so it can be cached.
 		V2WikiPage wiki = get(key, version);
-		S3FileHandle markdownHandle = (S3FileHandle) fileMetadataDao.get(wiki.getMarkdownFileHandleId());
-		S3Object s3Object = s3Client.getObject(markdownHandle.getBucketName(), markdownHandle.getKey());
-		InputStream in = s3Object.getObjectContent();
-		Charset charset = ContentTypeUtil.getCharsetFromS3Object(s3Object);
-		try{
-			return FileUtils.readStreamAsString(in, charset, /*gunzip*/true);
-		}finally{
-			in.close();
-		}
+		return wikiMarkdownCache.getMarkdown(wiki.getMarkdownFileHandleId());
 	}
 	
 	@Override
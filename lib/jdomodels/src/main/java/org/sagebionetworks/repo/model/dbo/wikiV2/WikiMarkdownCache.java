@@ -0,0 +1,46 @@
+package org.sagebionetworks.repo.model.dbo.wikiV2;
+
+import java.io.IOException;
+
+import org.sagebionetworks.repo.web.NotFoundException;
+
+/**
+ * Cache of the decompressed markdown of wiki pages. A markdown file handle is
+ * never modified once it is assigned to a version of a wiki, so the markdown is
+ * cached by its file handle ID.
+ *
+ */
+public interface WikiMarkdownCache {
+
+	/**
+	 * Get the decompressed markdown of the given markdown file handle,
+	 * downloading it from S3 if it is not already cached.
+	 * 
+	 * @param markdownFileHandleId
+	 * @return
+	 * @throws IOException
+	 * @throws NotFoundException
+	 */
+	String getMarkdown(String markdownFileHandleId) throws IOException, NotFoundException;
+
+	/**
+	 * The number of reads served from the cache.
+	 * 
+	 * @return
+	 */
+	long getHitCount();
+
+	/**
+	 * The number of reads that required a download from S3.
+	 * 
+	 * @return
+	 */
+	long getMissCount();
+
+	/**
+	 * The total size of the S3 downloads avoided by cache hits.
+	 * 
+	 * @return
+	 */
+	long getBytesSaved();
+}
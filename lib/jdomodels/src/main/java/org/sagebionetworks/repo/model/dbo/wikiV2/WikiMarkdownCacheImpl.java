@@ -0,0 +1,208 @@
+package org.sagebionetworks.repo.model.dbo.wikiV2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.aws.SynapseS3Client;
+import org.sagebionetworks.downloadtools.FileUtils;
+import org.sagebionetworks.repo.model.dao.FileHandleDao;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
+import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.util.ValidateArgument;
+import org.sagebionetworks.utils.ContentTypeUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * A least-recently-used {@link WikiMarkdownCache} bounded by the total size of
+ * the cached markdown. Markdown is held as UTF-8 bytes, either on the heap or
+ * in direct (off-heap) buffers.
+ *
+ */
+public class WikiMarkdownCacheImpl implements WikiMarkdownCache {
+
+	/**
+	 * The hit rate and bytes saved are logged at most once per period.
+	 */
+	public static final long REPORT_PERIOD_MS = 60 * 1000;
+
+	static private Logger log = LogManager.getLogger(WikiMarkdownCacheImpl.class);
+
+	@Autowired
+	private SynapseS3Client s3Client;
+
+	@Autowired
+	private FileHandleDao fileMetadataDao;
+
+	private final long maxBytes;
+	private final boolean offHeap;
+	private final LinkedHashMap<String, CachedMarkdown> cache;
+	private long cachedBytes;
+
+	private final AtomicLong hitCount;
+	private final AtomicLong missCount;
+	private final AtomicLong bytesSaved;
+	private final AtomicLong lastReportMS;
+
+	/**
+	 * 
+	 * @param maxBytes The maximum number of bytes of markdown to hold.
+	 * @param offHeap  When true the markdown is held in direct buffers outside of
+	 *                 the Java heap.
+	 */
+	public WikiMarkdownCacheImpl(long maxBytes, boolean offHeap) {
+		ValidateArgument.requirement(maxBytes > 0, "maxBytes must be greater than zero");
+		this.maxBytes = maxBytes;
+		this.offHeap = offHeap;
+		// access order so the iterator starts with the least recently used.
+		this.cache = new LinkedHashMap<>(16, 0.75f, true);
+		this.cachedBytes = 0L;
+		this.hitCount = new AtomicLong();
+		this.missCount = new AtomicLong();
+		this.bytesSaved = new AtomicLong();
+		this.lastReportMS = new AtomicLong(System.currentTimeMillis());
+	}
+
+	@Override
+	public String getMarkdown(String markdownFileHandleId) throws IOException, NotFoundException {
+		ValidateArgument.required(markdownFileHandleId, "markdownFileHandleId");
+		CachedMarkdown cached;
+		synchronized (cache) {
+			cached = cache.get(markdownFileHandleId);
+		}
+		String markdown;
+		if (cached != null) {
+			hitCount.incrementAndGet();
+			bytesSaved.addAndGet(cached.downloadSize);
+			markdown = cached.getMarkdown();
+		} else {
+			missCount.incrementAndGet();
+			// Download outside of the lock so a slow read does not block other wikis.
+			S3FileHandle markdownHandle = (S3FileHandle) fileMetadataDao.get(markdownFileHandleId);
+			markdown = downloadMarkdown(markdownHandle);
+			long downloadSize = markdownHandle.getContentSize() == null ? 0L : markdownHandle.getContentSize();
+			put(markdownFileHandleId, new CachedMarkdown(markdown, downloadSize, offHeap));
+		}
+		reportIfNeeded();
+		return markdown;
+	}
+
+	/**
+	 * Download and decompress the markdown of the given file handle.
+	 * 
+	 * @param markdownHandle
+	 * @return
+	 * @throws IOException
+	 */
+	String downloadMarkdown(S3FileHandle markdownHandle) throws IOException {
+		S3Object s3Object = s3Client.getObject(markdownHandle.getBucketName(), markdownHandle.getKey());
+		InputStream in = s3Object.getObjectContent();
+		Charset charset = ContentTypeUtil.getCharsetFromS3Object(s3Object);
+		try {
+			return FileUtils.readStreamAsString(in, charset, /*gunzip*/true);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void put(String markdownFileHandleId, CachedMarkdown toCache) {
+		if (toCache.size() > maxBytes) {
+			return;
+		}
+		synchronized (cache) {
+			CachedMarkdown replaced = cache.put(markdownFileHandleId, toCache);
+			if (replaced != null) {
+				cachedBytes -= replaced.size();
+			}
+			cachedBytes += toCache.size();
+			Iterator<Map.Entry<String, CachedMarkdown>> iterator = cache.entrySet().iterator();
+			while (cachedBytes > maxBytes && iterator.hasNext()) {
+				cachedBytes -= iterator.next().getValue().size();
+				iterator.remove();
+			}
+		}
+	}
+
+	private void reportIfNeeded() {
+		long now = System.currentTimeMillis();
+		long last = lastReportMS.get();
+		if (now - last < REPORT_PERIOD_MS || !lastReportMS.compareAndSet(last, now)) {
+			return;
+		}
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		long size;
+		synchronized (cache) {
+			size = cachedBytes;
+		}
+		log.info(String.format("Wiki markdown cache hit rate: %.1f%% of %d reads, S3 bytes saved: %d, cached bytes: %d",
+				total == 0 ? 0.0 : 100.0 * hits / total, total, bytesSaved.get(), size));
+	}
+
+	/**
+	 * The number of bytes of markdown currently cached.
+	 * 
+	 * @return
+	 */
+	long getCachedBytes() {
+		synchronized (cache) {
+			return cachedBytes;
+		}
+	}
+
+	@Override
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	@Override
+	public long getBytesSaved() {
+		return bytesSaved.get();
+	}
+
+	/**
+	 * The UTF-8 bytes of a cached markdown with the size of the download it
+	 * replaces.
+	 */
+	private static class CachedMarkdown {
+
+		final ByteBuffer content;
+		final long downloadSize;
+
+		CachedMarkdown(String markdown, long downloadSize, boolean offHeap) {
+			byte[] bytes = markdown.getBytes(StandardCharsets.UTF_8);
+			if (offHeap) {
+				this.content = ByteBuffer.allocateDirect(bytes.length);
+				this.content.put(bytes);
+				this.content.flip();
+			} else {
+				this.content = ByteBuffer.wrap(bytes);
+			}
+			this.downloadSize = downloadSize;
+		}
+
+		String getMarkdown() {
+			// duplicate() so concurrent readers do not share a position.
+			return StandardCharsets.UTF_8.decode(content.duplicate()).toString();
+		}
+
+		long size() {
+			return content.capacity();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package org.sagebionetworks.repo.model.jdo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.sagebionetworks.repo.model.UnmodifiableXStream;
+
+/**
+ * A codec used to serialize objects stored in database blobs. Each codec is
+ * identified by a single byte that is written in the blob header (see
+ * {@link JDOSecondaryPropertyUtils}) so blobs written by any registered codec
+ * can always be read back, regardless of the codec used for new writes.
+ *
+ */
+public interface BlobCodec {
+
+	/**
+	 * The identifier of this codec written in the blob header.
+	 * 
+	 * @return
+	 */
+	byte getCodecId();
+
+	/**
+	 * Can this codec encode the given object with the given configuration?
+	 * 
+	 * @param customXStream the configuration of the caller, including the allowed
+	 *                      types.
+	 * @param dto
+	 * @return
+	 */
+	boolean canEncode(UnmodifiableXStream customXStream, Object dto);
+
+	/**
+	 * Write the given object to the stream. The blob header has already been
+	 * written.
+	 * 
+	 * @param customXStream
+	 * @param dto
+	 * @param out
+	 * @throws IOException
+	 */
+	void encode(UnmodifiableXStream customXStream, Object dto, OutputStream out) throws IOException;
+
+	/**
+	 * Read an object from the stream, positioned just after the blob header.
+	 * 
+	 * @param customXStream
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	Object decode(UnmodifiableXStream customXStream, InputStream in) throws IOException;
+}
@@ -8,14 +8,23 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.sagebionetworks.StackConfigurationSingleton;
 import org.sagebionetworks.repo.model.UnmodifiableXStream;
 
 /**
  * Helper utilities for converting between JDOAnnotations and Annotations (DTO).
  * 
+ * Blobs are either legacy gzipped XStream XML (starting with the gzip magic
+ * bytes) or start with {@link #BLOB_HEADER} followed by the id of the
+ * {@link BlobCodec} that wrote them. Codecs are only used for writes when
+ * {@link #isCodecWriteEnabled()}, so the new format is not written until every
+ * reader can decode it and a rollback does not leave unreadable blobs.
+ * 
  * @author jmhill
  *
  */
@@ -23,15 +32,60 @@ public class JDOSecondaryPropertyUtils {
 
 	public static final Charset UTF8 = Charset.forName("UTF-8");
 
+	public static final byte[] BLOB_HEADER = new byte[] { 'S', 'B' };
+	public static final int BLOB_HEADER_LENGTH = BLOB_HEADER.length + 1;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	private static final List<BlobCodec> CODECS = Collections.singletonList(new JSONEntityBlobCodec());
+
 	/**
-	 * Compresses the dto into compressed XML bytes using the provided customXStream
+	 * Are blobs written with the codecs, or only as compressed XML?
+	 * @return
+	 */
+	public static boolean isCodecWriteEnabled() {
+		return StackConfigurationSingleton.singleton().getBlobCodecWriteEnabled();
+	}
+
+	/**
+	 * Compresses the dto using the first codec that supports it with the provided
+	 * customXStream, falling back to compressed XML. Codecs are skipped unless
+	 * {@link #isCodecWriteEnabled()}.
 	 * @param customXStream a UnmodifiableXStream that has been set up to handle the object type
 	 * @param dto the object to be serialized and compressed
-	 * @return byte[] of compressed XML representing the dto object.
+	 * @return byte[] of the compressed blob representing the dto object.
 	 * @throws IOException
 	 */
 	public static byte[] compressObject(UnmodifiableXStream customXStream, Object dto) throws IOException {
 		if(dto == null) return null;
+		return compressObject(customXStream, dto, isCodecWriteEnabled());
+	}
+
+	static byte[] compressObject(UnmodifiableXStream customXStream, Object dto, boolean codecWriteEnabled) throws IOException {
+		if(dto == null) return null;
+		if(!codecWriteEnabled){
+			return compressXML(customXStream, dto);
+		}
+		for(BlobCodec codec: CODECS){
+			if(codec.canEncode(customXStream, dto)){
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				out.write(BLOB_HEADER);
+				out.write(codec.getCodecId());
+				codec.encode(customXStream, dto, out);
+				return out.toByteArray();
+			}
+		}
+		return compressXML(customXStream, dto);
+	}
+
+	/**
+	 * Compresses the dto into compressed XML bytes using the provided customXStream
+	 * @param customXStream
+	 * @param dto
+	 * @return
+	 * @throws IOException
+	 */
+	static byte[] compressXML(UnmodifiableXStream customXStream, Object dto) throws IOException {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		GZIPOutputStream zipper = new GZIPOutputStream(out);
 		try(Writer zipWriter = new OutputStreamWriter(zipper, UTF8);){
@@ -41,9 +95,10 @@ public class JDOSecondaryPropertyUtils {
 	}
 
 	/**
-	 * Decompress and deserialize compressed XML bytes into an object using the provided customXStream
+	 * Decompress and deserialize a blob into an object using the provided customXStream.
+	 * Both legacy XML blobs and blobs written by any registered codec can be read.
 	 * @param customXStream a UnmodifiableXStream that has been set up to handle the object type
-	 * @param zippedBytes byte[] of compressed XML representing the dto object.
+	 * @param zippedBytes byte[] of the compressed blob representing the dto object.
 	 * @return the object that the bytes represented
 	 * @throws IOException
 	 */
@@ -51,7 +106,54 @@ public class JDOSecondaryPropertyUtils {
 		if(zippedBytes == null){
 			return null;
 		}
+		if(isXMLBlob(zippedBytes)){
+			return decompressXML(customXStream, zippedBytes);
+		}
+		if(zippedBytes.length < BLOB_HEADER_LENGTH || zippedBytes[0] != BLOB_HEADER[0] || zippedBytes[1] != BLOB_HEADER[1]){
+			throw new IOException("Unknown blob format");
+		}
+		byte codecId = zippedBytes[BLOB_HEADER.length];
+		for(BlobCodec codec: CODECS){
+			if(codec.getCodecId() == codecId){
+				return codec.decode(customXStream, new ByteArrayInputStream(zippedBytes, BLOB_HEADER_LENGTH, zippedBytes.length - BLOB_HEADER_LENGTH));
+			}
+		}
+		throw new IOException("Unknown blob codec: " + codecId);
+	}
+
+	/**
+	 * Re-encode a blob with the codec that would be used for new writes.
+	 * @param customXStream
+	 * @param zippedBytes
+	 * @return The re-encoded blob, or null if the blob is already in the preferred format
+	 *         or codec writes are not enabled.
+	 * @throws IOException
+	 */
+	public static byte[] reEncodeObject(UnmodifiableXStream customXStream, byte[] zippedBytes) throws IOException{
+		return reEncodeObject(customXStream, zippedBytes, isCodecWriteEnabled());
+	}
+
+	static byte[] reEncodeObject(UnmodifiableXStream customXStream, byte[] zippedBytes, boolean codecWriteEnabled) throws IOException{
+		if(!codecWriteEnabled || zippedBytes == null || !isXMLBlob(zippedBytes)){
+			return null;
+		}
+		byte[] reEncoded = compressObject(customXStream, decompressXML(customXStream, zippedBytes), codecWriteEnabled);
+		if(reEncoded == null || isXMLBlob(reEncoded)){
+			return null;
+		}
+		return reEncoded;
+	}
+
+	/**
+	 * Is the given blob legacy gzipped XML?
+	 * @param bytes
+	 * @return
+	 */
+	public static boolean isXMLBlob(byte[] bytes){
+		return bytes.length >= 2 && ((bytes[0] & 0xff) | ((bytes[1] & 0xff) << 8)) == GZIP_MAGIC;
+	}
 
+	static Object decompressXML(UnmodifiableXStream customXStream, byte[] zippedBytes) throws IOException{
 		ByteArrayInputStream in = new ByteArrayInputStream(zippedBytes);
 		GZIPInputStream unZipper = new GZIPInputStream(in);
 		try(Reader reader = new InputStreamReader(unZipper, UTF8);){
@@ -0,0 +1,113 @@
+package org.sagebionetworks.repo.model.jdo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.sagebionetworks.repo.model.UnmodifiableXStream;
+import org.sagebionetworks.schema.adapter.JSONEntity;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.adapter.org.json.EntityFactory;
+
+/**
+ * Codec that writes a JSONEntity as compact JSON compressed with a fast
+ * deflate. The blob holds the name of the concrete class followed by the
+ * compressed JSON. On read the class must be a JSONEntity allowed by the
+ * provided configuration, the same restriction XStream applies.
+ * 
+ * Fields omitted by the configuration are removed from the root JSON object.
+ *
+ */
+public class JSONEntityBlobCodec implements BlobCodec {
+
+	public static final byte CODEC_ID = 1;
+
+	@Override
+	public byte getCodecId() {
+		return CODEC_ID;
+	}
+
+	@Override
+	public boolean canEncode(UnmodifiableXStream customXStream, Object dto) {
+		return customXStream.isJSONEntityBlobCodec() && dto instanceof JSONEntity
+				&& customXStream.isTypeAllowed(dto.getClass());
+	}
+
+	@Override
+	public void encode(UnmodifiableXStream customXStream, Object dto, OutputStream out) throws IOException {
+		JSONObject json;
+		try {
+			json = EntityFactory.createJSONObjectForEntity((JSONEntity) dto);
+		} catch (JSONObjectAdapterException e) {
+			throw new IOException(e);
+		}
+		for (String fieldName : customXStream.getOmittedFields(dto.getClass())) {
+			json.remove(fieldName);
+		}
+		DataOutputStream dataOut = new DataOutputStream(out);
+		dataOut.writeUTF(dto.getClass().getName());
+		dataOut.flush();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (Writer writer = new OutputStreamWriter(new DeflaterOutputStream(out, deflater),
+				JDOSecondaryPropertyUtils.UTF8)) {
+			json.write(writer);
+		} catch (JSONException e) {
+			throw new IOException(e);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	@Override
+	public Object decode(UnmodifiableXStream customXStream, InputStream in) throws IOException {
+		DataInputStream dataIn = new DataInputStream(in);
+		String className = dataIn.readUTF();
+		Class<? extends JSONEntity> type = loadAllowedType(customXStream, className);
+		Inflater inflater = new Inflater();
+		try (Reader reader = new InputStreamReader(new InflaterInputStream(in, inflater),
+				JDOSecondaryPropertyUtils.UTF8)) {
+			JSONObject json = new JSONObject(new JSONTokener(reader));
+			return EntityFactory.createEntityFromJSONObject(json, type);
+		} catch (JSONException | JSONObjectAdapterException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Load the class with the given name without initializing it, and make sure
+	 * it is a JSONEntity allowed by the configuration.
+	 * 
+	 * @param customXStream
+	 * @param className
+	 * @return
+	 * @throws IOException
+	 */
+	static Class<? extends JSONEntity> loadAllowedType(UnmodifiableXStream customXStream, String className)
+			throws IOException {
+		Class<?> type;
+		try {
+			type = Class.forName(className, false, JSONEntityBlobCodec.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown blob type: " + className, e);
+		}
+		if (!JSONEntity.class.isAssignableFrom(type) || !customXStream.isTypeAllowed(type)) {
+			throw new IllegalArgumentException("Blob type is not allowed: " + className);
+		}
+		return type.asSubclass(JSONEntity.class);
+	}
+}
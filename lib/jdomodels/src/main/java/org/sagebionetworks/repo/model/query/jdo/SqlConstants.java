@@ -807,6 +807,13 @@ public class SqlConstants {
 	public static final String COL_DISCUSSION_THREAD_STATS_ACTIVE_AUTHORS = "ACTIVE_AUTHORS";
 	public static final String DDL_DISCUSSION_THREAD_STATS = "schema/DiscussionThreadStats-ddl.sql";
 
+	// Discussion Thread Author Stats table
+	public static final String TABLE_DISCUSSION_THREAD_AUTHOR_STATS = "DISCUSSION_THREAD_AUTHOR_STATS";
+	public static final String COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID = "THREAD_ID";
+	public static final String COL_DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID = "AUTHOR_ID";
+	public static final String COL_DISCUSSION_THREAD_AUTHOR_STATS_NUMBER_OF_REPLIES = "NUMBER_OF_REPLIES";
+	public static final String DDL_DISCUSSION_THREAD_AUTHOR_STATS = "schema/DiscussionThreadAuthorStats-ddl.sql";
+
 	// Discussion Thread View table
 	public static final String TABLE_DISCUSSION_THREAD_VIEW = "DISCUSSION_THREAD_VIEW";
 	public static final String COL_DISCUSSION_THREAD_VIEW_THREAD_ID = "THREAD_ID";
@@ -832,6 +839,14 @@ public class SqlConstants {
 	public static final String COL_DISCUSSION_THREAD_ENTITY_REFERENCE_ENTITY_ID = "ENTITY_ID";
 	public static final String DDL_DISCUSSION_THREAD_ENTITY_REFERENCE = "schema/DiscussionThreadEntityReference-ddl.sql";
 
+	// Discussion Entity Thread Count table
+	public static final String TABLE_DISCUSSION_ENTITY_THREAD_COUNT = "DISCUSSION_ENTITY_THREAD_COUNT";
+	public static final String COL_DISCUSSION_ENTITY_THREAD_COUNT_ENTITY_ID = "ENTITY_ID";
+	public static final String COL_DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID = "PROJECT_ID";
+	public static final String COL_DISCUSSION_ENTITY_THREAD_COUNT_REFERENCE_COUNT = "REFERENCE_COUNT";
+	public static final String COL_DISCUSSION_ENTITY_THREAD_COUNT_THREAD_COUNT = "THREAD_COUNT";
+	public static final String DDL_DISCUSSION_ENTITY_THREAD_COUNT = "schema/DiscussionEntityThreadCount-ddl.sql";
+
 	// Subscription table
 	public static final String TABLE_SUBSCRIPTION = "SUBSCRIPTION";
 	public static final String COL_SUBSCRIPTION_ID = "ID";
@@ -841,6 +856,13 @@ public class SqlConstants {
 	public static final String COL_SUBSCRIPTION_CREATED_ON = "CREATED_ON";
 	public static final String DDL_SUBSCRIPTION = "schema/Subscription-ddl.sql";
 
+	// Subscription Topic Version table
+	public static final String TABLE_SUBSCRIPTION_TOPIC_VERSION = "SUBSCRIPTION_TOPIC_VERSION";
+	public static final String COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_ID = "OBJECT_ID";
+	public static final String COL_SUBSCRIPTION_TOPIC_VERSION_OBJECT_TYPE = "OBJECT_TYPE";
+	public static final String COL_SUBSCRIPTION_TOPIC_VERSION_VERSION = "VERSION";
+	public static final String DDL_SUBSCRIPTION_TOPIC_VERSION = "schema/SubscriptionTopicVersion-ddl.sql";
+
 	// AuthenticationReceipt table
 	public static final String TABLE_AUTHENTICATION_RECEIPT = "AUTHENTICATION_RECEIPT";
 	public static final String COL_AUTHENTICATION_RECEIPT_ID = "ID";
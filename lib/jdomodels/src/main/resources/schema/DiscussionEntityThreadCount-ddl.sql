@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS `DISCUSSION_ENTITY_THREAD_COUNT` (
+  `ENTITY_ID` bigint(20) NOT NULL,
+  `PROJECT_ID` bigint(20) NOT NULL,
+  `REFERENCE_COUNT` bigint(20) NOT NULL,
+  `THREAD_COUNT` bigint(20) NOT NULL,
+  PRIMARY KEY (`ENTITY_ID`, `PROJECT_ID`),
+  CONSTRAINT `DISCUSSION_ENTITY_THREAD_COUNT_PROJECT_ID_FK` FOREIGN KEY (`PROJECT_ID`) REFERENCES `JDONODE` (`ID`) ON DELETE CASCADE
+)
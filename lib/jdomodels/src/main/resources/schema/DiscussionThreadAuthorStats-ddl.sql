@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS `DISCUSSION_THREAD_AUTHOR_STATS` (
+  `THREAD_ID` bigint(20) NOT NULL,
+  `AUTHOR_ID` bigint(20) NOT NULL,
+  `NUMBER_OF_REPLIES` bigint(20) NOT NULL,
+  PRIMARY KEY (`THREAD_ID`, `AUTHOR_ID`),
+  INDEX `DISCUSSION_THREAD_AUTHOR_STATS_REPLIES_INDEX` (`THREAD_ID`, `NUMBER_OF_REPLIES`),
+  CONSTRAINT `DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID_FK` FOREIGN KEY (`THREAD_ID`) REFERENCES `DISCUSSION_THREAD` (`ID`) ON DELETE CASCADE,
+  CONSTRAINT `DISCUSSION_THREAD_AUTHOR_STATS_AUTHOR_ID_FK` FOREIGN KEY (`AUTHOR_ID`) REFERENCES `JDOUSERGROUP` (`ID`) ON DELETE CASCADE
+)
@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS `SUBSCRIPTION_TOPIC_VERSION` (
+  `OBJECT_ID` bigint(20) NOT NULL,
+  `OBJECT_TYPE` ENUM('FORUM', 'THREAD', 'DATA_ACCESS_SUBMISSION', 'DATA_ACCESS_SUBMISSION_STATUS') NOT NULL,
+  `VERSION` bigint(20) NOT NULL,
+  PRIMARY KEY (`OBJECT_ID`, `OBJECT_TYPE`)
+)
@@ -0,0 +1,99 @@
+package org.sagebionetworks.repo.model.dbo.asynch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsynchJobBodyCacheTest {
+
+	AsynchJobBodyCache cache;
+	byte[] requestBody;
+	byte[] responseBody;
+
+	@Before
+	public void before() {
+		// room for two request bodies
+		cache = new AsynchJobBodyCache(6);
+		requestBody = new byte[] { 1, 2, 3 };
+		responseBody = new byte[] { 4, 5 };
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxBytesTooSmall() {
+		new AsynchJobBodyCache(0);
+	}
+
+	@Test
+	public void testRequestBodyRoundTrip() {
+		assertNull(cache.getRequestBody(1L));
+		cache.putRequestBody(1L, requestBody);
+		assertArrayEquals(requestBody, cache.getRequestBody(1L));
+	}
+
+	@Test
+	public void testResponseBodyRoundTrip() {
+		cache.putResponseBody(1L, "etag1", responseBody);
+		assertArrayEquals(responseBody, cache.getResponseBody(1L, "etag1"));
+	}
+
+	@Test
+	public void testResponseBodyEtagMismatch() {
+		cache.putResponseBody(1L, "etag1", responseBody);
+		assertNull(cache.getResponseBody(1L, "etag2"));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		cache.putRequestBody(1L, requestBody);
+		cache.putRequestBody(2L, requestBody);
+		// touch 1 so that 2 is the eldest
+		cache.getRequestBody(1L);
+		cache.putRequestBody(3L, requestBody);
+		assertArrayEquals(requestBody, cache.getRequestBody(1L));
+		assertNull(cache.getRequestBody(2L));
+		assertArrayEquals(requestBody, cache.getRequestBody(3L));
+		assertEquals(6L, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testEvictBySize() {
+		cache.putRequestBody(1L, requestBody);
+		cache.putResponseBody(1L, "etag1", responseBody);
+		assertEquals(5L, cache.getCachedBytes());
+		// the request body of job one is the least recently used
+		cache.putResponseBody(2L, "etag2", responseBody);
+		assertNull(cache.getRequestBody(1L));
+		assertArrayEquals(responseBody, cache.getResponseBody(1L, "etag1"));
+		assertArrayEquals(responseBody, cache.getResponseBody(2L, "etag2"));
+		assertEquals(4L, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testReplaceResponseBody() {
+		cache.putResponseBody(1L, "etag1", responseBody);
+		cache.putResponseBody(1L, "etag2", requestBody);
+		assertNull(cache.getResponseBody(1L, "etag1"));
+		assertArrayEquals(requestBody, cache.getResponseBody(1L, "etag2"));
+		assertEquals(3L, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testBodyLargerThanCache() {
+		cache.putRequestBody(1L, new byte[7]);
+		assertNull(cache.getRequestBody(1L));
+		assertEquals(0L, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testClear() {
+		cache.putRequestBody(1L, requestBody);
+		cache.putResponseBody(1L, "etag1", responseBody);
+		cache.clear();
+		assertNull(cache.getRequestBody(1L));
+		assertNull(cache.getResponseBody(1L, "etag1"));
+		assertEquals(0L, cache.getCachedBytes());
+	}
+}
@@ -98,6 +98,19 @@ public class AsynchJobStatusDaoImplTest {
 		assertEquals(status, clone);
 	}
 	
+	@Test
+	public void testGetJobStatusReturnsCopies() throws DatastoreException, NotFoundException{
+		AsynchronousJobStatus status = asynchJobStatusDao.startJob(creatorUserGroupId, body);
+		asynchJobStatusDao.setComplete(status.getJobId(), response, null);
+		AsynchronousJobStatus first = asynchJobStatusDao.getJobStatus(status.getJobId());
+		// a caller modifying its bodies must not change what the next caller reads.
+		((TableUpdateTransactionRequest) first.getRequestBody()).setEntityId("syn999");
+		((TableUpdateTransactionResponse) first.getResponseBody()).setResults(null);
+		AsynchronousJobStatus second = asynchJobStatusDao.getJobStatus(status.getJobId());
+		assertEquals(body, second.getRequestBody());
+		assertEquals(response, second.getResponseBody());
+	}
+
 	@Test (expected=NotFoundException.class)
 	public void testNotFound() throws DatastoreException, NotFoundException{
 		asynchJobStatusDao.getJobStatus("-99");
@@ -382,6 +395,24 @@ public class AsynchJobStatusDaoImplTest {
 		assertEquals(two, foundStatus.get(1));
 	}
 	
+	@Test
+	public void testFindCompletedJobIds() throws DatastoreException, NotFoundException{
+		String requestHash = "sd1zQvpC67saUigIElscOgHash";
+		AsynchronousJobStatus complete = asynchJobStatusDao.startJob(creatorUserGroupId, body);
+		asynchJobStatusDao.setComplete(complete.getJobId(), response, requestHash);
+		// a job that is still processing should not be found.
+		asynchJobStatusDao.startJob(creatorUserGroupId, body);
+		// call under test
+		List<String> ids = asynchJobStatusDao.findCompletedJobIds(requestHash);
+		assertEquals(Collections.singletonList(complete.getJobId()), ids);
+		assertTrue(asynchJobStatusDao.findCompletedJobIds("otherHash").isEmpty());
+	}
+	
+	@Test (expected=IllegalArgumentException.class)
+	public void testFindCompletedJobIdsNullHash(){
+		asynchJobStatusDao.findCompletedJobIds(null);
+	}
+	
 	@Test (expected=IllegalArgumentException.class)
 	public void testIdNull(){
 		asynchJobStatusDao.getJobStatus(null);
@@ -391,4 +422,50 @@ public class AsynchJobStatusDaoImplTest {
 	public void testIdNAN(){
 		asynchJobStatusDao.getJobStatus("not a number");
 	}
+
+	@Test
+	public void testGetJobState() throws DatastoreException, NotFoundException{
+		AsynchronousJobStatus status = asynchJobStatusDao.startJob(creatorUserGroupId, body);
+		assertEquals(AsynchJobState.PROCESSING, asynchJobStatusDao.getJobState(status.getJobId()));
+		asynchJobStatusDao.setComplete(status.getJobId(), response, "hash");
+		assertEquals(AsynchJobState.COMPLETE, asynchJobStatusDao.getJobState(status.getJobId()));
+	}
+
+	@Test (expected=NotFoundException.class)
+	public void testGetJobStateDoesNotExist(){
+		asynchJobStatusDao.getJobState("-123");
+	}
+
+	@Test
+	public void testGetJobStatusWithoutBodies() throws DatastoreException, NotFoundException{
+		AsynchronousJobStatus status = asynchJobStatusDao.startJob(creatorUserGroupId, body);
+		asynchJobStatusDao.updateJobProgress(status.getJobId(), 10L, 100L, "Made some progress");
+		AsynchronousJobStatus full = asynchJobStatusDao.getJobStatus(status.getJobId());
+		// call under test
+		AsynchronousJobStatus withoutBodies = asynchJobStatusDao.getJobStatusWithoutBodies(status.getJobId());
+		assertNull(withoutBodies.getRequestBody());
+		assertNull(withoutBodies.getResponseBody());
+		// everything else matches.
+		full.setRequestBody(null);
+		assertEquals(full, withoutBodies);
+	}
+
+	@Test (expected=NotFoundException.class)
+	public void testGetJobStatusWithoutBodiesDoesNotExist(){
+		asynchJobStatusDao.getJobStatusWithoutBodies("-123");
+	}
+
+	@Test
+	public void testGetJobStatusRepeatedAfterComplete() throws DatastoreException, NotFoundException{
+		AsynchronousJobStatus status = asynchJobStatusDao.startJob(creatorUserGroupId, body);
+		AsynchronousJobStatus processing = asynchJobStatusDao.getJobStatus(status.getJobId());
+		assertNull(processing.getResponseBody());
+		asynchJobStatusDao.setComplete(status.getJobId(), response, null);
+		// The first read after completion must see the response, later reads are served from the cache.
+		AsynchronousJobStatus first = asynchJobStatusDao.getJobStatus(status.getJobId());
+		AsynchronousJobStatus second = asynchJobStatusDao.getJobStatus(status.getJobId());
+		assertEquals(response, first.getResponseBody());
+		assertEquals(body, first.getRequestBody());
+		assertEquals(first, second);
+	}
 }
@@ -397,6 +397,30 @@ public class DBOMessageDAOImplTest {
 		assertEquals(MessageStatusType.UNREAD, messages.get(1).getStatus().getStatus());
 	}
 	
+	@Test
+	public void testCreateMessageStatusBatch() throws Exception {
+		MessageToUser batch = createMessage(maliciousUser.getId(), "batch",
+				Sets.newHashSet(maliciousUser.getId(), maliciousGroup.getId()), null);
+		assertEquals(3L, messageDAO.getNumReceivedMessages(maliciousUser.getId(), unreadMessageInboxFilter));
+		
+		// call under test
+		messageDAO.createMessageStatus_NewTransaction(batch.getId(), 
+				Arrays.asList(maliciousUser.getId(), maliciousGroup.getId()), null);
+		
+		assertEquals(4L, messageDAO.getNumReceivedMessages(maliciousUser.getId(), unreadMessageInboxFilter));
+		List<MessageBundle> messages = messageDAO.getReceivedMessages(maliciousGroup.getId(), 
+				unreadMessageInboxFilter, MessageSortBy.SEND_DATE, true, 100, 0);
+		assertEquals(batch, messages.get(0).getMessage());
+		assertEquals(MessageStatusType.UNREAD, messages.get(0).getStatus().getStatus());
+	}
+	
+	@Test
+	public void testCreateMessageStatusBatchEmpty() throws Exception {
+		// call under test
+		messageDAO.createMessageStatus_NewTransaction(userToUser.getId(), new ArrayList<String>(), null);
+		assertEquals(3L, messageDAO.getNumReceivedMessages(maliciousUser.getId(), unreadMessageInboxFilter));
+	}
+	
 	@Test
 	public void testHasMessageBeenSent() throws Exception {
 		assertTrue(messageDAO.getMessageSent(userToUser.getId()));
@@ -3458,6 +3458,77 @@ public class NodeDAOImplTest {
 		assertEquals(grandparent.getId(), nodeDao.getBenefactor(grandparent.getId()));
 	}
 	
+	@Test
+	public void testGetBenefactors(){
+		Node parent = NodeTestUtils.createNew("parent", creatorUserGroupId);
+		parent = nodeDao.createNewNode(parent);
+		toDelete.add(parent.getId());
+		Node child = NodeTestUtils.createNew("child", creatorUserGroupId);
+		child.setParentId(parent.getId());
+		child = nodeDao.createNewNode(child);
+		toDelete.add(child.getId());
+		AccessControlList acl = AccessControlListUtil.createACLToGrantEntityAdminAccess(parent.getId(), adminUser, new Date());
+		accessControlListDAO.create(acl, ObjectType.ENTITY);
+		Long parentId = KeyFactory.stringToKey(parent.getId());
+		Long childId = KeyFactory.stringToKey(child.getId());
+		Long doesNotExist = childId + 1000L;
+		// call under test
+		Map<Long, Long> results = nodeDao.getBenefactors(Lists.newArrayList(parentId, childId, doesNotExist));
+		assertEquals(2, results.size());
+		assertEquals(parentId, results.get(parentId));
+		assertEquals(parentId, results.get(childId));
+	}
+	
+	@Test
+	public void testGetBenefactorsEmpty(){
+		// call under test
+		Map<Long, Long> results = nodeDao.getBenefactors(new LinkedList<Long>());
+		assertNotNull(results);
+		assertTrue(results.isEmpty());
+	}
+	
+	@Test
+	public void testGetNodes(){
+		Node one = nodeDao.createNewNode(NodeTestUtils.createNew("one", creatorUserGroupId));
+		toDelete.add(one.getId());
+		Node two = nodeDao.createNewNode(NodeTestUtils.createNew("two", creatorUserGroupId));
+		toDelete.add(two.getId());
+		Long doesNotExist = KeyFactory.stringToKey(two.getId()) + 1000L;
+		// call under test
+		List<Node> results = nodeDao.getNodes(Lists.newArrayList(KeyFactory.stringToKey(one.getId()),
+				KeyFactory.stringToKey(two.getId()), doesNotExist));
+		assertEquals(2, results.size());
+		Map<String, Node> idToNode = new HashMap<String, Node>();
+		for(Node node: results){
+			idToNode.put(node.getId(), node);
+		}
+		assertEquals(nodeDao.getNode(one.getId()), idToNode.get(one.getId()));
+		assertEquals(nodeDao.getNode(two.getId()), idToNode.get(two.getId()));
+	}
+	
+	@Test
+	public void testGetNodesEmpty(){
+		// call under test
+		List<Node> results = nodeDao.getNodes(new LinkedList<Long>());
+		assertNotNull(results);
+		assertTrue(results.isEmpty());
+	}
+	
+	@Test
+	public void testGetUserAnnotationsForCurrentVersions(){
+		Node node = nodeDao.createNewNode(NodeTestUtils.createNew("annotated", creatorUserGroupId));
+		toDelete.add(node.getId());
+		Annotations annos = nodeDao.getUserAnnotations(node.getId());
+		AnnotationsV2TestUtils.putAnnotations(annos, "stringOne", "one", AnnotationsValueType.STRING);
+		nodeDao.updateUserAnnotations(node.getId(), annos);
+		Long nodeId = KeyFactory.stringToKey(node.getId());
+		// call under test
+		Map<Long, Annotations> results = nodeDao.getUserAnnotationsForCurrentVersions(Lists.newArrayList(nodeId, nodeId + 1000L));
+		assertEquals(1, results.size());
+		Annotations current = results.get(nodeId);
+		assertEquals(node.getId(), current.getId());
+		assertEquals("one", AnnotationsV2Utils.getSingleValue(current, "stringOne"));
+	}
 	
 	@Test
 	public void testGetSumOfChildCRCsForEachParentEmpty(){
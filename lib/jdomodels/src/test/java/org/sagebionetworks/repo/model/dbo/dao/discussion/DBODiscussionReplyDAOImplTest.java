@@ -9,6 +9,10 @@ import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionRep
 import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionReplyDAOImpl.DELETED_CONDITION;
 import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionReplyDAOImpl.MAX_LIMIT;
 import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionReplyDAOImpl.NOT_DELETED_CONDITION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_STATS_THREAD_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_AUTHOR_STATS;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD_STATS;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,11 +39,14 @@ import org.sagebionetworks.repo.model.dao.discussion.ForumDAO;
 import org.sagebionetworks.repo.model.discussion.DiscussionFilter;
 import org.sagebionetworks.repo.model.discussion.DiscussionReplyBundle;
 import org.sagebionetworks.repo.model.discussion.DiscussionReplyOrder;
+import org.sagebionetworks.repo.model.discussion.DiscussionThreadBundle;
 import org.sagebionetworks.repo.model.discussion.DiscussionThreadReplyStat;
+import org.sagebionetworks.repo.model.discussion.DiscussionThreadStat;
 import org.sagebionetworks.repo.model.discussion.Forum;
 import org.sagebionetworks.repo.model.jdo.NodeTestUtils;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -59,6 +66,8 @@ public class DBODiscussionReplyDAOImplTest {
 	private DiscussionReplyDAO replyDao;
 	@Autowired
 	private IdGenerator idGenerator;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
 
 	private Long userId = null;
 	private String projectId = null;
@@ -461,6 +470,95 @@ public class DBODiscussionReplyDAOImplTest {
 		usersToDelete.addAll(users);
 	}
 
+	@Test
+	public void testThreadStatsMaintainedWithReplies() {
+		List<Long> users = createUsers(2);
+		usersToDelete.addAll(users);
+		DiscussionReplyBundle first = replyDao.createReply(threadId, idGenerator.generateNewId(IdType.DISCUSSION_REPLY_ID).toString(),
+				UUID.randomUUID().toString(), users.get(0));
+		replyDao.createReply(threadId, idGenerator.generateNewId(IdType.DISCUSSION_REPLY_ID).toString(),
+				UUID.randomUUID().toString(), users.get(1));
+		replyDao.createReply(threadId, idGenerator.generateNewId(IdType.DISCUSSION_REPLY_ID).toString(),
+				UUID.randomUUID().toString(), users.get(1));
+
+		DiscussionThreadBundle thread = threadDao.getThread(threadIdLong, DEFAULT_FILTER);
+		assertEquals((Long) 3L, thread.getNumberOfReplies());
+		assertEquals(Arrays.asList(users.get(1).toString(), users.get(0).toString()), thread.getActiveAuthors());
+		assertFalse(thread.getLastActivity().before(first.getModifiedOn()));
+		assertEquals(3L, replyDao.getAuthorStatsReplyCount(threadIdLong));
+		assertTrue(replyDao.isThreadStatsCurrent(threadIdLong));
+
+		replyDao.markReplyAsDeleted(Long.parseLong(first.getId()));
+		// deleting a reply again does not change the stats
+		replyDao.markReplyAsDeleted(Long.parseLong(first.getId()));
+
+		thread = threadDao.getThread(threadIdLong, DEFAULT_FILTER);
+		assertEquals((Long) 2L, thread.getNumberOfReplies());
+		assertEquals(Arrays.asList(users.get(1).toString()), thread.getActiveAuthors());
+		assertEquals(2L, replyDao.getAuthorStatsReplyCount(threadIdLong));
+		assertTrue(replyDao.isThreadStatsCurrent(threadIdLong));
+	}
+
+	@Test
+	public void testCreateReplyWithoutThreadStats() throws InterruptedException {
+		createReplies(2, threadId);
+		// the stats tables are not migrated.
+		jdbcTemplate.update("DELETE FROM "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS+" WHERE "+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+" = ?", threadIdLong);
+		jdbcTemplate.update("DELETE FROM "+TABLE_DISCUSSION_THREAD_STATS+" WHERE "+COL_DISCUSSION_THREAD_STATS_THREAD_ID+" = ?", threadIdLong);
+		assertFalse(replyDao.isThreadStatsCurrent(threadIdLong));
+
+		// call under test
+		replyDao.createReply(threadId, idGenerator.generateNewId(IdType.DISCUSSION_REPLY_ID).toString(),
+				UUID.randomUUID().toString(), userId);
+		DiscussionThreadBundle thread = threadDao.getThread(threadIdLong, DEFAULT_FILTER);
+		assertEquals((Long) 3L, thread.getNumberOfReplies());
+		assertEquals(3L, replyDao.getAuthorStatsReplyCount(threadIdLong));
+		assertTrue(replyDao.isThreadStatsCurrent(threadIdLong));
+	}
+
+	@Test
+	public void testIsThreadStatsCurrentWithStaleCounts() throws InterruptedException {
+		createReplies(2, threadId);
+		// both stats agree with each other but not with the replies.
+		jdbcTemplate.update("DELETE FROM "+TABLE_DISCUSSION_THREAD_AUTHOR_STATS+" WHERE "+COL_DISCUSSION_THREAD_AUTHOR_STATS_THREAD_ID+" = ?", threadIdLong);
+		DiscussionThreadStat stat = new DiscussionThreadStat();
+		stat.setThreadId(threadIdLong);
+		stat.setNumberOfReplies(0L);
+		threadDao.updateThreadStats(Arrays.asList(stat));
+		// call under test
+		assertFalse(replyDao.isThreadStatsCurrent(threadIdLong));
+	}
+
+	@Test
+	public void testIsThreadStatsCurrentWithoutStats() {
+		// call under test
+		assertFalse(replyDao.isThreadStatsCurrent(threadIdLong));
+	}
+
+	@Test
+	public void testRebuildThreadStats() throws InterruptedException {
+		assertEquals(0L, replyDao.getAuthorStatsReplyCount(threadIdLong));
+		createReplies(2, threadId);
+		DiscussionReplyBundle deleted = replyDao.createReply(threadId, idGenerator.generateNewId(IdType.DISCUSSION_REPLY_ID).toString(),
+				UUID.randomUUID().toString(), userId);
+		replyDao.markReplyAsDeleted(Long.parseLong(deleted.getId()));
+		DiscussionThreadBundle before = threadDao.getThread(threadIdLong, DEFAULT_FILTER);
+		// stats written by an older worker
+		DiscussionThreadStat stat = new DiscussionThreadStat();
+		stat.setThreadId(threadIdLong);
+		stat.setNumberOfReplies(5L);
+		threadDao.updateThreadStats(Arrays.asList(stat));
+		assertFalse(replyDao.isThreadStatsCurrent(threadIdLong));
+
+		// call under test
+		replyDao.rebuildThreadStats(threadIdLong);
+		assertTrue(replyDao.isThreadStatsCurrent(threadIdLong));
+		assertEquals(2L, replyDao.getAuthorStatsReplyCount(threadIdLong));
+		DiscussionThreadBundle after = threadDao.getThread(threadIdLong, DEFAULT_FILTER);
+		assertEquals((Long) 2L, after.getNumberOfReplies());
+		assertEquals(before.getActiveAuthors(), after.getActiveAuthors());
+	}
+
 	private List<Long> createUsers(int numberOfUsers) {
 		List<Long> createdUsers = new ArrayList<Long>();
 		UserGroup user = new UserGroup();
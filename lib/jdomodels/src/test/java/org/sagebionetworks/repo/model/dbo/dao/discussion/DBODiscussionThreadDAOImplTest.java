@@ -3,10 +3,14 @@ package org.sagebionetworks.repo.model.dbo.dao.discussion;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionThreadDAOImpl.DEFAULT_FILTER;
 import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionThreadDAOImpl.DELETED_CONDITION;
 import static org.sagebionetworks.repo.model.dbo.dao.discussion.DBODiscussionThreadDAOImpl.NOT_DELETED_CONDITION;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_ID;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.COL_DISCUSSION_THREAD_IS_DELETED;
+import static org.sagebionetworks.repo.model.query.jdo.SqlConstants.TABLE_DISCUSSION_THREAD;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,6 +47,7 @@ import org.sagebionetworks.repo.model.jdo.KeyFactory;
 import org.sagebionetworks.repo.model.jdo.NodeTestUtils;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -60,6 +65,8 @@ public class DBODiscussionThreadDAOImplTest {
 	private DiscussionThreadDAO threadDao;
 	@Autowired
 	private IdGenerator idGenerator;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
 
 	private Long userId = null;
 	private Long userId2 = null;
@@ -488,6 +495,22 @@ public class DBODiscussionThreadDAOImplTest {
 				new HashSet<String>(threadDao.getThread(threadId, DEFAULT_FILTER).getActiveAuthors()));
 	}
 
+	@Test
+	public void testUpdateThreadViewStats() {
+		DiscussionThreadBundle dto = threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		long threadId = Long.parseLong(dto.getId());
+		DiscussionThreadStat stat = new DiscussionThreadStat();
+		stat.setThreadId(threadId);
+		stat.setActiveAuthors(Arrays.asList(dto.getCreatedBy()));
+		threadDao.updateThreadStats(Arrays.asList(stat));
+		// call under test
+		threadDao.updateThreadViewStats(threadId, 7L);
+		DiscussionThreadBundle updated = threadDao.getThread(threadId, DEFAULT_FILTER);
+		assertEquals((Long) 7L, updated.getNumberOfViews());
+		// the other stats are unchanged
+		assertEquals(Arrays.asList(dto.getCreatedBy()), updated.getActiveAuthors());
+	}
+
 	@Test
 	public void testCountThreadView() {
 		// create some threads
@@ -937,6 +960,105 @@ public class DBODiscussionThreadDAOImplTest {
 		assertTrue(projectIds.contains(projectIdLong));
 	}
 
+	@Test
+	public void testGetThreadCountsWithDeletedAndRestoredThread() {
+		Long projectIdLong = KeyFactory.stringToKey(projectId);
+		List<Long> entityIds = Arrays.asList(projectIdLong);
+		Set<Long> projectIds = new HashSet<Long>(entityIds);
+		Long threadId2 = idGenerator.generateNewId(IdType.DISCUSSION_THREAD_ID);
+		threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		threadDao.createThread(forumId, threadId2.toString(), "title", "messageKey2", userId);
+		threadDao.insertEntityReference(Arrays.asList(createEntityRef(threadId.toString(), projectId),
+				createEntityRef(threadId2.toString(), projectId)));
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 2L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+
+		threadDao.markThreadAsDeleted(threadId);
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 1L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+		// deleting a deleted thread does not change the count
+		threadDao.markThreadAsDeleted(threadId);
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 1L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+
+		threadDao.markThreadAsDeleted(threadId2);
+		assertTrue(threadDao.getThreadCounts(entityIds, projectIds).getList().isEmpty());
+		// the project is still found for listing deleted threads
+		assertEquals(projectIds, threadDao.getDistinctProjectIdsOfThreadsReferencesEntityIds(entityIds));
+
+		threadDao.markThreadAsNotDeleted(threadId);
+		threadDao.markThreadAsNotDeleted(threadId);
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 1L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+	}
+
+	@Test
+	public void testGetThreadCountsWithReferenceNotCounted() {
+		Long projectIdLong = KeyFactory.stringToKey(projectId);
+		List<Long> entityIds = Arrays.asList(projectIdLong);
+		Set<Long> projectIds = new HashSet<Long>(entityIds);
+		Long threadId2 = idGenerator.generateNewId(IdType.DISCUSSION_THREAD_ID);
+		threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		threadDao.createThread(forumId, threadId2.toString(), "title", "messageKey2", userId);
+		threadDao.insertEntityReference(Arrays.asList(createEntityRef(threadId.toString(), projectId)));
+		// a migrated reference does not go through insertEntityReference()
+		jdbcTemplate.update(DBODiscussionThreadDAOImpl.SQL_INSERT_IGNORE_ENTITY_REFERENCE, threadId2, projectIdLong);
+		// the read path only reads the counts
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 1L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+
+		// call under test
+		assertEquals(projectIdLong, threadDao.reconcileEntityThreadCounts(projectIdLong - 1, 1L));
+		EntityThreadCounts threadCounts = threadDao.getThreadCounts(entityIds, projectIds);
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 2L)), threadCounts.getList());
+	}
+
+	@Test
+	public void testGetThreadCountsWithoutCounts() {
+		Long projectIdLong = KeyFactory.stringToKey(projectId);
+		List<Long> entityIds = Arrays.asList(projectIdLong);
+		Set<Long> projectIds = new HashSet<Long>(entityIds);
+		threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		// the count table is empty after a migration
+		jdbcTemplate.update(DBODiscussionThreadDAOImpl.SQL_INSERT_IGNORE_ENTITY_REFERENCE, threadId, projectIdLong);
+		// call under test
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 1L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+	}
+
+	@Test
+	public void testInsertEntityReferenceWithMigratedReference() {
+		Long projectIdLong = KeyFactory.stringToKey(projectId);
+		List<Long> entityIds = Arrays.asList(projectIdLong);
+		Set<Long> projectIds = new HashSet<Long>(entityIds);
+		Long threadId2 = idGenerator.generateNewId(IdType.DISCUSSION_THREAD_ID);
+		threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		threadDao.createThread(forumId, threadId2.toString(), "title", "messageKey2", userId);
+		jdbcTemplate.update(DBODiscussionThreadDAOImpl.SQL_INSERT_IGNORE_ENTITY_REFERENCE, threadId, projectIdLong);
+		// call under test
+		threadDao.insertEntityReference(Arrays.asList(createEntityRef(threadId2.toString(), projectId)));
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 2L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+	}
+
+	@Test
+	public void testReconcileEntityThreadCountsWithThreadDeletedElsewhere() {
+		Long projectIdLong = KeyFactory.stringToKey(projectId);
+		List<Long> entityIds = Arrays.asList(projectIdLong);
+		Set<Long> projectIds = new HashSet<Long>(entityIds);
+		Long threadId2 = idGenerator.generateNewId(IdType.DISCUSSION_THREAD_ID);
+		threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		threadDao.createThread(forumId, threadId2.toString(), "title", "messageKey2", userId);
+		threadDao.insertEntityReference(Arrays.asList(createEntityRef(threadId.toString(), projectId),
+				createEntityRef(threadId2.toString(), projectId)));
+		// the thread is deleted without updating the counts
+		jdbcTemplate.update("UPDATE "+TABLE_DISCUSSION_THREAD+" SET "+COL_DISCUSSION_THREAD_IS_DELETED+" = TRUE WHERE "+COL_DISCUSSION_THREAD_ID+" = ?", threadId);
+		// call under test
+		assertEquals(projectIdLong, threadDao.reconcileEntityThreadCounts(projectIdLong - 1, 1L));
+		assertEquals(Arrays.asList(createEntityThreadCount(projectId, 1L)), threadDao.getThreadCounts(entityIds, projectIds).getList());
+	}
+
+	@Test
+	public void testReconcileEntityThreadCountsAfterLastEntity() {
+		threadDao.createThread(forumId, threadId.toString(), "title", "messageKey", userId);
+		threadDao.insertEntityReference(Arrays.asList(createEntityRef(threadId.toString(), projectId)));
+		// call under test
+		assertNull(threadDao.reconcileEntityThreadCounts(Long.MAX_VALUE, 10L));
+	}
+
 	private EntityThreadCount createEntityThreadCount(String entityId, long count) {
 		EntityThreadCount threadCount = new EntityThreadCount();
 		threadCount.setEntityId(entityId);
@@ -0,0 +1,104 @@
+package org.sagebionetworks.repo.model.dbo.dao.discussion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntityThreadCountCacheTest {
+
+	private static final long TIME_TO_LIVE_MS = 1000L;
+
+	private EntityThreadCountCache cache;
+	private Map<Long, Long> projectThreadCounts;
+	private long now;
+
+	@Before
+	public void before() {
+		cache = new EntityThreadCountCache(2, TIME_TO_LIVE_MS);
+		projectThreadCounts = new HashMap<Long, Long>();
+		projectThreadCounts.put(100L, 2L);
+		projectThreadCounts.put(200L, 0L);
+		now = 5000L;
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void testNoEntities() {
+		new EntityThreadCountCache(0, TIME_TO_LIVE_MS);
+	}
+
+	@Test
+	public void testGetAllMissing() {
+		// call under test
+		assertTrue(cache.getAll(Arrays.asList(1L, 2L), now).isEmpty());
+		assertEquals(0L, cache.getHitCount());
+		assertEquals(2L, cache.getMissCount());
+	}
+
+	@Test
+	public void testPutAndGetAll() {
+		cache.put(1L, projectThreadCounts, now);
+		cache.put(2L, Collections.<Long, Long>emptyMap(), now);
+		// call under test
+		Map<Long, Map<Long, Long>> results = cache.getAll(Arrays.asList(1L, 2L, 3L), now + 1);
+		assertEquals(2, results.size());
+		assertEquals(projectThreadCounts, results.get(1L));
+		assertEquals(Collections.emptyMap(), results.get(2L));
+		assertEquals(2L, cache.getHitCount());
+		assertEquals(1L, cache.getMissCount());
+		// the cache keeps its own copy
+		projectThreadCounts.put(300L, 1L);
+		assertEquals(2, cache.getAll(Arrays.asList(1L), now).get(1L).size());
+	}
+
+	@Test (expected = UnsupportedOperationException.class)
+	public void testGetAllUnmodifiable() {
+		cache.put(1L, projectThreadCounts, now);
+		cache.getAll(Arrays.asList(1L), now).get(1L).put(300L, 1L);
+	}
+
+	@Test
+	public void testExpired() {
+		cache.put(1L, projectThreadCounts, now);
+		assertEquals(1, cache.getAll(Arrays.asList(1L), now + TIME_TO_LIVE_MS - 1).size());
+		// call under test
+		assertTrue(cache.getAll(Arrays.asList(1L), now + TIME_TO_LIVE_MS).isEmpty());
+	}
+
+	@Test
+	public void testInvalidate() {
+		cache.put(1L, projectThreadCounts, now);
+		cache.put(2L, projectThreadCounts, now);
+		// call under test
+		cache.invalidate(Arrays.asList(1L, 3L));
+		Map<Long, Map<Long, Long>> results = cache.getAll(Arrays.asList(1L, 2L), now);
+		assertEquals(1, results.size());
+		assertTrue(results.containsKey(2L));
+	}
+
+	@Test
+	public void testEviction() {
+		cache.put(1L, projectThreadCounts, now);
+		cache.put(2L, projectThreadCounts, now);
+		// entity one is now the most recently used
+		assertEquals(1, cache.getAll(Arrays.asList(1L), now).size());
+		cache.put(3L, projectThreadCounts, now);
+		Map<Long, Map<Long, Long>> results = cache.getAll(Arrays.asList(1L, 2L, 3L), now);
+		assertEquals(2, results.size());
+		assertTrue(results.containsKey(1L));
+		assertTrue(results.containsKey(3L));
+	}
+
+	@Test
+	public void testClear() {
+		cache.put(1L, projectThreadCounts, now);
+		cache.clear();
+		assertTrue(cache.getAll(Arrays.asList(1L), now).isEmpty());
+	}
+}
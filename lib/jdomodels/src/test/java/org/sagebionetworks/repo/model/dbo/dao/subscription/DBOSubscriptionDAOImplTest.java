@@ -52,6 +52,7 @@ import org.sagebionetworks.repo.model.subscription.Subscription;
 import org.sagebionetworks.repo.model.subscription.SubscriptionObjectType;
 import org.sagebionetworks.repo.model.subscription.SubscriptionPagedResults;
 import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.util.SortedLongSet;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.test.context.ContextConfiguration;
@@ -483,6 +484,43 @@ public class DBOSubscriptionDAOImplTest {
 		assertEquals(subscriber.getUsername(), sub.getUsername());
 	}
 
+	@Test
+	public void testGetSubscriberIds(){
+		assertTrue(subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD).isEmpty());
+
+		Subscription sub = subscriptionDao.create(userId, threadId, SubscriptionObjectType.THREAD);
+		SortedLongSet subscriberIds = subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD);
+		assertEquals(new SortedLongSet(Long.parseLong(userId)), subscriberIds);
+		// the cached IDs cannot be changed by the caller
+		subscriberIds.clear();
+		assertEquals(new SortedLongSet(Long.parseLong(userId)), subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD));
+
+		subscriptionDao.delete(Long.parseLong(sub.getSubscriptionId()));
+		assertTrue(subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD).isEmpty());
+	}
+
+	@Test
+	public void testGetSubscriberIdsAfterSubscribeAllUsersAndDeleteAll(){
+		assertTrue(subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD).isEmpty());
+
+		subscriptionDao.subscribeAllUsers(new HashSet<String>(Arrays.asList(userId)), threadId, SubscriptionObjectType.THREAD);
+		assertEquals(new SortedLongSet(userIdLong), subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD));
+
+		subscriptionDao.deleteAll(userIdLong);
+		assertTrue(subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD).isEmpty());
+	}
+
+	@Test
+	public void testGetEmailSubscribers(){
+		subscriptionDao.create(userId, threadId, SubscriptionObjectType.THREAD);
+		assertTrue(subscriptionDao.getEmailSubscribers(threadId, SubscriptionObjectType.THREAD, new LinkedList<Long>()).isEmpty());
+		assertTrue(subscriptionDao.getEmailSubscribers(threadId, SubscriptionObjectType.THREAD, Arrays.asList(-1L)).isEmpty());
+
+		List<Subscriber> subscribers = subscriptionDao.getEmailSubscribers(threadId, SubscriptionObjectType.THREAD,
+				subscriptionDao.getSubscriberIds(threadId, SubscriptionObjectType.THREAD));
+		assertEquals(subscriptionDao.getAllEmailSubscribers(threadId, SubscriptionObjectType.THREAD), subscribers);
+	}
+
 	@Test (expected=IllegalArgumentException.class)
 	public void testGetAllProjectsUserHasThreadSubsWithNullUserId() {
 		subscriptionDao.getAllProjectsUserHasThreadSubs(null);
@@ -0,0 +1,103 @@
+package org.sagebionetworks.repo.model.dbo.dao.subscription;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sagebionetworks.repo.model.subscription.SubscriptionObjectType;
+import org.sagebionetworks.util.SortedLongSet;
+
+public class SubscriberIndexTest {
+
+	private static final long TIME_TO_LIVE_MS = 1000L;
+
+	private SubscriberIndex index;
+	private long version;
+	private long now;
+	private SortedLongSet subscriberIds;
+
+	@Before
+	public void before() {
+		index = new SubscriberIndex(2, TIME_TO_LIVE_MS);
+		subscriberIds = new SortedLongSet(1L, 2L, 3L);
+		version = 3L;
+		now = 5000L;
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void testNoTopics() {
+		new SubscriberIndex(0, TIME_TO_LIVE_MS);
+	}
+
+	@Test
+	public void testGetMissing() {
+		// call under test
+		assertNull(index.get("1", SubscriptionObjectType.THREAD, version, now));
+		assertEquals(0L, index.getHitCount());
+		assertEquals(1L, index.getMissCount());
+	}
+
+	@Test
+	public void testPutAndGet() {
+		index.put("1", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		// call under test
+		SortedLongSet result = index.get("1", SubscriptionObjectType.THREAD, version, now + 1);
+		assertEquals(subscriberIds, result);
+		assertEquals(1L, index.getHitCount());
+		assertEquals(0L, index.getMissCount());
+		// the index only hands out copies
+		result.remove(1L);
+		subscriberIds.remove(2L);
+		assertEquals(new SortedLongSet(1L, 2L, 3L), index.get("1", SubscriptionObjectType.THREAD, version, now));
+	}
+
+	@Test
+	public void testGetWithOtherType() {
+		index.put("1", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		// call under test
+		assertNull(index.get("1", SubscriptionObjectType.FORUM, version, now));
+	}
+
+	@Test
+	public void testGetWithChangedVersion() {
+		index.put("1", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		// call under test
+		assertNull(index.get("1", SubscriptionObjectType.THREAD, version + 1, now));
+		assertEquals(0L, index.getHitCount());
+		assertEquals(1L, index.getMissCount());
+	}
+
+	@Test
+	public void testGetExpired() {
+		index.put("1", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		assertNotNull(index.get("1", SubscriptionObjectType.THREAD, version, now + TIME_TO_LIVE_MS - 1));
+		// call under test
+		assertNull(index.get("1", SubscriptionObjectType.THREAD, version, now + TIME_TO_LIVE_MS));
+	}
+
+	@Test
+	public void testEviction() {
+		index.put("1", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		index.put("2", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		// topic one is now the most recently used
+		assertNotNull(index.get("1", SubscriptionObjectType.THREAD, version, now));
+		index.put("3", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		assertNotNull(index.get("1", SubscriptionObjectType.THREAD, version, now));
+		assertNull(index.get("2", SubscriptionObjectType.THREAD, version, now));
+		assertNotNull(index.get("3", SubscriptionObjectType.THREAD, version, now));
+	}
+
+	@Test
+	public void testClear() {
+		index.put("1", SubscriptionObjectType.THREAD, version, now, subscriberIds);
+		index.clear();
+		assertNull(index.get("1", SubscriptionObjectType.THREAD, version, now));
+	}
+
+	@Test
+	public void testCreateKey() {
+		assertEquals("THREAD:123", SubscriberIndex.createKey("123", SubscriptionObjectType.THREAD));
+	}
+}
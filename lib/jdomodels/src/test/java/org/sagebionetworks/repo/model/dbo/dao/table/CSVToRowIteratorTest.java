@@ -18,6 +18,7 @@ import org.junit.Test;
 import org.sagebionetworks.repo.model.table.ColumnModel;
 import org.sagebionetworks.repo.model.table.ColumnType;
 import org.sagebionetworks.repo.model.table.SparseRowDto;
+import org.sagebionetworks.util.csv.CSVCellReader;
 
 import com.google.common.collect.Lists;
 
@@ -360,6 +361,41 @@ public class CSVToRowIteratorTest {
 		assertEquals(TableModelTestUtils.createSparseRow(2L, 11L, "etag2", columns, "BBB"), rows.get(1));
 	}
 
+	@Test
+	public void testCSVCellReaderMatchesCSVReader() throws IOException {
+		String csv = 
+			"ROW_ID,ROW_VERSION,ROW_ETAG,c,,a\n" +
+			"1,11,etag1,\"A,\"\"A\"\"\nA\",2,\n" +
+			",,,CCC,3,false\n" +
+			"3,10\n" +
+			"\n" +
+			"4,12,etag4,\"DDD\",,true";
+		List<ColumnModel> columns = TableModelTestUtils.createColumsWithNames("a", "b", "c");
+		// header, no header, and a skipped header
+		boolean[] isFirstLineHeader = new boolean[] { true, false, false };
+		long[] linesToSkip = new long[] { 0, 0, 1 };
+		for (int i = 0; i < linesToSkip.length; i++) {
+			List<SparseRowDto> expected = readAll(new CSVToRowIterator(columns, new CSVReader(new StringReader(csv)), isFirstLineHeader[i], linesToSkip[i]));
+			// call under test
+			List<SparseRowDto> rows = readAll(new CSVToRowIterator(columns, new CSVCellReader(new StringReader(csv)), isFirstLineHeader[i], linesToSkip[i]));
+			assertEquals(expected, rows);
+		}
+	}
+
+	@Test
+	public void testCSVCellReaderRowIdAndVersion() throws IOException {
+		String csv = 
+			"ROW_ID,ROW_VERSION,a\n" +
+			"1,11,AAA\n" +
+			",,BBB\n";
+		List<ColumnModel> columns = TableModelTestUtils.createColumsWithNames("a");
+		// call under test
+		List<SparseRowDto> rows = readAll(new CSVToRowIterator(columns, new CSVCellReader(new StringReader(csv)), true, null));
+		assertEquals(2, rows.size());
+		assertEquals(TableModelTestUtils.createSparseRow(1L, 11L, columns, "AAA"), rows.get(0));
+		assertEquals(TableModelTestUtils.createSparseRow(null, null, columns, "BBB"), rows.get(1));
+	}
+
 	/**
 	 * Read all data from the iterator into a list.
 	 * 
@@ -3,8 +3,10 @@ package org.sagebionetworks.repo.model.dbo.principal;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.junit.After;
@@ -22,6 +24,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import com.google.common.collect.Sets;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(locations = { "classpath:jdomodels-test-context.xml" })
 public class NotificationEmailDAOImplTest {
@@ -94,4 +98,18 @@ public class NotificationEmailDAOImplTest {
 	public void testNotFound() throws Exception {
 		notificationEmailDao.getNotificationEmailForPrincipal(-999L);
 	}
+	
+	@Test
+	public void testGetNotificationEmailsForPrincipals() throws Exception {
+		notificationEmailDao.create(alias);
+		// call under test
+		Map<Long, String> emails = notificationEmailDao.getNotificationEmailsForPrincipals(Sets.newHashSet(alias.getPrincipalId(), -999L));
+		assertEquals(Collections.singletonMap(alias.getPrincipalId(), alias.getAlias()), emails);
+	}
+	
+	@Test
+	public void testGetNotificationEmailsForPrincipalsEmpty() throws Exception {
+		// call under test
+		assertEquals(Collections.emptyMap(), notificationEmailDao.getNotificationEmailsForPrincipals(Collections.<Long>emptySet()));
+	}
 }
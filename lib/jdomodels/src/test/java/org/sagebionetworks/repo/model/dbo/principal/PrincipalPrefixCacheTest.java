@@ -0,0 +1,253 @@
+package org.sagebionetworks.repo.model.dbo.principal;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.repo.model.ObjectType;
+import org.sagebionetworks.repo.model.dbo.dao.DBOChangeDAO;
+import org.sagebionetworks.repo.model.message.ChangeMessage;
+import org.sagebionetworks.repo.model.message.TransactionalMessenger;
+import org.sagebionetworks.util.Clock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PrincipalPrefixCacheTest {
+
+	@Mock
+	JdbcTemplate mockJdbcTemplate;
+	@Mock
+	NamedParameterJdbcTemplate mockNamedJdbcTemplate;
+	@Mock
+	DBOChangeDAO mockChangeDAO;
+	@Mock
+	TransactionalMessenger mockTransactionalMessenger;
+	@Mock
+	Clock mockClock;
+	@InjectMocks
+	PrincipalPrefixCache cache;
+
+	List<Object[]> tableRows;
+	long now;
+
+	@Before
+	public void before() throws SQLException {
+		now = 1000L;
+		cache.setRebuildExecutor(MoreExecutors.newDirectExecutorService());
+		// not every test reads the clock or the table.
+		lenient().when(mockClock.currentTimeMillis()).thenAnswer(invocation -> now);
+		tableRows = new ArrayList<>();
+		// user 1 and 2, team 3 and a group 4 that is not a team.
+		tableRows.add(new Object[] { "romane", 1L, true, null });
+		tableRows.add(new Object[] { "romanus", 2L, true, null });
+		tableRows.add(new Object[] { "rome", 3L, false, 3L });
+		tableRows.add(new Object[] { "romegroup", 4L, false, null });
+		tableRows.add(new Object[] { "rubens", 1L, true, null });
+		lenient().doAnswer(invocation -> {
+			feed(invocation.getArgument(1), tableRows);
+			return null;
+		}).when(mockJdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	public void testInitialize() {
+		cache.initialize();
+		verify(mockTransactionalMessenger).removeObserver(cache);
+		verify(mockTransactionalMessenger).registerObserver(cache);
+	}
+
+	@Test
+	public void testList() {
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L), cache.list("r", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Arrays.asList(2L, 3L), cache.list("r", PrincipalPrefixCache.ALL, 2L, 1L));
+		assertEquals(Arrays.asList(1L), cache.list("ru", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Collections.emptyList(), cache.list("x", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Arrays.asList(3L),
+				cache.list("", (principalId, isIndividual, isTeam) -> isTeam, Long.MAX_VALUE, 0L));
+		assertEquals(Arrays.asList(3L, 4L),
+				cache.list("", (principalId, isIndividual, isTeam) -> !isIndividual, Long.MAX_VALUE, 0L));
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L), cache.list("rom", PrincipalPrefixCache.ALL, 100L, 0L));
+		// the table is only loaded once.
+		verify(mockJdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	public void testPrincipalChanged() throws SQLException {
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		// user one is renamed.
+		doAnswer(invocation -> {
+			feed(invocation.getArgument(2), Lists.<Object[]>newArrayList(new Object[] { "zed", 1L, true, null }));
+			return null;
+		}).when(mockNamedJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+		cache.principalChanged(1L);
+		assertEquals(Arrays.asList(2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Arrays.asList(1L), cache.list("z", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Collections.emptyList(), cache.list("rubens", PrincipalPrefixCache.ALL, 100L, 0L));
+		// nothing changed since.
+		verify(mockNamedJdbcTemplate, times(1)).query(anyString(), any(SqlParameterSource.class),
+				any(RowCallbackHandler.class));
+	}
+
+	@Test
+	public void testChangesMadeElsewhere() throws SQLException {
+		cache.setCheckIntervalMS(100L);
+		cache.setChangeGracePeriodMS(1000L);
+		when(mockChangeDAO.getCurrentChangeNumber()).thenReturn(10L);
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+
+		ChangeMessage change = new ChangeMessage();
+		change.setChangeNumber(11L);
+		change.setObjectId("2");
+		change.setObjectType(ObjectType.PRINCIPAL);
+		when(mockChangeDAO.listChanges(11L, ObjectType.PRINCIPAL, 1000L)).thenReturn(Collections.singletonList(change));
+		doAnswer(invocation -> {
+			feed(invocation.getArgument(2), Lists.<Object[]>newArrayList(new Object[] { "bob", 2L, true, null }));
+			return null;
+		}).when(mockNamedJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+		// within the check interval.
+		now += 99L;
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		verify(mockChangeDAO, never()).listChanges(anyLong(), any(ObjectType.class), anyLong());
+
+		now += 1L;
+		assertEquals(Arrays.asList(1L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Arrays.asList(2L), cache.list("bob", PrincipalPrefixCache.ALL, 100L, 0L));
+		verify(mockChangeDAO).listChanges(11L, ObjectType.PRINCIPAL, 1000L);
+	}
+
+	@Test
+	public void testRebuild() {
+		cache.setCheckIntervalMS(100L);
+		cache.setRebuildIntervalMS(500L);
+		cache.list("r", PrincipalPrefixCache.ALL, 100L, 0L);
+		now += 499L;
+		cache.list("r", PrincipalPrefixCache.ALL, 100L, 0L);
+		verify(mockJdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+		// the rebuild happens at the next check.
+		now += 100L;
+		cache.list("r", PrincipalPrefixCache.ALL, 100L, 0L);
+		verify(mockJdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	public void testClear() {
+		cache.list("r", PrincipalPrefixCache.ALL, 100L, 0L);
+		cache.clear();
+		cache.list("r", PrincipalPrefixCache.ALL, 100L, 0L);
+		verify(mockJdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	public void testRebuildInBackground() {
+		ExecutorService mockExecutor = mock(ExecutorService.class);
+		cache.setRebuildExecutor(mockExecutor);
+		cache.setCheckIntervalMS(100L);
+		cache.setRebuildIntervalMS(500L);
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		// user one is renamed in the table.
+		tableRows.set(0, new Object[] { "zed", 1L, true, null });
+		now += 500L;
+		// call under test
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		ArgumentCaptor<Runnable> rebuild = ArgumentCaptor.forClass(Runnable.class);
+		verify(mockExecutor).execute(rebuild.capture());
+		// a running rebuild is not started again.
+		now += 100L;
+		cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L);
+		verify(mockExecutor, times(1)).execute(any(Runnable.class));
+		rebuild.getValue().run();
+		assertEquals(Arrays.asList(2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		assertEquals(Arrays.asList(1L), cache.list("z", PrincipalPrefixCache.ALL, 100L, 0L));
+		verify(mockJdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+	}
+
+	@Test
+	public void testRebuildAfterClear() {
+		ExecutorService mockExecutor = mock(ExecutorService.class);
+		cache.setRebuildExecutor(mockExecutor);
+		cache.setCheckIntervalMS(100L);
+		cache.setRebuildIntervalMS(500L);
+		cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L);
+		now += 500L;
+		cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L);
+		ArgumentCaptor<Runnable> rebuild = ArgumentCaptor.forClass(Runnable.class);
+		verify(mockExecutor).execute(rebuild.capture());
+		cache.clear();
+		tableRows.set(0, new Object[] { "zed", 1L, true, null });
+		assertEquals(Arrays.asList(1L), cache.list("z", PrincipalPrefixCache.ALL, 100L, 0L));
+		tableRows.set(0, new Object[] { "romane", 1L, true, null });
+		// the rebuild started before the clear is dropped.
+		rebuild.getValue().run();
+		assertEquals(Arrays.asList(1L), cache.list("z", PrincipalPrefixCache.ALL, 100L, 0L));
+	}
+
+	@Test
+	public void testAccentInsensitive() {
+		tableRows.add(new Object[] { "Zo\u00eb", 5L, true, null });
+		assertEquals(Arrays.asList(5L), cache.list("zoe", PrincipalPrefixCache.ALL, 100L, 0L));
+	}
+
+	@Test
+	public void testNormalize() {
+		assertEquals("romeo", PrincipalPrefixCache.normalize("Rom\u00e9o"));
+		assertEquals("romeo", PrincipalPrefixCache.normalize("romeo"));
+	}
+
+	@Test
+	public void testFireChangeMessage() {
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		ChangeMessage message = new ChangeMessage();
+		message.setObjectId("1");
+		message.setObjectType(ObjectType.ENTITY);
+		cache.fireChangeMessage(message);
+		assertEquals(Arrays.asList(1L, 2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		verify(mockNamedJdbcTemplate, never()).query(anyString(), any(SqlParameterSource.class),
+				any(RowCallbackHandler.class));
+		message.setObjectType(ObjectType.PRINCIPAL);
+		cache.fireChangeMessage(message);
+		// user one no longer has any tokens.
+		assertEquals(Arrays.asList(2L), cache.list("roman", PrincipalPrefixCache.ALL, 100L, 0L));
+		verify(mockNamedJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+	}
+
+	private static void feed(RowCallbackHandler handler, List<Object[]> rows) throws SQLException {
+		for (Object[] row : rows) {
+			ResultSet rs = mock(ResultSet.class);
+			when(rs.getString(1)).thenReturn((String) row[0]);
+			when(rs.getLong(2)).thenReturn((Long) row[1]);
+			when(rs.getBoolean(3)).thenReturn((Boolean) row[2]);
+			when(rs.getObject(4)).thenReturn(row[3]);
+			handler.processRow(rs);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package org.sagebionetworks.repo.model.dbo.principal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PrincipalPrefixIndexTest {
+
+	@Test
+	public void testBuildSortsAndRemovesDuplicates() {
+		PrincipalPrefixIndex index = new PrincipalPrefixIndex.Builder()
+				.add("rubens", 5L, true, false)
+				.add("romane", 2L, true, false)
+				.add("romane", 1L, true, false)
+				.add("rubens", 5L, true, false)
+				.add("ateam", 9L, false, true)
+				.build();
+		assertEquals(4, index.size());
+		assertEquals("ateam", index.getToken(0));
+		assertEquals(9L, index.getPrincipalId(0));
+		assertFalse(index.isIndividual(0));
+		assertTrue(index.isTeam(0));
+		assertEquals("romane", index.getToken(1));
+		assertEquals(1L, index.getPrincipalId(1));
+		assertEquals(2L, index.getPrincipalId(2));
+		assertTrue(index.isIndividual(2));
+		assertFalse(index.isTeam(2));
+		assertEquals("rubens", index.getToken(3));
+	}
+
+	@Test
+	public void testFirstIndexOfAndStartsWith() {
+		PrincipalPrefixIndex index = new PrincipalPrefixIndex.Builder()
+				.add("aa", 1L, true, false)
+				.add("ab", 2L, true, false)
+				.add("abc", 3L, true, false)
+				.add("b", 4L, true, false)
+				.build();
+		assertEquals(0, index.firstIndexOf(""));
+		assertEquals(1, index.firstIndexOf("ab"));
+		assertTrue(index.startsWith(1, "ab"));
+		assertTrue(index.startsWith(2, "ab"));
+		assertFalse(index.startsWith(3, "ab"));
+		assertEquals(3, index.firstIndexOf("abd"));
+		assertEquals(4, index.firstIndexOf("c"));
+		assertFalse(index.startsWith(0, "aaa"));
+	}
+
+	@Test
+	public void testCompareEntry() {
+		PrincipalPrefixIndex one = new PrincipalPrefixIndex.Builder()
+				.add("ab", 1L, true, false)
+				.add("ab", 3L, true, false)
+				.build();
+		PrincipalPrefixIndex two = new PrincipalPrefixIndex.Builder()
+				.add("a", 9L, true, false)
+				.add("ab", 2L, true, false)
+				.build();
+		assertTrue(one.compareEntry(0, two, 0) > 0);
+		assertTrue(one.compareEntry(0, two, 1) < 0);
+		assertTrue(one.compareEntry(1, two, 1) > 0);
+		assertEquals(0, one.compareEntry(0, one, 0));
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, PrincipalPrefixIndex.EMPTY.size());
+		assertEquals(0, PrincipalPrefixIndex.EMPTY.firstIndexOf("a"));
+	}
+}
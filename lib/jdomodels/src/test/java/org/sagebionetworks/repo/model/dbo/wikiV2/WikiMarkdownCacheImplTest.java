@@ -0,0 +1,128 @@
+package org.sagebionetworks.repo.model.dbo.wikiV2;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.aws.SynapseS3Client;
+import org.sagebionetworks.repo.model.dao.FileHandleDao;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WikiMarkdownCacheImplTest {
+
+	@Mock
+	SynapseS3Client mockS3Client;
+	@Mock
+	FileHandleDao mockFileHandleDao;
+
+	WikiMarkdownCacheImpl cache;
+
+	@Before
+	public void before() {
+		cache = createCache(false);
+	}
+
+	WikiMarkdownCacheImpl createCache(boolean offHeap) {
+		WikiMarkdownCacheImpl cache = new WikiMarkdownCacheImpl(10, offHeap);
+		ReflectionTestUtils.setField(cache, "s3Client", mockS3Client);
+		ReflectionTestUtils.setField(cache, "fileMetadataDao", mockFileHandleDao);
+		return cache;
+	}
+
+	/**
+	 * Setup a gzipped markdown file for the given file handle.
+	 * 
+	 * @return The size of the gzipped file.
+	 */
+	long setupMarkdown(String fileHandleId, String markdown) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+			zip.write(markdown.getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] gzipped = out.toByteArray();
+		S3FileHandle handle = new S3FileHandle();
+		handle.setId(fileHandleId);
+		handle.setBucketName("bucket");
+		handle.setKey("key" + fileHandleId);
+		handle.setContentSize((long) gzipped.length);
+		when(mockFileHandleDao.get(fileHandleId)).thenReturn(handle);
+		when(mockS3Client.getObject("bucket", "key" + fileHandleId)).thenAnswer(invocation -> {
+			S3Object object = new S3Object();
+			ObjectMetadata metadata = new ObjectMetadata();
+			metadata.setContentType("text/plain; charset=utf-8");
+			object.setObjectMetadata(metadata);
+			object.setObjectContent(new ByteArrayInputStream(gzipped));
+			return object;
+		});
+		return gzipped.length;
+	}
+
+	@Test
+	public void testGetMarkdownHit() throws Exception {
+		long gzippedSize = setupMarkdown("1", "first");
+		assertEquals("first", cache.getMarkdown("1"));
+		// call under test
+		assertEquals("first", cache.getMarkdown("1"));
+		verify(mockS3Client, times(1)).getObject("bucket", "key1");
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(1L, cache.getMissCount());
+		assertEquals(gzippedSize, cache.getBytesSaved());
+	}
+
+	@Test
+	public void testGetMarkdownEvictLeastRecentlyUsed() throws Exception {
+		setupMarkdown("1", "first");
+		setupMarkdown("2", "second");
+		cache.getMarkdown("1");
+		// 5 + 6 bytes is over the limit of 10 so the first is evicted.
+		cache.getMarkdown("2");
+		assertEquals(6L, cache.getCachedBytes());
+		// call under test
+		assertEquals("first", cache.getMarkdown("1"));
+		verify(mockS3Client, times(2)).getObject("bucket", "key1");
+		assertEquals(0L, cache.getHitCount());
+		assertEquals(3L, cache.getMissCount());
+	}
+
+	@Test
+	public void testGetMarkdownOffHeap() throws Exception {
+		cache = createCache(true);
+		setupMarkdown("2", "second");
+		cache.getMarkdown("2");
+		// call under test
+		assertEquals("second", cache.getMarkdown("2"));
+		assertEquals(1L, cache.getHitCount());
+	}
+
+	@Test
+	public void testGetMarkdownTooLargeToCache() throws Exception {
+		setupMarkdown("3", "more than ten bytes");
+		cache.getMarkdown("3");
+		// call under test
+		assertEquals("more than ten bytes", cache.getMarkdown("3"));
+		assertEquals(0L, cache.getCachedBytes());
+		assertEquals(2L, cache.getMissCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetMarkdownNullId() throws Exception {
+		cache.getMarkdown(null);
+	}
+}
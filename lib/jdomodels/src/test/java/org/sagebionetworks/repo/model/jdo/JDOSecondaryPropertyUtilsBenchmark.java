@@ -0,0 +1,113 @@
+package org.sagebionetworks.repo.model.jdo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.sagebionetworks.repo.model.Reference;
+import org.sagebionetworks.repo.model.Team;
+import org.sagebionetworks.repo.model.TermsOfUseAccessRequirement;
+import org.sagebionetworks.repo.model.UnmodifiableXStream;
+import org.sagebionetworks.repo.model.UserProfile;
+
+/**
+ * Compares the size and the encode/decode time of the legacy XStream blobs with
+ * the JSON entity blob codec for some of the types stored as blobs. Not run as
+ * part of the build, run the main method directly.
+ *
+ */
+public class JDOSecondaryPropertyUtilsBenchmark {
+
+	static final int WARM_UP = 2_000;
+	static final int ITERATIONS = 20_000;
+
+	public static void main(String[] args) throws IOException {
+		benchmark(createTeam());
+		benchmark(createUserProfile());
+		benchmark(createAccessRequirement());
+		benchmark(createReference());
+	}
+
+	static void benchmark(Object dto) throws IOException {
+		UnmodifiableXStream xml = UnmodifiableXStream.builder().allowTypes(dto.getClass()).build();
+		UnmodifiableXStream json = UnmodifiableXStream.builder().allowTypes(dto.getClass()).jsonEntityBlobCodec().build();
+		System.out.println(dto.getClass().getSimpleName());
+		run("  xstream", xml, dto);
+		run("  json", json, dto);
+	}
+
+	static void run(String name, UnmodifiableXStream xStream, Object dto) throws IOException {
+		byte[] bytes = null;
+		for (int i = 0; i < WARM_UP; i++) {
+			bytes = JDOSecondaryPropertyUtils.compressObject(xStream, dto, true);
+			JDOSecondaryPropertyUtils.decompressObject(xStream, bytes);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			bytes = JDOSecondaryPropertyUtils.compressObject(xStream, dto, true);
+		}
+		long encodeNs = (System.nanoTime() - start) / ITERATIONS;
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			JDOSecondaryPropertyUtils.decompressObject(xStream, bytes);
+		}
+		long decodeNs = (System.nanoTime() - start) / ITERATIONS;
+		System.out.println(String.format("%s: %d bytes, encode %d ns/op, decode %d ns/op", name, bytes.length, encodeNs, decodeNs));
+	}
+
+	static Team createTeam() {
+		Team team = new Team();
+		team.setId("3319267");
+		team.setName("Benchmark Team");
+		team.setDescription("A team used to benchmark the blob codecs");
+		team.setEtag("c1ea6b61-6d1b-4b5a-9d5f-3e3ab2f1f4a1");
+		team.setCanPublicJoin(false);
+		team.setCreatedOn(new Date());
+		team.setModifiedOn(new Date());
+		team.setCreatedBy("273950");
+		team.setModifiedBy("273950");
+		return team;
+	}
+
+	static UserProfile createUserProfile() {
+		UserProfile profile = new UserProfile();
+		profile.setOwnerId("273950");
+		profile.setUserName("benchmark-user");
+		profile.setFirstName("First");
+		profile.setLastName("Last");
+		profile.setEtag("c1ea6b61-6d1b-4b5a-9d5f-3e3ab2f1f4a1");
+		profile.setCompany("Sage Bionetworks");
+		profile.setLocation("Seattle, WA");
+		profile.setSummary("A user profile used to benchmark the blob codecs");
+		List<String> emails = new ArrayList<>();
+		emails.add("benchmark-user@example.com");
+		profile.setEmails(emails);
+		return profile;
+	}
+
+	static TermsOfUseAccessRequirement createAccessRequirement() {
+		TermsOfUseAccessRequirement ar = new TermsOfUseAccessRequirement();
+		ar.setId(9602L);
+		ar.setEtag("c1ea6b61-6d1b-4b5a-9d5f-3e3ab2f1f4a1");
+		ar.setVersionNumber(1L);
+		ar.setCreatedBy("273950");
+		ar.setCreatedOn(new Date());
+		ar.setModifiedBy("273950");
+		ar.setModifiedOn(new Date());
+		ar.setConcreteType(TermsOfUseAccessRequirement.class.getName());
+		StringBuilder terms = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			terms.append("You agree to use the data only for research purposes. ");
+		}
+		ar.setTermsOfUse(terms.toString());
+		return ar;
+	}
+
+	static Reference createReference() {
+		Reference reference = new Reference();
+		reference.setTargetId("syn123");
+		reference.setTargetVersionNumber(3L);
+		return reference;
+	}
+}
@@ -1,16 +1,22 @@
 package org.sagebionetworks.repo.model.jdo;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.Map;
 import java.util.Objects;
 
 import org.junit.jupiter.api.Test;
 import org.sagebionetworks.repo.model.Annotations;
+import org.sagebionetworks.repo.model.Team;
 import org.sagebionetworks.repo.model.UnmodifiableXStream;
 
 /**
@@ -47,6 +53,129 @@ public class JDOSecondaryPropertyUtilsTest {
 		assertEquals(test, JDOSecondaryPropertyUtils.decompressObject(TEST_X_STREAM, bytes));
 	}
 
+	UnmodifiableXStream TEAM_X_STREAM = UnmodifiableXStream.builder().allowTypes(Team.class).build();
+	UnmodifiableXStream TEAM_JSON_X_STREAM = UnmodifiableXStream.builder().allowTypes(Team.class).jsonEntityBlobCodec().build();
+
+	static Team createTeam() {
+		Team team = new Team();
+		team.setId("123");
+		team.setName("some team");
+		team.setDescription("a team with a description");
+		team.setEtag("etag");
+		team.setCanPublicJoin(true);
+		team.setCreatedOn(new Date(1000L));
+		team.setCreatedBy("456");
+		return team;
+	}
+
+	@Test
+	public void roundTripJSONEntityBlobCodec() throws IOException {
+		Team team = createTeam();
+
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(TEAM_JSON_X_STREAM, team, true);
+		assertFalse(JDOSecondaryPropertyUtils.isXMLBlob(bytes));
+		assertArrayEquals(new byte[] {'S', 'B', JSONEntityBlobCodec.CODEC_ID}, Arrays.copyOf(bytes, JDOSecondaryPropertyUtils.BLOB_HEADER_LENGTH));
+
+		assertEquals(team, JDOSecondaryPropertyUtils.decompressObject(TEAM_JSON_X_STREAM, bytes));
+	}
+
+	@Test
+	public void decompressLegacyXMLWithJSONEntityBlobCodec() throws IOException {
+		Team team = createTeam();
+
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(TEAM_X_STREAM, team, true);
+		assertTrue(JDOSecondaryPropertyUtils.isXMLBlob(bytes));
+
+		assertEquals(team, JDOSecondaryPropertyUtils.decompressObject(TEAM_JSON_X_STREAM, bytes));
+	}
+
+	@Test
+	public void decompressJSONEntityBlobWithoutCodecOptIn() throws IOException {
+		Team team = createTeam();
+
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(TEAM_JSON_X_STREAM, team, true);
+
+		assertEquals(team, JDOSecondaryPropertyUtils.decompressObject(TEAM_X_STREAM, bytes));
+	}
+
+	@Test
+	public void decompressJSONEntityBlobTypeNotAllowed() throws IOException {
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(TEAM_JSON_X_STREAM, createTeam(), true);
+
+		assertThrows(IllegalArgumentException.class, () -> {
+			JDOSecondaryPropertyUtils.decompressObject(TEST_X_STREAM, bytes);
+		});
+	}
+
+	@Test
+	public void decompressUnknownCodec() throws IOException {
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(TEAM_JSON_X_STREAM, createTeam(), true);
+		bytes[2] = 99;
+
+		assertThrows(IOException.class, () -> {
+			JDOSecondaryPropertyUtils.decompressObject(TEAM_JSON_X_STREAM, bytes);
+		});
+	}
+
+	@Test
+	public void compressJSONEntityBlobCodecOmitField() throws IOException {
+		UnmodifiableXStream xStream = UnmodifiableXStream.builder().allowTypes(Team.class).omitField(Team.class, "etag").jsonEntityBlobCodec().build();
+		Team team = createTeam();
+
+		Team result = (Team) JDOSecondaryPropertyUtils.decompressObject(xStream, JDOSecondaryPropertyUtils.compressObject(xStream, team, true));
+
+		assertNull(result.getEtag());
+		team.setEtag(null);
+		assertEquals(team, result);
+	}
+
+	@Test
+	public void compressJSONEntityBlobCodecNotJSONEntity() throws IOException {
+		UnmodifiableXStream xStream = UnmodifiableXStream.builder().allowTypes(TestObject.class).jsonEntityBlobCodec().build();
+		TestObject test = new TestObject(1,"2", 3L, null);
+
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(xStream, test, true);
+		assertTrue(JDOSecondaryPropertyUtils.isXMLBlob(bytes));
+		assertEquals(test, JDOSecondaryPropertyUtils.decompressObject(xStream, bytes));
+	}
+
+	@Test
+	public void reEncodeObject() throws IOException {
+		Team team = createTeam();
+		byte[] legacy = JDOSecondaryPropertyUtils.compressObject(TEAM_X_STREAM, team, true);
+
+		byte[] reEncoded = JDOSecondaryPropertyUtils.reEncodeObject(TEAM_JSON_X_STREAM, legacy, true);
+		assertNotNull(reEncoded);
+		assertFalse(JDOSecondaryPropertyUtils.isXMLBlob(reEncoded));
+		assertEquals(team, JDOSecondaryPropertyUtils.decompressObject(TEAM_JSON_X_STREAM, reEncoded));
+
+		// already in the preferred format
+		assertNull(JDOSecondaryPropertyUtils.reEncodeObject(TEAM_JSON_X_STREAM, reEncoded, true));
+		// no codec opt-in
+		assertNull(JDOSecondaryPropertyUtils.reEncodeObject(TEAM_X_STREAM, legacy, true));
+	}
+
+	@Test
+	public void compressObjectCodecWriteDisabled() throws IOException {
+		Team team = createTeam();
+
+		byte[] bytes = JDOSecondaryPropertyUtils.compressObject(TEAM_JSON_X_STREAM, team, false);
+		assertTrue(JDOSecondaryPropertyUtils.isXMLBlob(bytes));
+		assertEquals(team, JDOSecondaryPropertyUtils.decompressObject(TEAM_JSON_X_STREAM, bytes));
+	}
+
+	@Test
+	public void reEncodeObjectCodecWriteDisabled() throws IOException {
+		byte[] legacy = JDOSecondaryPropertyUtils.compressObject(TEAM_X_STREAM, createTeam(), false);
+
+		assertNull(JDOSecondaryPropertyUtils.reEncodeObject(TEAM_JSON_X_STREAM, legacy, false));
+	}
+
+	@Test
+	public void codecWriteDisabledByDefault() {
+		assertFalse(JDOSecondaryPropertyUtils.isCodecWriteEnabled());
+	}
+
 
 	static class TestObject{
 		int a;
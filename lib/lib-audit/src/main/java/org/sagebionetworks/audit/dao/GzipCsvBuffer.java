@@ -0,0 +1,87 @@
+package org.sagebionetworks.audit.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+import org.sagebionetworks.csv.utils.ObjectCSVWriter;
+
+/**
+ * In-memory csv.gz file of a batch of objects. The compressed bytes are
+ * streamed from the buffer they were written to, so uploading a batch does not
+ * require another copy of the file.
+ *
+ * @param <T>
+ */
+class GzipCsvBuffer<T> {
+
+	/**
+	 * Rough size of a compressed row, used to size the buffer up front so it is
+	 * not repeatedly grown while writing.
+	 */
+	static final int ESTIMATED_BYTES_PER_ROW = 48;
+	static final int MIN_BUFFER_SIZE = 1024;
+
+	private final ExposedByteArrayOutputStream out;
+
+	private GzipCsvBuffer(ExposedByteArrayOutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write the given batch as gzipped CSV.
+	 * 
+	 * @param batch
+	 * @param objectClass
+	 * @param headers
+	 * @return
+	 * @throws IOException
+	 */
+	static <T> GzipCsvBuffer<T> write(Collection<T> batch, Class<T> objectClass, String[] headers)
+			throws IOException {
+		ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream(
+				Math.max(MIN_BUFFER_SIZE, batch.size() * ESTIMATED_BYTES_PER_ROW));
+		GZIPOutputStream zipOut = new GZIPOutputStream(out);
+		OutputStreamWriter osw = new OutputStreamWriter(zipOut);
+		ObjectCSVWriter<T> writer = new ObjectCSVWriter<T>(osw, objectClass, headers);
+		// Write all of the data
+		for (T ar : batch) {
+			writer.append(ar);
+		}
+		writer.close();
+		return new GzipCsvBuffer<T>(out);
+	}
+
+	/**
+	 * A stream over the compressed bytes, backed by the same buffer.
+	 * 
+	 * @return
+	 */
+	InputStream getInputStream() {
+		return out.getInputStream();
+	}
+
+	/**
+	 * The number of compressed bytes.
+	 * 
+	 * @return
+	 */
+	int getLength() {
+		return out.size();
+	}
+
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+		ExposedByteArrayOutputStream(int size) {
+			super(size);
+		}
+
+		InputStream getInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+	}
+}
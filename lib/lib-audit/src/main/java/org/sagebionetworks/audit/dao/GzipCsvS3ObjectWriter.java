@@ -1,14 +1,9 @@
 package org.sagebionetworks.audit.dao;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
 
 import org.sagebionetworks.aws.SynapseS3Client;
-import org.sagebionetworks.csv.utils.ObjectCSVWriter;
 import org.sagebionetworks.util.ContentDispositionUtils;
 
 import com.amazonaws.services.s3.model.ObjectMetadata;
@@ -56,24 +51,12 @@ public class GzipCsvS3ObjectWriter<T> {
 	public void write(List<T> batch, String bucket, String key)
 			throws IOException {
 		// Write the data to a gzip
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		GZIPOutputStream zipOut = new GZIPOutputStream(out);
-		OutputStreamWriter osw = new OutputStreamWriter(zipOut);
-		ObjectCSVWriter<T> writer = new ObjectCSVWriter<T>(osw, objectClass,
-				headers);
-		// Write all of the data
-		for (T ar : batch) {
-			writer.append(ar);
-		}
-		writer.close();
-		// Create an input stream
-		byte[] bytes = out.toByteArray();
-		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+		GzipCsvBuffer<T> buffer = GzipCsvBuffer.write(batch, objectClass, headers);
 		ObjectMetadata om = new ObjectMetadata();
 		om.setContentType("application/x-gzip");
 		om.setContentEncoding("gzip");
 		om.setContentDisposition(ContentDispositionUtils.getContentDispositionValue(key));
-		om.setContentLength(bytes.length);
-		awsS3Client.putObject(bucket, key, in, om);
+		om.setContentLength(buffer.getLength());
+		awsS3Client.putObject(bucket, key, buffer.getInputStream(), om);
 	}
 }
@@ -1,23 +1,18 @@
 package org.sagebionetworks.audit.dao;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import org.sagebionetworks.aws.SynapseS3Client;
 import org.sagebionetworks.aws.utils.s3.KeyGeneratorUtil;
 import org.sagebionetworks.csv.utils.ObjectCSVReader;
-import org.sagebionetworks.csv.utils.ObjectCSVWriter;
 import org.sagebionetworks.util.ContentDispositionUtils;
 
 import com.amazonaws.services.s3.model.DeleteObjectsRequest;
@@ -57,18 +52,7 @@ public class ObjectCSVDAO<T> {
 	 */
 	public String write(List<T> batch, long timestamp, boolean rolling) throws IOException {
 		// Write the data to a gzip
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		GZIPOutputStream zipOut = new GZIPOutputStream(out);
-		OutputStreamWriter osw = new OutputStreamWriter(zipOut);
-		ObjectCSVWriter<T> writer = new ObjectCSVWriter<T>(osw, objectClass, headers);
-		// Write all of the data
-		for (T ar : batch) {
-			writer.append(ar);
-		}
-		writer.close();
-		// Create an input stream
-		byte[] bytes = out.toByteArray();
-		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+		GzipCsvBuffer<T> buffer = GzipCsvBuffer.write(batch, objectClass, headers);
 		// Build a new key
 		String key = KeyGeneratorUtil.createNewKey(stackInstanceNumber,
 				timestamp, rolling);
@@ -76,8 +60,8 @@ public class ObjectCSVDAO<T> {
 		om.setContentType("application/x-gzip");
 		om.setContentEncoding("gzip");
 		om.setContentDisposition(ContentDispositionUtils.getContentDispositionValue(key));
-		om.setContentLength(bytes.length);
-		s3Client.putObject(bucketName, key, in, om);
+		om.setContentLength(buffer.getLength());
+		s3Client.putObject(bucketName, key, buffer.getInputStream(), om);
 		return key;
 	}
 
@@ -0,0 +1,241 @@
+package org.sagebionetworks.markdown;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.commonmark.Extension;
+import org.commonmark.ext.autolink.AutolinkExtension;
+import org.commonmark.ext.gfm.strikethrough.StrikethroughExtension;
+import org.commonmark.ext.gfm.tables.TablesExtension;
+import org.commonmark.node.AbstractVisitor;
+import org.commonmark.node.Heading;
+import org.commonmark.node.Image;
+import org.commonmark.node.Link;
+import org.commonmark.node.Node;
+import org.commonmark.node.Text;
+import org.commonmark.parser.Parser;
+import org.commonmark.parser.PostProcessor;
+import org.commonmark.renderer.html.AttributeProvider;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+/**
+ * Renders Synapse flavored markdown in process, so a conversion does not depend
+ * on the latency or availability of the markdown server. Results are kept in an
+ * LRU cache keyed by the hash of the markdown and the output type.
+ *
+ * Only the html output type is supported, which is what all callers use. Raw
+ * HTML in the markdown is escaped and links or images with a scheme other than
+ * http, https, mailto or ftp lose their URL, since the output ends up in emails.
+ */
+public class EmbeddedMarkdownDaoImpl implements MarkdownDao {
+
+	public static final String OUTPUT_HTML = "html";
+	public static final String DEFAULT_SYNAPSE_BASE_URL = "https://www.synapse.org/";
+	public static final String SYNAPSE_ENTITY_PLACE = "#!Synapse:";
+	public static final int DEFAULT_MAX_CACHE_ENTRIES = 1000;
+
+	static final Pattern SYNAPSE_ID_PATTERN = Pattern.compile("\\bsyn\\d+\\b");
+	static final Set<String> ALLOWED_URL_SCHEMES = new HashSet<String>(Arrays.asList("http", "https", "mailto", "ftp"));
+
+	private final Parser parser;
+	private final HtmlRenderer renderer;
+	private String synapseBaseUrl = DEFAULT_SYNAPSE_BASE_URL;
+	private Map<String, String> cache = createCache(DEFAULT_MAX_CACHE_ENTRIES);
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	public EmbeddedMarkdownDaoImpl() {
+		List<Extension> extensions = Arrays.asList(TablesExtension.create(), StrikethroughExtension.create(),
+				AutolinkExtension.create());
+		// The extension post processors run first so Synapse IDs inside of URLs are left alone.
+		this.parser = Parser.builder().extensions(extensions).postProcessor(new SynapseIdLinker()).build();
+		this.renderer = HtmlRenderer.builder().extensions(extensions).softbreak("<br />\n").escapeHtml(true)
+				.attributeProviderFactory(context -> new SynapseAttributeProvider()).build();
+	}
+
+	@Override
+	public String convertMarkdown(String rawMarkdown, String outputType) {
+		if (rawMarkdown == null) {
+			throw new IllegalArgumentException("rawMarkdown cannot be null");
+		}
+		if (outputType != null && !OUTPUT_HTML.equals(outputType)) {
+			throw new IllegalArgumentException("Unsupported output type: " + outputType);
+		}
+		String key = createCacheKey(rawMarkdown, OUTPUT_HTML);
+		String result = cache.get(key);
+		if (result != null) {
+			hitCount.incrementAndGet();
+			return result;
+		}
+		missCount.incrementAndGet();
+		result = renderer.render(parser.parse(rawMarkdown));
+		cache.put(key, result);
+		return result;
+	}
+
+	/**
+	 * The key holds a hash of the markdown rather than the markdown itself so
+	 * large documents are not kept in memory twice.
+	 *
+	 * @param rawMarkdown
+	 * @param outputType
+	 * @return
+	 */
+	static String createCacheKey(String rawMarkdown, String outputType) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(rawMarkdown.getBytes(StandardCharsets.UTF_8));
+			StringBuilder builder = new StringBuilder(outputType.length() + 1 + hash.length * 2);
+			builder.append(outputType).append(':');
+			for (byte b : hash) {
+				builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+				builder.append(Character.forDigit(b & 0xF, 16));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Map<String, String> createCache(final int maxEntries) {
+		return Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		});
+	}
+
+	public String getSynapseBaseUrl() {
+		return synapseBaseUrl;
+	}
+
+	/**
+	 * IoC
+	 *
+	 * @param synapseBaseUrl
+	 */
+	public void setSynapseBaseUrl(String synapseBaseUrl) {
+		this.synapseBaseUrl = synapseBaseUrl;
+		cache.clear();
+	}
+
+	/**
+	 * IoC
+	 *
+	 * @param maxCacheEntries
+	 */
+	public void setMaxCacheEntries(int maxCacheEntries) {
+		if (maxCacheEntries < 1) {
+			throw new IllegalArgumentException("maxCacheEntries must be at least one");
+		}
+		this.cache = createCache(maxCacheEntries);
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Links each Synapse ID (syn123) found in text to its entity page, as the
+	 * markdown server does. Text inside of links and code is not changed.
+	 */
+	class SynapseIdLinker extends AbstractVisitor implements PostProcessor {
+
+		@Override
+		public Node process(Node node) {
+			node.accept(this);
+			return node;
+		}
+
+		@Override
+		public void visit(Link link) {
+			// The children of a link are already linked.
+		}
+
+		@Override
+		public void visit(Text text) {
+			String literal = text.getLiteral();
+			Matcher matcher = SYNAPSE_ID_PATTERN.matcher(literal);
+			int last = 0;
+			while (matcher.find()) {
+				if (matcher.start() > last) {
+					text.insertBefore(new Text(literal.substring(last, matcher.start())));
+				}
+				Link link = new Link(synapseBaseUrl + SYNAPSE_ENTITY_PLACE + matcher.group(), null);
+				link.appendChild(new Text(matcher.group()));
+				text.insertBefore(link);
+				last = matcher.end();
+			}
+			if (last == 0) {
+				return;
+			}
+			if (last < literal.length()) {
+				text.insertBefore(new Text(literal.substring(last)));
+			}
+			text.unlink();
+		}
+	}
+
+	/**
+	 * Keep relative URLs and URLs with an allowed scheme.
+	 *
+	 * @param url
+	 * @return The URL or an empty string if its scheme is not allowed.
+	 */
+	static String sanitizeUrl(String url) {
+		// Browsers ignore leading whitespace and control characters.
+		String trimmed = url.replaceFirst("^[\\x00-\\x20]+", "");
+		for (int i = 0; i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+			if (c == '/' || c == '?' || c == '#') {
+				// A relative URL.
+				return url;
+			}
+			if (c == ':') {
+				String scheme = trimmed.substring(0, i).toLowerCase(Locale.ROOT);
+				return ALLOWED_URL_SCHEMES.contains(scheme) ? url : "";
+			}
+		}
+		return url;
+	}
+
+	/**
+	 * Adds the attributes the markdown server puts on headings and links and
+	 * drops unsafe link and image URLs.
+	 */
+	static class SynapseAttributeProvider implements AttributeProvider {
+
+		@Override
+		public void setAttributes(Node node, String tagName, Map<String, String> attributes) {
+			if (node instanceof Heading) {
+				attributes.put("toc", "true");
+			} else if (node instanceof Link) {
+				attributes.put("href", sanitizeUrl(attributes.get("href")));
+				attributes.put("target", "_blank");
+				attributes.put("rel", "noopener noreferrer");
+			} else if (node instanceof Image) {
+				attributes.put("src", sanitizeUrl(attributes.get("src")));
+			}
+		}
+	}
+}
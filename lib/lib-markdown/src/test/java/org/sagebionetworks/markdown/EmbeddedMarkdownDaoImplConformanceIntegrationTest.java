@@ -0,0 +1,53 @@
+package org.sagebionetworks.markdown;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Compares the in process renderer with the markdown server for each entry of
+ * the corpus. Entries are separated by a line containing only %%%.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:test-context.xml"})
+public class EmbeddedMarkdownDaoImplConformanceIntegrationTest {
+
+	public static final String CORPUS = "markdown-conformance-corpus.txt";
+	public static final String SEPARATOR = "\n%%%\n";
+
+	@Autowired
+	EmbeddedMarkdownDaoImpl embeddedDao;
+	@Autowired
+	MarkdownDaoImpl remoteDao;
+
+	@Test
+	public void testCorpus() throws Exception {
+		List<String> mismatches = new ArrayList<String>();
+		for (String markdown : loadCorpus()) {
+			String expected = remoteDao.convertMarkdown(markdown, null);
+			String actual = embeddedDao.convertMarkdown(markdown, null);
+			if (!expected.equals(actual)) {
+				mismatches.add("markdown:\n" + markdown + "\nserver:\n" + expected + "embedded:\n" + actual);
+			}
+		}
+		assertTrue(String.join("\n", mismatches), mismatches.isEmpty());
+	}
+
+	static String[] loadCorpus() throws IOException {
+		try (InputStream in = EmbeddedMarkdownDaoImplConformanceIntegrationTest.class.getClassLoader().getResourceAsStream(CORPUS);
+				Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+			return scanner.useDelimiter("\\A").next().replace("\r\n", "\n").trim().split(SEPARATOR);
+		}
+	}
+}
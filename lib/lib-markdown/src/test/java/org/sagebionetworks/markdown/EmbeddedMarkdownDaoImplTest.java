@@ -0,0 +1,140 @@
+package org.sagebionetworks.markdown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EmbeddedMarkdownDaoImplTest {
+
+	private EmbeddedMarkdownDaoImpl dao;
+
+	@Before
+	public void before() {
+		dao = new EmbeddedMarkdownDaoImpl();
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void testConvertMarkdownWithNullMarkdown() throws Exception {
+		dao.convertMarkdown(null, null);
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void testConvertMarkdownWithUnsupportedOutput() throws Exception {
+		dao.convertMarkdown("## a heading", "plain");
+	}
+
+	@Test
+	public void testHeading() throws Exception {
+		assertEquals("<h2 toc=\"true\">a heading</h2>\n", dao.convertMarkdown("## a heading", "html"));
+		assertEquals("<h2 toc=\"true\">a heading</h2>\n", dao.convertMarkdown("## a heading", null));
+	}
+
+	@Test
+	public void testEntityId() throws Exception {
+		String expected = "<p><a href=\"https://www.synapse.org/#!Synapse:syn12345\" target=\"_blank\" rel=\"noopener noreferrer\">syn12345</a></p>\n";
+		assertEquals(expected, dao.convertMarkdown("syn12345", null));
+	}
+
+	@Test
+	public void testEntityIdWithinText() throws Exception {
+		String expected = "<p>See <a href=\"https://www.synapse.org/#!Synapse:syn1\" target=\"_blank\" rel=\"noopener noreferrer\">syn1</a>"
+				+ " and <a href=\"https://www.synapse.org/#!Synapse:syn2\" target=\"_blank\" rel=\"noopener noreferrer\">syn2</a>.</p>\n";
+		assertEquals(expected, dao.convertMarkdown("See syn1 and syn2.", null));
+	}
+
+	@Test
+	public void testEntityIdNotLinked() throws Exception {
+		// part of a word, within code and within a link.
+		assertEquals("<p>asyn1 syn2b</p>\n", dao.convertMarkdown("asyn1 syn2b", null));
+		assertEquals("<p><code>syn1</code></p>\n", dao.convertMarkdown("`syn1`", null));
+		assertEquals("<p><a href=\"https://example.org\" target=\"_blank\" rel=\"noopener noreferrer\">syn1</a></p>\n",
+				dao.convertMarkdown("[syn1](https://example.org)", null));
+	}
+
+	@Test
+	public void testEntityIdWithBaseUrl() throws Exception {
+		dao.setSynapseBaseUrl("https://staging.synapse.org/");
+		assertTrue(dao.convertMarkdown("syn12345", null).contains("href=\"https://staging.synapse.org/#!Synapse:syn12345\""));
+	}
+
+	@Test
+	public void testUrl() throws Exception {
+		String expected = "<p><a href=\"https://www.synapse.org/#!Synapse:syn123\" target=\"_blank\" rel=\"noopener noreferrer\">https://www.synapse.org/#!Synapse:syn123</a></p>\n";
+		assertEquals(expected, dao.convertMarkdown("https://www.synapse.org/#!Synapse:syn123", null));
+	}
+
+	@Test
+	public void testRawHtmlEscaped() throws Exception {
+		assertEquals("<p>a &lt;script&gt;alert(1)&lt;/script&gt;</p>\n", dao.convertMarkdown("a <script>alert(1)</script>", null));
+		String block = dao.convertMarkdown("<div onclick=\"alert(1)\">\nsome text\n</div>", null);
+		assertFalse(block.contains("<div"));
+		assertTrue(block.contains("&lt;div"));
+	}
+
+	@Test
+	public void testUnsafeLinkRemoved() throws Exception {
+		assertEquals("<p><a href=\"\" target=\"_blank\" rel=\"noopener noreferrer\">click</a></p>\n",
+				dao.convertMarkdown("[click](javascript:alert(1))", null));
+		assertEquals("<p><img src=\"\" alt=\"x\" /></p>\n", dao.convertMarkdown("![x](data:image/png;base64,AAAA)", null));
+	}
+
+	@Test
+	public void testSanitizeUrl() throws Exception {
+		assertEquals("https://example.org", EmbeddedMarkdownDaoImpl.sanitizeUrl("https://example.org"));
+		assertEquals("mailto:a@example.org", EmbeddedMarkdownDaoImpl.sanitizeUrl("mailto:a@example.org"));
+		assertEquals("/relative:path", EmbeddedMarkdownDaoImpl.sanitizeUrl("/relative:path"));
+		assertEquals("#!Synapse:syn1", EmbeddedMarkdownDaoImpl.sanitizeUrl("#!Synapse:syn1"));
+		assertEquals("page", EmbeddedMarkdownDaoImpl.sanitizeUrl("page"));
+		assertEquals("", EmbeddedMarkdownDaoImpl.sanitizeUrl("JavaScript:alert(1)"));
+		assertEquals("", EmbeddedMarkdownDaoImpl.sanitizeUrl(" \tjavascript:alert(1)"));
+		assertEquals("", EmbeddedMarkdownDaoImpl.sanitizeUrl("vbscript:msgbox(1)"));
+	}
+
+	@Test
+	public void testLineBreak() throws Exception {
+		assertEquals("<blockquote>\n<p>one<br />\ntwo</p>\n</blockquote>\n", dao.convertMarkdown(">one\n>two", null));
+	}
+
+	@Test
+	public void testTableAndStrikethrough() throws Exception {
+		String html = dao.convertMarkdown("a | b\n--- | ---\n~~c~~ | d", null);
+		assertTrue(html.startsWith("<table>"));
+		assertTrue(html.contains("<td><del>c</del></td>"));
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		String first = dao.convertMarkdown("**bold**", null);
+		assertEquals("<p><strong>bold</strong></p>\n", first);
+		assertEquals(0L, dao.getHitCount());
+		assertEquals(1L, dao.getMissCount());
+		// call under test
+		assertSame(first, dao.convertMarkdown("**bold**", "html"));
+		assertEquals(1L, dao.getHitCount());
+		assertEquals(1L, dao.getMissCount());
+	}
+
+	@Test
+	public void testCacheEviction() throws Exception {
+		dao.setMaxCacheEntries(1);
+		dao.convertMarkdown("one", null);
+		dao.convertMarkdown("two", null);
+		dao.convertMarkdown("one", null);
+		assertEquals(0L, dao.getHitCount());
+		assertEquals(3L, dao.getMissCount());
+	}
+
+	@Test
+	public void testCreateCacheKey() {
+		String key = EmbeddedMarkdownDaoImpl.createCacheKey("one", "html");
+		assertTrue(key.startsWith("html:"));
+		assertEquals("html:".length() + 64, key.length());
+		assertEquals(key, EmbeddedMarkdownDaoImpl.createCacheKey("one", "html"));
+		assertNotEquals(key, EmbeddedMarkdownDaoImpl.createCacheKey("two", "html"));
+	}
+}
@@ -15,7 +15,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 public class MarkdownDaoImplIntegrationTest {
 
 	@Autowired
-	MarkdownDao dao;
+	MarkdownDaoImpl dao;
 
 	@Test
 	public void testSimpleText() throws Exception {
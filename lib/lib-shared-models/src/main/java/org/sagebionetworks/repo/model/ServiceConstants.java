@@ -258,6 +258,12 @@ public class ServiceConstants {
 
 	public static final String NEXT_PAGE_TOKEN = "nextPageToken";
 
+	/**
+	 * The maximum number of milliseconds a request for the status or result
+	 * of an asynchronous job will wait for the job to finish.
+	 */
+	public static final String ASYNC_WAIT_MS_PARAM = "waitMs";
+
 	/**
 	 * Default portal endpoint prefixes
 	 */
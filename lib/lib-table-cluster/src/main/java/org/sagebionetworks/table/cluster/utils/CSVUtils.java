@@ -6,6 +6,7 @@ import org.sagebionetworks.repo.model.table.ColumnModel;
 import org.sagebionetworks.repo.model.table.ColumnType;
 import org.sagebionetworks.repo.model.table.CsvTableDescriptor;
 import org.sagebionetworks.repo.model.table.UploadToTablePreviewRequest;
+import org.sagebionetworks.util.csv.CSVCellReader;
 
 import au.com.bytecode.opencsv.CSVReader;
 import au.com.bytecode.opencsv.Constants;
@@ -26,10 +27,36 @@ public class CSVUtils {
 	 * @return
 	 */
 	public static CSVReader createCSVReader(Reader reader, CsvTableDescriptor descriptor, Long linesToSkip) {
+		char[] characters = getSeparatorQuoteAndEscape(descriptor);
+		// Create the reader.
+		return new CSVReader(reader, characters[0], characters[1], characters[2], getSkipLines(linesToSkip));
+	}
+
+	/**
+	 * Create a CSVCellReader with the same parameters as
+	 * {@link #createCSVReader(Reader, CsvTableDescriptor, Long)}.
+	 * 
+	 * @param reader
+	 * @param descriptor
+	 * @param linesToSkip
+	 * @return
+	 */
+	public static CSVCellReader createCSVCellReader(Reader reader, CsvTableDescriptor descriptor, Long linesToSkip) {
+		char[] characters = getSeparatorQuoteAndEscape(descriptor);
+		return new CSVCellReader(reader, characters[0], characters[1], characters[2], getSkipLines(linesToSkip));
+	}
+
+	/**
+	 * The separator, quote and escape characters of the descriptor, or their
+	 * default values.
+	 * 
+	 * @param descriptor
+	 * @return
+	 */
+	private static char[] getSeparatorQuoteAndEscape(CsvTableDescriptor descriptor) {
 		char separator = Constants.DEFAULT_SEPARATOR;
 		char quotechar = Constants.DEFAULT_QUOTE_CHARACTER;
 		char escape = Constants.DEFAULT_ESCAPE_CHARACTER;
-		int skipLines = 0;
 		if(descriptor != null){
 			if (descriptor.getSeparator() != null) {
 				if (descriptor.getSeparator().length() != 1) {
@@ -55,11 +82,14 @@ public class CSVUtils {
 						.charAt(0);
 			}			
 		}
+		return new char[] { separator, quotechar, escape };
+	}
+
+	private static int getSkipLines(Long linesToSkip) {
 		if (linesToSkip != null) {
-			skipLines = linesToSkip.intValue();
+			return linesToSkip.intValue();
 		}
-		// Create the reader.
-		return new CSVReader(reader, separator, quotechar, escape, skipLines);
+		return 0;
 	}
 	
 	/**
@@ -15,6 +15,7 @@ import org.sagebionetworks.repo.model.table.ColumnType;
 import org.sagebionetworks.repo.model.table.CsvTableDescriptor;
 import org.sagebionetworks.repo.model.table.UploadToTablePreviewRequest;
 import org.sagebionetworks.repo.model.table.UploadToTableRequest;
+import org.sagebionetworks.util.csv.CSVCellReader;
 
 import au.com.bytecode.opencsv.CSVReader;
 import au.com.bytecode.opencsv.Constants;
@@ -444,4 +445,33 @@ public class CSVUtilsTest {
 			assertEquals(expected[i], cm[i].getColumnType());
 		}
 	}
+	
+	@Test
+	public void testCreateCSVCellReaderAllDefaults(){
+		UploadToTableRequest body = new UploadToTableRequest();
+		StringReader reader = new StringReader("1,2,3");
+		CSVCellReader cellReader = CSVUtils.createCSVCellReader(reader, body.getCsvTableDescriptor(), body.getLinesToSkip());
+		assertNotNull(cellReader);
+		assertEquals(Constants.DEFAULT_SEPARATOR, cellReader.getSeparator());
+		assertEquals(Constants.DEFAULT_ESCAPE_CHARACTER, cellReader.getEscape());
+		assertEquals(Constants.DEFAULT_QUOTE_CHARACTER, cellReader.getQuoteChar());
+		assertEquals(0, cellReader.getSkipLines());
+	}
+	
+	@Test
+	public void testCreateCSVCellReaderOverrides(){
+		UploadToTableRequest body = new UploadToTableRequest();
+		body.setCsvTableDescriptor(new CsvTableDescriptor());
+		body.getCsvTableDescriptor().setSeparator("\t");
+		body.getCsvTableDescriptor().setEscapeCharacter("\n");
+		body.getCsvTableDescriptor().setQuoteCharacter("'");
+		body.setLinesToSkip(2L);
+		StringReader reader = new StringReader("1,2,3");
+		CSVCellReader cellReader = CSVUtils.createCSVCellReader(reader, body.getCsvTableDescriptor(), body.getLinesToSkip());
+		assertNotNull(cellReader);
+		assertEquals('\t', cellReader.getSeparator());
+		assertEquals('\n', cellReader.getEscape());
+		assertEquals('\'', cellReader.getQuoteChar());
+		assertEquals(2, cellReader.getSkipLines());
+	}
 }
@@ -0,0 +1,163 @@
+package org.sagebionetworks.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A Set of Longs backed by a sorted, duplicate free long[].
+ * 
+ * Lookups are a binary search over primitives rather than hashing boxed
+ * values. Every modification replaces the backing array, so a set created
+ * from another with {@link #SortedLongSet(SortedLongSet)} shares its array
+ * until either one is changed. This makes it cheap to hand out private copies
+ * of a cached set that are expected to be read far more often than modified.
+ *
+ */
+public class SortedLongSet extends AbstractSet<Long> {
+
+	private static final long[] EMPTY = new long[0];
+
+	private long[] values;
+
+	public SortedLongSet() {
+		this.values = EMPTY;
+	}
+
+	/**
+	 * 
+	 * @param values Any values in any order, duplicates are removed.
+	 */
+	public SortedLongSet(long... values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[size - 1]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		this.values = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+	}
+
+	public SortedLongSet(Collection<Long> values) {
+		this(toArray(values));
+	}
+
+	/**
+	 * Create a copy that shares the backing array of the passed set.
+	 * 
+	 * @param other
+	 */
+	public SortedLongSet(SortedLongSet other) {
+		this.values = other.values;
+	}
+
+	public boolean contains(long value) {
+		return Arrays.binarySearch(values, value) >= 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Long && contains(((Long) o).longValue());
+	}
+
+	@Override
+	public boolean add(Long value) {
+		long v = value.longValue();
+		int index = Arrays.binarySearch(values, v);
+		if (index >= 0) {
+			return false;
+		}
+		int insert = -(index + 1);
+		long[] next = new long[values.length + 1];
+		System.arraycopy(values, 0, next, 0, insert);
+		next[insert] = v;
+		System.arraycopy(values, insert, next, insert + 1, values.length - insert);
+		values = next;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Long)) {
+			return false;
+		}
+		int index = Arrays.binarySearch(values, ((Long) o).longValue());
+		if (index < 0) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		values = EMPTY;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * 
+	 * @return A sorted copy of the values.
+	 */
+	public long[] toLongArray() {
+		return values.clone();
+	}
+
+	@Override
+	public Iterator<Long> iterator() {
+		return new Iterator<Long>() {
+
+			// the array being iterated is never modified.
+			long[] snapshot = values;
+			int next = 0;
+			boolean canRemove = false;
+
+			@Override
+			public boolean hasNext() {
+				return next < snapshot.length;
+			}
+
+			@Override
+			public Long next() {
+				if (next >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				canRemove = true;
+				return snapshot[next++];
+			}
+
+			@Override
+			public void remove() {
+				if (!canRemove) {
+					throw new IllegalStateException();
+				}
+				canRemove = false;
+				SortedLongSet.this.remove(snapshot[next - 1]);
+			}
+		};
+	}
+
+	private void removeAt(int index) {
+		long[] next = new long[values.length - 1];
+		System.arraycopy(values, 0, next, 0, index);
+		System.arraycopy(values, index + 1, next, index, values.length - index - 1);
+		values = next;
+	}
+
+	private static long[] toArray(Collection<Long> values) {
+		long[] array = new long[values.size()];
+		int index = 0;
+		for (Long value : values) {
+			array[index++] = value;
+		}
+		return array;
+	}
+}
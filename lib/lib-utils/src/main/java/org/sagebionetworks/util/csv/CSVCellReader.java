@@ -0,0 +1,508 @@
+package org.sagebionetworks.util.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming CSV reader that parses each row into a reusable char buffer
+ * instead of allocating a String[] per row and a String per cell.
+ * <p>
+ * Cells are read by index after each call to {@link #next()}, either as a
+ * {@link CharSequence} view, a String, or converted directly to a long or
+ * double. Views are only valid until the next call to {@link #next()}.
+ * <p>
+ * Rows are split exactly as opencsv's CSVReader does with its default
+ * settings (not strict quotes, leading white space ignored before a quote),
+ * including multi-line quoted cells, the dropping of escape characters that
+ * do not escape anything and the silent loss of an unterminated quoted cell
+ * at the end of the input. {@link #readNext()} can be used as a drop-in
+ * replacement for CSVReader.readNext().
+ *
+ */
+public class CSVCellReader implements Closeable {
+
+	public static final char DEFAULT_SEPARATOR = ',';
+	public static final char DEFAULT_QUOTE_CHARACTER = '"';
+	public static final char DEFAULT_ESCAPE_CHARACTER = '\\';
+
+	static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Any number with at most this many digits fits in a long.
+	 */
+	private static final int MAX_FAST_LONG_DIGITS = 18;
+	/**
+	 * Integers up to 2^53 and powers of ten up to 10^22 are exact doubles, so a
+	 * single division gives the correctly rounded result.
+	 */
+	private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private final Reader reader;
+	private final char separator;
+	private final char quotechar;
+	private final char escape;
+	private final int skipLines;
+	private boolean linesSkipped;
+
+	private final char[] input;
+	private int inputPosition;
+	private int inputLimit;
+	private boolean endOfInput;
+	private boolean skipLineFeed;
+	private long linesRead;
+
+	private char[] line = new char[256];
+	private int lineLength;
+
+	private char[] cells = new char[1024];
+	private int cellsLength;
+	private int[] cellStarts = new int[16];
+	private int[] cellEnds = new int[16];
+	private int cellCount;
+	private CellView[] views = new CellView[16];
+
+	/*
+	 * Like opencsv this is not reset at the end of a line or row.
+	 */
+	private boolean inField;
+
+	public CSVCellReader(Reader reader) {
+		this(reader, DEFAULT_SEPARATOR);
+	}
+
+	public CSVCellReader(Reader reader, char separator) {
+		this(reader, separator, DEFAULT_QUOTE_CHARACTER, DEFAULT_ESCAPE_CHARACTER, 0);
+	}
+
+	/**
+	 *
+	 * @param reader    The source of the CSV. It is the job of the caller to
+	 *                  close this stream when finished.
+	 * @param separator
+	 * @param quotechar
+	 * @param escape
+	 * @param skipLines The number of lines to skip before the first row.
+	 */
+	public CSVCellReader(Reader reader, char separator, char quotechar, char escape, int skipLines) {
+		this(reader, separator, quotechar, escape, skipLines, DEFAULT_BUFFER_SIZE);
+	}
+
+	CSVCellReader(Reader reader, char separator, char quotechar, char escape, int skipLines, int bufferSize) {
+		if (reader == null) {
+			throw new IllegalArgumentException("Reader cannot be null");
+		}
+		if (separator == 0) {
+			throw new UnsupportedOperationException("The separator character must be defined!");
+		}
+		if (isSameCharacter(separator, quotechar) || isSameCharacter(separator, escape)
+				|| isSameCharacter(quotechar, escape)) {
+			throw new UnsupportedOperationException("The separator, quote, and escape characters must be different!");
+		}
+		this.reader = reader;
+		this.separator = separator;
+		this.quotechar = quotechar;
+		this.escape = escape;
+		this.skipLines = skipLines;
+		this.input = new char[bufferSize];
+	}
+
+	private static boolean isSameCharacter(char one, char two) {
+		return one != 0 && one == two;
+	}
+
+	/**
+	 * Read the next row.
+	 *
+	 * @return False if there are no more rows.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		cellCount = 0;
+		cellsLength = 0;
+		if (!linesSkipped) {
+			linesSkipped = true;
+			for (int i = 0; i < skipLines; i++) {
+				readLine();
+			}
+		}
+		boolean pending = false;
+		while (readLine()) {
+			pending = parseLine(pending);
+			if (!pending) {
+				return true;
+			}
+		}
+		// A quoted cell that is not terminated is dropped with the end of the input.
+		return pending && cellCount > 0;
+	}
+
+	/**
+	 * Read the next row as an array.
+	 *
+	 * @return null if there are no more rows.
+	 * @throws IOException
+	 */
+	public String[] readNext() throws IOException {
+		if (!next()) {
+			return null;
+		}
+		String[] row = new String[cellCount];
+		for (int i = 0; i < cellCount; i++) {
+			row[i] = getString(i);
+		}
+		return row;
+	}
+
+	/**
+	 *
+	 * @return The number of cells in the current row.
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return A view of the cell that is only valid until the next call to
+	 *         {@link #next()}.
+	 */
+	public CharSequence getCell(int index) {
+		checkIndex(index);
+		CellView view = views[index];
+		if (view == null) {
+			view = new CellView(index);
+			views[index] = view;
+		}
+		return view;
+	}
+
+	public String getString(int index) {
+		checkIndex(index);
+		return new String(cells, cellStarts[index], cellEnds[index] - cellStarts[index]);
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return True if the cell has no characters.
+	 */
+	public boolean isEmpty(int index) {
+		checkIndex(index);
+		return cellEnds[index] == cellStarts[index];
+	}
+
+	/**
+	 * Parse the cell with the same rules as {@link Long#parseLong(String)}.
+	 *
+	 * @param index
+	 * @return
+	 * @throws NumberFormatException
+	 */
+	public long getLong(int index) {
+		checkIndex(index);
+		int start = cellStarts[index];
+		int end = cellEnds[index];
+		int i = start;
+		boolean negative = false;
+		if (i < end && (cells[i] == '-' || cells[i] == '+')) {
+			negative = cells[i] == '-';
+			i++;
+		}
+		if (i == end || end - i > MAX_FAST_LONG_DIGITS) {
+			return Long.parseLong(getString(index));
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			char c = cells[i];
+			if (c < '0' || c > '9') {
+				// Long.parseLong also accepts non-ASCII digits.
+				return Long.parseLong(getString(index));
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parse the cell with the same rules as {@link Double#parseDouble(String)}.
+	 *
+	 * @param index
+	 * @return
+	 * @throws NumberFormatException
+	 */
+	public double getDouble(int index) {
+		checkIndex(index);
+		int start = cellStarts[index];
+		int end = cellEnds[index];
+		int i = start;
+		boolean negative = false;
+		if (i < end && (cells[i] == '-' || cells[i] == '+')) {
+			negative = cells[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			char c = cells[i];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (point) {
+					fractionDigits++;
+				}
+				if (digits > MAX_FAST_LONG_DIGITS) {
+					return Double.parseDouble(getString(index));
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				// exponents, white space, NaN, Infinity, hex and type suffixes
+				return Double.parseDouble(getString(index));
+			}
+		}
+		if (digits == 0 || mantissa > MAX_EXACT_DOUBLE_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+			return Double.parseDouble(getString(index));
+		}
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 *
+	 * @return The number of physical lines read so far, including skipped lines
+	 *         and the lines of multi-line cells.
+	 */
+	public long getLinesRead() {
+		return linesRead;
+	}
+
+	public char getSeparator() {
+		return separator;
+	}
+
+	public char getQuoteChar() {
+		return quotechar;
+	}
+
+	public char getEscape() {
+		return escape;
+	}
+
+	public int getSkipLines() {
+		return skipLines;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= cellCount) {
+			throw new IndexOutOfBoundsException("Cell index: " + index + " row size: " + cellCount);
+		}
+	}
+
+	/**
+	 * Read the next physical line into the line buffer. Lines end with \n, \r
+	 * or \r\n.
+	 *
+	 * @return False at the end of the input.
+	 * @throws IOException
+	 */
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		boolean started = false;
+		while (true) {
+			if (inputPosition >= inputLimit && !fill()) {
+				if (started) {
+					linesRead++;
+				}
+				return started;
+			}
+			if (skipLineFeed) {
+				skipLineFeed = false;
+				if (input[inputPosition] == '\n') {
+					inputPosition++;
+					continue;
+				}
+			}
+			started = true;
+			int start = inputPosition;
+			while (inputPosition < inputLimit) {
+				char c = input[inputPosition];
+				if (c == '\n' || c == '\r') {
+					appendLine(start, inputPosition);
+					inputPosition++;
+					skipLineFeed = c == '\r';
+					linesRead++;
+					return true;
+				}
+				inputPosition++;
+			}
+			appendLine(start, inputPosition);
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (endOfInput) {
+			return false;
+		}
+		int read;
+		do {
+			read = reader.read(input, 0, input.length);
+		} while (read == 0);
+		if (read < 0) {
+			endOfInput = true;
+			return false;
+		}
+		inputPosition = 0;
+		inputLimit = read;
+		return true;
+	}
+
+	private void appendLine(int start, int end) {
+		int length = end - start;
+		if (lineLength + length > line.length) {
+			char[] grown = new char[Math.max(line.length * 2, lineLength + length)];
+			System.arraycopy(line, 0, grown, 0, lineLength);
+			line = grown;
+		}
+		System.arraycopy(input, start, line, lineLength, length);
+		lineLength += length;
+	}
+
+	/**
+	 * Split the current line into cells. This follows CSVParser.parseLine() of
+	 * opencsv step by step.
+	 *
+	 * @param pending True if the line continues a quoted cell.
+	 * @return True if a quoted cell continues on the next line.
+	 */
+	private boolean parseLine(boolean pending) {
+		final char[] l = line;
+		final int n = lineLength;
+		boolean inQuotes = pending;
+		if (!pending) {
+			startCell();
+		}
+		for (int i = 0; i < n; i++) {
+			char c = l[i];
+			if (c == escape) {
+				if ((inQuotes || inField) && n > i + 1 && (l[i + 1] == quotechar || l[i + 1] == escape)) {
+					appendCell(l[i + 1]);
+					i++;
+				}
+			} else if (c == quotechar) {
+				if ((inQuotes || inField) && n > i + 1 && l[i + 1] == quotechar) {
+					appendCell(l[i + 1]);
+					i++;
+				} else {
+					// the tricky case of an embedded quote in the middle: a,bc"d"ef,g
+					if (i > 2 && l[i - 1] != separator && n > i + 1 && l[i + 1] != separator) {
+						if (cellsLength > cellStarts[cellCount] && isCurrentCellWhiteSpace()) {
+							cellsLength = cellStarts[cellCount];
+						} else {
+							appendCell(c);
+						}
+					}
+					inQuotes = !inQuotes;
+				}
+				inField = !inField;
+			} else if (c == separator && !inQuotes) {
+				endCell();
+				startCell();
+				inField = false;
+			} else {
+				appendCell(c);
+				inField = true;
+			}
+		}
+		if (inQuotes) {
+			appendCell('\n');
+			return true;
+		}
+		endCell();
+		return false;
+	}
+
+	private boolean isCurrentCellWhiteSpace() {
+		for (int i = cellStarts[cellCount]; i < cellsLength; i++) {
+			if (!Character.isWhitespace(cells[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void startCell() {
+		if (cellCount == cellStarts.length) {
+			int size = cellStarts.length * 2;
+			int[] starts = new int[size];
+			int[] ends = new int[size];
+			CellView[] grownViews = new CellView[size];
+			System.arraycopy(cellStarts, 0, starts, 0, cellCount);
+			System.arraycopy(cellEnds, 0, ends, 0, cellCount);
+			System.arraycopy(views, 0, grownViews, 0, cellCount);
+			cellStarts = starts;
+			cellEnds = ends;
+			views = grownViews;
+		}
+		cellStarts[cellCount] = cellsLength;
+	}
+
+	private void endCell() {
+		cellEnds[cellCount] = cellsLength;
+		cellCount++;
+	}
+
+	private void appendCell(char c) {
+		if (cellsLength == cells.length) {
+			char[] grown = new char[cells.length * 2];
+			System.arraycopy(cells, 0, grown, 0, cellsLength);
+			cells = grown;
+		}
+		cells[cellsLength++] = c;
+	}
+
+	/**
+	 * A view of one cell of the current row.
+	 */
+	private class CellView implements CharSequence {
+
+		private final int index;
+
+		CellView(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int length() {
+			return cellEnds[index] - cellStarts[index];
+		}
+
+		@Override
+		public char charAt(int offset) {
+			if (offset < 0 || offset >= length()) {
+				throw new IndexOutOfBoundsException("Offset: " + offset);
+			}
+			return cells[cellStarts[index] + offset];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return getString(index);
+		}
+	}
+}
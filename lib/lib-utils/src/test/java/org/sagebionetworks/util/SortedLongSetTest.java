@@ -0,0 +1,76 @@
+package org.sagebionetworks.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SortedLongSetTest {
+
+	@Test
+	public void testSortsAndRemovesDuplicates() {
+		SortedLongSet set = new SortedLongSet(5L, 1L, 3L, 1L, 5L);
+		assertEquals(3, set.size());
+		assertArrayEquals(new long[] { 1L, 3L, 5L }, set.toLongArray());
+		assertTrue(set.contains(3L));
+		assertTrue(set.contains(Long.valueOf(5L)));
+		assertFalse(set.contains(2L));
+		assertFalse(set.contains("1"));
+	}
+
+	@Test
+	public void testEqualsHashSet() {
+		Set<Long> expected = new HashSet<>(Arrays.asList(7L, -2L, 100L));
+		SortedLongSet set = new SortedLongSet(expected);
+		assertEquals(expected, set);
+		assertEquals(set, expected);
+		assertEquals(expected.hashCode(), set.hashCode());
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		SortedLongSet set = new SortedLongSet();
+		assertTrue(set.add(4L));
+		assertTrue(set.add(2L));
+		assertTrue(set.add(9L));
+		assertFalse(set.add(4L));
+		assertArrayEquals(new long[] { 2L, 4L, 9L }, set.toLongArray());
+		assertTrue(set.remove(4L));
+		assertFalse(set.remove(4L));
+		assertFalse(set.remove("2"));
+		assertArrayEquals(new long[] { 2L, 9L }, set.toLongArray());
+		set.clear();
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		SortedLongSet original = new SortedLongSet(1L, 2L);
+		SortedLongSet copy = new SortedLongSet(original);
+		copy.add(3L);
+		copy.remove(1L);
+		assertArrayEquals(new long[] { 1L, 2L }, original.toLongArray());
+		assertArrayEquals(new long[] { 2L, 3L }, copy.toLongArray());
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		SortedLongSet set = new SortedLongSet(1L, 2L, 3L);
+		Iterator<Long> it = set.iterator();
+		assertThrows(IllegalStateException.class, () -> it.remove());
+		while (it.hasNext()) {
+			if (it.next() % 2 == 1) {
+				it.remove();
+			}
+		}
+		assertArrayEquals(new long[] { 2L }, set.toLongArray());
+	}
+}
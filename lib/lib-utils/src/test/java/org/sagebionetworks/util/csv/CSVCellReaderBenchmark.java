@@ -0,0 +1,104 @@
+package org.sagebionetworks.util.csv;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+/**
+ * Compares the time to read and convert a table upload shaped CSV (a long, a
+ * double, a date, a string and a quoted string containing separators) with
+ * the CSVReader against the CSVCellReader. This is not run as part of the
+ * build:
+ * 
+ * java org.sagebionetworks.util.csv.CSVCellReaderBenchmark [megabytes]
+ *
+ */
+public class CSVCellReaderBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 1024L;
+		File file = File.createTempFile("CSVCellReaderBenchmark", ".csv");
+		file.deleteOnExit();
+		long rows = writeFile(file, megabytes * 1024L * 1024L);
+		System.out.println(String.format("file: %d MB, rows: %d", file.length() / (1024L * 1024L), rows));
+		// Alternate the readers so neither benefits from a warmer page cache.
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			long checksum = readWithCSVReader(file);
+			report("CSVReader", start, file, checksum);
+			start = System.nanoTime();
+			checksum = readWithCSVCellReader(file);
+			report("CSVCellReader", start, file, checksum);
+		}
+	}
+
+	private static long writeFile(File file, long targetBytes) throws Exception {
+		Random random = new Random(7);
+		long rows = 0;
+		try (BufferedWriter writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+			writer.write("id,score,createdOn,name,description\n");
+			long written = 0;
+			StringBuilder line = new StringBuilder();
+			while (written < targetBytes) {
+				line.setLength(0);
+				line.append(rows).append(',');
+				line.append(random.nextDouble() * 1000.0).append(',');
+				line.append(1500000000000L + random.nextInt(Integer.MAX_VALUE)).append(',');
+				line.append("name").append(random.nextInt(100000)).append(',');
+				line.append("\"a, b and \"\"c\"\" ").append(random.nextInt()).append("\"\n");
+				writer.write(line.toString());
+				written += line.length();
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	private static long readWithCSVReader(File file) throws Exception {
+		long checksum = 0;
+		try (CSVReader reader = new CSVReader(open(file))) {
+			reader.readNext();
+			String[] row;
+			while ((row = reader.readNext()) != null) {
+				checksum += Long.parseLong(row[0]);
+				checksum += (long) Double.parseDouble(row[1]);
+				checksum += Long.parseLong(row[2]);
+				checksum += row[3].length() + row[4].length();
+			}
+		}
+		return checksum;
+	}
+
+	private static long readWithCSVCellReader(File file) throws Exception {
+		long checksum = 0;
+		try (CSVCellReader reader = new CSVCellReader(open(file))) {
+			reader.next();
+			while (reader.next()) {
+				checksum += reader.getLong(0);
+				checksum += (long) reader.getDouble(1);
+				checksum += reader.getLong(2);
+				checksum += reader.getCell(3).length() + reader.getCell(4).length();
+			}
+		}
+		return checksum;
+	}
+
+	private static Reader open(File file) throws Exception {
+		return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+	}
+
+	private static void report(String name, long start, File file, long checksum) {
+		long elapsedMs = Math.max(1L, (System.nanoTime() - start) / 1_000_000L);
+		System.out.println(String.format("%s: %d ms, %d MB/s (checksum %d)", name, elapsedMs,
+				file.length() / 1024L * 1000L / 1024L / elapsedMs, checksum));
+	}
+}
@@ -0,0 +1,141 @@
+package org.sagebionetworks.util.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+public class CSVCellReaderTest {
+
+	@Test
+	public void testSimpleRows() throws IOException {
+		CSVCellReader reader = new CSVCellReader(new StringReader("a,b,c\n1,,3"));
+		assertTrue(reader.next());
+		assertEquals(3, reader.getCellCount());
+		assertEquals("a", reader.getString(0));
+		assertEquals("c", reader.getCell(2).toString());
+		assertTrue(reader.next());
+		assertEquals(1L, reader.getLong(0));
+		assertTrue(reader.isEmpty(1));
+		assertEquals(3.0, reader.getDouble(2));
+		assertFalse(reader.next());
+		assertEquals(2L, reader.getLinesRead());
+	}
+
+	@Test
+	public void testQuotedMultiLineCell() throws IOException {
+		CSVCellReader reader = new CSVCellReader(new StringReader("\"a,\"\"b\"\"\r\nc\",d\r\ne"));
+		assertArrayEquals(new String[] { "a,\"b\"\nc", "d" }, reader.readNext());
+		assertArrayEquals(new String[] { "e" }, reader.readNext());
+		assertNull(reader.readNext());
+		assertEquals(3L, reader.getLinesRead());
+	}
+
+	@Test
+	public void testSkipLinesAndSeparator() throws IOException {
+		CSVCellReader reader = new CSVCellReader(new StringReader("skip\n1\t2"), '\t', '"', '\\', 1);
+		assertArrayEquals(new String[] { "1", "2" }, reader.readNext());
+		assertNull(reader.readNext());
+	}
+
+	@Test
+	public void testCellView() throws IOException {
+		CSVCellReader reader = new CSVCellReader(new StringReader("abc,d"));
+		reader.next();
+		CharSequence cell = reader.getCell(0);
+		assertEquals(3, cell.length());
+		assertEquals('b', cell.charAt(1));
+		assertEquals("bc", cell.subSequence(1, 3));
+		assertThrows(IndexOutOfBoundsException.class, () -> cell.charAt(3));
+		assertThrows(IndexOutOfBoundsException.class, () -> reader.getString(2));
+	}
+
+	@Test
+	public void testGetLongMatchesParseLong() throws IOException {
+		String[] values = new String[] { "0", "-0", "+12", "-9223372036854775808", "9223372036854775807",
+				"9223372036854775808", "123456789012345678", "1.5", "", "-", " 1", "abc" };
+		for (String value : values) {
+			CSVCellReader reader = new CSVCellReader(new StringReader("\"" + value + "\""));
+			reader.next();
+			try {
+				long expected = Long.parseLong(value);
+				assertEquals(expected, reader.getLong(0), value);
+			} catch (NumberFormatException e) {
+				assertThrows(NumberFormatException.class, () -> reader.getLong(0), value);
+			}
+		}
+	}
+
+	@Test
+	public void testGetDoubleMatchesParseDouble() throws IOException {
+		String[] values = new String[] { "0", "-0.0", "1.", ".5", "+2.25", "0.1", "0.30000000000000004",
+				"9007199254740993", "123456789.123456789", "1e5", "NaN", "-Infinity", " 1.5 ", "", ".", "abc" };
+		for (String value : values) {
+			CSVCellReader reader = new CSVCellReader(new StringReader("\"" + value + "\""));
+			reader.next();
+			try {
+				double expected = Double.parseDouble(value);
+				assertEquals(expected, reader.getDouble(0), value);
+			} catch (NumberFormatException e) {
+				assertThrows(NumberFormatException.class, () -> reader.getDouble(0), value);
+			}
+		}
+		Random random = new Random(123);
+		for (int i = 0; i < 10000; i++) {
+			String value = String.format("%." + random.nextInt(10) + "f", (random.nextDouble() - 0.5) * 1e6);
+			CSVCellReader reader = new CSVCellReader(new StringReader("\"" + value + "\""));
+			reader.next();
+			assertEquals(Double.parseDouble(value), reader.getDouble(0), value);
+		}
+	}
+
+	@Test
+	public void testSameCharacters() {
+		assertThrows(UnsupportedOperationException.class,
+				() -> new CSVCellReader(new StringReader(""), ',', ',', '\\', 0));
+	}
+
+	/**
+	 * Rows must be split exactly as the CSVReader splits them, including for
+	 * rows that span the end of the read buffer.
+	 */
+	@Test
+	public void testMatchesCSVReader() throws IOException {
+		char[] alphabet = new char[] { 'a', '1', '.', ' ', '\t', ',', '"', '\\', '\n', '\r' };
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder builder = new StringBuilder();
+			int length = random.nextInt(30);
+			for (int j = 0; j < length; j++) {
+				builder.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String csv = builder.toString();
+			int skipLines = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+			int bufferSize = 1 + random.nextInt(8);
+			List<String> expected = new ArrayList<>();
+			CSVReader csvReader = new CSVReader(new StringReader(csv), ',', '"', '\\', skipLines);
+			String[] row;
+			while ((row = csvReader.readNext()) != null) {
+				expected.add(String.join("|", row) + "#" + row.length);
+			}
+			List<String> actual = new ArrayList<>();
+			CSVCellReader cellReader = new CSVCellReader(new StringReader(csv), ',', '"', '\\', skipLines, bufferSize);
+			while ((row = cellReader.readNext()) != null) {
+				actual.add(String.join("|", row) + "#" + row.length);
+			}
+			assertEquals(expected, actual, csv);
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package org.sagebionetworks.asynchronous.workers.changes;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,12 +16,24 @@ import org.sagebionetworks.workers.util.aws.message.MessageDrivenRunner;
 import org.sagebionetworks.workers.util.aws.message.RecoverableMessageException;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
 
 /**
  * A message driven runner that can read a batch of change messages and
  * forwarded each message to the provided worker.
  * 
+ * When a batch runner fails with a {@link RecoverableMessageException} the
+ * whole batch is re-queued with a delay, as the failure is expected to clear
+ * up on its own. Any other failure is assumed to be caused by some of the
+ * messages, so the batch is split in halves that are retried in-process until
+ * the failing messages are isolated. Only the messages that still fail on
+ * their own are re-queued, using batch sends.
+ * 
  * @author jhill
  *
  */
@@ -27,9 +42,30 @@ public class ChangeMessageBatchProcessor implements MessageDrivenRunner {
 	static private Logger log = LogManager
 			.getLogger(ChangeMessageBatchProcessor.class);
 
+	/**
+	 * The maximum number of entries in a single SQS send batch.
+	 */
+	public static final int MAX_SEND_BATCH_SIZE = 10;
+	/**
+	 * The default maximum number of in-process retry runs for a single failed batch.
+	 */
+	public static final int DEFAULT_MAX_RETRY_RUNS = 32;
+	/**
+	 * The default delay before re-queued messages become visible again.
+	 */
+	public static final int DEFAULT_REQUEUE_DELAY_SECONDS = 30;
+
 	private AmazonSQS awsSQSClient;
 	private String queueUrl;
 	private ChangeMessageRunner runner;
+	private int maxRetryRuns = DEFAULT_MAX_RETRY_RUNS;
+	private int requeueDelaySeconds = DEFAULT_REQUEUE_DELAY_SECONDS;
+
+	private AtomicLong failedBatchCount = new AtomicLong(0);
+	private AtomicLong retryRunCount = new AtomicLong(0);
+	private AtomicLong retriedMessageCount = new AtomicLong(0);
+	private AtomicLong requeuedMessageCount = new AtomicLong(0);
+	private AtomicLong deadLetterCount = new AtomicLong(0);
 
 	public ChangeMessageBatchProcessor(AmazonSQS awsSQSClient,
 			String queueName, ChangeMessageRunner runner) {
@@ -38,6 +74,66 @@ public class ChangeMessageBatchProcessor implements MessageDrivenRunner {
 		this.runner = runner;
 	}
 
+	/**
+	 * The maximum number of in-process retry runs used to isolate the failing
+	 * messages of a single batch. Once exhausted, the messages that have not been
+	 * isolated are re-queued.
+	 * 
+	 * @param maxRetryRuns
+	 */
+	public void setMaxRetryRuns(int maxRetryRuns) {
+		this.maxRetryRuns = maxRetryRuns;
+	}
+
+	/**
+	 * The delay before re-queued messages can be received again.
+	 * 
+	 * @param requeueDelaySeconds
+	 */
+	public void setRequeueDelaySeconds(int requeueDelaySeconds) {
+		this.requeueDelaySeconds = requeueDelaySeconds;
+	}
+
+	/**
+	 * The number of batches that failed as a whole.
+	 * @return
+	 */
+	public long getFailedBatchCount() {
+		return failedBatchCount.get();
+	}
+
+	/**
+	 * The number of in-process runs of a part of a failed batch.
+	 * @return
+	 */
+	public long getRetryRunCount() {
+		return retryRunCount.get();
+	}
+
+	/**
+	 * The number of messages that were run again in-process, counted once per run.
+	 * @return
+	 */
+	public long getRetriedMessageCount() {
+		return retriedMessageCount.get();
+	}
+
+	/**
+	 * The number of messages that were sent back to the queue.
+	 * @return
+	 */
+	public long getRequeuedMessageCount() {
+		return requeuedMessageCount.get();
+	}
+
+	/**
+	 * The number of messages that could not be sent back to the queue and are lost.
+	 * @return
+	 */
+	public long getDeadLetterCount() {
+		return deadLetterCount.get();
+	}
+
 	@Override
 	public void run(final ProgressCallback progressCallback,
 			final Message message) throws RecoverableMessageException,
@@ -62,25 +158,122 @@ public class ChangeMessageBatchProcessor implements MessageDrivenRunner {
 			throws RecoverableMessageException, Exception {
 		try{
 			batchRunner.run(progressCallback, batch);
+		} catch (RecoverableMessageException e) {
+			if (batch.size() == 1) {
+				// Let the container handle retry for single messages.
+				throw e;
+			}
+			// the batch can be retried as is once the cause clears up.
+			failedBatchCount.incrementAndGet();
+			requeue(batch);
+			log.info("Batch of " + batch.size() + " change messages re-queued. Cause: " + e.getMessage());
 		} catch (Exception e) {
-			//if part of the batch fails for any reason, put everything back onto the queue as individual batched messages and retry later
-
 			if (batch.size() == 1) {
 				// Let the container handle retry for single messages.
 				throw e;
-			} else {
-				// Push each single message back onto the queue
-				for(ChangeMessage message: batch){
-					// Add the message back to the queue as a single message
-					awsSQSClient.sendMessage(queueUrl,
-							EntityFactory.createJSONStringForEntity(message));
-				}
 			}
+			// if part of the batch fails, isolate the failing messages and put only those back onto the queue.
+			failedBatchCount.incrementAndGet();
+			List<ChangeMessage> toRequeue = new LinkedList<ChangeMessage>();
+			int[] budget = new int[] { maxRetryRuns };
+			long retriedBefore = retriedMessageCount.get();
+			bisect(progressCallback, batch, batchRunner, budget, toRequeue);
+			requeue(toRequeue);
+			log.info("Batch of " + batch.size() + " change messages failed: re-ran "
+					+ (retriedMessageCount.get() - retriedBefore) + " messages in " + (maxRetryRuns - budget[0])
+					+ " runs and re-queued " + toRequeue.size() + " messages. Cause: " + e.getMessage());
 		} catch (Throwable e) {
 			log.error("Failed on Batch: " + batch.toString(), e);
 		}
 	}
 
+	/**
+	 * Split a failed batch in halves and run each half. Halves that fail are split
+	 * again until a single failing message is isolated. Messages that still fail
+	 * on their own, halves that fail with a {@link RecoverableMessageException},
+	 * and messages that were not isolated before the retry budget ran out are
+	 * added to the re-queue list.
+	 * 
+	 * @param progressCallback
+	 * @param failed           A batch that failed as a whole.
+	 * @param batchRunner
+	 * @param budget           The remaining number of retry runs.
+	 * @param toRequeue
+	 */
+	void bisect(ProgressCallback progressCallback, List<ChangeMessage> failed,
+			BatchChangeMessageDrivenRunner batchRunner, int[] budget, List<ChangeMessage> toRequeue) {
+		if (failed.size() < 2) {
+			toRequeue.addAll(failed);
+			return;
+		}
+		int middle = failed.size() / 2;
+		List<List<ChangeMessage>> halves = new ArrayList<List<ChangeMessage>>(2);
+		halves.add(new ArrayList<ChangeMessage>(failed.subList(0, middle)));
+		halves.add(new ArrayList<ChangeMessage>(failed.subList(middle, failed.size())));
+		for (List<ChangeMessage> half : halves) {
+			if (budget[0] < 1) {
+				toRequeue.addAll(half);
+				continue;
+			}
+			budget[0]--;
+			retryRunCount.incrementAndGet();
+			retriedMessageCount.addAndGet(half.size());
+			try {
+				batchRunner.run(progressCallback, half);
+			} catch (RecoverableMessageException e) {
+				toRequeue.addAll(half);
+			} catch (Exception e) {
+				bisect(progressCallback, half, batchRunner, budget, toRequeue);
+			}
+		}
+	}
+
+	/**
+	 * Send each change back to the queue as its own message, using batch sends.
+	 * Entries rejected by a batch send are sent one at a time. Each message is
+	 * delayed by the re-queue delay.
+	 * 
+	 * @param toRequeue
+	 * @throws JSONObjectAdapterException
+	 */
+	void requeue(List<ChangeMessage> toRequeue) throws JSONObjectAdapterException {
+		List<ChangeMessage> sendBatch = new ArrayList<ChangeMessage>(MAX_SEND_BATCH_SIZE);
+		for (ChangeMessage change : toRequeue) {
+			sendBatch.add(change);
+			if (sendBatch.size() == MAX_SEND_BATCH_SIZE) {
+				sendBatch(sendBatch);
+				sendBatch.clear();
+			}
+		}
+		if (!sendBatch.isEmpty()) {
+			sendBatch(sendBatch);
+		}
+	}
+
+	private void sendBatch(List<ChangeMessage> changes) throws JSONObjectAdapterException {
+		List<SendMessageBatchRequestEntry> entries = new ArrayList<SendMessageBatchRequestEntry>(changes.size());
+		for (int i = 0; i < changes.size(); i++) {
+			entries.add(new SendMessageBatchRequestEntry("" + i,
+					EntityFactory.createJSONStringForEntity(changes.get(i))).withDelaySeconds(requeueDelaySeconds));
+		}
+		SendMessageBatchResult result = awsSQSClient.sendMessageBatch(new SendMessageBatchRequest(queueUrl, entries));
+		int requeued = changes.size();
+		if (result != null && result.getFailed() != null) {
+			for (BatchResultErrorEntry failed : result.getFailed()) {
+				ChangeMessage change = changes.get(Integer.parseInt(failed.getId()));
+				try {
+					awsSQSClient.sendMessage(new SendMessageRequest(queueUrl, EntityFactory.createJSONStringForEntity(change))
+							.withDelaySeconds(requeueDelaySeconds));
+				} catch (Exception e) {
+					requeued--;
+					deadLetterCount.incrementAndGet();
+					log.error("Failed to re-queue Change Number: " + change.getChangeNumber(), e);
+				}
+			}
+		}
+		requeuedMessageCount.addAndGet(requeued);
+	}
+
 	/**
 	 * Run each messages from the batch separately.
 	 * @param progressCallback
@@ -93,6 +286,7 @@ public class ChangeMessageBatchProcessor implements MessageDrivenRunner {
 			final ProgressCallback progressCallback,
 			List<ChangeMessage> batch, ChangeMessageDrivenRunner runner)
 			throws JSONObjectAdapterException, RecoverableMessageException {
+		List<ChangeMessage> toRequeue = new LinkedList<ChangeMessage>();
 		// Run each batch
 		for (ChangeMessage change : batch) {
 			try {
@@ -104,8 +298,7 @@ public class ChangeMessageBatchProcessor implements MessageDrivenRunner {
 					throw e;
 				} else {
 					// Add the message back to the queue as a single message
-					awsSQSClient.sendMessage(queueUrl,
-							EntityFactory.createJSONStringForEntity(change));
+					toRequeue.add(change);
 				}
 			} catch (Throwable e) {
 				log.error(
@@ -113,5 +306,6 @@ public class ChangeMessageBatchProcessor implements MessageDrivenRunner {
 						e);
 			}
 		}
+		requeue(toRequeue);
 	}
 }
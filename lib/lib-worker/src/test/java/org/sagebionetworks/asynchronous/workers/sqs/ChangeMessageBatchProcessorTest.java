@@ -1,13 +1,17 @@
 package org.sagebionetworks.asynchronous.workers.sqs;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyListOf;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -29,8 +33,13 @@ import org.sagebionetworks.schema.adapter.org.json.EntityFactory;
 import org.sagebionetworks.workers.util.aws.message.RecoverableMessageException;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.GetQueueUrlResult;
 import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
 
 public class ChangeMessageBatchProcessorTest {
 
@@ -102,15 +111,13 @@ public class ChangeMessageBatchProcessorTest {
 		processor.run(mockProgressCallback, awsMessage);
 		verify(mockRunner, times(2)).run(any(ProgressCallback.class),
 				any(ChangeMessage.class));
-		verify(mockAwsSQSClient).sendMessage(queueUrl,
-				EntityFactory.createJSONStringForEntity(one));
-		verify(mockAwsSQSClient).sendMessage(queueUrl,
-				EntityFactory.createJSONStringForEntity(two));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(one, two));
+		verify(mockAwsSQSClient, never()).sendMessage(anyString(), anyString());
 	}
-	
+
 	/**
-	 * When a batch processor fails with RecoverableMessageException, each
-	 * change message should be restored to the queue individually.  
+	 * When a batch processor fails with a RecoverableMessageException the
+	 * whole batch is re-queued without running any part of it again.
 	 * 
 	 * @throws RecoverableMessageException
 	 * @throws Exception
@@ -121,16 +128,167 @@ public class ChangeMessageBatchProcessorTest {
 		processor = new ChangeMessageBatchProcessor(mockAwsSQSClient,
 				queueName, mockBatchRunner);
 		// setup RecoverableMessageException failures
+		doThrow(new RecoverableMessageException()).when(mockBatchRunner).run(
+				any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		// call under test
+		processor.run(mockProgressCallback, awsMessage);
+		verify(mockBatchRunner, times(1)).run(any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(one, two));
+		assertEquals(1L, processor.getFailedBatchCount());
+		assertEquals(0L, processor.getRetryRunCount());
+		assertEquals(2L, processor.getRequeuedMessageCount());
+	}
+	
+	/**
+	 * When a batch processor fails for every message, each
+	 * change message should be restored to the queue individually.  
+	 * 
+	 * @throws RecoverableMessageException
+	 * @throws Exception
+	 */
+	@Test
+	public void testFailedBatchWithBatchProcessor() throws RecoverableMessageException,
+			Exception {
+		processor = new ChangeMessageBatchProcessor(mockAwsSQSClient,
+				queueName, mockBatchRunner);
+		// setup non-recoverable failures
 		doThrow(new Exception()).when(mockBatchRunner).run(
 				any(ProgressCallback.class), anyListOf(ChangeMessage.class));
 		// call under test
 		processor.run(mockProgressCallback, awsMessage);
-		verify(mockBatchRunner).run(any(ProgressCallback.class),
-				anyListOf(ChangeMessage.class));
-		verify(mockAwsSQSClient).sendMessage(queueUrl,
-				EntityFactory.createJSONStringForEntity(one));
-		verify(mockAwsSQSClient).sendMessage(queueUrl,
-				EntityFactory.createJSONStringForEntity(two));
+		// the batch and then each half.
+		verify(mockBatchRunner).run(mockProgressCallback, messageList);
+		verify(mockBatchRunner).run(mockProgressCallback, Arrays.asList(one));
+		verify(mockBatchRunner).run(mockProgressCallback, Arrays.asList(two));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(one, two));
+		assertEquals(1L, processor.getFailedBatchCount());
+		assertEquals(2L, processor.getRetryRunCount());
+		assertEquals(2L, processor.getRetriedMessageCount());
+		assertEquals(2L, processor.getRequeuedMessageCount());
+	}
+
+	/**
+	 * A single poison message in a batch is isolated by splitting the batch and
+	 * is the only message re-queued.
+	 */
+	@Test
+	public void testBatchProcessorIsolatesPoisonMessage() throws RecoverableMessageException, Exception {
+		List<ChangeMessage> batch = createChanges(8);
+		ChangeMessage poison = batch.get(5);
+		processor = new ChangeMessageBatchProcessor(mockAwsSQSClient,
+				queueName, mockBatchRunner);
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Exception {
+				List<ChangeMessage> changes = (List<ChangeMessage>) invocation.getArguments()[1];
+				if(changes.contains(poison)){
+					throw new Exception("poison");
+				}
+				return null;
+			}
+		}).when(mockBatchRunner).run(any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		// call under test
+		processor.run(mockProgressCallback, createBatchMessage(batch));
+		// 8 -> 4+4 -> 2+2 -> 1+1
+		verify(mockBatchRunner, times(7)).run(any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(poison));
+		assertEquals(6L, processor.getRetryRunCount());
+		assertEquals(14L, processor.getRetriedMessageCount());
+		assertEquals(1L, processor.getRequeuedMessageCount());
+	}
+
+	/**
+	 * A half that fails with a RecoverableMessageException is re-queued as is.
+	 */
+	@Test
+	public void testBatchProcessorRecoverableHalf() throws RecoverableMessageException, Exception {
+		List<ChangeMessage> batch = createChanges(4);
+		ChangeMessage poison = batch.get(0);
+		processor = new ChangeMessageBatchProcessor(mockAwsSQSClient,
+				queueName, mockBatchRunner);
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Exception {
+				List<ChangeMessage> changes = (List<ChangeMessage>) invocation.getArguments()[1];
+				if(changes.contains(poison)){
+					throw new Exception("poison");
+				}
+				throw new RecoverableMessageException();
+			}
+		}).when(mockBatchRunner).run(any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		// call under test
+		processor.run(mockProgressCallback, createBatchMessage(batch));
+		// 4 -> 2+2 -> 1+1, only the half with the poison message is split.
+		verify(mockBatchRunner, times(5)).run(any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(batch.toArray(new ChangeMessage[batch.size()])));
+		assertEquals(4L, processor.getRetryRunCount());
+		assertEquals(4L, processor.getRequeuedMessageCount());
+	}
+
+	@Test
+	public void testBatchProcessorRetryBudgetExhausted() throws RecoverableMessageException, Exception {
+		List<ChangeMessage> batch = createChanges(4);
+		processor = new ChangeMessageBatchProcessor(mockAwsSQSClient,
+				queueName, mockBatchRunner);
+		processor.setMaxRetryRuns(1);
+		doThrow(new Exception()).when(mockBatchRunner).run(
+				any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		// call under test
+		processor.run(mockProgressCallback, createBatchMessage(batch));
+		// the batch and only the first half.
+		verify(mockBatchRunner, times(2)).run(any(ProgressCallback.class), anyListOf(ChangeMessage.class));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(batch.toArray(new ChangeMessage[batch.size()])));
+		assertEquals(4L, processor.getRequeuedMessageCount());
+	}
+
+	@Test
+	public void testRequeueMoreThanSendBatchSize() throws Exception {
+		List<ChangeMessage> batch = createChanges(12);
+		// call under test
+		processor.requeue(batch);
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(batch.subList(0, 10).toArray(new ChangeMessage[10])));
+		verify(mockAwsSQSClient).sendMessageBatch(createSendBatchRequest(batch.subList(10, 12).toArray(new ChangeMessage[2])));
+		assertEquals(12L, processor.getRequeuedMessageCount());
+	}
+
+	@Test
+	public void testRequeueWithFailedEntries() throws Exception {
+		SendMessageBatchResult result = new SendMessageBatchResult().withFailed(
+				new BatchResultErrorEntry().withId("1"));
+		when(mockAwsSQSClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(result);
+		SendMessageRequest single = new SendMessageRequest(queueUrl, EntityFactory.createJSONStringForEntity(two))
+				.withDelaySeconds(ChangeMessageBatchProcessor.DEFAULT_REQUEUE_DELAY_SECONDS);
+		doThrow(new IllegalStateException()).when(mockAwsSQSClient).sendMessage(single);
+		// call under test
+		processor.requeue(messageList);
+		verify(mockAwsSQSClient).sendMessage(single);
+		assertEquals(1L, processor.getRequeuedMessageCount());
+		assertEquals(1L, processor.getDeadLetterCount());
+	}
+
+	List<ChangeMessage> createChanges(int count) {
+		List<ChangeMessage> changes = new ArrayList<ChangeMessage>(count);
+		for (int i = 0; i < count; i++) {
+			ChangeMessage change = new ChangeMessage();
+			change.setChangeType(ChangeType.UPDATE);
+			change.setChangeNumber((long) i);
+			change.setObjectId("syn" + i);
+			changes.add(change);
+		}
+		return changes;
+	}
+
+	Message createBatchMessage(List<ChangeMessage> changes) throws Exception {
+		ChangeMessages messages = new ChangeMessages();
+		messages.setList(changes);
+		return MessageUtils.createTopicMessage(messages, "topic:arn", "id", "handle");
+	}
+
+	SendMessageBatchRequest createSendBatchRequest(ChangeMessage... changes) throws Exception {
+		List<SendMessageBatchRequestEntry> entries = new ArrayList<SendMessageBatchRequestEntry>();
+		for (int i = 0; i < changes.length; i++) {
+			entries.add(new SendMessageBatchRequestEntry("" + i, EntityFactory.createJSONStringForEntity(changes[i]))
+					.withDelaySeconds(ChangeMessageBatchProcessor.DEFAULT_REQUEUE_DELAY_SECONDS));
+		}
+		return new SendMessageBatchRequest(queueUrl, entries);
 	}
 
 	@Test(expected = RecoverableMessageException.class)
@@ -2,6 +2,7 @@ package org.sagebionetworks.logging.s3;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
@@ -36,6 +37,32 @@ public interface LogDAO {
 	 * @throws IOException 
 	 */
 	public LogReader getLogFileReader(String key) throws IOException;
+
+	/**
+	 * Get a reader that starts reading a log at the given offset of the compressed file.
+	 * The offset must be the start of a gzip member, see {@link #getLogIndex(String)}.
+	 * @param key
+	 * @param offset
+	 * @return
+	 * @throws IOException
+	 */
+	public LogReader getLogFileReader(String key, long offset) throws IOException;
+
+	/**
+	 * Save the sparse time stamp to offset index of a log file.
+	 * @param logKey
+	 * @param index
+	 * @throws IOException
+	 */
+	public void saveLogIndex(String logKey, List<LogIndexEntry> index) throws IOException;
+
+	/**
+	 * Get the sparse time stamp to offset index of a log file.
+	 * @param logKey
+	 * @return The index ordered by time stamp or null if the log does not have an index.
+	 * @throws IOException
+	 */
+	public List<LogIndexEntry> getLogIndex(String logKey) throws IOException;
 	
 	/**
 	 * Download a log to the passed destiantion file.
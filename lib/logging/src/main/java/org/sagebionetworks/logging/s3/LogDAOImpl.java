@@ -1,9 +1,13 @@
 package org.sagebionetworks.logging.s3;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.logging.log4j.LogManager;
@@ -70,6 +74,8 @@ public class LogDAOImpl implements LogDAO {
 	public void deleteLogFile(String key) {
 		// Delete a log file by its key
 		s3Client.deleteObject(bucketName, key);
+		// and its index if it has one.
+		s3Client.deleteObject(bucketName, LogKeyUtils.getIndexKey(key));
 	}
 
 	/**
@@ -107,6 +113,49 @@ public class LogDAOImpl implements LogDAO {
 		return new LogReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(s3Ob.getObjectContent()))));
 	}
 
+	@Override
+	public LogReader getLogFileReader(String key, long offset) throws IOException {
+		S3Object s3Ob = s3Client.getObject(new GetObjectRequest(this.bucketName, key).withRange(offset));
+		return new LogReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(s3Ob.getObjectContent()))));
+	}
+
+	@Override
+	public void saveLogIndex(String logKey, List<LogIndexEntry> index) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for(LogIndexEntry entry: index){
+			builder.append(entry.getTimeStamp());
+			builder.append('\t');
+			builder.append(entry.getOffset());
+			builder.append('\n');
+		}
+		byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+		ObjectMetadata om = new ObjectMetadata();
+		om.setContentType("text/tab-separated-values");
+		om.setContentLength(bytes.length);
+		s3Client.putObject(bucketName, LogKeyUtils.getIndexKey(logKey), new ByteArrayInputStream(bytes), om);
+	}
+
+	@Override
+	public List<LogIndexEntry> getLogIndex(String logKey) throws IOException {
+		String indexKey = LogKeyUtils.getIndexKey(logKey);
+		if(!s3Client.doesObjectExist(bucketName, indexKey)){
+			return null;
+		}
+		S3Object s3Ob = s3Client.getObject(bucketName, indexKey);
+		List<LogIndexEntry> index = new ArrayList<LogIndexEntry>();
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(s3Ob.getObjectContent(), StandardCharsets.UTF_8))){
+			String line;
+			while((line = reader.readLine()) != null){
+				if(line.isEmpty()){
+					continue;
+				}
+				String[] split = line.split("\t");
+				index.add(new LogIndexEntry(Long.parseLong(split[0]), Long.parseLong(split[1])));
+			}
+		}
+		return index;
+	}
+
 	@Override
 	public ObjectListing listAllStackInstanceLogs(String marker) {
 		// List all of the objects in this bucket with the stack instance prefix string and the provided marker.
@@ -0,0 +1,57 @@
+package org.sagebionetworks.logging.s3;
+
+/**
+ * An entry of the sparse index of a collated log file. The offset is the
+ * position in the compressed file of a gzip member that starts with a log
+ * entry at the given time stamp, so a reader can start decompressing from that
+ * offset instead of scanning the file from the start.
+ * 
+ */
+public class LogIndexEntry {
+
+	private long timeStamp;
+	private long offset;
+
+	public LogIndexEntry(long timeStamp, long offset) {
+		this.timeStamp = timeStamp;
+		this.offset = offset;
+	}
+
+	public long getTimeStamp() {
+		return timeStamp;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (offset ^ (offset >>> 32));
+		result = prime * result + (int) (timeStamp ^ (timeStamp >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LogIndexEntry other = (LogIndexEntry) obj;
+		if (offset != other.offset)
+			return false;
+		if (timeStamp != other.timeStamp)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "LogIndexEntry [timeStamp=" + timeStamp + ", offset=" + offset + "]";
+	}
+}
@@ -12,6 +12,10 @@ public class LogKeyUtils {
 	static final String INSTANCE_PREFIX_TEMPLATE = "%1$09d";
 	static final String DATE_TEMPLATE = "%1$04d-%2$02d-%3$02d";
 	static final String KEY_TEMPLATE = "%1$s/%2$s/%3$s/%4$02d-%5$02d-%6$02d-%7$03d-%8$s.log.gz";
+	/**
+	 * Index files are stored outside of the stack instance prefix so they are not listed as logs.
+	 */
+	static final String INDEX_KEY_PREFIX = "index/";
 	/**
 	 * This is the date format we write to the logs: 2013-08-31 17:06:42,368
 	 */
@@ -103,6 +107,15 @@ public class LogKeyUtils {
 		return String.format(DATE_TEMPLATE, year, month, day);
 	}
 	
+	/**
+	 * Get the key of the sparse index of the given log file.
+	 * @param logKey
+	 * @return
+	 */
+	public static String getIndexKey(String logKey){
+		return INDEX_KEY_PREFIX + logKey;
+	}
+
 	/**
 	 * Get the prefix used for this instance.
 	 * @param instance
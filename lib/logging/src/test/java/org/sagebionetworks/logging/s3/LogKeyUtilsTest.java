@@ -1,6 +1,7 @@
 package org.sagebionetworks.logging.s3;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.text.ParseException;
@@ -104,4 +105,12 @@ public class LogKeyUtilsTest {
 		long timeStamp = LogKeyUtils.getTimestampFromTypeDateHour(typeDateHour);
 		assertEquals(cal.getTimeInMillis(), timeStamp);
 	}
+	@Test
+	public void testGetIndexKey(){
+		String key = LogKeyUtils.createKey(1, "repo", new int[]{2013,8,31,17,6,42,368}, "abc");
+		String indexKey = LogKeyUtils.getIndexKey(key);
+		assertEquals("index/"+key, indexKey);
+		assertFalse(indexKey.startsWith(LogKeyUtils.getInstancePrefix(1)));
+	}
+
 }
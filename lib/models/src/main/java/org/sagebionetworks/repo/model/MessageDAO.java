@@ -85,6 +85,14 @@ public interface MessageDAO {
 	 */
 	public void createMessageStatus_SameTransaction(String messageId, String userId, MessageStatusType status);
 	
+	/**
+	 * Marks each of the given users as a recipient of a message with a single batch insert
+	 * The status of the message defaults to UNREAD
+	 * 
+	 * Note: This operation occurs in a separate transaction (REQUIRES_NEW)
+	 */
+	public void createMessageStatus_NewTransaction(String messageId, List<String> userIds, MessageStatusType status);
+	
 
 	/**
 	 * Marks a message within the recipient's inbox with the given status, doing so in a new, isolated transaction
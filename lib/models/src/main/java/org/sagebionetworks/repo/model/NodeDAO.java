@@ -74,6 +74,15 @@ public interface NodeDAO {
 	 */
 	public Node getNode(String id);
 	
+	/**
+	 * Fetch the current version of each of the given nodes in a single call.
+	 * Nodes that do not exist are not included in the results.
+	 * 
+	 * @param nodeIds
+	 * @return
+	 */
+	public List<Node> getNodes(List<Long> nodeIds);
+	
 	/**
 	 * Get the node for a given version number.
 	 * @param id
@@ -142,6 +151,16 @@ public interface NodeDAO {
 	 * @throws NotFoundException
 	 */
 	Annotations getUserAnnotations(String id);
+	
+	/**
+	 * Get the user annotations of the current version of each of the given
+	 * entities in a single call.
+	 * 
+	 * @param ids
+	 * @return Map of entity id to its annotations. Entities that do not exist
+	 *         are not included.
+	 */
+	Map<Long, Annotations> getUserAnnotationsForCurrentVersions(List<Long> ids);
 
 	/**
 	 * Get user annotations for a specific version of the entity
@@ -457,6 +476,15 @@ public interface NodeDAO {
 	 * @return
 	 */
 	public String getBenefactor(String beneficiaryId);
+	
+	/**
+	 * Get the benefactor of each of the given nodes in a single call.
+	 * 
+	 * @param nodeIds
+	 * @return Map of node id to the id of its benefactor. Nodes that do not
+	 *         exist are not included.
+	 */
+	public Map<Long, Long> getBenefactors(List<Long> nodeIds);
 
 	/**
 	 * Return a set of fileHandleIds that associated with entityId and appear in the provided list.
@@ -1,5 +1,8 @@
 package org.sagebionetworks.repo.model.dao;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.sagebionetworks.repo.model.principal.PrincipalAlias;
 import org.sagebionetworks.repo.web.NotFoundException;
 
@@ -32,5 +35,13 @@ public interface NotificationEmailDAO {
 	 * @throws NotFoundException 
 	 */
 	public String getNotificationEmailForPrincipal(long principalId) throws NotFoundException;
+	
+	/**
+	 * 
+	 * @param principalIds
+	 * @return the notification email for each of the given principals, keyed by principal ID.
+	 * Principals without a notification email are not included in the result.
+	 */
+	public Map<Long, String> getNotificationEmailsForPrincipals(Set<Long> principalIds);
 
 }
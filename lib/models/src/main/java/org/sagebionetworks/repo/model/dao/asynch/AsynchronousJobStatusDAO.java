@@ -3,6 +3,7 @@ package org.sagebionetworks.repo.model.dao.asynch;
 import java.util.List;
 
 import org.sagebionetworks.repo.model.DatastoreException;
+import org.sagebionetworks.repo.model.asynch.AsynchJobState;
 import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
 import org.sagebionetworks.repo.model.asynch.AsynchronousRequestBody;
 import org.sagebionetworks.repo.model.asynch.AsynchronousResponseBody;
@@ -91,6 +92,38 @@ public interface AsynchronousJobStatusDAO {
 	 * Note: This method will never return more than five results.
 	 */
 	public List<AsynchronousJobStatus> findCompletedJobStatus(String requestHash, Long userId);
+
+	/**
+	 * Find the IDs of the most recently changed jobs with jobState=COMPLETE
+	 * for the given request hash, started by any user.
+	 * 
+	 * @param requestHash
+	 * @return Will return an empty list if there are no matches.
+	 * 
+	 * Note: This method will never return more than five results.
+	 */
+	public List<String> findCompletedJobIds(String requestHash);
+
+	/**
+	 * Get only the state of a job. Unlike {@link #getJobStatus(String)} this
+	 * does not read or decode the request and response bodies.
+	 * 
+	 * @param jobId
+	 * @return
+	 * @throws NotFoundException If the job does not exist.
+	 */
+	public AsynchJobState getJobState(String jobId) throws NotFoundException;
+
+	/**
+	 * Get the state and progress of a job without its request and response
+	 * bodies. Use this when the bodies are not needed as it avoids reading and
+	 * decoding the compressed bodies.
+	 * 
+	 * @param jobId
+	 * @return
+	 * @throws NotFoundException If the job does not exist.
+	 */
+	public AsynchronousJobStatus getJobStatusWithoutBodies(String jobId) throws NotFoundException;
 	
 
 }
@@ -104,4 +104,32 @@ public interface DiscussionReplyDAO {
 	 * @return
 	 */
 	public List<String> getActiveAuthors(long threadId);
+
+	/**
+	 * Get the number of replies counted by the author statistics of a thread.
+	 * The author statistics are maintained with each reply, so this matches the
+	 * number of replies unless the thread predates them.
+	 * 
+	 * @param threadId
+	 * @return
+	 */
+	public long getAuthorStatsReplyCount(long threadId);
+
+	/**
+	 * Check whether the reply statistics of a thread are maintained with its
+	 * replies. They are not if the thread has no statistics yet, or if its
+	 * replies predate the author statistics.
+	 * 
+	 * @param threadId
+	 * @return
+	 */
+	public boolean isThreadStatsCurrent(long threadId);
+
+	/**
+	 * Recompute the reply count, last activity, author statistics and active
+	 * authors of a thread from its replies.
+	 * 
+	 * @param threadId
+	 */
+	public void rebuildThreadStats(long threadId);
 }
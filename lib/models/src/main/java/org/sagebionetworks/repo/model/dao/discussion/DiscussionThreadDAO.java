@@ -168,7 +168,8 @@ public interface DiscussionThreadDAO {
 			DiscussionFilter filter, Set<Long> projectIds);
 
 	/**
-	 * Insert a batch of references from a thread to an entity
+	 * Insert a batch of references from a thread to an entity, and add the new
+	 * ones to the thread counts of the referenced entities.
 	 * 
 	 * @param refs
 	 */
@@ -186,10 +187,23 @@ public interface DiscussionThreadDAO {
 	 * @param entityIds
 	 * @param projectIds
 	 * @return number of threads, within a range or projects, that mentioned a
-	 *  particular entity, for a list of entityIds.
+	 *  particular entity, for a list of entityIds. Deleted threads are not counted.
 	 */
 	public EntityThreadCounts getThreadCounts(List<Long> entityIds, Set<Long> projectIds);
 
+	/**
+	 * Recount the thread counts of the entities, in the next page of
+	 * referenced entities, whose reference or thread counts do not match the
+	 * reference table, such as entities with migrated references or with
+	 * threads deleted or restored without updating the counts.
+	 * 
+	 * @param afterEntityId Only entities with a larger ID are checked.
+	 * @param limit The maximum number of entities to check.
+	 * @return The ID of the last entity checked, or null if no entity is
+	 *         referenced after the given ID.
+	 */
+	public Long reconcileEntityThreadCounts(long afterEntityId, long limit);
+
 	/**
 	 * @param entityId
 	 * @param filter
@@ -206,6 +220,14 @@ public interface DiscussionThreadDAO {
 	 */
 	public void updateThreadStats(List<DiscussionThreadStat> stats);
 
+	/**
+	 * Update the number of views in the statistic of a thread
+	 * 
+	 * @param threadId
+	 * @param numberOfViews
+	 */
+	public void updateThreadViewStats(long threadId, long numberOfViews);
+
 	/**
 	 * Mark a discussion thread as not deleted
 	 * 
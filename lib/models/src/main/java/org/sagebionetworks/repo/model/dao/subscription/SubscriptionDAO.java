@@ -1,10 +1,12 @@
 package org.sagebionetworks.repo.model.dao.subscription;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 import org.sagebionetworks.repo.model.subscription.Subscription;
 import org.sagebionetworks.repo.model.subscription.SubscriptionObjectType;
+import org.sagebionetworks.util.SortedLongSet;
 
 public interface SubscriptionDAO {
 
@@ -75,6 +77,29 @@ public interface SubscriptionDAO {
 	public List<Subscriber> getAllEmailSubscribers(String objectId,
 			SubscriptionObjectType objectType);
 
+	/**
+	 * Get the IDs of all subscribers for a given topic. The IDs are cached
+	 * until the subscriptions of the topic change.
+	 * 
+	 * @param objectId
+	 * @param objectType
+	 * @return
+	 */
+	public SortedLongSet getSubscriberIds(String objectId, SubscriptionObjectType objectType);
+
+	/**
+	 * Get the email subscribers of a given topic from the given subscribers.
+	 * Used to page through the email subscribers of a topic with the IDs from
+	 * {@link #getSubscriberIds(String, SubscriptionObjectType)}.
+	 * 
+	 * @param objectId
+	 * @param objectType
+	 * @param subscriberIds
+	 * @return
+	 */
+	public List<Subscriber> getEmailSubscribers(String objectId, SubscriptionObjectType objectType,
+			Collection<Long> subscriberIds);
+
 	/**
 	 * Retrieve all projects that a user has thread subscriptions to
 	 * 
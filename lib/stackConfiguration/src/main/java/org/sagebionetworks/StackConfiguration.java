@@ -290,6 +290,17 @@ public interface StackConfiguration {
 	 */
 	public int getTrashCanMaxTrashable();
 
+	/**
+	 * The maximum number of emails a single repository instance sends per
+	 * second, shared by all of its email send paths.
+	 */
+	public double getMaxEmailsPerSecond();
+
+	/**
+	 * The number of threads used to fetch the parts of entity bundles.
+	 */
+	public int getEntityBundleThreadPoolSize();
+
 	/**
 	 * Stack and instance: <stack>-<stack_instance>
 	 * 
@@ -802,4 +813,12 @@ public interface StackConfiguration {
 	 */
 	public int getMaximumMonthsForMonthlyStatistics();
 
+	/**
+	 * When true new blobs are written with the blob codecs instead of compressed
+	 * XML. Only enable once every running stack can read the codec blobs.
+	 * 
+	 * @return
+	 */
+	public boolean getBlobCodecWriteEnabled();
+
 }
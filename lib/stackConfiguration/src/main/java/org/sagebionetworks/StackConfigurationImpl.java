@@ -479,6 +479,21 @@ public class StackConfigurationImpl implements StackConfiguration {
 		return Integer.parseInt(configuration.getProperty("org.sagebionetworks.repo.manager.trash.max.trashable"));
 	}
 
+	/**
+	 * The maximum number of emails a single repository instance sends per
+	 * second, shared by all of its email send paths.
+	 */
+	public double getMaxEmailsPerSecond() {
+		return Double.parseDouble(configuration.getProperty("org.sagebionetworks.email.max.per.second"));
+	}
+
+	/**
+	 * The number of threads used to fetch the parts of entity bundles.
+	 */
+	public int getEntityBundleThreadPoolSize() {
+		return Integer.parseInt(configuration.getProperty("org.sagebionetworks.entity.bundle.thread.pool.size"));
+	}
+
 	/**
 	 * Stack and instance: <stack>-<stack_instance>
 	 * 
@@ -1193,4 +1208,9 @@ public class StackConfigurationImpl implements StackConfiguration {
 	public int getMaximumMonthsForMonthlyStatistics() {
 		return  Integer.parseInt(configuration.getProperty("org.sagebionetworks.statistics.monthly.max"));
 	}
+
+	@Override
+	public boolean getBlobCodecWriteEnabled() {
+		return Boolean.parseBoolean(configuration.getProperty("org.sagebionetworks.blob.codec.write.enabled"));
+	}
 }
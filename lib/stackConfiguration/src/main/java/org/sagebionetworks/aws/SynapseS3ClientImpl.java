@@ -12,6 +12,7 @@ import org.apache.commons.collections4.map.PassiveExpiringMap;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.BucketCrossOriginConfiguration;
@@ -35,6 +36,8 @@ import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.Region;
 import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import com.amazonaws.util.StringUtils;
 
 /*
@@ -191,6 +194,17 @@ public class SynapseS3ClientImpl implements SynapseS3Client {
 		return getS3ClientForBucket(request.getBucketName()).completeMultipartUpload(request);
 	}
 
+	@Override
+	public UploadPartResult uploadPart(UploadPartRequest request) throws SdkClientException, AmazonServiceException {
+		return getS3ClientForBucket(request.getBucketName()).uploadPart(request);
+	}
+
+	@Override
+	public void abortMultipartUpload(AbortMultipartUploadRequest request)
+			throws SdkClientException, AmazonServiceException {
+		getS3ClientForBucket(request.getBucketName()).abortMultipartUpload(request);
+	}
+
 	@Override
 	public void setBucketWebsiteConfiguration(String bucketName, BucketWebsiteConfiguration configuration)
 			throws SdkClientException, AmazonServiceException {
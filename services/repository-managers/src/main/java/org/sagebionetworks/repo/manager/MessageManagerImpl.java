@@ -4,15 +4,21 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
+import org.sagebionetworks.common.util.progress.ProgressListener;
 import org.sagebionetworks.repo.manager.SendRawEmailRequestBuilder.BodyType;
 import org.sagebionetworks.repo.manager.file.FileHandleManager;
 import org.sagebionetworks.repo.manager.file.FileHandleUrlRequest;
@@ -25,6 +31,7 @@ import org.sagebionetworks.repo.model.AuthorizationConstants.BOOTSTRAP_PRINCIPAL
 import org.sagebionetworks.repo.model.AuthorizationUtils;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.GroupMembersDAO;
+import org.sagebionetworks.repo.model.IdList;
 import org.sagebionetworks.repo.model.MessageDAO;
 import org.sagebionetworks.repo.model.Node;
 import org.sagebionetworks.repo.model.NodeDAO;
@@ -60,6 +67,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
 
 
 public class MessageManagerImpl implements MessageManager {
@@ -83,6 +91,11 @@ public class MessageManagerImpl implements MessageManager {
 	 */
 	protected static final long MAX_NUMBER_OF_RECIPIENTS = 50L;
 	
+	/**
+	 * The number of recipients of a message to a group that are resolved and sent to at a time
+	 */
+	static final long RECIPIENT_PAGE_SIZE = 500L;
+	
 	// Message templates
 	private static final String MESSAGE_TEMPLATE_PASSWORD_CHANGE_CONFIRMATION = "message/PasswordChangeConfirmationTemplate.txt";
 
@@ -133,6 +146,15 @@ public class MessageManagerImpl implements MessageManager {
 	@Autowired
 	private EntityPermissionsManager entityPermissionsManager;
 	
+	/*
+	 * Emails to the members of a group are sent from this pool so a large team is 
+	 * not bound by the latency of each SES call. The rate limiter keeps the pool 
+	 * under the SES sending quota. Both are shared with the other email send paths.
+	 * Injected (IoC).
+	 */
+	private ExecutorService emailSendThreadPool;
+	private RateLimiter emailRateLimiter;
+	
 	public MessageManagerImpl() { };
 	
 	/**
@@ -163,6 +185,24 @@ public class MessageManagerImpl implements MessageManager {
 		this.fileHandleDao = fileHandleDao;
 	}
 	
+	/**
+	 * IoC.
+	 * 
+	 * @param emailSendThreadPool
+	 */
+	public void setEmailSendThreadPool(ExecutorService emailSendThreadPool) {
+		this.emailSendThreadPool = emailSendThreadPool;
+	}
+	
+	/**
+	 * IoC. The limiter of this instance shared by all email send paths.
+	 * 
+	 * @param emailRateLimiter
+	 */
+	public void setEmailRateLimiter(RateLimiter emailRateLimiter) {
+		this.emailRateLimiter = emailRateLimiter;
+	}
+	
 	@Override
 	public MessageToUser getMessage(UserInfo userInfo, String messageId) throws NotFoundException {
 		MessageToUser message = messageDAO.getMessage(messageId);
@@ -449,8 +489,20 @@ public class MessageManagerImpl implements MessageManager {
 			senderDisplayName = null;
 		}
 		
+		BodyType bodyType = getBodyType(mimeType);
+		
+		// Get the principals the sender may message
+		List<UserGroup> permittedRecipients = getPermittedRecipients(userInfo, dto.getRecipients(), errors);
+		
+		// Messages to groups can reach many users, so they are delivered a page at a time
+		if (!singleTransaction && containsGroup(permittedRecipients)) {
+			deliverToGroups(dto, permittedRecipients, messageBody, bodyType, senderUserName, senderDisplayName, progressCallback, errors);
+			messageDAO.updateMessageTransmissionAsComplete(dto.getId());
+			return errors;
+		}
+		
 		// Get the individual recipients
-		Set<String> recipients = expandRecipientSet(userInfo, dto.getRecipients(), errors);
+		Set<String> recipients = expandRecipientSet(permittedRecipients);
 		
 		// Make sure the caller set the boolean correctly
 		if (recipients.size() > 1 && singleTransaction) {
@@ -479,33 +531,11 @@ public class MessageManagerImpl implements MessageManager {
 				// Should emails be sent?
 				if (settings.getSendEmailNotifications() == null || settings.getSendEmailNotifications()) {
 					String email = getEmailForUser(Long.parseLong(userId));
-					SendRawEmailRequestBuilder.BodyType bodyType;
-					if (ContentType.APPLICATION_JSON.getMimeType().equals(mimeType)) {
-						bodyType = SendRawEmailRequestBuilder.BodyType.JSON;
-					} else {
-						boolean isHtml= ContentType.TEXT_HTML.getMimeType().equals(mimeType);
-						bodyType = isHtml ? SendRawEmailRequestBuilder.BodyType.HTML : SendRawEmailRequestBuilder.BodyType.PLAIN_TEXT;
-					}
-
-					SendRawEmailRequest sendRawEmailRequest = new SendRawEmailRequestBuilder()
-						.withRecipientEmail(email)
-						.withSubject(dto.getSubject())
-						.withTo(dto.getTo())
-						.withCc(dto.getCc())
-						.withBcc(dto.getBcc())
-						.withBody(messageBody, bodyType)
-						.withSenderUserName(senderUserName)
-						.withSenderDisplayName(senderDisplayName)
-						.withUserId(userId)
-						.withNotificationUnsubscribeEndpoint(dto.getNotificationUnsubscribeEndpoint())
-						.withUnsubscribeLink(dto.getWithUnsubscribeLink())
-						.withUserProfileSettingEndpoint(dto.getUserProfileSettingEndpoint())
-						.withProfileSettingLink(dto.getWithProfileSettingLink())
-						.withIsNotificationMessage(dto.getIsNotificationMessage())
-						.build();
+					SendRawEmailRequest sendRawEmailRequest = createEmailRequest(dto, messageBody, bodyType,
+							senderUserName, senderDisplayName, userId, email);
 					sesClient.sendRawEmail(sendRawEmailRequest);
 					// Should the message be marked as READ?
-					if (settings.getMarkEmailedMessagesAsRead() != null && settings.getMarkEmailedMessagesAsRead()) {
+					if (isMarkEmailedMessagesAsRead(settings)) {
 						userMessageStatus = MessageStatusType.READ;
 					}
 				}
@@ -523,8 +553,7 @@ public class MessageManagerImpl implements MessageManager {
 					}
 				}
 			} catch (Exception e) {
-				log.info("Error caught while processing message", e);
-				errors.add("Failed while processing message for recipient (" + userId + "): " + e.getMessage());
+				addRecipientError(errors, userId, e);
 			}
 		}
 		
@@ -536,11 +565,273 @@ public class MessageManagerImpl implements MessageManager {
 	/**
 	 * Helper for {@link #processMessage(String, boolean, String)}
 	 * 
-	 * Takes a set of user IDs and expands it into a set of individuals that the user is permitted to message
+	 * Delivers a message to the members of the given groups, and to any individuals among them, 
+	 * a page of recipients at a time. The notification settings, inbox entries and email addresses 
+	 * of each page are handled with one query each, and the emails are sent from a thread pool
+	 * no faster than the configured rate. Progress is logged while the callback is running.
+	 */
+	private void deliverToGroups(MessageToUser dto, List<UserGroup> permittedRecipients, 
+			String messageBody, BodyType bodyType, String senderUserName, String senderDisplayName,
+			ProgressCallback progressCallback, List<String> errors) {
+		Set<String> principalIds = new HashSet<String>();
+		boolean includeAllUsers = false;
+		for (UserGroup ug : permittedRecipients) {
+			principalIds.add(ug.getId());
+			// Note: only admins can pass the authorization check to message the implicit group that contains all users
+			if (BOOTSTRAP_PRINCIPAL.AUTHENTICATED_USERS_GROUP.getPrincipalId().toString().equals(ug.getId())) {
+				includeAllUsers = true;
+			}
+		}
+		
+		Set<String> processed = new HashSet<String>();
+		AtomicLong deliveredCount = new AtomicLong();
+		ProgressListener listener = () -> {
+			log.info("Message " + dto.getId() + " delivered to " + deliveredCount.get() + " recipients so far");
+		};
+		if (progressCallback != null) {
+			progressCallback.addProgressListener(listener);
+		}
+		try {
+			for (long offset = 0;; offset += RECIPIENT_PAGE_SIZE) {
+				Set<String> page = groupMembersDAO.getIndividuals(principalIds, RECIPIENT_PAGE_SIZE, offset);
+				List<String> recipients = new ArrayList<String>(page.size());
+				for (String userId : page) {
+					// a group without members yields a null
+					if (userId != null && processed.add(userId)) {
+						recipients.add(userId);
+					}
+				}
+				deliveredCount.addAndGet(deliverToPage(dto, recipients, messageBody, bodyType, senderUserName, senderDisplayName, errors));
+				if (page.size() < RECIPIENT_PAGE_SIZE) {
+					break;
+				}
+			}
+			if (includeAllUsers) {
+				for (long offset = 0;; offset += RECIPIENT_PAGE_SIZE) {
+					List<UserGroup> page = userGroupDAO.getInRange(offset, offset + RECIPIENT_PAGE_SIZE, true);
+					List<String> recipients = new ArrayList<String>(page.size());
+					for (UserGroup user : page) {
+						if (!isNotEmailRecipient(user.getId()) && processed.add(user.getId())) {
+							recipients.add(user.getId());
+						}
+					}
+					deliveredCount.addAndGet(deliverToPage(dto, recipients, messageBody, bodyType, senderUserName, senderDisplayName, errors));
+					if (page.size() < RECIPIENT_PAGE_SIZE) {
+						break;
+					}
+				}
+			}
+		} finally {
+			if (progressCallback != null) {
+				progressCallback.removeProgressListener(listener);
+			}
+		}
+	}
+	
+	/**
+	 * Helper for {@link #deliverToGroups(MessageToUser, List, String, BodyType, String, String, ProgressCallback, List)}
+	 * 
+	 * Delivers the message to a single page of recipients
+	 * 
+	 * @return The number of recipients the message was delivered to
+	 */
+	private int deliverToPage(MessageToUser dto, List<String> userIds, 
+			String messageBody, BodyType bodyType, String senderUserName, String senderDisplayName, 
+			List<String> errors) {
+		if (userIds.isEmpty()) {
+			return 0;
+		}
+		Map<String, Settings> settingsByUser = getNotificationSettings(userIds, errors);
+		
+		// This marks the users as recipients of the message
+		List<String> recipients = createMessageStatuses(dto.getId(), new ArrayList<String>(settingsByUser.keySet()), errors);
+		
+		// Should emails be sent?
+		Set<Long> emailRecipients = new HashSet<Long>();
+		for (String userId : recipients) {
+			Boolean sendEmailNotifications = settingsByUser.get(userId).getSendEmailNotifications();
+			if (sendEmailNotifications == null || sendEmailNotifications) {
+				emailRecipients.add(Long.parseLong(userId));
+			}
+		}
+		Map<Long, String> emailsByUser = notificationEmailDao.getNotificationEmailsForPrincipals(emailRecipients);
+		Map<String, SendRawEmailRequest> requests = new LinkedHashMap<String, SendRawEmailRequest>();
+		for (String userId : recipients) {
+			if (!emailRecipients.contains(Long.parseLong(userId))) {
+				continue;
+			}
+			try {
+				String email = emailsByUser.get(Long.parseLong(userId));
+				if (email == null) {
+					throw new NotFoundException("Cannot find notification email for " + userId);
+				}
+				requests.put(userId, createEmailRequest(dto, messageBody, bodyType, senderUserName, senderDisplayName, userId, email));
+			} catch (Exception e) {
+				addRecipientError(errors, userId, e);
+			}
+		}
+		
+		// Should the messages be marked as READ?
+		for (String userId : sendEmails(requests, errors)) {
+			if (isMarkEmailedMessagesAsRead(settingsByUser.get(userId))) {
+				try {
+					MessageStatus messageStatus = new MessageStatus();
+					messageStatus.setMessageId(dto.getId());
+					messageStatus.setRecipientId(userId);
+					messageStatus.setStatus(MessageStatusType.READ);
+					messageDAO.updateMessageStatus_NewTransaction(messageStatus);
+				} catch (Exception e) {
+					addRecipientError(errors, userId, e);
+				}
+			}
+		}
+		return recipients.size();
+	}
+	
+	/**
+	 * Get the notification settings of each of the given users with a single query.
+	 * Users without a profile are reported as errors and left out of the result.
+	 */
+	private Map<String, Settings> getNotificationSettings(List<String> userIds, List<String> errors) {
+		List<UserProfile> profiles;
+		try {
+			List<Long> ids = new ArrayList<Long>(userIds.size());
+			for (String userId : userIds) {
+				ids.add(Long.parseLong(userId));
+			}
+			IdList idList = new IdList();
+			idList.setList(ids);
+			profiles = userProfileManager.list(idList).getList();
+		} catch (NotFoundException e) {
+			// At least one user has no profile, so fall back to looking them up one at a time
+			profiles = new ArrayList<UserProfile>(userIds.size());
+			for (String userId : userIds) {
+				try {
+					profiles.add(userProfileManager.getUserProfile(userId));
+				} catch (Exception e2) {
+					addRecipientError(errors, userId, e2);
+				}
+			}
+		}
+		Map<String, Settings> results = new LinkedHashMap<String, Settings>();
+		for (UserProfile profile : profiles) {
+			Settings settings = profile.getNotificationSettings();
+			results.put(profile.getOwnerId(), settings == null ? new Settings() : settings);
+		}
+		return results;
+	}
+	
+	/**
+	 * Marks each of the given users as a recipient of the message with a single batch insert.
+	 * If the batch fails, for example because a user already received the message in an earlier attempt, 
+	 * the users are marked one at a time and the failures are reported as errors.
+	 * 
+	 * @return The users that were marked as recipients of the message
+	 */
+	private List<String> createMessageStatuses(String messageId, List<String> userIds, List<String> errors) {
+		try {
+			messageDAO.createMessageStatus_NewTransaction(messageId, userIds, null);
+			return userIds;
+		} catch (Exception e) {
+			log.info("Batch creation of message statuses failed, retrying one recipient at a time", e);
+		}
+		List<String> created = new ArrayList<String>(userIds.size());
+		for (String userId : userIds) {
+			try {
+				messageDAO.createMessageStatus_NewTransaction(messageId, userId, null);
+				created.add(userId);
+			} catch (Exception e) {
+				addRecipientError(errors, userId, e);
+			}
+		}
+		return created;
+	}
+	
+	/**
+	 * Send the given emails from the thread pool, no faster than the configured
+	 * rate, and wait for all of them to finish. Failures are reported as errors.
+	 * 
+	 * @param requests The emails to send, keyed by recipient
+	 * @return The recipients whose emails were sent
+	 */
+	private Set<String> sendEmails(Map<String, SendRawEmailRequest> requests, List<String> errors) {
+		Map<String, Future<?>> futures = new LinkedHashMap<String, Future<?>>(requests.size());
+		for (Map.Entry<String, SendRawEmailRequest> entry : requests.entrySet()) {
+			SendRawEmailRequest request = entry.getValue();
+			emailRateLimiter.acquire();
+			futures.put(entry.getKey(), emailSendThreadPool.submit(() -> {
+				sesClient.sendRawEmail(request);
+			}));
+		}
+		Set<String> sent = new HashSet<String>();
+		for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+			try {
+				entry.getValue().get();
+				sent.add(entry.getKey());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				addRecipientError(errors, entry.getKey(), e.getCause());
+			}
+		}
+		return sent;
+	}
+	
+	private static void addRecipientError(List<String> errors, String userId, Throwable e) {
+		log.info("Error caught while processing message", e);
+		errors.add("Failed while processing message for recipient (" + userId + "): " + e.getMessage());
+	}
+	
+	private static boolean isMarkEmailedMessagesAsRead(Settings settings) {
+		return settings.getMarkEmailedMessagesAsRead() != null && settings.getMarkEmailedMessagesAsRead();
+	}
+	
+	private static BodyType getBodyType(String mimeType) {
+		if (ContentType.APPLICATION_JSON.getMimeType().equals(mimeType)) {
+			return BodyType.JSON;
+		}
+		boolean isHtml = ContentType.TEXT_HTML.getMimeType().equals(mimeType);
+		return isHtml ? BodyType.HTML : BodyType.PLAIN_TEXT;
+	}
+	
+	private static SendRawEmailRequest createEmailRequest(MessageToUser dto, String messageBody, BodyType bodyType,
+			String senderUserName, String senderDisplayName, String userId, String email) {
+		return new SendRawEmailRequestBuilder()
+				.withRecipientEmail(email)
+				.withSubject(dto.getSubject())
+				.withTo(dto.getTo())
+				.withCc(dto.getCc())
+				.withBcc(dto.getBcc())
+				.withBody(messageBody, bodyType)
+				.withSenderUserName(senderUserName)
+				.withSenderDisplayName(senderDisplayName)
+				.withUserId(userId)
+				.withNotificationUnsubscribeEndpoint(dto.getNotificationUnsubscribeEndpoint())
+				.withUnsubscribeLink(dto.getWithUnsubscribeLink())
+				.withUserProfileSettingEndpoint(dto.getUserProfileSettingEndpoint())
+				.withProfileSettingLink(dto.getWithProfileSettingLink())
+				.withIsNotificationMessage(dto.getIsNotificationMessage())
+				.build();
+	}
+	
+	private static boolean containsGroup(List<UserGroup> principals) {
+		for (UserGroup ug : principals) {
+			if (!ug.getIsIndividual()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Helper for {@link #processMessage(String, boolean, String)}
+	 * 
+	 * Filters the intended recipients down to the principals that the user is permitted to message
 	 */
-	private Set<String> expandRecipientSet(UserInfo userInfo, Set<String> intendedRecipients, List<String> errors) throws NotFoundException {
+	private List<UserGroup> getPermittedRecipients(UserInfo userInfo, Set<String> intendedRecipients, List<String> errors) throws NotFoundException {
 		// From the list of intended recipients, filter out the un-permitted recipients
-		Set<String> recipients = new HashSet<String>();
+		List<UserGroup> permitted = new ArrayList<UserGroup>();
 		for (String principalId : intendedRecipients) {
 			Long principalIdLong = Long.parseLong(principalId);
 			UserGroup ug;
@@ -573,6 +864,20 @@ public class MessageManagerImpl implements MessageManager {
 			}
 			
 			// The principal is a valid recipient
+			permitted.add(ug);
+		}
+		return permitted;
+	}
+	
+	/**
+	 * Helper for {@link #processMessage(String, boolean, String)}
+	 * 
+	 * Takes a set of permitted principals and expands it into a set of individuals
+	 */
+	private Set<String> expandRecipientSet(List<UserGroup> permittedRecipients) {
+		Set<String> recipients = new HashSet<String>();
+		for (UserGroup ug : permittedRecipients) {
+			String principalId = ug.getId();
 			if (ug.getIsIndividual()) {
 				recipients.add(principalId);
 			} else {
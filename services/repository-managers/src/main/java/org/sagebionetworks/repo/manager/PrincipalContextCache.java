@@ -0,0 +1,362 @@
+package org.sagebionetworks.repo.manager;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.sagebionetworks.repo.model.GroupMembersDAO;
+import org.sagebionetworks.repo.model.ObjectType;
+import org.sagebionetworks.repo.model.dbo.dao.DBOChangeDAO;
+import org.sagebionetworks.repo.model.message.ChangeMessage;
+import org.sagebionetworks.repo.model.message.ChangeType;
+import org.sagebionetworks.repo.model.message.TransactionalMessenger;
+import org.sagebionetworks.repo.model.message.TransactionalMessengerObserver;
+import org.sagebionetworks.util.Clock;
+import org.sagebionetworks.util.SortedLongSet;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Least-recently-used cache of the principal data needed to build a UserInfo:
+ * the creation date and the full group set of each user.
+ * 
+ * Entries are dropped when a PRINCIPAL change is committed. A change to a
+ * principal drops that principal, the cached users that are in it and the
+ * cached users that are its members now, since the members added to or removed
+ * from a team are not part of the message. Changes committed by this process
+ * are applied as soon as they are committed. Changes committed by other
+ * instances are found by polling the CHANGES table at most once per poll
+ * interval. A lookup never waits for a poll that is already running, so an
+ * entry can be served for up to about one poll interval after a change was
+ * committed by another instance.
+ * 
+ * A change number is assigned before its transaction commits, so a change can
+ * show up after changes with higher numbers. The poll keeps re-reading every
+ * change number seen during the last commit grace period and skips the
+ * changes it already applied. Nothing is cached during the first grace period
+ * since changes numbered before the first poll are never read.
+ * 
+ * A context loaded while an invalidation happens is not cached: callers read
+ * {@link #getGeneration()} before loading and pass it to
+ * {@link #put(PrincipalContext, long)}.
+ *
+ */
+public class PrincipalContextCache implements TransactionalMessengerObserver {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final long DEFAULT_TIME_TO_LIVE_MS = 60 * 1000L;
+	public static final long DEFAULT_COMMIT_GRACE_MS = 10 * 1000L;
+	public static final long DEFAULT_POLL_INTERVAL_MS = 1000L;
+
+	private static final int CHANGE_PAGE_SIZE = 1000;
+
+	@Autowired
+	private TransactionalMessenger transactionalMessenger;
+	@Autowired
+	private DBOChangeDAO changeDAO;
+	@Autowired
+	private GroupMembersDAO groupMembersDAO;
+	@Autowired
+	private Clock clock;
+
+	private long timeToLiveMS = DEFAULT_TIME_TO_LIVE_MS;
+	private long commitGraceMS = DEFAULT_COMMIT_GRACE_MS;
+	private long pollIntervalMS = DEFAULT_POLL_INTERVAL_MS;
+	private Map<Long, PrincipalContext> contexts = createLruMap(DEFAULT_MAX_ENTRIES);
+
+	private final AtomicLong generation = new AtomicLong();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private volatile long nextPollOn = Long.MIN_VALUE;
+
+	// The following are only accessed while holding the poll lock.
+	private final ReentrantLock pollLock = new ReentrantLock();
+	private final TreeSet<Long> appliedChangeNumbers = new TreeSet<>();
+	/**
+	 * The time of each poll that saw a new highest change number, paired with
+	 * that number.
+	 */
+	private final Deque<long[]> pollMarks = new ArrayDeque<>();
+	private long pollFrom;
+	private long maxChangeNumber;
+	private volatile long initializedOn;
+
+	/**
+	 * This is called by Spring when this bean is created. This is where we
+	 * register this class as an observer of the TransactionalMessenger
+	 */
+	public void initialize() {
+		// We only want to be in the list once
+		transactionalMessenger.removeObserver(this);
+		transactionalMessenger.registerObserver(this);
+		pollLock.lock();
+		try {
+			maxChangeNumber = changeDAO.getCurrentChangeNumber();
+			pollFrom = maxChangeNumber + 1;
+			appliedChangeNumbers.clear();
+			pollMarks.clear();
+			initializedOn = clock.currentTimeMillis();
+			nextPollOn = Long.MIN_VALUE;
+		} finally {
+			pollLock.unlock();
+		}
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param maxEntries
+	 */
+	public void setMaxEntries(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Max entries must be at least one");
+		}
+		this.contexts = createLruMap(maxEntries);
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param timeToLiveMS
+	 */
+	public void setTimeToLiveMS(long timeToLiveMS) {
+		this.timeToLiveMS = timeToLiveMS;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param commitGraceMS The longest time between assigning a change number
+	 *                      and committing its transaction.
+	 */
+	public void setCommitGraceMS(long commitGraceMS) {
+		this.commitGraceMS = commitGraceMS;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param pollIntervalMS The minimum time between two polls of the CHANGES
+	 *                       table.
+	 */
+	public void setPollIntervalMS(long pollIntervalMS) {
+		this.pollIntervalMS = pollIntervalMS;
+	}
+
+	/**
+	 * Applies the principal changes committed by other instances, if the last
+	 * poll is more than a poll interval ago, before looking up the given
+	 * principal.
+	 * 
+	 * @param principalId
+	 * @return null if the principal is not cached or the entry has expired.
+	 */
+	public PrincipalContext get(Long principalId) {
+		pollChanges();
+		PrincipalContext context = contexts.get(principalId);
+		if (context != null && clock.currentTimeMillis() - context.loadedOn < timeToLiveMS) {
+			hitCount.incrementAndGet();
+			return context;
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * The current generation, to be read before loading a context from the
+	 * database.
+	 * 
+	 * @return
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Cache the passed context unless there has been an invalidation since the
+	 * passed generation was read.
+	 * 
+	 * @param context
+	 * @param generationBeforeLoad
+	 */
+	public void put(PrincipalContext context, long generationBeforeLoad) {
+		long now = clock.currentTimeMillis();
+		if (now - initializedOn < commitGraceMS) {
+			// Changes committed late with a number below the first poll are never read.
+			return;
+		}
+		synchronized (contexts) {
+			if (generation.get() == generationBeforeLoad) {
+				context.loadedOn = now;
+				contexts.put(context.getPrincipalId(), context);
+			}
+		}
+	}
+
+	public void invalidate(Long principalId) {
+		synchronized (contexts) {
+			generation.incrementAndGet();
+			contexts.remove(principalId);
+		}
+	}
+
+	/**
+	 * Drop the given principals. The generation changes even if none of them
+	 * are cached, so a context loaded before the change is not cached.
+	 * 
+	 * @param principalIds
+	 */
+	public void invalidate(Collection<Long> principalIds) {
+		synchronized (contexts) {
+			generation.incrementAndGet();
+			contexts.keySet().removeAll(principalIds);
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (contexts) {
+			generation.incrementAndGet();
+			contexts.clear();
+		}
+	}
+
+	@Override
+	public void fireChangeMessage(ChangeMessage message) {
+		if (!ObjectType.PRINCIPAL.equals(message.getObjectType())) {
+			return;
+		}
+		applyChange(message);
+	}
+
+	private void applyChange(ChangeMessage message) {
+		// A new principal has no members yet.
+		if (ChangeType.CREATE.equals(message.getChangeType())) {
+			return;
+		}
+		Long principalId = Long.parseLong(message.getObjectId());
+		Set<Long> affected = new HashSet<>();
+		affected.add(principalId);
+		// The users that were removed from the group are still cached with it.
+		synchronized (contexts) {
+			for (PrincipalContext context : contexts.values()) {
+				if (context.getGroups().contains(principalId.longValue())) {
+					affected.add(context.getPrincipalId());
+				}
+			}
+		}
+		// The users that were added to the group are only known by the database.
+		affected.addAll(groupMembersDAO.getMemberIds(principalId));
+		invalidate(affected);
+	}
+
+	/**
+	 * Apply the PRINCIPAL changes committed since the last poll, unless the last
+	 * poll started less than a poll interval ago. A caller never waits for a
+	 * poll started by another thread.
+	 */
+	private void pollChanges() {
+		long now = clock.currentTimeMillis();
+		if (now < nextPollOn || !pollLock.tryLock()) {
+			return;
+		}
+		try {
+			if (now < nextPollOn) {
+				// another thread polled while this one was checking.
+				return;
+			}
+			nextPollOn = now + pollIntervalMS;
+			long from = pollFrom;
+			List<ChangeMessage> changes;
+			do {
+				changes = changeDAO.listChanges(from, ObjectType.PRINCIPAL, CHANGE_PAGE_SIZE);
+				for (ChangeMessage change : changes) {
+					if (appliedChangeNumbers.add(change.getChangeNumber())) {
+						applyChange(change);
+					}
+					from = Math.max(from, change.getChangeNumber() + 1);
+				}
+			} while (changes.size() == CHANGE_PAGE_SIZE);
+			if (from - 1 > maxChangeNumber) {
+				maxChangeNumber = from - 1;
+				pollMarks.addLast(new long[] { now, maxChangeNumber });
+			}
+			// Every change numbered up to the highest number seen a grace period ago is committed.
+			while (!pollMarks.isEmpty() && now - pollMarks.peekFirst()[0] >= commitGraceMS) {
+				pollFrom = Math.max(pollFrom, pollMarks.pollFirst()[1] + 1);
+			}
+			appliedChangeNumbers.headSet(pollFrom).clear();
+		} finally {
+			pollLock.unlock();
+		}
+	}
+
+	public int size() {
+		return contexts.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	private static Map<Long, PrincipalContext> createLruMap(final int maxEntries) {
+		return Collections.synchronizedMap(new LinkedHashMap<Long, PrincipalContext>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, PrincipalContext> eldest) {
+				return size() > maxEntries;
+			}
+		});
+	}
+
+	/**
+	 * The cached data of a single user. The group set is shared and must be
+	 * copied before it is handed out.
+	 *
+	 */
+	public static class PrincipalContext {
+
+		private final Long principalId;
+		private final Date creationDate;
+		private final SortedLongSet groups;
+		private final boolean isAdmin;
+		private long loadedOn;
+
+		public PrincipalContext(Long principalId, Date creationDate, SortedLongSet groups, boolean isAdmin) {
+			this.principalId = principalId;
+			this.creationDate = creationDate;
+			this.groups = groups;
+			this.isAdmin = isAdmin;
+		}
+
+		public Long getPrincipalId() {
+			return principalId;
+		}
+
+		public Date getCreationDate() {
+			return creationDate;
+		}
+
+		public SortedLongSet getGroups() {
+			return groups;
+		}
+
+		public boolean isAdmin() {
+			return isAdmin;
+		}
+	}
+}
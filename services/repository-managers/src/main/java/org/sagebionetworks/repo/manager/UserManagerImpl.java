@@ -1,11 +1,13 @@
 package org.sagebionetworks.repo.manager;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.sagebionetworks.repo.manager.PrincipalContextCache.PrincipalContext;
 import org.sagebionetworks.repo.manager.principal.NewUserUtils;
 import org.sagebionetworks.repo.manager.team.TeamConstants;
 import org.sagebionetworks.repo.model.auth.AuthenticationDAO;
@@ -31,6 +33,7 @@ import org.sagebionetworks.repo.model.principal.PrincipalAliasDAO;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.sagebionetworks.securitytools.HMACUtils;
+import org.sagebionetworks.util.SortedLongSet;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.google.common.collect.Lists;
@@ -55,6 +58,9 @@ public class UserManagerImpl implements UserManager {
 	@Autowired
 	private NotificationEmailDAO notificationEmailDao;
 	
+	@Autowired
+	private PrincipalContextCache principalContextCache;
+	
 	/**
 	 * Testing purposes only
 	 * Do NOT use in non-test code
@@ -183,27 +189,43 @@ public class UserManagerImpl implements UserManager {
 
 	@Override
 	public UserInfo getUserInfo(Long principalId) throws NotFoundException {
+		PrincipalContext context = principalContextCache.get(principalId);
+		if (context == null) {
+			// Read before loading so a change committed during the load is not cached.
+			long generation = principalContextCache.getGeneration();
+			context = loadPrincipalContext(principalId);
+			principalContextCache.put(context, generation);
+		}
+		UserInfo ui = new UserInfo(context.isAdmin());
+		ui.setId(principalId);
+		ui.setCreationDate(context.getCreationDate() == null ? null : new Date(context.getCreationDate().getTime()));
+		// Each caller gets its own copy of the shared group set.
+		ui.setGroups(new SortedLongSet(context.getGroups()));
+		return ui;
+	}
+
+	private PrincipalContext loadPrincipalContext(Long principalId) throws NotFoundException {
 		UserGroup principal = userGroupDAO.get(principalId);
 		if(!principal.getIsIndividual()) throw new IllegalArgumentException("Principal: "+principalId+" is not a User");
-		// Lookup the user's name
+		List<UserGroup> groupFromDAO = groupMembersDAO.getUsersGroups(principal.getId());
+		long[] groupIds = new long[groupFromDAO.size() + 3];
+		int count = 0;
 		// Check which group(s) of Anonymous, Public, or Authenticated the user belongs to  
-		Set<Long> groups = new HashSet<Long>();
 		boolean isUserAnonymous = AuthorizationUtils.isUserAnonymous(principalId);
 		// Everyone except the anonymous users belongs to "authenticated users"
 		if (!isUserAnonymous) {
 			// All authenticated users belong to the authenticated user group
-			groups.add(BOOTSTRAP_PRINCIPAL.AUTHENTICATED_USERS_GROUP.getPrincipalId());
+			groupIds[count++] = BOOTSTRAP_PRINCIPAL.AUTHENTICATED_USERS_GROUP.getPrincipalId();
 		}
 		
 		// Everyone belongs to their own group and to Public
-		groups.add(principalId);
-		groups.add(BOOTSTRAP_PRINCIPAL.PUBLIC_GROUP.getPrincipalId());
+		groupIds[count++] = principalId;
+		groupIds[count++] = BOOTSTRAP_PRINCIPAL.PUBLIC_GROUP.getPrincipalId();
 		// Add all groups the user belongs to
-		List<UserGroup> groupFromDAO = groupMembersDAO.getUsersGroups(principal.getId());
-		// Add each group
 		for(UserGroup ug: groupFromDAO){
-			groups.add(Long.parseLong(ug.getId()));
+			groupIds[count++] = Long.parseLong(ug.getId());
 		}
+		SortedLongSet groups = new SortedLongSet(Arrays.copyOf(groupIds, count));
 
 		// Check to see if the user is an Admin
 		boolean isAdmin = false;
@@ -211,12 +233,7 @@ public class UserManagerImpl implements UserManager {
 		if(groups.contains(TeamConstants.ADMINISTRATORS_TEAM_ID)){
 			isAdmin = true;
 		}
-		UserInfo ui = new UserInfo(isAdmin);
-		ui.setId(principalId);
-		ui.setCreationDate(principal.getCreationDate());
-		// Put all the pieces together
-		ui.setGroups(groups);
-		return ui;
+		return new PrincipalContext(principalId, principal.getCreationDate(), groups, isAdmin);
 	}
 
 	@WriteTransaction
@@ -227,6 +244,7 @@ public class UserManagerImpl implements UserManager {
 		}
 		
 		userGroupDAO.delete(principalId.toString());
+		principalContextCache.invalidate(principalId);
 	}
 
 	@Override
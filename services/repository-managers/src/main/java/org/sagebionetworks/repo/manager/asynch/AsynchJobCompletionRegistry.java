@@ -0,0 +1,44 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+/**
+ * Allows a request to wait for an asynchronous job to finish rather than
+ * repeatedly reading the full status of the job.
+ * 
+ * A job that finishes on this node wakes its waiters immediately. A job that
+ * finishes on another node (typically a worker) is detected either through
+ * {@link #remoteJobDone(String)}, when a {@link AsynchJobDoneListener}
+ * forwards completions between nodes, or by a cheap periodic check of the
+ * job's state.
+ *
+ */
+public interface AsynchJobCompletionRegistry {
+
+	/**
+	 * Wait for the given job to be complete or failed.
+	 * 
+	 * @param jobId
+	 * @param maxWaitMs The maximum number of milliseconds to wait.
+	 * @return True if the job is done, false if the wait timed out while the
+	 *         job is still processing, or if too many requests are already
+	 *         waiting and this one returned without waiting.
+	 * @throws InterruptedException
+	 */
+	boolean waitForJobDone(String jobId, long maxWaitMs) throws InterruptedException;
+
+	/**
+	 * Called when a job finished on this node. Wakes any local waiters and
+	 * notifies the {@link AsynchJobDoneListener}s.
+	 * 
+	 * @param jobId
+	 */
+	void jobDone(String jobId);
+
+	/**
+	 * Called when a {@link AsynchJobDoneListener} learns that a job finished
+	 * on another node. Only wakes local waiters.
+	 * 
+	 * @param jobId
+	 */
+	void remoteJobDone(String jobId);
+
+}
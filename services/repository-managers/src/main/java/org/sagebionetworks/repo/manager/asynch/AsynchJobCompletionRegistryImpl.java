@@ -0,0 +1,220 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.sagebionetworks.repo.model.asynch.AsynchJobState;
+import org.sagebionetworks.repo.model.dao.asynch.AsynchronousJobStatusDAO;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * In-memory registry of the requests waiting on asynchronous jobs. All
+ * requests waiting on the same job share a single latch that is released
+ * when the job is done.
+ * 
+ * While waiting, the state of the job is re-checked with a single column
+ * read, starting at {@link #MIN_RECHECK_INTERVAL_MS} and backing off to
+ * maxRecheckIntervalMs. This covers jobs finished on another node when no
+ * {@link AsynchJobDoneListener} forwards completions, without decoding the
+ * request and response bodies on every check.
+ * 
+ * Each waiting request holds a servlet request thread, so at most maxWaiters
+ * requests wait at the same time. Any further request returns immediately
+ * and gets the current status of the job.
+ *
+ */
+public class AsynchJobCompletionRegistryImpl implements AsynchJobCompletionRegistry {
+
+	static private Log log = LogFactory.getLog(AsynchJobCompletionRegistryImpl.class);
+
+	public static final long MIN_RECHECK_INTERVAL_MS = 50L;
+	public static final long DEFAULT_MAX_RECHECK_INTERVAL_MS = 1000L;
+	public static final int DEFAULT_MAX_WAITERS = 50;
+
+	@Autowired
+	AsynchronousJobStatusDAO asynchJobStatusDao;
+
+	private final ConcurrentHashMap<String, Waiter> waiters = new ConcurrentHashMap<>();
+	private List<AsynchJobDoneListener> listeners = Collections.emptyList();
+	private long maxRecheckIntervalMs = DEFAULT_MAX_RECHECK_INTERVAL_MS;
+	private Semaphore waiterPermits = new Semaphore(DEFAULT_MAX_WAITERS);
+
+	private final AtomicLong waitCount = new AtomicLong();
+	private final AtomicLong notifiedCount = new AtomicLong();
+	private final AtomicLong stateCheckCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * Injected.
+	 * 
+	 * @param listeners Listeners that forward completions to other nodes.
+	 */
+	public void setListeners(List<AsynchJobDoneListener> listeners) {
+		this.listeners = listeners == null ? Collections.<AsynchJobDoneListener>emptyList() : listeners;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param maxRecheckIntervalMs The longest time between checks of the job's state.
+	 */
+	public void setMaxRecheckIntervalMs(long maxRecheckIntervalMs) {
+		if (maxRecheckIntervalMs < MIN_RECHECK_INTERVAL_MS) {
+			throw new IllegalArgumentException("Max recheck interval must be at least " + MIN_RECHECK_INTERVAL_MS + " ms");
+		}
+		this.maxRecheckIntervalMs = maxRecheckIntervalMs;
+	}
+
+	/**
+	 * Injected.
+	 * 
+	 * @param maxWaiters The maximum number of requests that can wait at the
+	 *                   same time. This must stay well below the number of
+	 *                   servlet request threads.
+	 */
+	public void setMaxWaiters(int maxWaiters) {
+		if (maxWaiters < 0) {
+			throw new IllegalArgumentException("Max waiters cannot be negative");
+		}
+		this.waiterPermits = new Semaphore(maxWaiters);
+	}
+
+	@Override
+	public boolean waitForJobDone(String jobId, long maxWaitMs) throws InterruptedException {
+		if (jobId == null) {
+			throw new IllegalArgumentException("JobId cannot be null");
+		}
+		Semaphore permits = waiterPermits;
+		if (!permits.tryAcquire()) {
+			// Too many requests are already waiting.
+			rejectedCount.incrementAndGet();
+			return false;
+		}
+		waitCount.incrementAndGet();
+		Waiter waiter = acquire(jobId);
+		try {
+			long deadline = System.currentTimeMillis() + maxWaitMs;
+			long interval = MIN_RECHECK_INTERVAL_MS;
+			while (true) {
+				// Checked after registering so a completion cannot be missed.
+				if (isDone(jobId)) {
+					return true;
+				}
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0L) {
+					timeoutCount.incrementAndGet();
+					return false;
+				}
+				if (waiter.latch.await(Math.min(remaining, interval), TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+				interval = Math.min(interval * 2L, maxRecheckIntervalMs);
+			}
+		} finally {
+			release(jobId);
+			permits.release();
+		}
+	}
+
+	@Override
+	public void jobDone(String jobId) {
+		remoteJobDone(jobId);
+		for (AsynchJobDoneListener listener : listeners) {
+			try {
+				listener.jobDone(jobId);
+			} catch (Exception e) {
+				// Waiters on other nodes will still see the state change.
+				log.warn("Failed to forward completion of job: " + jobId, e);
+			}
+		}
+	}
+
+	@Override
+	public void remoteJobDone(String jobId) {
+		Waiter waiter = waiters.get(jobId);
+		if (waiter != null) {
+			notifiedCount.incrementAndGet();
+			waiter.latch.countDown();
+		}
+	}
+
+	/**
+	 * @return The number of requests currently waiting.
+	 */
+	public int getWaitingJobCount() {
+		return waiters.size();
+	}
+
+	/**
+	 * @return The total number of waits.
+	 */
+	public long getWaitCount() {
+		return waitCount.get();
+	}
+
+	/**
+	 * @return The number of requests that did not wait because too many
+	 *         requests were already waiting.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return The number of jobs whose waiters were woken by a notification.
+	 */
+	public long getNotifiedCount() {
+		return notifiedCount.get();
+	}
+
+	/**
+	 * @return The number of state-only reads made while waiting.
+	 */
+	public long getStateCheckCount() {
+		return stateCheckCount.get();
+	}
+
+	/**
+	 * @return The number of waits that timed out.
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	private boolean isDone(String jobId) {
+		stateCheckCount.incrementAndGet();
+		return !AsynchJobState.PROCESSING.equals(asynchJobStatusDao.getJobState(jobId));
+	}
+
+	private Waiter acquire(String jobId) {
+		return waiters.compute(jobId, (String key, Waiter existing) -> {
+			Waiter waiter = existing == null ? new Waiter() : existing;
+			waiter.references++;
+			return waiter;
+		});
+	}
+
+	private void release(String jobId) {
+		waiters.computeIfPresent(jobId, (String key, Waiter existing) -> {
+			existing.references--;
+			return existing.references > 0 ? existing : null;
+		});
+	}
+
+	/**
+	 * Shared by all requests waiting on the same job. References are only
+	 * changed within the map's compute methods.
+	 */
+	private static class Waiter {
+		final CountDownLatch latch = new CountDownLatch(1);
+		int references = 0;
+	}
+}
@@ -0,0 +1,17 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+/**
+ * Hook for forwarding the completion of an asynchronous job to other nodes.
+ * The receiving nodes should call
+ * {@link AsynchJobCompletionRegistry#remoteJobDone(String)}.
+ *
+ */
+public interface AsynchJobDoneListener {
+
+	/**
+	 * Called after the job's final state has been committed.
+	 * 
+	 * @param jobId
+	 */
+	void jobDone(String jobId);
+}
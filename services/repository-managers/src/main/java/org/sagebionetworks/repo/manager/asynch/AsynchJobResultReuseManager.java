@@ -0,0 +1,36 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+import org.sagebionetworks.repo.model.UserInfo;
+import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
+import org.sagebionetworks.repo.model.asynch.CacheableRequestBody;
+
+/**
+ * Reuses the result of a job completed by any user for an identical request.
+ * 
+ * The request hash of a {@link CacheableRequestBody} includes the etag of the
+ * table, so a job with a matching hash was run against the current version of
+ * the table and its result is what a new job would produce for any caller
+ * that can read the table.
+ *
+ */
+public interface AsynchJobResultReuseManager {
+
+	/**
+	 * Find a completed job for the same request and, if the caller can read
+	 * the table, complete a new job for the caller with the same result.
+	 * 
+	 * @param user
+	 * @param requestHash The current hash of the request.
+	 * @param body
+	 * @return The caller's completed job or null if no result can be reused.
+	 */
+	AsynchronousJobStatus reuseCompletedJob(UserInfo user, String requestHash, CacheableRequestBody body);
+
+	/**
+	 * 
+	 * @return The number of jobs that were completed with the result of
+	 *         another user's job instead of being started.
+	 */
+	long getReusedCount();
+
+}
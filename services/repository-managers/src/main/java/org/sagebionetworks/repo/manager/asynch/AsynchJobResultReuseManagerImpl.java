@@ -0,0 +1,232 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.sagebionetworks.ids.IdGenerator;
+import org.sagebionetworks.ids.IdType;
+import org.sagebionetworks.repo.manager.table.TableManagerSupport;
+import org.sagebionetworks.repo.manager.table.TableQueryUtils;
+import org.sagebionetworks.repo.model.UnauthorizedException;
+import org.sagebionetworks.repo.model.UserInfo;
+import org.sagebionetworks.repo.model.asynch.AsynchJobState;
+import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
+import org.sagebionetworks.repo.model.asynch.AsynchronousResponseBody;
+import org.sagebionetworks.repo.model.asynch.CacheableRequestBody;
+import org.sagebionetworks.repo.model.dao.FileHandleDao;
+import org.sagebionetworks.repo.model.dao.asynch.AsynchronousJobStatusDAO;
+import org.sagebionetworks.repo.model.entity.IdAndVersion;
+import org.sagebionetworks.repo.model.file.FileHandle;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
+import org.sagebionetworks.repo.model.table.DownloadFromTableResult;
+import org.sagebionetworks.repo.transactions.WriteTransaction;
+import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.schema.adapter.org.json.EntityFactory;
+import org.sagebionetworks.util.ValidateArgument;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps an in-memory index from request hash to the ID of a recently
+ * completed job so popular requests do not need a database lookup. Every
+ * candidate is re-read and must still be complete with an equal request
+ * body before it is reused.
+ * 
+ * The CSV file of a {@link DownloadFromTableResult} can only be downloaded by
+ * the creator of its file handle, so the caller gets a new file handle for
+ * the same S3 object.
+ *
+ */
+public class AsynchJobResultReuseManagerImpl implements AsynchJobResultReuseManager {
+
+	static private Log log = LogFactory.getLog(AsynchJobResultReuseManagerImpl.class);
+
+	private static final String REUSED_MESSAGE_TEMPLATE = "Reusing job: %s for user: %d, requestHash: %s, new jobId: %s";
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	@Autowired
+	AsynchronousJobStatusDAO asynchJobStatusDao;
+	@Autowired
+	TableManagerSupport tableManagerSupport;
+	@Autowired
+	FileHandleDao fileHandleDao;
+	@Autowired
+	IdGenerator idGenerator;
+
+	private final Map<String, String> completedJobIds;
+
+	private final AtomicLong lookupCount = new AtomicLong();
+	private final AtomicLong indexHitCount = new AtomicLong();
+	private final AtomicLong reusedCount = new AtomicLong();
+
+	public AsynchJobResultReuseManagerImpl() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * 
+	 * @param maxEntries The maximum number of request hashes to index.
+	 */
+	public AsynchJobResultReuseManagerImpl(final int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Max entries must be at least one");
+		}
+		this.completedJobIds = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		});
+	}
+
+	@WriteTransaction
+	@Override
+	public AsynchronousJobStatus reuseCompletedJob(UserInfo user, String requestHash, CacheableRequestBody body) {
+		ValidateArgument.required(user, "user");
+		ValidateArgument.required(requestHash, "requestHash");
+		ValidateArgument.required(body, "body");
+		lookupCount.incrementAndGet();
+		AsynchronousJobStatus match = findCompletedMatch(requestHash, body);
+		if (match == null || !canReadTable(user, body)) {
+			return null;
+		}
+		AsynchronousResponseBody response = copyResponseForUser(user, match.getResponseBody());
+		if (response == null) {
+			return null;
+		}
+		AsynchronousJobStatus status = asynchJobStatusDao.startJob(user.getId(), body);
+		asynchJobStatusDao.setComplete(status.getJobId(), response, requestHash);
+		reusedCount.incrementAndGet();
+		log.info(String.format(REUSED_MESSAGE_TEMPLATE, match.getJobId(), user.getId(), requestHash, status.getJobId()));
+		return asynchJobStatusDao.getJobStatus(status.getJobId());
+	}
+
+	/**
+	 * Find a completed job with the given hash and an equal request body,
+	 * checking the index before the database.
+	 * 
+	 * @param requestHash
+	 * @param body
+	 * @return null if there is no such job.
+	 */
+	AsynchronousJobStatus findCompletedMatch(String requestHash, CacheableRequestBody body) {
+		String indexedJobId = completedJobIds.get(requestHash);
+		if (indexedJobId != null) {
+			AsynchronousJobStatus status = getIfCompleteMatch(indexedJobId, body);
+			if (status != null) {
+				indexHitCount.incrementAndGet();
+				return status;
+			}
+			completedJobIds.remove(requestHash);
+		}
+		for (String jobId : asynchJobStatusDao.findCompletedJobIds(requestHash)) {
+			AsynchronousJobStatus status = getIfCompleteMatch(jobId, body);
+			if (status != null) {
+				completedJobIds.put(requestHash, jobId);
+				return status;
+			}
+		}
+		return null;
+	}
+
+	private AsynchronousJobStatus getIfCompleteMatch(String jobId, CacheableRequestBody body) {
+		try {
+			AsynchronousJobStatus status = asynchJobStatusDao.getJobStatus(jobId);
+			if (AsynchJobState.COMPLETE.equals(status.getJobState()) && body.equals(status.getRequestBody())) {
+				return status;
+			}
+			return null;
+		} catch (NotFoundException e) {
+			// the job was cleared.
+			return null;
+		}
+	}
+
+	/**
+	 * The caller must pass the same read check that a job run for the
+	 * caller would.
+	 * 
+	 * @param user
+	 * @param body
+	 * @return
+	 */
+	boolean canReadTable(UserInfo user, CacheableRequestBody body) {
+		try {
+			IdAndVersion idAndVersion = IdAndVersion.parse(TableQueryUtils.getTableIdFromRequestBody(body));
+			tableManagerSupport.validateTableReadAccess(user, idAndVersion);
+			return true;
+		} catch (UnauthorizedException | NotFoundException e) {
+			// A job of their own will report the error.
+			return false;
+		}
+	}
+
+	/**
+	 * The response bodies of other jobs are shared and must not be modified,
+	 * so a response that refers to a file is copied.
+	 * 
+	 * @param user
+	 * @param response
+	 * @return null if the response cannot be reused by the user.
+	 */
+	AsynchronousResponseBody copyResponseForUser(UserInfo user, AsynchronousResponseBody response) {
+		if (!(response instanceof DownloadFromTableResult)) {
+			return response;
+		}
+		DownloadFromTableResult original = (DownloadFromTableResult) response;
+		FileHandle handle;
+		try {
+			handle = fileHandleDao.get(original.getResultsFileHandleId());
+		} catch (NotFoundException e) {
+			return null;
+		}
+		if (!(handle instanceof S3FileHandle)) {
+			return null;
+		}
+		S3FileHandle copy = (S3FileHandle) handle;
+		copy.setId(idGenerator.generateNewId(IdType.FILE_IDS).toString());
+		copy.setCreatedBy(user.getId().toString());
+		copy.setCreatedOn(new Date());
+		copy.setEtag(UUID.randomUUID().toString());
+		copy = (S3FileHandle) fileHandleDao.createFile(copy);
+		try {
+			DownloadFromTableResult result = EntityFactory.createEntityFromJSONString(
+					EntityFactory.createJSONStringForEntity(original), DownloadFromTableResult.class);
+			result.setResultsFileHandleId(copy.getId());
+			return result;
+		} catch (JSONObjectAdapterException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public long getReusedCount() {
+		return reusedCount.get();
+	}
+
+	/**
+	 * 
+	 * @return The number of requests for which reuse was attempted.
+	 */
+	public long getLookupCount() {
+		return lookupCount.get();
+	}
+
+	/**
+	 * 
+	 * @return The number of matches found through the in-memory index.
+	 */
+	public long getIndexHitCount() {
+		return indexHitCount.get();
+	}
+
+}
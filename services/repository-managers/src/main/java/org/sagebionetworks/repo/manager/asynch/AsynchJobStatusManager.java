@@ -38,6 +38,20 @@ public interface AsynchJobStatusManager {
 	 * @throws DatastoreException 
 	 */
 	public AsynchronousJobStatus getJobStatus(UserInfo user, String jobId) throws DatastoreException, NotFoundException;
+
+	/**
+	 * Get the status of a job, waiting up to maxWaitMs for the job to finish
+	 * if it is still processing. The wait is capped at
+	 * {@link AsynchJobStatusManagerImpl#MAX_WAIT_MS}.
+	 * 
+	 * @param user
+	 * @param jobId
+	 * @param maxWaitMs
+	 * @return
+	 * @throws DatastoreException
+	 * @throws NotFoundException
+	 */
+	public AsynchronousJobStatus waitForJobStatus(UserInfo user, String jobId, long maxWaitMs) throws DatastoreException, NotFoundException;
 	
 	/**
 	 * Lookup an job status using only the ID.
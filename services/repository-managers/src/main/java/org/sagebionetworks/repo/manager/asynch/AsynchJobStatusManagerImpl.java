@@ -28,11 +28,13 @@ import org.sagebionetworks.repo.model.asynch.ReadOnlyRequestBody;
 import org.sagebionetworks.repo.model.audit.ObjectRecord;
 import org.sagebionetworks.repo.model.dao.asynch.AsynchronousJobStatusDAO;
 import org.sagebionetworks.repo.model.dbo.asynch.AsynchJobType;
+import org.sagebionetworks.repo.model.message.TransactionSynchronizationProxy;
 import org.sagebionetworks.repo.model.status.StatusEnum;
 import org.sagebionetworks.repo.transactions.NewWriteTransaction;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
 
 import com.amazonaws.services.cloudwatch.model.StandardUnit;
 
@@ -46,6 +48,12 @@ public class AsynchJobStatusManagerImpl implements AsynchJobStatusManager {
 
 	public static final String METRIC_NAMESPACE_PREFIX = "Asynchronous-Jobs-";
 
+	/**
+	 * The longest a request will wait for a job to finish, kept well below
+	 * the idle timeout of the load balancer.
+	 */
+	public static final long MAX_WAIT_MS = 30 * 1000L;
+
 	static private Log log = LogFactory.getLog(AsynchJobStatusManagerImpl.class);	
 	
 	
@@ -67,6 +75,12 @@ public class AsynchJobStatusManagerImpl implements AsynchJobStatusManager {
 	StackConfiguration stackConfig;
 	@Autowired
 	Consumer cloudeWatch;
+	@Autowired
+	AsynchJobCompletionRegistry asynchJobCompletionRegistry;
+	@Autowired
+	TransactionSynchronizationProxy transactionSynchronization;
+	@Autowired
+	AsynchJobResultReuseManager asynchJobResultReuseManager;
 	String metricNamespace;
 	/*
 	 * (non-Javadoc)
@@ -93,19 +107,48 @@ public class AsynchJobStatusManagerImpl implements AsynchJobStatusManager {
 		if(userInfo == null) throw new IllegalArgumentException("UserInfo cannot be null");
 		// Get the status
 		AsynchronousJobStatus status = lookupJobStatus(jobId);
-		// Only the user that started a job can read it
+		validateCanReadStatus(userInfo, status);
+		return status;
+	}
+
+	/**
+	 * Only the user that started a job can read it.
+	 * 
+	 * @param userInfo
+	 * @param status
+	 */
+	private void validateCanReadStatus(UserInfo userInfo, AsynchronousJobStatus status) {
 		if(!authorizationManager.isUserCreatorOrAdmin(userInfo, status.getStartedByUserId().toString())){
 			throw new UnauthorizedException("Only the user that created a job can access the job's status.");
 		}
-		return status;
+	}
+
+	@Override
+	public AsynchronousJobStatus waitForJobStatus(UserInfo userInfo, String jobId, long maxWaitMs) throws DatastoreException, NotFoundException {
+		if (maxWaitMs <= 0) {
+			return getJobStatus(userInfo, jobId);
+		}
+		if(userInfo == null) throw new IllegalArgumentException("UserInfo cannot be null");
+		// Only the owner and the state are needed to decide whether to wait, so the bodies are not read.
+		AsynchronousJobStatus status = asynchJobStatusDao.getJobStatusWithoutBodies(jobId);
+		validateCanReadStatus(userInfo, status);
+		if (AsynchJobState.PROCESSING.equals(status.getJobState())) {
+			try {
+				asynchJobCompletionRegistry.waitForJobDone(jobId, Math.min(maxWaitMs, MAX_WAIT_MS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		// The caller was authorized above.
+		return lookupJobStatus(jobId);
 	}
 
 	@Override
 	public void cancelJob(UserInfo userInfo, String jobId) throws DatastoreException, NotFoundException {
 		if (userInfo == null)
 			throw new IllegalArgumentException("UserInfo cannot be null");
-		// Get the status
-		AsynchronousJobStatus status = asynchJobStatusDao.getJobStatus(jobId);
+		// Only the owner is needed so the bodies are not read.
+		AsynchronousJobStatus status = asynchJobStatusDao.getJobStatusWithoutBodies(jobId);
 		// Only the user that started a job can read it
 		if (!authorizationManager.isUserCreatorOrAdmin(userInfo, status.getStartedByUserId().toString())) {
 			throw new UnauthorizedException("Only the user that created a job can stop the job.");
@@ -137,6 +180,11 @@ public class AsynchJobStatusManagerImpl implements AsynchJobStatusManager {
 					log.info(String.format(CACHED_MESSAGE_TEMPLATE, user.getId(), requestHash, status.getJobId()));
 					return status;
 				}
+				// Another user may have already made this exact request.
+				status = asynchJobResultReuseManager.reuseCompletedJob(user, requestHash, (CacheableRequestBody) body);
+				if(status != null){
+					return status;
+				}
 			}
 		}
 		
@@ -193,7 +241,9 @@ public class AsynchJobStatusManagerImpl implements AsynchJobStatusManager {
 	@Override
 	public String setJobFailed(String jobId, Throwable error) {
 		// We allow a job to fail even if the stack is not in read-write mode.
-		return asynchJobStatusDao.setJobFailed(jobId, error);
+		String etag = asynchJobStatusDao.setJobFailed(jobId, error);
+		fireJobDoneAfterCommit(jobId);
+		return etag;
 	}
 
 	@WriteTransaction
@@ -223,10 +273,30 @@ public class AsynchJobStatusManagerImpl implements AsynchJobStatusManager {
 			objectRecordDAO.saveBatch(Arrays.asList(record), record.getJsonClassName());
 		}
 		long runtimeMS = asynchJobStatusDao.setComplete(jobId, body, requestHash);
+		fireJobDoneAfterCommit(jobId);
 		// Record the runtime for this job.
 		AsynchJobType type = AsynchJobType.findTypeFromRequestClass(status.getRequestBody().getClass());
 		pushCloudwatchMetric(runtimeMS, type);
 	}
+
+	/**
+	 * Wake the requests waiting on the given job once its final state is
+	 * visible to them.
+	 * 
+	 * @param jobId
+	 */
+	void fireJobDoneAfterCommit(String jobId) {
+		if (transactionSynchronization.isSynchronizationActive()) {
+			transactionSynchronization.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					asynchJobCompletionRegistry.jobDone(jobId);
+				}
+			});
+		} else {
+			asynchJobCompletionRegistry.jobDone(jobId);
+		}
+	}
 	
 
 	/**
@@ -1,9 +1,11 @@
 package org.sagebionetworks.repo.manager.audit;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -14,6 +16,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 /**
  * This implementation writes the records to S3
  * 
+ * The number of records waiting for the timer is bounded by the maxQueueSize.
+ * When the queue is full new records are dropped and counted rather than
+ * growing the heap of the request-serving JVM during a traffic spike.
+ * 
  * @author jmhill
  * 
  */
@@ -21,6 +27,8 @@ public class S3AccessRecorder implements AccessRecorder {
 
 	static private Log log = LogFactory.getLog(S3AccessRecorder.class);
 
+	public static final int DEFAULT_MAX_QUEUE_SIZE = 100_000;
+
 	/**
 	 * At any given time, there are multiple threads creating new AccessRecords
 	 * as new web services request come in. These AccessRecords are added to
@@ -28,6 +36,14 @@ public class S3AccessRecorder implements AccessRecorder {
 	 * processed from a separate timer thread.
 	 */
 	private ConcurrentLinkedQueue<AccessRecord> recordBatch = new ConcurrentLinkedQueue<AccessRecord>();
+	/**
+	 * ConcurrentLinkedQueue.size() is not constant time so the size is tracked separately.
+	 */
+	private AtomicInteger queueSize = new AtomicInteger(0);
+	private AtomicInteger droppedSinceLastFire = new AtomicInteger(0);
+	private AtomicLong totalDropped = new AtomicLong(0);
+
+	private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
 	
 	@Autowired
 	AccessRecordManager accessRecordManager;
@@ -45,11 +61,37 @@ public class S3AccessRecorder implements AccessRecorder {
 		this.shouldAccessRecordsBePushedToS3 = shouldAccessMessagesBePushedToS3;
 	}
 
+	/**
+	 * The maximum number of records that can be waiting for the timer. Injected via Spring.
+	 * @param maxQueueSize
+	 */
+	public void setMaxQueueSize(int maxQueueSize) {
+		if(maxQueueSize < 1){
+			throw new IllegalArgumentException("maxQueueSize must be at least one");
+		}
+		this.maxQueueSize = maxQueueSize;
+	}
+
+	/**
+	 * The total number of records dropped because the queue was full.
+	 * @return
+	 */
+	public long getTotalDroppedCount() {
+		return totalDropped.get();
+	}
+
 	/**
 	 * New AccessRecords will come in from 
 	 */
 	@Override
 	public void save(AccessRecord record) {
+		if(queueSize.incrementAndGet() > maxQueueSize){
+			// the queue is full so the record is dropped.
+			queueSize.decrementAndGet();
+			droppedSinceLastFire.incrementAndGet();
+			totalDropped.incrementAndGet();
+			return;
+		}
 		// add the messages to the queue;
 		recordBatch.add(record);
 	}
@@ -60,6 +102,10 @@ public class S3AccessRecorder implements AccessRecorder {
 	 * 
 	 */
 	public String timerFired() throws IOException {
+		int dropped = droppedSinceLastFire.getAndSet(0);
+		if(dropped > 0){
+			log.warn("The AccessRecord queue was full, "+dropped+" AccessRecords were dropped since the last batch.");
+		}
 		// Poll all data currently on the queue.
 		List<AccessRecord> currentBatch = pollListFromQueue();
 		// There is nothing to do if the batch is empty.
@@ -85,8 +131,9 @@ public class S3AccessRecorder implements AccessRecorder {
 	 * @return
 	 */
 	private List<AccessRecord> pollListFromQueue(){
-		List<AccessRecord> list = new LinkedList<AccessRecord>();
+		List<AccessRecord> list = new ArrayList<AccessRecord>(queueSize.get());
 		for(AccessRecord ac = this.recordBatch.poll(); ac != null; ac = this.recordBatch.poll()){
+			queueSize.decrementAndGet();
 			// Add to the list
 			list.add(ac);
 		}
@@ -239,6 +239,17 @@ public interface FileHandleManager {
 	 */
 	S3FileHandle multipartUploadLocalFile(LocalFileUploadRequest request);
 
+	/**
+	 * Multi-part upload a file to S3 as it is written, without a local file.
+	 * This is used by workers.
+	 * 
+	 * @param request
+	 * @param writer
+	 * @return The resulting file handle or null if the writer abandoned the
+	 *         upload.
+	 */
+	S3FileHandle multipartUploadStream(LocalFileUploadRequest request, UploadStreamWriter writer);
+
 	/**
 	 * Get the list of upload destinations for this parent
 	 * 
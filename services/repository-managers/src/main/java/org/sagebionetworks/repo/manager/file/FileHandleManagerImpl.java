@@ -769,6 +769,11 @@ public class FileHandleManagerImpl implements FileHandleManager {
 		return multipartManager.multipartUploadLocalFile(request);
 	}
 
+	@Override
+	public S3FileHandle multipartUploadStream(LocalFileUploadRequest request, UploadStreamWriter writer) {
+		return multipartManager.multipartUploadStream(request, writer);
+	}
+
 	@Override
 	public UploadDaemonStatus getUploadDaemonStatus(UserInfo userInfo,
 			String daemonId) throws DatastoreException, NotFoundException {
@@ -91,4 +91,16 @@ public interface MultipartManager {
 	 * @return
 	 */
 	S3FileHandle multipartUploadLocalFile(LocalFileUploadRequest request);
+
+	/**
+	 * Upload a file to S3 as it is written by the given writer. Parts are
+	 * uploaded as they fill so the file is never written to local disk. The
+	 * request's file name is required and its file is ignored.
+	 * 
+	 * @param request
+	 * @param writer
+	 * @return The resulting file handle or null if the writer abandoned the
+	 *         upload.
+	 */
+	S3FileHandle multipartUploadStream(LocalFileUploadRequest request, UploadStreamWriter writer);
 }
@@ -5,6 +5,10 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import org.sagebionetworks.aws.SynapseS3Client;
 import org.sagebionetworks.ids.IdGenerator;
@@ -51,6 +55,10 @@ import com.amazonaws.util.BinaryUtils;
  */
 public class MultipartManagerImpl implements MultipartManager {
 	
+	static private Log log = LogFactory.getLog(MultipartManagerImpl.class);
+
+	@Autowired
+	ExecutorService streamingUploadThreadPool;
 	@Autowired
 	SynapseS3Client s3Client;
 	@Autowired
@@ -265,4 +273,49 @@ public class MultipartManagerImpl implements MultipartManager {
 		} 
 	}
 
+	@Override
+	public S3FileHandle multipartUploadStream(LocalFileUploadRequest request, UploadStreamWriter writer) {
+		if (request == null) throw new IllegalArgumentException("LocalFileUploadRequest cannot be null");
+		if (request.getFileName() == null) throw new IllegalArgumentException("LocalFileUploadRequest.fileName cannot be null");
+		if (writer == null) throw new IllegalArgumentException("UploadStreamWriter cannot be null");
+		S3MultipartOutputStream out = null;
+		try {
+			StorageLocationSetting storageLocationSetting = getStorageLocationSetting(request.getStorageLocationId());
+			String bucket = MultipartUtils.getBucket(storageLocationSetting);
+			String key = MultipartUtils.createNewKey(request.getUserId(), request.getFileName(), storageLocationSetting);
+			S3FileHandle handle = new S3FileHandle();
+			handle.setBucketName(bucket);
+			handle.setKey(key);
+			handle.setContentType(request.getContentType());
+			handle.setCreatedBy(request.getUserId());
+			handle.setFileName(request.getFileName());
+			ObjectMetadata meta = TransferUtils.prepareObjectMetadata(handle);
+			out = new S3MultipartOutputStream(s3Client, streamingUploadThreadPool, bucket, key, meta,
+					S3MultipartOutputStream.MINIMUM_PART_SIZE_BYTES);
+			long start = System.currentTimeMillis();
+			if (!writer.write(out)) {
+				// the writer abandoned the upload.
+				out.abort();
+				return null;
+			}
+			out.close();
+			long elapsedMS = Math.max(1L, System.currentTimeMillis() - start);
+			log.info(String.format("Streamed %1$d bytes in %2$d parts to %3$s at %4$d bytes/s. Upload wait: %5$d ms",
+					out.getBytesWritten(), out.getPartCount(), key, out.getBytesWritten() * 1000L / elapsedMS,
+					out.getUploadWaitMS()));
+			handle.setContentMd5(out.getContentMD5Hex());
+			handle.setContentSize(out.getBytesWritten());
+			handle.setCreatedOn(new Date(System.currentTimeMillis()));
+			handle.setEtag(UUID.randomUUID().toString());
+			handle.setId(idGenerator.generateNewId(IdType.FILE_IDS).toString());
+			// Save the file handle
+			return (S3FileHandle) fileHandleDao.createFile(handle);
+		} catch (Exception e) {
+			if (out != null) {
+				out.abort();
+			}
+			throw new DatastoreException(e);
+		}
+	}
+
 }
@@ -0,0 +1,261 @@
+package org.sagebionetworks.repo.manager.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.sagebionetworks.aws.SynapseS3Client;
+
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * An OutputStream that uploads its data directly to S3 as a multi-part upload.
+ * Data is buffered until a full part is available and the part is then
+ * uploaded in the background while the next part is filled. At most one part
+ * is uploading at a time, so memory is bounded to two part buffers.
+ * <p>
+ * If the total data written is smaller than a single part, the data is put as
+ * a single object when the stream is closed. Closing the stream completes the
+ * upload, while {@link #abort()} discards everything that has been uploaded.
+ * 
+ */
+public class S3MultipartOutputStream extends OutputStream {
+
+	/**
+	 * S3 requires all parts but the last to be at least 5 MB.
+	 */
+	public static final int MINIMUM_PART_SIZE_BYTES = 5 * 1024 * 1024;
+
+	private final SynapseS3Client s3Client;
+	private final ExecutorService uploadExecutor;
+	private final String bucket;
+	private final String key;
+	private final ObjectMetadata metadata;
+	private final MessageDigest md5Digest;
+	private final List<PartETag> partETags;
+
+	private byte[] buffer;
+	private int bufferPosition;
+	private String uploadId;
+	private Future<PartETag> inFlightPart;
+	private long bytesWritten;
+	private long uploadWaitMS;
+	private boolean closed;
+	private String contentMD5Hex;
+
+	/**
+	 * 
+	 * @param s3Client
+	 * @param uploadExecutor Used to upload parts in the background.
+	 * @param bucket
+	 * @param key
+	 * @param metadata       The metadata of the resulting object.
+	 * @param partSizeBytes  The size of each part. Must be at least
+	 *                       {@link #MINIMUM_PART_SIZE_BYTES}.
+	 */
+	public S3MultipartOutputStream(SynapseS3Client s3Client, ExecutorService uploadExecutor, String bucket, String key,
+			ObjectMetadata metadata, int partSizeBytes) {
+		if (partSizeBytes < MINIMUM_PART_SIZE_BYTES) {
+			throw new IllegalArgumentException("Part size must be at least " + MINIMUM_PART_SIZE_BYTES + " bytes");
+		}
+		this.s3Client = s3Client;
+		this.uploadExecutor = uploadExecutor;
+		this.bucket = bucket;
+		this.key = key;
+		this.metadata = metadata;
+		this.buffer = new byte[partSizeBytes];
+		this.bufferPosition = 0;
+		this.partETags = new LinkedList<PartETag>();
+		this.bytesWritten = 0L;
+		this.uploadWaitMS = 0L;
+		this.closed = false;
+		try {
+			this.md5Digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkNotClosed();
+		buffer[bufferPosition++] = (byte) b;
+		md5Digest.update((byte) b);
+		bytesWritten++;
+		if (bufferPosition == buffer.length) {
+			flushPart();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkNotClosed();
+		md5Digest.update(b, off, len);
+		bytesWritten += len;
+		while (len > 0) {
+			int toCopy = Math.min(len, buffer.length - bufferPosition);
+			System.arraycopy(b, off, buffer, bufferPosition, toCopy);
+			bufferPosition += toCopy;
+			off += toCopy;
+			len -= toCopy;
+			if (bufferPosition == buffer.length) {
+				flushPart();
+			}
+		}
+	}
+
+	/**
+	 * Start the upload of the current buffer as the next part. Waits for the
+	 * previous part to finish first so that at most one part is in flight.
+	 * 
+	 * @throws IOException
+	 */
+	private void flushPart() throws IOException {
+		if (uploadId == null) {
+			uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key)
+					.withObjectMetadata(metadata).withCannedACL(CannedAccessControlList.BucketOwnerFullControl))
+					.getUploadId();
+		}
+		waitForInFlightPart();
+		final byte[] partData = buffer;
+		final int partSize = bufferPosition;
+		final int partNumber = partETags.size() + 1;
+		inFlightPart = uploadExecutor.submit(() -> {
+			UploadPartRequest request = new UploadPartRequest().withBucketName(bucket).withKey(key)
+					.withUploadId(uploadId).withPartNumber(partNumber)
+					.withInputStream(new ByteArrayInputStream(partData, 0, partSize)).withPartSize(partSize);
+			return s3Client.uploadPart(request).getPartETag();
+		});
+		// The in flight part owns the old buffer.
+		buffer = new byte[buffer.length];
+		bufferPosition = 0;
+	}
+
+	/**
+	 * Wait for the part that is currently uploading to finish.
+	 * 
+	 * @throws IOException
+	 */
+	private void waitForInFlightPart() throws IOException {
+		if (inFlightPart == null) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			partETags.add(inFlightPart.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			inFlightPart = null;
+			uploadWaitMS += System.currentTimeMillis() - start;
+		}
+	}
+
+	/**
+	 * Complete the upload. If less than one part was written the data is put as a
+	 * single object.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		contentMD5Hex = BinaryUtils.toHex(md5Digest.digest());
+		long start = System.currentTimeMillis();
+		if (uploadId == null) {
+			// Everything fit in a single part.
+			metadata.setContentLength(bufferPosition);
+			s3Client.putObject(new PutObjectRequest(bucket, key, new ByteArrayInputStream(buffer, 0, bufferPosition), metadata)
+					.withCannedAcl(CannedAccessControlList.BucketOwnerFullControl));
+		} else {
+			if (bufferPosition > 0) {
+				flushPart();
+			}
+			waitForInFlightPart();
+			s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+		}
+		uploadWaitMS += System.currentTimeMillis() - start;
+		buffer = null;
+	}
+
+	/**
+	 * Abandon the upload. Any parts that have already been uploaded are
+	 * discarded.
+	 */
+	public void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		buffer = null;
+		if (inFlightPart != null) {
+			inFlightPart.cancel(true);
+			inFlightPart = null;
+		}
+		if (uploadId != null) {
+			s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+		}
+	}
+
+	private void checkNotClosed() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	/**
+	 * The total number of bytes written to this stream.
+	 * 
+	 * @return
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * The total time in milliseconds the writer spent waiting for S3.
+	 * 
+	 * @return
+	 */
+	public long getUploadWaitMS() {
+		return uploadWaitMS;
+	}
+
+	/**
+	 * The number of parts uploaded.
+	 * 
+	 * @return
+	 */
+	public int getPartCount() {
+		return partETags.size();
+	}
+
+	/**
+	 * The hex MD5 of all of the data written to this stream. Only available
+	 * after the stream is closed.
+	 * 
+	 * @return
+	 */
+	public String getContentMD5Hex() {
+		return contentMD5Hex;
+	}
+}
@@ -0,0 +1,22 @@
+package org.sagebionetworks.repo.manager.file;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Abstraction for writing the data of a file that is uploaded to S3 as it is
+ * generated, without first writing it to a local file.
+ *
+ */
+public interface UploadStreamWriter {
+
+	/**
+	 * Write all of the data of the file to the given stream. The stream must not
+	 * be closed by the writer.
+	 * 
+	 * @param out
+	 * @return True if the file should be saved. False to abandon the upload.
+	 * @throws IOException
+	 */
+	boolean write(OutputStream out) throws IOException;
+}
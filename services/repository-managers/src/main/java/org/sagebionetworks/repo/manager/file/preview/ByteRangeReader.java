@@ -0,0 +1,42 @@
+package org.sagebionetworks.repo.manager.file.preview;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Abstraction for reading arbitrary byte ranges of a file that lives in a
+ * cloud bucket. Used by {@link RangedPreviewGenerator}s that only need a small
+ * part of a file (such as the first few KB or the tail of a zip) to generate a
+ * preview.
+ *
+ */
+public interface ByteRangeReader {
+
+	/**
+	 * The total size of the file in bytes.
+	 * 
+	 * @return
+	 */
+	long getContentSize();
+
+	/**
+	 * Open a stream of the given range of the file. The caller is responsible
+	 * for closing the returned stream.
+	 * 
+	 * @param start  The zero based index of the first byte to read.
+	 * @param length The maximum number of bytes to read. The returned stream
+	 *               will be shorter if the range extends past the end of the
+	 *               file.
+	 * @return
+	 * @throws IOException
+	 */
+	InputStream openRange(long start, long length) throws IOException;
+
+	/**
+	 * The total number of bytes requested from the underlying storage by this
+	 * reader.
+	 * 
+	 * @return
+	 */
+	long getBytesRequested();
+}
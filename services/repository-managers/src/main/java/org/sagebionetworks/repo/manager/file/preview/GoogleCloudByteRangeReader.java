@@ -0,0 +1,57 @@
+package org.sagebionetworks.repo.manager.file.preview;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.sagebionetworks.googlecloud.SynapseGoogleCloudStorageClient;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
+
+/**
+ * {@link ByteRangeReader} backed by seeking a Google Cloud Storage read channel.
+ *
+ */
+public class GoogleCloudByteRangeReader implements ByteRangeReader {
+
+	private final SynapseGoogleCloudStorageClient googleCloudStorageClient;
+	private final String bucketName;
+	private final String key;
+	private final long contentSize;
+	private long bytesRequested;
+
+	public GoogleCloudByteRangeReader(SynapseGoogleCloudStorageClient googleCloudStorageClient, String bucketName,
+			String key, long contentSize) {
+		this.googleCloudStorageClient = googleCloudStorageClient;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.contentSize = contentSize;
+		this.bytesRequested = 0L;
+	}
+
+	@Override
+	public long getContentSize() {
+		return contentSize;
+	}
+
+	@Override
+	public InputStream openRange(long start, long length) throws IOException {
+		long[] range = PreviewGeneratorUtils.clampRange(start, length, contentSize);
+		long rangeLength = range[1] - range[0] + 1;
+		bytesRequested += rangeLength;
+		Blob blob = googleCloudStorageClient.getObject(bucketName, key);
+		ReadChannel reader = blob.reader();
+		reader.seek(range[0]);
+		// The channel only needs to fetch a chunk covering the range.
+		reader.setChunkSize((int) Math.max(rangeLength, 1L));
+		return new BoundedInputStream(Channels.newInputStream(reader), rangeLength);
+	}
+
+	@Override
+	public long getBytesRequested() {
+		return bytesRequested;
+	}
+
+}
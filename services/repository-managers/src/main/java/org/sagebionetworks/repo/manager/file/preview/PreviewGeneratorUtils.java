@@ -62,4 +62,24 @@ public class PreviewGeneratorUtils {
 		}
 		return "noextension";
 	}
+
+	/**
+	 * Clamp a requested byte range to the size of a file.
+	 * 
+	 * @param start       The zero based index of the first byte to read.
+	 * @param length      The number of bytes requested.
+	 * @param contentSize The total size of the file.
+	 * @return A two element array holding the first and last (inclusive) byte
+	 *         index of the range.
+	 */
+	public static long[] clampRange(long start, long length, long contentSize) {
+		if (start < 0 || start >= contentSize) {
+			throw new IllegalArgumentException("Range start: " + start + " is outside of the file of size: " + contentSize);
+		}
+		if (length < 1) {
+			throw new IllegalArgumentException("Range length must be at least one byte");
+		}
+		long end = Math.min(contentSize, start + length) - 1;
+		return new long[] { start, end };
+	}
 }
@@ -146,7 +146,7 @@ public class PreviewManagerImpl implements  PreviewManager {
 		}
 		// First determine how much memory will be need to generate this preview
 		String mimeType = ContentType.parse(metadata.getContentType()).getMimeType();
-		long memoryNeededBytes = generator.calculateNeededMemoryBytesForPreview(mimeType, metadata.getContentSize());
+		long memoryNeededBytes = calculateNeededMemoryBytes(generator, mimeType, metadata.getContentSize());
 		if(memoryNeededBytes > maxPreviewMemory){
 			log.info(String.format("Preview cannot be generated.  Memory needed: '%1$s' (bytes) exceed preview memory pool size: '%2$s' (bytes). Metadata: %3$s", memoryNeededBytes, maxPreviewMemory, metadata.toString())); ;
 			return null;
@@ -170,6 +170,22 @@ public class PreviewManagerImpl implements  PreviewManager {
 		}
 	}
 		
+	/**
+	 * Generators that support ranged reads only need memory for the bytes they
+	 * actually read, rather than for the entire file.
+	 * 
+	 * @param generator
+	 * @param mimeType
+	 * @param contentSize
+	 * @return
+	 */
+	static long calculateNeededMemoryBytes(PreviewGenerator generator, String mimeType, long contentSize) {
+		if (generator instanceof RangedPreviewGenerator) {
+			return ((RangedPreviewGenerator) generator).calculateNeededMemoryBytesForRangedPreview(mimeType, contentSize);
+		}
+		return generator.calculateNeededMemoryBytesForPreview(mimeType, contentSize);
+	}
+
 	/**
 	 * This is where we actually attempt to generate the preview.  This method should only be called
 	 * within an allocate resource block.
@@ -194,11 +210,19 @@ public class PreviewManagerImpl implements  PreviewManager {
 		try {
 			// The upload file will hold the newly created preview file.
 			tempUpload = tempFileProvider.createTempFile("PreviewManagerImpl_upload", ".tmp");
-			S3Object s3Object = s3Client.getObject(new GetObjectRequest(metadata.getBucketName(), metadata.getKey()));
-			in = s3Object.getObjectContent();
 			out = tempFileProvider.createFileOutputStream(tempUpload);
-			// Let the preview generator do all of the work.
-			PreviewOutputMetadata previewMetadata = generator.generatePreview(in, out);
+			PreviewOutputMetadata previewMetadata;
+			if (generator instanceof RangedPreviewGenerator) {
+				// Only read the parts of the file needed for the preview.
+				ByteRangeReader reader = new S3ByteRangeReader(s3Client, metadata.getBucketName(), metadata.getKey(), metadata.getContentSize());
+				previewMetadata = ((RangedPreviewGenerator) generator).generatePreview(reader, out);
+				logRangedRead(metadata, reader);
+			} else {
+				S3Object s3Object = s3Client.getObject(new GetObjectRequest(metadata.getBucketName(), metadata.getKey()));
+				in = s3Object.getObjectContent();
+				// Let the preview generator do all of the work.
+				previewMetadata = generator.generatePreview(in, out);
+			}
 			// Close the file
 			out.close();
 			S3FileHandle pfm = new S3FileHandle();
@@ -246,11 +270,19 @@ public class PreviewManagerImpl implements  PreviewManager {
 		try {
 			// The upload file will hold the newly created preview file.
 			tempUpload = tempFileProvider.createTempFile("PreviewManagerImpl_upload", ".tmp");
-			Blob googleCloudObject = googleCloudStorageClient.getObject(metadata.getBucketName(), metadata.getKey());
-			in = Channels.newInputStream(googleCloudObject.reader());
 			out = tempFileProvider.createFileOutputStream(tempUpload);
-			// Let the preview generator do all of the work.
-			PreviewOutputMetadata previewMetadata = generator.generatePreview(in, out);
+			PreviewOutputMetadata previewMetadata;
+			if (generator instanceof RangedPreviewGenerator) {
+				// Only read the parts of the file needed for the preview.
+				ByteRangeReader reader = new GoogleCloudByteRangeReader(googleCloudStorageClient, metadata.getBucketName(), metadata.getKey(), metadata.getContentSize());
+				previewMetadata = ((RangedPreviewGenerator) generator).generatePreview(reader, out);
+				logRangedRead(metadata, reader);
+			} else {
+				Blob googleCloudObject = googleCloudStorageClient.getObject(metadata.getBucketName(), metadata.getKey());
+				in = Channels.newInputStream(googleCloudObject.reader());
+				// Let the preview generator do all of the work.
+				previewMetadata = generator.generatePreview(in, out);
+			}
 			// Close the file
 			out.close();
 			CloudProviderFileHandleInterface pfm = new GoogleCloudFileHandle();
@@ -285,6 +317,13 @@ public class PreviewManagerImpl implements  PreviewManager {
 		}
 	}
 
+	private static void logRangedRead(CloudProviderFileHandleInterface metadata, ByteRangeReader reader) {
+		if (log.isDebugEnabled()) {
+			log.debug(String.format("Generated preview for file handle: %1$s reading %2$d of %3$d bytes", metadata.getId(),
+					reader.getBytesRequested(), reader.getContentSize()));
+		}
+	}
+
 	private PreviewGenerator findPreviewGenerator(String contentType, String extension) {
 		contentType = contentType.toLowerCase();
 		for(PreviewGenerator gen: generatorList){
@@ -0,0 +1,38 @@
+package org.sagebionetworks.repo.manager.file.preview;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link PreviewGenerator} that can generate a preview by reading only the
+ * byte ranges of the file that it actually needs. When a generator implements
+ * this interface the {@link PreviewManager} will use ranged GETs rather than
+ * streaming the entire file, and will reserve memory based on
+ * {@link #calculateNeededMemoryBytesForRangedPreview(String, long)}.
+ *
+ */
+public interface RangedPreviewGenerator extends PreviewGenerator {
+
+	/**
+	 * Generate a preview by reading the ranges of the file that are needed from
+	 * the given reader.
+	 * 
+	 * @param from Provides access to byte ranges of the source file.
+	 * @param to   The preview should be written to this stream.
+	 * @return Must return the content type of generated preview.
+	 * @throws IOException
+	 */
+	public PreviewOutputMetadata generatePreview(ByteRangeReader from, OutputStream to) throws IOException;
+
+	/**
+	 * The amount of memory needed to generate a preview with
+	 * {@link #generatePreview(ByteRangeReader, OutputStream)}. Since only the
+	 * needed ranges are read, this is a function of the bytes actually read
+	 * rather than the full size of the file.
+	 * 
+	 * @param mimeType    The mime type of the file to load.
+	 * @param contentSize The size of the file to preview.
+	 * @return
+	 */
+	public long calculateNeededMemoryBytesForRangedPreview(String mimeType, long contentSize);
+}
@@ -0,0 +1,49 @@
+package org.sagebionetworks.repo.manager.file.preview;
+
+import java.io.InputStream;
+
+import org.sagebionetworks.aws.SynapseS3Client;
+
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * {@link ByteRangeReader} backed by S3 ranged GETs.
+ *
+ */
+public class S3ByteRangeReader implements ByteRangeReader {
+
+	private final SynapseS3Client s3Client;
+	private final String bucketName;
+	private final String key;
+	private final long contentSize;
+	private long bytesRequested;
+
+	public S3ByteRangeReader(SynapseS3Client s3Client, String bucketName, String key, long contentSize) {
+		this.s3Client = s3Client;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.contentSize = contentSize;
+		this.bytesRequested = 0L;
+	}
+
+	@Override
+	public long getContentSize() {
+		return contentSize;
+	}
+
+	@Override
+	public InputStream openRange(long start, long length) {
+		long[] range = PreviewGeneratorUtils.clampRange(start, length, contentSize);
+		bytesRequested += range[1] - range[0] + 1;
+		// S3 ranges are inclusive.
+		S3Object object = s3Client.getObject(new GetObjectRequest(bucketName, key).withRange(range[0], range[1]));
+		return object.getObjectContent();
+	}
+
+	@Override
+	public long getBytesRequested() {
+		return bytesRequested;
+	}
+
+}
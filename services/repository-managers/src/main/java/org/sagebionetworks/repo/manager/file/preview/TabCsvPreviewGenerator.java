@@ -20,7 +20,7 @@ import au.com.bytecode.opencsv.CSVWriter;
  * @author Jay & John
  *
  */
-public class TabCsvPreviewGenerator implements PreviewGenerator {
+public class TabCsvPreviewGenerator implements RangedPreviewGenerator {
 
 	public static final String TEXT_CSV_SEPARATED_VALUES = "text/csv";
 
@@ -53,6 +53,12 @@ public class TabCsvPreviewGenerator implements PreviewGenerator {
 	public static final int MAX_CELL_CHARACTER_COUNT = 40;
 	public static final long MAX_PREVIEW_CHARACTERS = MAX_ROW_COUNT
 			* (MAX_COLUMN_COUNT * (MAX_CELL_CHARACTER_COUNT + 3) + 3);
+	/**
+	 * The number of bytes read from the start of the file for a ranged preview.
+	 * Rows can be much wider than the preview so this is larger than
+	 * {@link #MAX_PREVIEW_CHARACTERS}.
+	 */
+	public static final long MAX_RANGED_READ_BYTES = 512 * 1024;
 
 	private final Character delimiter;
 	private final String extension;
@@ -86,6 +92,16 @@ public class TabCsvPreviewGenerator implements PreviewGenerator {
 		return new PreviewOutputMetadata(TEXT_CSV_SEPARATED_VALUES, ".csv");
 	}
 
+	@Override
+	public PreviewOutputMetadata generatePreview(ByteRangeReader from, OutputStream to) throws IOException {
+		// Only the start of the file is needed.
+		boolean truncated = from.getContentSize() > MAX_RANGED_READ_BYTES;
+		try (InputStream in = from.openRange(0L, MAX_RANGED_READ_BYTES)) {
+			generatePreview(delimiter, in, truncated, to);
+		}
+		return new PreviewOutputMetadata(TEXT_CSV_SEPARATED_VALUES, ".csv");
+	}
+
 	/**
 	 * Generate a preview that does not exceed the maximum number of rows or
 	 * columns, and each cell values is under a maximum number of characters.
@@ -97,10 +113,25 @@ public class TabCsvPreviewGenerator implements PreviewGenerator {
 	 */
 	public static void generatePreview(final Character delimiter, final InputStream from, final OutputStream to)
 			throws IOException {
+		generatePreview(delimiter, from, false, to);
+	}
+
+	/**
+	 * Generate a preview that does not exceed the maximum number of rows or
+	 * columns, and each cell values is under a maximum number of characters.
+	 * 
+	 * @param delimiter
+	 * @param from
+	 * @param truncated True if the input is only a prefix of the file.
+	 * @param to
+	 * @throws IOException
+	 */
+	public static void generatePreview(final Character delimiter, final InputStream from, final boolean truncated,
+			final OutputStream to) throws IOException {
 		try (CSVReader reader = new CSVReader(new InputStreamReader(from, "UTF-8"), delimiter);
 				CSVWriter writer = new CSVWriter(new OutputStreamWriter(to, "UTF-8"), COMMA)) {
 			// generate the preview from the input.
-			List<String[]> previewRows = generatePreviewRows(reader);
+			List<String[]> previewRows = generatePreviewRows(reader, truncated);
 			writer.writeAll(previewRows);
 			writer.flush();
 			writer.close();
@@ -115,7 +146,22 @@ public class TabCsvPreviewGenerator implements PreviewGenerator {
 	 * @throws IOException
 	 */
 	public static List<String[]> generatePreviewRows(CSVReader reader) throws IOException{
-		List<String[]> results = new LinkedList<>();
+		return generatePreviewRows(reader, false);
+	}
+
+	/**
+	 * Generate a preview that does not exceed the maximum number of rows or
+	 * columns, and each cell values is under a maximum number of characters.
+	 * When the reader only covers a prefix of the file, the last row read might
+	 * be partial so it is replaced with a row of ellipsis.
+	 * 
+	 * @param reader
+	 * @param truncated True if the reader only covers a prefix of the file.
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<String[]> generatePreviewRows(CSVReader reader, boolean truncated) throws IOException{
+		LinkedList<String[]> results = new LinkedList<>();
 		String[] lastRow = null;
 		int rowsRead = 0;
 		int columnWidth = 0;
@@ -133,6 +179,13 @@ public class TabCsvPreviewGenerator implements PreviewGenerator {
 			columnWidth = Math.max(columnWidth, previewRow.length);
 			rowsRead++;
 		}
+		if (truncated && rowsRead > 0 && rowsRead <= MAX_ROW_COUNT) {
+			// The last row might have been cut off by the end of the range.
+			if (rowsRead > 1) {
+				results.removeLast();
+			}
+			results.add(createEllipsisRow(columnWidth));
+		}
 		return results;
 	}
 
@@ -204,6 +257,11 @@ public class TabCsvPreviewGenerator implements PreviewGenerator {
 		return Math.min(contentSize, MAX_PREVIEW_CHARACTERS * 3);
 	}
 
+	@Override
+	public long calculateNeededMemoryBytesForRangedPreview(String mimeType, long contentSize) {
+		return Math.min(contentSize, MAX_RANGED_READ_BYTES);
+	}
+
 	@Override
 	public boolean supportsContentType(String contentType, String extension) {
 		if (mimeTypes.contains(contentType)) {
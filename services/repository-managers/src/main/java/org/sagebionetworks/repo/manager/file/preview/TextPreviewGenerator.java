@@ -20,7 +20,7 @@ import com.google.common.collect.ImmutableSet;
  * @author Jay
  *
  */
-public class TextPreviewGenerator implements PreviewGenerator {
+public class TextPreviewGenerator implements RangedPreviewGenerator {
 	
 	public static final String TEXT_PLAIN 	= "text/plain";
 	public static final Set<String> TEXT_MIME_TYPES = ImmutableSet.<String> builder()
@@ -28,6 +28,11 @@ public class TextPreviewGenerator implements PreviewGenerator {
 	
 	public static final String TEXT_SLASH 	= "text/";
 	public static final int MAX_CHARACTER_COUNT = 1500;
+	/**
+	 * The number of bytes read from the start of the file for a ranged preview.
+	 * A UTF-8 character can take up to four bytes.
+	 */
+	public static final long MAX_RANGED_READ_BYTES = (MAX_CHARACTER_COUNT + 10) * 4;
 	@Override
 	public PreviewOutputMetadata generatePreview(InputStream from, OutputStream to) throws IOException {
 		// load the text
@@ -39,6 +44,14 @@ public class TextPreviewGenerator implements PreviewGenerator {
 		return new PreviewOutputMetadata(TEXT_PLAIN, ".txt");
 	}
 	
+	@Override
+	public PreviewOutputMetadata generatePreview(ByteRangeReader from, OutputStream to) throws IOException {
+		// Only the start of the file is needed.
+		try (InputStream in = from.openRange(0L, MAX_RANGED_READ_BYTES)) {
+			return generatePreview(in, to);
+		}
+	}
+	
 	public String read(InputStream from) throws IOException{
 		StringBuilder buffer = new StringBuilder();
         InputStreamReader isr = new InputStreamReader(from, "UTF-8");
@@ -63,6 +76,11 @@ public class TextPreviewGenerator implements PreviewGenerator {
 	public long calculateNeededMemoryBytesForPreview(String mimeType, long contentSize) {
 		return contentSize;
 	}
+
+	@Override
+	public long calculateNeededMemoryBytesForRangedPreview(String mimeType, long contentSize) {
+		return Math.min(contentSize, MAX_RANGED_READ_BYTES);
+	}
 	
 	public static void main(String[] args) throws IOException, InterruptedException, InstantiationException, IllegalAccessException{
 		for(String filePath: args){
@@ -1,10 +1,14 @@
 package org.sagebionetworks.repo.manager.file.preview;
 
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
@@ -17,10 +21,33 @@ import org.apache.commons.io.IOUtils;
  * @author Jay
  *
  */
-public class ZipPreviewGenerator implements PreviewGenerator {
+public class ZipPreviewGenerator implements RangedPreviewGenerator {
 	
 	public static final String APPLICATION_ZIP 	= "application/zip";
 	public static final String TEXT_CSV 	= "text/csv";
+
+	static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+	static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+	static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+	static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+	static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+	static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+	static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+	static final int MAX_COMMENT_LENGTH = 0xFFFF;
+	static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	/**
+	 * The end of central directory record is somewhere in the last 22 bytes plus
+	 * the maximum comment size.
+	 */
+	public static final long MAX_TAIL_READ_BYTES = END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_LENGTH
+			+ ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+	/**
+	 * The maximum number of bytes of the central directory that will be read.
+	 * Any entries past this point are summarized with an ellipsis.
+	 */
+	public static final long MAX_CENTRAL_DIRECTORY_READ_BYTES = 10 * 1024 * 1024;
+	public static final String ELLIPSIS = "...";
 	@Override
 	public PreviewOutputMetadata generatePreview(InputStream from, OutputStream to) throws IOException {
 		try {
@@ -52,6 +79,136 @@ public class ZipPreviewGenerator implements PreviewGenerator {
 		}
 	}
 
+	/**
+	 * Generate the preview by reading only the central directory of the zip
+	 * rather than streaming every entry. The end of central directory record is
+	 * read from the tail of the file first to locate the central directory.
+	 */
+	@Override
+	public PreviewOutputMetadata generatePreview(ByteRangeReader from, OutputStream to) throws IOException {
+		long contentSize = from.getContentSize();
+		long tailStart = Math.max(0L, contentSize - MAX_TAIL_READ_BYTES);
+		byte[] tail;
+		try (InputStream in = from.openRange(tailStart, MAX_TAIL_READ_BYTES)) {
+			tail = IOUtils.toByteArray(in);
+		}
+		ByteBuffer tailBuffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+		int eocdIndex = findEndOfCentralDirectory(tailBuffer);
+		if (eocdIndex < 0) {
+			throw new PreviewGenerationNotSupportedException("Improperly formatted zip file");
+		}
+		long centralDirectorySize = tailBuffer.getInt(eocdIndex + 12) & ZIP64_MAGIC;
+		long centralDirectoryOffset = tailBuffer.getInt(eocdIndex + 16) & ZIP64_MAGIC;
+		if (centralDirectorySize == ZIP64_MAGIC || centralDirectoryOffset == ZIP64_MAGIC) {
+			// The real values are in the zip64 end of central directory record.
+			int locatorIndex = eocdIndex - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+			if (locatorIndex < 0 || tailBuffer.getInt(locatorIndex) != ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+				throw new PreviewGenerationNotSupportedException("Improperly formatted zip file");
+			}
+			long zip64RecordOffset = tailBuffer.getLong(locatorIndex + 8);
+			if (zip64RecordOffset < 0 || zip64RecordOffset >= contentSize) {
+				throw new PreviewGenerationNotSupportedException("Improperly formatted zip file");
+			}
+			byte[] zip64Record;
+			try (InputStream in = from.openRange(zip64RecordOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE)) {
+				zip64Record = IOUtils.toByteArray(in);
+			}
+			ByteBuffer zip64Buffer = ByteBuffer.wrap(zip64Record).order(ByteOrder.LITTLE_ENDIAN);
+			if (zip64Record.length < ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE
+					|| zip64Buffer.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+				throw new PreviewGenerationNotSupportedException("Improperly formatted zip file");
+			}
+			centralDirectorySize = zip64Buffer.getLong(40);
+			centralDirectoryOffset = zip64Buffer.getLong(48);
+		}
+		if (centralDirectoryOffset < 0 || centralDirectorySize < 0
+				|| centralDirectoryOffset + centralDirectorySize > contentSize) {
+			throw new PreviewGenerationNotSupportedException("Improperly formatted zip file");
+		}
+		StringBuilder sb = new StringBuilder();
+		if (centralDirectorySize > 0) {
+			long bytesToRead = Math.min(centralDirectorySize, MAX_CENTRAL_DIRECTORY_READ_BYTES);
+			try (InputStream in = from.openRange(centralDirectoryOffset, bytesToRead)) {
+				boolean complete = readCentralDirectory(new DataInputStream(in), bytesToRead, sb);
+				if (!complete || bytesToRead < centralDirectorySize) {
+					sb.append(ELLIPSIS);
+					sb.append("\n");
+				}
+			}
+		}
+		IOUtils.write(sb.toString(), to, "UTF-8");
+		return new PreviewOutputMetadata(TEXT_CSV, ".csv");
+	}
+
+	/**
+	 * Find the index of the end of central directory record in the given tail of
+	 * a zip file.
+	 * 
+	 * @param tail
+	 * @return The index of the record or -1 if the record could not be found.
+	 */
+	static int findEndOfCentralDirectory(ByteBuffer tail) {
+		for (int i = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+				// The comment must extend exactly to the end of the file.
+				int commentLength = tail.getShort(i + 20) & 0xFFFF;
+				if (i + END_OF_CENTRAL_DIRECTORY_SIZE + commentLength == tail.limit()) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Append the name of each entry in the central directory to the given
+	 * builder.
+	 * 
+	 * @param in
+	 * @param bytesAvailable The number of bytes of the central directory
+	 *                       available from the stream.
+	 * @param sb
+	 * @return True if all entries available were read, false if the available
+	 *         bytes ended in the middle of an entry.
+	 * @throws IOException
+	 */
+	static boolean readCentralDirectory(DataInputStream in, long bytesAvailable, StringBuilder sb) throws IOException {
+		byte[] header = new byte[CENTRAL_DIRECTORY_HEADER_SIZE];
+		ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+		long bytesRead = 0;
+		while (bytesRead + CENTRAL_DIRECTORY_HEADER_SIZE <= bytesAvailable) {
+			in.readFully(header);
+			if (headerBuffer.getInt(0) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+				// end of the entries.
+				return true;
+			}
+			int flags = headerBuffer.getShort(8) & 0xFFFF;
+			int nameLength = headerBuffer.getShort(28) & 0xFFFF;
+			int extraLength = headerBuffer.getShort(30) & 0xFFFF;
+			int commentLength = headerBuffer.getShort(32) & 0xFFFF;
+			long entrySize = CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+			if (bytesRead + entrySize > bytesAvailable) {
+				return false;
+			}
+			if ((flags & 1) == 1) {
+				// can't support encrypted zips
+				throw new PreviewGenerationNotSupportedException("ZIP file is encrypted");
+			}
+			byte[] nameBytes = new byte[nameLength];
+			in.readFully(nameBytes);
+			IOUtils.skipFully(in, extraLength + commentLength);
+			bytesRead += entrySize;
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+			//ignore these special entries
+			if (name.startsWith("__MACOSX") || name.endsWith(".DS_Store")) {
+				continue;
+			}
+			sb.append(name);
+			sb.append("\n");
+		}
+		return bytesRead == bytesAvailable;
+	}
+
 	@Override
 	public boolean supportsContentType(String contentType, String extension) {
 		return APPLICATION_ZIP.equals(contentType);
@@ -65,6 +222,12 @@ public class ZipPreviewGenerator implements PreviewGenerator {
 		//File size: 1664.05 MB, Peak memory usage: 261.07 MB, Start free: 1072.94 MB, Peak free: 811.87 MB, End free: 1077.34 MB, Memory used: 0.16 x fileSize
 		return contentSize;
 	}
+
+	@Override
+	public long calculateNeededMemoryBytesForRangedPreview(String mimeType, long contentSize) {
+		// The tail and the central directory are the only parts of the file read.
+		return Math.min(contentSize, MAX_TAIL_READ_BYTES + MAX_CENTRAL_DIRECTORY_READ_BYTES);
+	}
 	
 	public static void main(String[] args) throws IOException, InterruptedException, InstantiationException, IllegalAccessException{
 		for(String filePath: args){
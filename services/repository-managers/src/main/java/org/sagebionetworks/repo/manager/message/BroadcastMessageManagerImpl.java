@@ -2,14 +2,22 @@ package org.sagebionetworks.repo.manager.message;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.http.client.ClientProtocolException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONException;
+import org.sagebionetworks.StackConfiguration;
+import org.sagebionetworks.cloudwatch.Consumer;
+import org.sagebionetworks.cloudwatch.ProfileData;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.markdown.MarkdownClientException;
 import org.sagebionetworks.repo.manager.AuthorizationManager;
@@ -27,11 +35,15 @@ import org.sagebionetworks.repo.model.message.BroadcastMessageDao;
 import org.sagebionetworks.repo.model.message.ChangeMessage;
 import org.sagebionetworks.repo.model.principal.PrincipalAliasDAO;
 import org.sagebionetworks.repo.model.subscription.Topic;
+import org.sagebionetworks.util.SortedLongSet;
 import org.sagebionetworks.util.TimeoutUtils;
 import org.sagebionetworks.util.ValidateArgument;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
 import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.RateLimiter;
 
 public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 	
@@ -42,6 +54,17 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 	 */
 	public static final long MESSAGE_EXPIRATION_MS = 1000*60*60*24; // 24 hours
 	
+	/**
+	 * The number of subscribers whose email details are loaded at a time.
+	 */
+	public static final int SUBSCRIBER_PAGE_SIZE = 1000;
+	
+	public static final String METRIC_NAMESPACE_PREFIX = "Broadcast-";
+	public static final String METRIC_RENDER_TIME = "RenderTime";
+	public static final String METRIC_QUEUE_TIME = "QueueTime";
+	public static final String METRIC_SEND_TIME = "SendTime";
+	public static final String METRIC_EMAIL_COUNT = "EmailCount";
+	
 	/*
 	 *  For each ChangeMessage that is processed by this manager, we map the
 	 *  message's ObjectType to a MessageBuilderFactory. A MessageBuilderFactory
@@ -72,6 +95,25 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 	UserManager userManager;
 	@Autowired
 	AuthorizationManager authManager;
+	@Autowired
+	StackConfiguration stackConfig;
+	@Autowired
+	Consumer cloudWatch;
+	
+	/*
+	 * Emails are sent from this pool so a large broadcast is not bound by the
+	 * latency of each SES call. The rate limiter keeps the pool under the SES
+	 * sending quota. Both are shared with the other email send paths.
+	 * Injected (IoC).
+	 */
+	ExecutorService emailSendThreadPool;
+	RateLimiter emailRateLimiter;
+	
+	private final AtomicLong renderTimeMS = new AtomicLong();
+	private final AtomicLong queueTimeMS = new AtomicLong();
+	private final AtomicLong sendTimeMS = new AtomicLong();
+	private final AtomicLong emailsSent = new AtomicLong();
+	private final AtomicLong emailsFailed = new AtomicLong();
 
 	@Override
 	public void broadcastMessage(UserInfo user,	ProgressCallback progressCallback, ChangeMessage changeMessage) throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
@@ -113,19 +155,21 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 		BroadcastMessageBuilder builder = factory.createMessageBuilder(changeMessage.getObjectId(), changeMessage.getChangeType(), changeMessage.getUserId());
 		Topic topic = builder.getBroadcastTopic();
 		valdiateTopic(topic);
-		// Get all of the email subscribers for this topic.
-		List<Subscriber> subscribers = subscriptionDAO.getAllEmailSubscribers(topic.getObjectId(), topic.getObjectType());
-		List<String> subscriberIds = new ArrayList<String>();
-		// The builder will prepare an email for each subscriber
-		for(Subscriber subscriber: subscribers){
-			subscriberIds.add(subscriber.getSubscriberId());
-			// do not send an email to the user who created this change
-			if (subscriber.getSubscriberId().equals(changeMessage.getUserId().toString())) {
-				continue;
+		// Get the IDs of all subscribers for this topic and send to the email subscribers a page at a time.
+		SortedLongSet subscriberIds = subscriptionDAO.getSubscriberIds(topic.getObjectId(), topic.getObjectType());
+		for (List<Long> page : Iterables.partition(subscriberIds, SUBSCRIBER_PAGE_SIZE)) {
+			List<Subscriber> subscribers = subscriptionDAO.getEmailSubscribers(topic.getObjectId(), topic.getObjectType(), page);
+			List<SendRawEmailRequest> emails = new ArrayList<SendRawEmailRequest>(subscribers.size());
+			long start = System.currentTimeMillis();
+			// The builder will prepare an email for each subscriber
+			for(Subscriber subscriber: subscribers){
+				// do not send an email to the user who created this change
+				if (subscriber.getSubscriberId().equals(changeMessage.getUserId().toString())) {
+					continue;
+				}
+				emails.add(builder.buildEmailForSubscriber(subscriber));
 			}
-			SendRawEmailRequest emailRequest = builder.buildEmailForSubscriber(subscriber);
-			log.debug("sending email to "+subscriber.getNotificationEmail());
-			sesClient.sendRawEmail(emailRequest);
+			sendEmails(emails, System.currentTimeMillis() - start);
 		}
 
 		sendMessageToNonSubscribers(progressCallback, changeMessage, builder, subscriberIds, topic);
@@ -138,7 +182,7 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 	 * to the topic.
 	 */
 	public void sendMessageToNonSubscribers(ProgressCallback progressCallback,
-			ChangeMessage changeMessage, BroadcastMessageBuilder builder, List<String> subscriberIds,
+			ChangeMessage changeMessage, BroadcastMessageBuilder builder, SortedLongSet subscriberIds,
 			Topic topic)
 			throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
 		Set<String> mentionedUserIds = builder.getRelatedUsers();
@@ -146,10 +190,12 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 			return;
 		}
 		// remove mentioned users who subscribed to the topic
-		mentionedUserIds.removeAll(subscriberIds);
+		mentionedUserIds.removeIf(userId -> subscriberIds.contains(Long.parseLong(userId)));
 		// create list of MentionedUser from their ids
 		List<UserNotificationInfo> mentionedUsers = userProfileDao.getUserNotificationInfo(mentionedUserIds);
-		// build and send email to each mentioned user
+		List<SendRawEmailRequest> emails = new ArrayList<SendRawEmailRequest>(mentionedUsers.size());
+		long start = System.currentTimeMillis();
+		// build an email for each mentioned user
 		for(UserNotificationInfo userNotificationInfo: mentionedUsers){
 			// do not send an email to the user who created this change
 			if (userNotificationInfo.getUserId().equals(changeMessage.getUserId().toString())) {
@@ -157,11 +203,84 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 			}
 			UserInfo userInfo = userManager.getUserInfo(Long.parseLong(userNotificationInfo.getUserId()));
 			if (authManager.canSubscribe(userInfo, topic.getObjectId(), topic.getObjectType()).isAuthorized()) {
-				SendRawEmailRequest emailRequest = builder.buildEmailForNonSubscriber(userNotificationInfo);
-				log.debug("sending email to "+userNotificationInfo.getNotificationEmail());
-				sesClient.sendRawEmail(emailRequest);
+				emails.add(builder.buildEmailForNonSubscriber(userNotificationInfo));
+			}
+		}
+		sendEmails(emails, System.currentTimeMillis() - start);
+	}
+	
+	/**
+	 * Send the given emails from the thread pool, no faster than the configured
+	 * rate, and wait for all of them to finish. Every email is attempted even if
+	 * some fail, after which the first failure is thrown.
+	 * 
+	 * @param emails
+	 * @param renderTimeMS Time spent building the emails.
+	 */
+	void sendEmails(List<SendRawEmailRequest> emails, long renderTimeMS) {
+		this.renderTimeMS.addAndGet(renderTimeMS);
+		if (emails.isEmpty()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		AtomicLong batchQueueTimeMS = new AtomicLong();
+		List<Future<?>> futures = new ArrayList<Future<?>>(emails.size());
+		for (SendRawEmailRequest email : emails) {
+			emailRateLimiter.acquire();
+			long queuedOn = System.currentTimeMillis();
+			futures.add(emailSendThreadPool.submit(() -> {
+				batchQueueTimeMS.addAndGet(System.currentTimeMillis() - queuedOn);
+				try {
+					sesClient.sendRawEmail(email);
+					emailsSent.incrementAndGet();
+				} catch (RuntimeException e) {
+					emailsFailed.incrementAndGet();
+					throw e;
+				}
+			}));
+		}
+		RuntimeException failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+				}
 			}
 		}
+		long elapsedMS = System.currentTimeMillis() - start;
+		queueTimeMS.addAndGet(batchQueueTimeMS.get());
+		sendTimeMS.addAndGet(elapsedMS);
+		pushCloudwatchMetrics(emails.size(), renderTimeMS, batchQueueTimeMS.get(), elapsedMS);
+		if (failure != null) {
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Push the metrics of a single batch of emails.
+	 */
+	void pushCloudwatchMetrics(int emailCount, long renderTimeMS, long queueTimeMS, long sendTimeMS) {
+		String namespace = METRIC_NAMESPACE_PREFIX+stackConfig.getStackInstance();
+		Date now = new Date();
+		cloudWatch.addProfileData(createProfileData(namespace, METRIC_EMAIL_COUNT, emailCount, StandardUnit.Count, now));
+		cloudWatch.addProfileData(createProfileData(namespace, METRIC_QUEUE_TIME, queueTimeMS, StandardUnit.Milliseconds, now));
+		cloudWatch.addProfileData(createProfileData(namespace, METRIC_SEND_TIME, sendTimeMS, StandardUnit.Milliseconds, now));
+		cloudWatch.addProfileData(createProfileData(namespace, METRIC_RENDER_TIME, renderTimeMS, StandardUnit.Milliseconds, now));
+	}
+	
+	static ProfileData createProfileData(String namespace, String name, double value, StandardUnit unit, Date timestamp) {
+		ProfileData profileData = new ProfileData();
+		profileData.setNamespace(namespace);
+		profileData.setName(name);
+		profileData.setValue(value);
+		profileData.setUnit(unit.name());
+		profileData.setTimestamp(timestamp);
+		return profileData;
 	}
 	
 	/**
@@ -184,4 +303,51 @@ public class BroadcastMessageManagerImpl implements BroadcastMessageManager {
 	}
 	
 	
+	/**
+	 * IoC.
+	 * 
+	 * @param emailSendThreadPool
+	 */
+	public void setEmailSendThreadPool(ExecutorService emailSendThreadPool) {
+		this.emailSendThreadPool = emailSendThreadPool;
+	}
+	
+	/**
+	 * IoC. The limiter of this instance shared by all email send paths.
+	 * 
+	 * @param emailRateLimiter
+	 */
+	public void setEmailRateLimiter(RateLimiter emailRateLimiter) {
+		this.emailRateLimiter = emailRateLimiter;
+	}
+	
+	/**
+	 * @return Total time spent building emails, in milliseconds.
+	 */
+	public long getRenderTimeMS() {
+		return renderTimeMS.get();
+	}
+	
+	/**
+	 * @return Total time emails waited for a sending thread, in milliseconds.
+	 */
+	public long getQueueTimeMS() {
+		return queueTimeMS.get();
+	}
+	
+	/**
+	 * @return Total time spent sending batches of emails, in milliseconds.
+	 */
+	public long getSendTimeMS() {
+		return sendTimeMS.get();
+	}
+	
+	public long getEmailsSent() {
+		return emailsSent.get();
+	}
+	
+	public long getEmailsFailed() {
+		return emailsFailed.get();
+	}
+	
 }
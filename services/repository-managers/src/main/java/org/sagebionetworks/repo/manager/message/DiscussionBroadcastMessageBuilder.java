@@ -3,6 +3,8 @@ package org.sagebionetworks.repo.manager.message;
 import java.io.IOException;
 import java.util.Set;
 
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.ClientProtocolException;
 import org.json.JSONException;
 import org.sagebionetworks.markdown.MarkdownClientException;
@@ -26,6 +28,13 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 	public static final long MAX_USER_IDS_PER_MESSAGE = 1000L;
 	public static final String GREETING = "Hello %1$s,\n\n";
 	public static final String SUBSCRIBE_THREAD = "[Subscribe to the thread](https://www.synapse.org/#!Subscription:objectID=%1$s&objectType=THREAD)\n";
+	/*
+	 * Stand-ins for the per-recipient fields. The shared body is rendered once with
+	 * these in place and each recipient's values are substituted into the HTML. They
+	 * are plain words so the markdown renderer passes them through unchanged.
+	 */
+	public static final String RECIPIENT_NAME_PLACEHOLDER = "SynapseRecipientNamePlaceholder";
+	public static final String SUBSCRIPTION_ID_PLACEHOLDER = "SynapseSubscriptionIdPlaceholder";
 	MarkdownDao markdownDao;
 	String actorUsername;
 	String actorUserId;
@@ -39,6 +48,9 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 	String unsubscribe;
 	Topic broadcastTopic;
 	UserManager userManager;
+	// Rendered lazily, at most once per builder.
+	RenderedTemplate subscriberTemplate;
+	RenderedTemplate nonSubscriberTemplate;
 
 	public DiscussionBroadcastMessageBuilder(String actorUsername, String actorUserId,
 			String threadTitle, String threadId, String projectId, String projectName,
@@ -79,11 +91,9 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 
 	@Override
 	public SendRawEmailRequest buildEmailForSubscriber(Subscriber subscriber) throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
-		// build the email body
-		String body = buildRawBodyForSubscriber(subscriber);
 		return new SendRawEmailRequestBuilder()
 		.withSubject(subject)
-		.withBody(markdownDao.convertMarkdown(body, null), BodyType.HTML)
+		.withBody(buildHtmlBodyForSubscriber(subscriber), BodyType.HTML)
 		.withSenderDisplayName("noreply")
 		.withRecipientEmail(subscriber.getNotificationEmail())
 		.build();
@@ -91,24 +101,94 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 
 	@Override
 	public SendRawEmailRequest buildEmailForNonSubscriber(UserNotificationInfo user) throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
-		// build the email body
-		String body = buildRawBodyForNonSubscriber(user);
 		return new SendRawEmailRequestBuilder()
 		.withSubject(subject)
-		.withBody(markdownDao.convertMarkdown(body, null), BodyType.HTML)
+		.withBody(buildHtmlBodyForNonSubscriber(user), BodyType.HTML)
 		.withSenderDisplayName("noreply")
 		.withRecipientEmail(user.getNotificationEmail())
 		.build();
 	}
 	
+	/**
+	 * Build the HTML email body for a subscriber. The shared body is only sent to
+	 * the markdown server for the first subscriber.
+	 * 
+	 * @param subscriber
+	 * @return
+	 */
+	public String buildHtmlBodyForSubscriber(Subscriber subscriber) throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
+		String recipientName = getRecipientName(subscriber.getFirstName(), subscriber.getLastName(), subscriber.getUsername());
+		RenderedTemplate template;
+		synchronized (this) {
+			if (subscriberTemplate == null) {
+				subscriberTemplate = renderTemplate(buildRawBodyForSubscriber(RECIPIENT_NAME_PLACEHOLDER, SUBSCRIPTION_ID_PLACEHOLDER));
+			}
+			template = subscriberTemplate;
+		}
+		if (!template.isSubstitutable()) {
+			return markdownDao.convertMarkdown(buildRawBodyForSubscriber(recipientName, subscriber.getSubscriptionId()), null);
+		}
+		return template.substitute(recipientName, subscriber.getSubscriptionId());
+	}
+
+	/**
+	 * Build the HTML email body for a user that is not subscribed to the topic.
+	 * The shared body is only sent to the markdown server for the first user.
+	 * 
+	 * @param user
+	 * @return
+	 */
+	public String buildHtmlBodyForNonSubscriber(UserNotificationInfo user) throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
+		String recipientName = getRecipientName(user.getFirstName(), user.getLastName(), user.getUsername());
+		RenderedTemplate template;
+		synchronized (this) {
+			if (nonSubscriberTemplate == null) {
+				nonSubscriberTemplate = renderTemplate(buildRawBodyForNonSubscriber(RECIPIENT_NAME_PLACEHOLDER));
+			}
+			template = nonSubscriberTemplate;
+		}
+		if (!template.isSubstitutable()) {
+			return markdownDao.convertMarkdown(buildRawBodyForNonSubscriber(recipientName), null);
+		}
+		return template.substitute(recipientName, null);
+	}
+
+	/**
+	 * Render the given markdown, which contains the placeholders, to HTML.
+	 * 
+	 * @param rawTemplate
+	 * @return
+	 */
+	RenderedTemplate renderTemplate(String rawTemplate) throws ClientProtocolException, JSONException, IOException, MarkdownClientException {
+		String html = markdownDao.convertMarkdown(rawTemplate, null);
+		/*
+		 * Substitution is only safe if the renderer kept each placeholder exactly as
+		 * many times as it appears in the markdown. Otherwise, each recipient's body
+		 * is rendered on its own.
+		 */
+		boolean substitutable = StringUtils.countMatches(html, RECIPIENT_NAME_PLACEHOLDER) == StringUtils.countMatches(rawTemplate, RECIPIENT_NAME_PLACEHOLDER)
+				&& StringUtils.countMatches(html, SUBSCRIPTION_ID_PLACEHOLDER) == StringUtils.countMatches(rawTemplate, SUBSCRIPTION_ID_PLACEHOLDER)
+				&& StringUtils.countMatches(rawTemplate, RECIPIENT_NAME_PLACEHOLDER) == 1
+				&& StringUtils.countMatches(rawTemplate, SUBSCRIPTION_ID_PLACEHOLDER) <= 1;
+		return new RenderedTemplate(html, substitutable);
+	}
+
+	static String getRecipientName(String firstName, String lastName, String username) {
+		return EmailUtils.getDisplayNameWithUsername(firstName, lastName, username);
+	}
+
 	/**
 	 * Build the email body.
 	 * @param subscriber
 	 * @return
 	 */
 	public String buildRawBodyForSubscriber(Subscriber subscriber){
+		String recipientName = getRecipientName(subscriber.getFirstName(), subscriber.getLastName(), subscriber.getUsername());
+		return buildRawBodyForSubscriber(recipientName, subscriber.getSubscriptionId());
+	}
+
+	String buildRawBodyForSubscriber(String recipientName, String subscriptionId){
 		StringBuilder sb = new StringBuilder();
-		String recipientName = EmailUtils.getDisplayNameWithUsername(subscriber.getFirstName(), subscriber.getLastName(), subscriber.getUsername());
 		sb.append(String.format(GREETING, recipientName));
 		sb.append(String.format(emailTemplate, actorUsername, actorUserId, threadTitleTruncated, projectId, threadId, projectName));
 		sb.append(markdown+"\n\n");
@@ -116,7 +196,7 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 		if (broadcastTopic.getObjectType() != SubscriptionObjectType.THREAD) {
 			sb.append(String.format(SUBSCRIBE_THREAD, threadId));
 		}
-		sb.append(String.format(unsubscribe, subscriber.getSubscriptionId()));
+		sb.append(String.format(unsubscribe, subscriptionId));
 		return sb.toString();
 	}
 
@@ -126,8 +206,12 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 	 * @return
 	 */
 	public String buildRawBodyForNonSubscriber(UserNotificationInfo user){
+		String recipientName = getRecipientName(user.getFirstName(), user.getLastName(), user.getUsername());
+		return buildRawBodyForNonSubscriber(recipientName);
+	}
+
+	String buildRawBodyForNonSubscriber(String recipientName){
 		StringBuilder sb = new StringBuilder();
-		String recipientName = EmailUtils.getDisplayNameWithUsername(user.getFirstName(), user.getLastName(), user.getUsername());
 		sb.append(String.format(GREETING, recipientName));
 		sb.append(String.format(emailTemplate, actorUsername, actorUserId, threadTitleTruncated, projectId, threadId, projectName));
 		sb.append(markdown+"\n\n");
@@ -167,4 +251,39 @@ public class DiscussionBroadcastMessageBuilder implements BroadcastMessageBuilde
 		}
 		return results;
 	}
+
+	/**
+	 * An email body rendered to HTML with the per-recipient fields left as
+	 * placeholders.
+	 */
+	static class RenderedTemplate {
+
+		private final String html;
+		private final boolean substitutable;
+
+		RenderedTemplate(String html, boolean substitutable) {
+			this.html = html;
+			this.substitutable = substitutable;
+		}
+
+		boolean isSubstitutable() {
+			return substitutable;
+		}
+
+		/**
+		 * The values are escaped since they no longer pass through the markdown
+		 * renderer.
+		 * 
+		 * @param recipientName
+		 * @param subscriptionId
+		 * @return
+		 */
+		String substitute(String recipientName, String subscriptionId) {
+			String result = html.replace(RECIPIENT_NAME_PLACEHOLDER, StringEscapeUtils.escapeHtml4(recipientName));
+			if (subscriptionId != null) {
+				result = result.replace(SUBSCRIPTION_ID_PLACEHOLDER, StringEscapeUtils.escapeHtml4(subscriptionId));
+			}
+			return result;
+		}
+	}
 }
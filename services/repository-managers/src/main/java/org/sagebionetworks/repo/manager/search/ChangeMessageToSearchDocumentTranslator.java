@@ -1,9 +1,16 @@
 package org.sagebionetworks.repo.manager.search;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.sagebionetworks.repo.model.ObjectType;
 import org.sagebionetworks.repo.model.dao.WikiPageKey;
+import org.sagebionetworks.repo.model.jdo.KeyFactory;
 import org.sagebionetworks.repo.model.message.ChangeMessage;
 import org.sagebionetworks.repo.model.search.Document;
 import org.sagebionetworks.repo.model.search.DocumentTypeNames;
@@ -43,6 +50,67 @@ public class ChangeMessageToSearchDocumentTranslator {
 		}
 	}
 
+	/**
+	 * Generate the search documents for a batch of changes. The documents of
+	 * all changed entities are built together with a single call to the
+	 * driver, and each entity is only included once.
+	 * 
+	 * @param changes
+	 * @return The documents in the order of the changes.
+	 */
+	List<Document> generateSearchDocumentsIfNecessary(List<ChangeMessage> changes) {
+		long start = System.currentTimeMillis();
+		// Resolve the entity of each change.
+		List<String> entityIds = new ArrayList<>(changes.size());
+		List<CloudSearchDocumentLogRecord> records = new ArrayList<>(changes.size());
+		List<String> toFormulate = new ArrayList<>(changes.size());
+		for (ChangeMessage change : changes) {
+			CloudSearchDocumentLogRecord record = recordLogger.startRecordForChangeMessage(change);
+			String entityId;
+			switch (change.getObjectType()) {
+			case ENTITY:
+				entityId = change.getObjectId();
+				break;
+			case WIKI:
+				entityId = lookupWikiOwnerEntityId(change.getObjectId(), record);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown change type: " + change.getChangeType());
+			}
+			entityIds.add(entityId);
+			records.add(record);
+			if (entityId != null) {
+				toFormulate.add(entityId);
+			}
+		}
+		Map<Long, Document> documents = searchDocumentDriver.formulateSearchDocuments(toFormulate);
+		List<Document> results = new ArrayList<>(toFormulate.size());
+		Set<Long> included = new HashSet<>(toFormulate.size());
+		for (int i = 0; i < entityIds.size(); i++) {
+			String entityId = entityIds.get(i);
+			if (entityId == null) {
+				// this change is ignored.
+				continue;
+			}
+			Long id = KeyFactory.stringToKey(entityId);
+			Document document = documents.get(id);
+			if (document == null) {
+				// The entity no longer exists.
+				records.get(i).withAction(DocumentAction.DELETE);
+				document = createDeleteDocument(entityId);
+			} else {
+				records.get(i).withAction(DocumentAction.CREATE_OR_UPDATE);
+			}
+			if (included.add(id)) {
+				results.add(document);
+			}
+		}
+		long elapsedMS = Math.max(1L, System.currentTimeMillis() - start);
+		log.info("Generated " + results.size() + " search documents for " + changes.size() + " changes in " + elapsedMS
+				+ " ms (" + (results.size() * 1000L / elapsedMS) + " documents/s)");
+		return results;
+	}
+
 	/**
 	 * Wiki changes are converted into entity changes.
 	 * @param wikiId
@@ -50,6 +118,22 @@ public class ChangeMessageToSearchDocumentTranslator {
 	 * @return
 	 */
 	Document wikiChange(String wikiId, CloudSearchDocumentLogRecord record) {
+		String entityId = lookupWikiOwnerEntityId(wikiId, record);
+		if (entityId == null) {
+			return null;
+		}
+		return entityChange(entityId, record);
+	}
+
+	/**
+	 * Lookup the entity that owns the given wiki.
+	 * 
+	 * @param wikiId
+	 * @param record
+	 * @return The ID of the owner entity or null if the change should be
+	 *         ignored.
+	 */
+	String lookupWikiOwnerEntityId(String wikiId, CloudSearchDocumentLogRecord record) {
 		// Lookup the owner of the page
 		try {
 			WikiPageKey key = wikiPageDao.lookupWikiKey(wikiId);
@@ -57,7 +141,7 @@ public class ChangeMessageToSearchDocumentTranslator {
 			// message.
 			if (ObjectType.ENTITY == key.getOwnerObjectType()) {
 				record.withWikiOwner(key.getOwnerObjectId());
-				return entityChange(key.getOwnerObjectId(), record);
+				return key.getOwnerObjectId();
 			}
 		} catch (NotFoundException e) {
 			// Nothing to do if the wiki does not exist
@@ -1,6 +1,8 @@
 package org.sagebionetworks.repo.manager.search;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 import org.sagebionetworks.repo.model.AccessControlList;
 import org.sagebionetworks.repo.model.DatastoreException;
@@ -32,6 +34,18 @@ public interface SearchDocumentDriver {
 	 * @throws IOException TODO
 	 */
 	public Document formulateSearchDocument(String nodeId) throws DatastoreException, NotFoundException;
+	
+	/**
+	 * Create the search documents for a batch of entities. The data for the
+	 * whole batch is loaded in bulk and the wiki text of each entity is fetched
+	 * in parallel.
+	 * 
+	 * @param entityIds
+	 * @return Map of entity id to its search document. Entities that do not
+	 *         exist or are in the trash are not included.
+	 */
+	public Map<Long, Document> formulateSearchDocuments(List<String> entityIds);
+	
 	/**
 	 * Create a search document and return it.
 	 *
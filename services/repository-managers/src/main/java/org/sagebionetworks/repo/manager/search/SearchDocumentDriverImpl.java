@@ -10,8 +10,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,6 +35,8 @@ import org.sagebionetworks.repo.model.annotation.v2.AnnotationsV2Utils;
 import org.sagebionetworks.repo.model.annotation.v2.AnnotationsValue;
 import org.sagebionetworks.repo.model.dao.WikiPageKey;
 import org.sagebionetworks.repo.model.dao.WikiPageKeyHelper;
+import org.sagebionetworks.repo.model.dbo.wikiV2.WikiMarkdownCache;
+import org.sagebionetworks.repo.model.jdo.KeyFactory;
 import org.sagebionetworks.repo.model.search.Document;
 import org.sagebionetworks.repo.model.search.DocumentFields;
 import org.sagebionetworks.repo.model.search.DocumentTypeNames;
@@ -39,6 +45,7 @@ import org.sagebionetworks.repo.model.v2.wiki.V2WikiHeader;
 import org.sagebionetworks.repo.model.v2.wiki.V2WikiPage;
 import org.sagebionetworks.repo.web.NotFoundException;
 import org.sagebionetworks.search.SearchUtil;
+import org.sagebionetworks.util.ValidateArgument;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -68,6 +75,10 @@ public class SearchDocumentDriverImpl implements SearchDocumentDriver {
 	private AccessControlListDAO aclDAO;
 	@Autowired
 	V2WikiPageDao wikiPageDao;
+	@Autowired
+	WikiMarkdownCache wikiMarkdownCache;
+	@Autowired
+	ExecutorService searchDocumentThreadPool;
 
 	static { // initialize SEARCHABLE_NODE_ANNOTATIONS
 		// NOTE: ORDER MATTERS. Earlier annotation key names will be preferred over later ones if both keys are present.
@@ -260,6 +271,72 @@ public class SearchDocumentDriverImpl implements SearchDocumentDriver {
 		return formulateFromBackup(node);
 	}
 
+	@Override
+	public Map<Long, Document> formulateSearchDocuments(List<String> entityIds) {
+		ValidateArgument.required(entityIds, "entityIds");
+		Map<Long, Document> results = new LinkedHashMap<>(entityIds.size());
+		List<Long> availableIds = new ArrayList<>(nodeDao.getAvailableNodes(KeyFactory.stringToKey(entityIds)));
+		if (availableIds.isEmpty()) {
+			return results;
+		}
+		List<Node> nodes = nodeDao.getNodes(availableIds);
+		// Start fetching the wiki text of each node while the rest is loaded.
+		Map<String, Future<String>> wikiText = new HashMap<>(nodes.size());
+		try {
+			for (Node node : nodes) {
+				wikiText.put(node.getId(), searchDocumentThreadPool.submit(() -> getAllWikiPageText(node.getId())));
+			}
+			Map<Long, Long> benefactorIds = nodeDao.getBenefactors(availableIds);
+			Map<Long, Annotations> annotations = nodeDao.getUserAnnotationsForCurrentVersions(availableIds);
+			// Most entities of a batch share a few benefactors so each ACL is only read once.
+			Map<Long, AccessControlList> benefactorAcls = new HashMap<>();
+			for (Node node : nodes) {
+				Long nodeId = KeyFactory.stringToKey(node.getId());
+				Long benefactorId = benefactorIds.get(nodeId);
+				if (benefactorId == null) {
+					throw new NotFoundException("Benefactor not found for: " + node.getId());
+				}
+				AccessControlList benefactorACL = benefactorAcls.get(benefactorId);
+				if (benefactorACL == null) {
+					benefactorACL = aclDAO.get(KeyFactory.keyToString(benefactorId), ObjectType.ENTITY);
+					benefactorAcls.put(benefactorId, benefactorACL);
+				}
+				Annotations annos = annotations.get(nodeId);
+				if (annos == null) {
+					throw new NotFoundException("Annotations not found for: " + node.getId());
+				}
+				String wikiPagesText = getFutureResult(wikiText.get(node.getId()));
+				results.put(nodeId, formulateSearchDocument(node, annos, benefactorACL, wikiPagesText));
+			}
+			return results;
+		} finally {
+			// Nothing more to fetch if a document could not be built.
+			for (Future<String> future : wikiText.values()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the result of the given future.
+	 * 
+	 * @param future
+	 * @return
+	 */
+	static String getFutureResult(Future<String> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DatastoreException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new DatastoreException(e.getCause());
+		}
+	}
+
 	/**
 	 * Get all wiki text for an entity.
 	 * 
@@ -287,7 +364,8 @@ public class SearchDocumentDriverImpl implements SearchDocumentDriver {
 					builder.append("\n");
 					builder.append(page.getTitle());
 				}
-				String markdownString = wikiPageDao.getMarkdown(key, null);
+				// The page already names its markdown so skip the lookup done by getMarkdown().
+				String markdownString = wikiMarkdownCache.getMarkdown(page.getMarkdownFileHandleId());
 				builder.append("\n");
 				builder.append(markdownString);
 			}
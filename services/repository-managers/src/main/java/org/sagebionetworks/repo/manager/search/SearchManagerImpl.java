@@ -1,9 +1,7 @@
 package org.sagebionetworks.repo.manager.search;
 
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -23,7 +21,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import com.amazonaws.services.cloudsearchdomain.model.SearchRequest;
 import com.amazonaws.services.cloudsearchdomain.model.SearchResult;
-import com.google.common.collect.Iterators;
 
 public class SearchManagerImpl implements SearchManager{
 	private static final Logger log = LogManager.getLogger(SearchManagerImpl.class.getName());
@@ -118,10 +115,8 @@ public class SearchManagerImpl implements SearchManager{
 	@Override
 	public void documentChangeMessages(List<ChangeMessage> messages){
 		try {
-			Iterator<Document> documentIterator = Iterators.filter(
-					Iterators.transform(messages.iterator(), translator::generateSearchDocumentIfNecessary),
-					Objects::nonNull);
-			searchDao.sendDocuments(documentIterator);
+			List<Document> documents = translator.generateSearchDocumentsIfNecessary(messages);
+			searchDao.sendDocuments(documents.iterator());
 		}finally {
 			recordLogger.pushAllRecordsAndReset();
 		}
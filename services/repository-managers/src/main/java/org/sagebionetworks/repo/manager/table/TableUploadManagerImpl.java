@@ -19,12 +19,11 @@ import org.sagebionetworks.repo.model.table.TableUpdateResponse;
 import org.sagebionetworks.repo.model.table.UploadToTableRequest;
 import org.sagebionetworks.table.cluster.utils.CSVUtils;
 import org.sagebionetworks.util.FileProvider;
+import org.sagebionetworks.util.csv.CSVCellReader;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.amazonaws.services.s3.model.GetObjectRequest;
 
-import au.com.bytecode.opencsv.CSVReader;
-
 public class TableUploadManagerImpl implements TableUploadManager {
 	
 	@Autowired
@@ -38,7 +37,7 @@ public class TableUploadManagerImpl implements TableUploadManager {
 
 	@Override
 	public TableUpdateResponse uploadCSV(ProgressCallback progressCallback, UserInfo user, UploadToTableRequest request, UploadRowProcessor rowProcessor) {
-		CSVReader reader = null;
+		CSVCellReader reader = null;
 		File tempFile = null;
 		try{
 			// Get the filehandle
@@ -57,7 +56,7 @@ public class TableUploadManagerImpl implements TableUploadManager {
 			s3Client.getObject(new GetObjectRequest(fileHandle.getBucketName(), fileHandle.getKey()), tempFile);
 			// Create a reader from the passed parameters
 			// Note: The CSVToRowIterator handles linesToSkip so we pass null linesToSkip for the reader.
-			reader = CSVUtils.createCSVReader(new InputStreamReader(fileProvider.createFileInputStream(tempFile), "UTF-8"), request.getCsvTableDescriptor(), null);
+			reader = CSVUtils.createCSVCellReader(new InputStreamReader(fileProvider.createFileInputStream(tempFile), "UTF-8"), request.getCsvTableDescriptor(), null);
 			
 			if(request.getColumnIds() != null && !request.getColumnIds().isEmpty()){
 				throw new IllegalArgumentException("Unsupported columnIds");
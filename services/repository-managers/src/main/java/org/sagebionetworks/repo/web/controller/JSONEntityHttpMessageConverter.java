@@ -2,16 +2,22 @@ package org.sagebionetworks.repo.web.controller;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.sagebionetworks.repo.model.Entity;
 import org.sagebionetworks.repo.model.ErrorResponse;
 import org.sagebionetworks.repo.util.JSONEntityUtil;
@@ -32,6 +38,7 @@ import org.springframework.http.converter.HttpMessageNotWritableException;
 public class JSONEntityHttpMessageConverter implements	HttpMessageConverter<JSONEntity> {
 
 	private static final String UTF_8 = "UTF-8";
+	private static final int BUFFER_SIZE = 8192;
 	private static final String CONCRETE_TYPE = "concreteType";
 	private static final String ENTITY_TYPE = "entityType";
 	private List<MediaType> supportedMedia;
@@ -102,21 +109,25 @@ public class JSONEntityHttpMessageConverter implements	HttpMessageConverter<JSON
 			// HTTP 1.1 says that the default is ISO-8859-1
 			charsetForDeSerializingBody = HTTP_1_1_DEFAULT_CHARSET;
 		}
-		String jsonString = JSONEntityHttpMessageConverter.readToString(inputMessage.getBody(), charsetForDeSerializingBody);
+		// Parse directly from the body so the request is never held as a string.
+		JSONObject jsonObject;
 		try {
-			return EntityFactory.createEntityFromJSONString(jsonString, clazz);
+			jsonObject = JSONEntityHttpMessageConverter.readToJSONObject(inputMessage.getBody(), charsetForDeSerializingBody);
+		} catch (JSONException e) {
+			throw new HttpMessageNotReadableException(e.getMessage(), e);
+		}
+		try {
+			return EntityFactory.createEntityFromJSONObject(jsonObject, clazz);
 		} catch (JSONObjectAdapterException e) {
 			// Try to convert entity type to a concrete type and try again. See PLFM-2079.
 			try {
-				JSONObject jsonObject = new JSONObject(jsonString);
 				if(jsonObject.has(ENTITY_TYPE)){
 					// get the entity type so we can replace it with concrete type
 					String type = jsonObject.getString(ENTITY_TYPE);
 					jsonObject.remove(ENTITY_TYPE);
 					jsonObject.put(CONCRETE_TYPE, type);
-					jsonString = jsonObject.toString();
 					// try again
-					return EntityFactory.createEntityFromJSONString(jsonString, clazz);
+					return EntityFactory.createEntityFromJSONObject(jsonObject, clazz);
 				}else{
 					// Something else went wrong
 					throw new HttpMessageNotReadableException(e.getMessage(), e);
@@ -129,6 +140,45 @@ public class JSONEntityHttpMessageConverter implements	HttpMessageConverter<JSON
 		}
 	}
 
+	/**
+	 * Parse a JSON object directly from an input stream.
+	 * 
+	 * @param in
+	 * @param charSet
+	 * @return
+	 * @throws IOException
+	 * @throws JSONException If the stream does not contain a JSON object.
+	 */
+	public static JSONObject readToJSONObject(InputStream in, Charset charSet) throws IOException {
+		if(in == null) throw new IllegalArgumentException("No content to map to Object due to end of input");
+		if(charSet == null){
+			charSet = Charset.forName(UTF_8);
+		}
+		try (Reader reader = new BufferedReader(new InputStreamReader(in, charSet), BUFFER_SIZE)) {
+			return readToJSONObject(reader);
+		}
+	}
+
+	/**
+	 * Parse a JSON object directly from a reader.
+	 * 
+	 * @param reader
+	 * @return
+	 * @throws IOException
+	 * @throws JSONException If the reader does not contain a JSON object.
+	 */
+	static JSONObject readToJSONObject(Reader reader) throws IOException {
+		try {
+			return new JSONObject(new JSONTokener(reader));
+		} catch (JSONException e) {
+			// The tokener wraps failures of the underlying stream.
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
 	/**
 	 * Read a string from an input stream
 	 * 
@@ -200,6 +250,39 @@ public class JSONEntityHttpMessageConverter implements	HttpMessageConverter<JSON
 		}
 	}
 
+	/**
+	 * Write a JSON object to an output stream without first converting it to a
+	 * string.
+	 * 
+	 * @param json
+	 * @param out
+	 * @param charSet
+	 * @return The number of bytes written.
+	 * @throws IOException
+	 */
+	public static long writeToStream(JSONObject json, OutputStream out, Charset charSet) throws IOException {
+		try {
+			if(charSet == null){
+				charSet = Charset.forName(UTF_8);
+			}
+			CountingOutputStream counting = new CountingOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+			Writer writer = new OutputStreamWriter(counting, charSet);
+			try {
+				json.write(writer);
+			} catch (JSONException e) {
+				// The object writes through the writer so I/O failures arrive wrapped.
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw e;
+			}
+			writer.flush();
+			return counting.getByteCount();
+		} finally {
+			out.close();
+		}
+	}
+
 	@Override
 	public void write(JSONEntity entity, final MediaType contentType,
 			HttpOutputMessage outputMessage) throws IOException,
@@ -223,17 +306,18 @@ public class JSONEntityHttpMessageConverter implements	HttpMessageConverter<JSON
 			}
 			HttpHeaders headers = outputMessage.getHeaders();
 			headers.setContentType(contentTypeForResponseHeader);
-			String jsonString;
-			if (contentTypeForResponseHeader.includes(MediaType.TEXT_PLAIN)) {
-				jsonString = convertEntityToPlainText(entity);
+			long length;
+			if (contentTypeForResponseHeader.includes(MediaType.TEXT_PLAIN) && entity instanceof ErrorResponse) {
+				length = JSONEntityHttpMessageConverter.writeToStream(convertEntityToPlainText(entity), outputMessage.getBody(), charsetForSerializingBody);
 			} else {
-				jsonString = EntityFactory.createJSONStringForEntity(entity);
+				// Stream the JSON to the body so the response is never held as a string.
+				JSONObject json = EntityFactory.createJSONObjectForEntity(entity);
+				length = JSONEntityHttpMessageConverter.writeToStream(json, outputMessage.getBody(), charsetForSerializingBody);
 			}
-			long length = JSONEntityHttpMessageConverter.writeToStream(jsonString, outputMessage.getBody(), charsetForSerializingBody);
 			if (headers.getContentLength() == -1) {
 				headers.setContentLength(length);
 			}
-		} catch (JSONObjectAdapterException e) {
+		} catch (JSONObjectAdapterException | JSONException e) {
 			throw new HttpMessageNotWritableException(e.getMessage(), e);
 		}
 
@@ -255,10 +339,15 @@ public class JSONEntityHttpMessageConverter implements	HttpMessageConverter<JSON
 	 * @throws JSONObjectAdapterException 
 	 */
 	public static Entity readEntity(Reader reader) throws IOException, JSONObjectAdapterException {
-		// First read in the string
-		String jsonString = readToString(reader);
-		// Read it into an adapter
-		JSONObjectAdapter adapter = new JSONObjectAdapterImpl(jsonString);
+		// Parse directly from the reader into an adapter
+		JSONObjectAdapter adapter;
+		try {
+			adapter = new JSONObjectAdapterImpl(readToJSONObject(reader));
+		} catch (JSONException e) {
+			throw new JSONObjectAdapterException(e);
+		} finally {
+			reader.close();
+		}
 		return createEntityFromeAdapter(adapter);
 	}
 
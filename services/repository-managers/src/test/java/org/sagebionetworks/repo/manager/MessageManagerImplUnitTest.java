@@ -3,9 +3,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -13,10 +15,13 @@ import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
@@ -29,11 +34,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.StackConfigurationSingleton;
+import org.sagebionetworks.common.util.progress.ProgressCallback;
+import org.sagebionetworks.common.util.progress.ProgressListener;
 import org.sagebionetworks.repo.manager.file.FileHandleManager;
 import org.sagebionetworks.repo.manager.principal.SynapseEmailService;
 import org.sagebionetworks.repo.model.ACCESS_TYPE;
 import org.sagebionetworks.repo.model.AuthorizationConstants.BOOTSTRAP_PRINCIPAL;
 import org.sagebionetworks.repo.model.GroupMembersDAO;
+import org.sagebionetworks.repo.model.IdList;
+import org.sagebionetworks.repo.model.ListWrapper;
 import org.sagebionetworks.repo.model.MessageDAO;
 import org.sagebionetworks.repo.model.NodeDAO;
 import org.sagebionetworks.repo.model.ObjectType;
@@ -49,17 +58,24 @@ import org.sagebionetworks.repo.model.dao.NotificationEmailDAO;
 import org.sagebionetworks.repo.model.file.FileHandle;
 import org.sagebionetworks.repo.model.file.S3FileHandle;
 import org.sagebionetworks.repo.model.message.MessageRecipientSet;
+import org.sagebionetworks.repo.model.message.MessageStatus;
+import org.sagebionetworks.repo.model.message.MessageStatusType;
 import org.sagebionetworks.repo.model.message.MessageToUser;
+import org.sagebionetworks.repo.model.message.Settings;
 import org.sagebionetworks.repo.model.message.multipart.MessageBody;
 import org.sagebionetworks.repo.model.principal.AliasType;
 import org.sagebionetworks.repo.model.principal.PrincipalAlias;
 import org.sagebionetworks.repo.model.principal.PrincipalAliasDAO;
 import org.sagebionetworks.repo.util.MessageTestUtil;
+import org.sagebionetworks.repo.web.NotFoundException;
 import org.sagebionetworks.schema.adapter.org.json.EntityFactory;
 import org.sagebionetworks.util.SerializationUtils;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 
 
 public class MessageManagerImplUnitTest {
@@ -90,6 +106,8 @@ public class MessageManagerImplUnitTest {
 	private SynapseEmailService sesClient;
 	@Mock
 	private FileHandleManager fileHandleManager;
+	@Mock
+	private ProgressCallback progressCallback;
 	
 	private MessageToUser mtu;
 	private FileHandle fileHandle;
@@ -100,6 +118,8 @@ public class MessageManagerImplUnitTest {
 	private static final Long RECIPIENT_ID = 888L;
 	private static final String RECIPIENT_EMAIL = "bar@sagebase.org";
 	private static final String RECIPIENT_EMAIL_ALIAS = "bar@alternative.org";
+	private static final Long OTHER_RECIPIENT_ID = 887L;
+	private static final Long TEAM_ID = 777L;
 	private static final String FILE_HANDLE_ID = "222";
 	private static final String UNSUBSCRIBE_ENDPOINT = "https://www.synapse.org/#unsub:";
 	private static final String PROFILE_SETTING_ENDPOINT = "https://www.synapse.org/#profile:edit";
@@ -602,4 +622,116 @@ public class MessageManagerImplUnitTest {
 		assertFalse(mtu.getIsNotificationMessage());
 		assertFalse(mtu.getWithUnsubscribeLink());
 	}
+
+	/**
+	 * Setup a message sent to a team with two members, only one of which has a notification email.
+	 */
+	private ExecutorService setupMessageToTeam() throws Exception {
+		UserGroup team = new UserGroup();
+		team.setId(TEAM_ID.toString());
+		team.setIsIndividual(false);
+		when(userGroupDAO.get(eq(TEAM_ID))).thenReturn(team);
+		when(authorizationManager.canAccess(creatorUserInfo, TEAM_ID.toString(),
+				ObjectType.TEAM, ACCESS_TYPE.SEND_MESSAGE)).thenReturn(AuthorizationStatus.authorized());
+		mtu.setRecipients(Collections.singleton(TEAM_ID.toString()));
+
+		fileHandle.setContentType("text/plain");
+		when(fileHandleManager.downloadFileToString(FILE_HANDLE_ID)).thenReturn("message body");
+		when(fileHandleDAO.get(FILE_HANDLE_ID)).thenReturn(fileHandle);
+
+		when(groupMembersDao.getIndividuals(Collections.singleton(TEAM_ID.toString()), MessageManagerImpl.RECIPIENT_PAGE_SIZE, 0L))
+				.thenReturn(Sets.newHashSet(RECIPIENT_ID.toString(), OTHER_RECIPIENT_ID.toString()));
+		when(notificationEmailDao.getNotificationEmailsForPrincipals(Sets.newHashSet(RECIPIENT_ID, OTHER_RECIPIENT_ID)))
+				.thenReturn(ImmutableMap.of(RECIPIENT_ID, RECIPIENT_EMAIL));
+		when(notificationEmailDao.getNotificationEmailsForPrincipals(Collections.singleton(RECIPIENT_ID)))
+				.thenReturn(ImmutableMap.of(RECIPIENT_ID, RECIPIENT_EMAIL));
+
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		messageManager.setEmailSendThreadPool(pool);
+		messageManager.setEmailRateLimiter(RateLimiter.create(1000));
+		return pool;
+	}
+
+	private static UserProfile createProfile(Long ownerId, Boolean markEmailedMessagesAsRead) {
+		UserProfile profile = new UserProfile();
+		profile.setOwnerId(ownerId.toString());
+		Settings settings = new Settings();
+		settings.setMarkEmailedMessagesAsRead(markEmailedMessagesAsRead);
+		profile.setNotificationSettings(settings);
+		return profile;
+	}
+
+	@Test
+	public void testSendMessageToTeam() throws Exception {
+		ExecutorService pool = setupMessageToTeam();
+		UserProfile recipient = createProfile(RECIPIENT_ID, true);
+		UserProfile other = createProfile(OTHER_RECIPIENT_ID, null);
+		when(userProfileManager.list(any(IdList.class))).thenReturn(ListWrapper.wrap(Arrays.asList(recipient, other), UserProfile.class));
+		try {
+			// call under test
+			List<String> errors = messageManager.processMessage(MESSAGE_ID, progressCallback);
+
+			assertEquals(1, errors.size());
+			assertTrue(errors.get(0).contains("(" + OTHER_RECIPIENT_ID + ")"));
+			// settings, statuses and emails are each resolved with a single call
+			verify(userProfileManager, never()).getUserProfile(RECIPIENT_ID.toString());
+			verify(messageDAO).createMessageStatus_NewTransaction(MESSAGE_ID,
+					Arrays.asList(RECIPIENT_ID.toString(), OTHER_RECIPIENT_ID.toString()), null);
+			verify(messageDAO, never()).createMessageStatus_NewTransaction(anyString(), anyString(), any());
+			verify(notificationEmailDao, never()).getNotificationEmailForPrincipal(RECIPIENT_ID);
+			ArgumentCaptor<SendRawEmailRequest> argument = ArgumentCaptor.forClass(SendRawEmailRequest.class);
+			verify(sesClient).sendRawEmail(argument.capture());
+			assertEquals(Collections.singletonList(RECIPIENT_EMAIL), argument.getValue().getDestinations());
+			// only the emailed recipient that asked for it is marked as READ
+			MessageStatus read = new MessageStatus();
+			read.setMessageId(MESSAGE_ID);
+			read.setRecipientId(RECIPIENT_ID.toString());
+			read.setStatus(MessageStatusType.READ);
+			verify(messageDAO).updateMessageStatus_NewTransaction(read);
+			verify(messageDAO).updateMessageTransmissionAsComplete(MESSAGE_ID);
+			verify(progressCallback).addProgressListener(any(ProgressListener.class));
+			verify(progressCallback).removeProgressListener(any(ProgressListener.class));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSendMessageToTeamWithMissingProfile() throws Exception {
+		ExecutorService pool = setupMessageToTeam();
+		when(userProfileManager.list(any(IdList.class))).thenThrow(new NotFoundException());
+		when(userProfileManager.getUserProfile(OTHER_RECIPIENT_ID.toString())).thenThrow(new NotFoundException("no profile"));
+		try {
+			// call under test
+			List<String> errors = messageManager.processMessage(MESSAGE_ID, progressCallback);
+
+			assertEquals(Collections.singletonList("Failed while processing message for recipient (" + OTHER_RECIPIENT_ID + "): no profile"), errors);
+			verify(messageDAO).createMessageStatus_NewTransaction(MESSAGE_ID, Collections.singletonList(RECIPIENT_ID.toString()), null);
+			verify(sesClient).sendRawEmail(any(SendRawEmailRequest.class));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSendMessageToTeamWithBatchStatusFailure() throws Exception {
+		ExecutorService pool = setupMessageToTeam();
+		UserProfile recipient = createProfile(RECIPIENT_ID, null);
+		UserProfile other = createProfile(OTHER_RECIPIENT_ID, null);
+		when(userProfileManager.list(any(IdList.class))).thenReturn(ListWrapper.wrap(Arrays.asList(recipient, other), UserProfile.class));
+		doThrow(new IllegalArgumentException("duplicate")).when(messageDAO).createMessageStatus_NewTransaction(anyString(), any(List.class), any());
+		doThrow(new IllegalArgumentException("duplicate")).when(messageDAO).createMessageStatus_NewTransaction(MESSAGE_ID, OTHER_RECIPIENT_ID.toString(), null);
+		try {
+			// call under test
+			List<String> errors = messageManager.processMessage(MESSAGE_ID, progressCallback);
+
+			assertEquals(Collections.singletonList("Failed while processing message for recipient (" + OTHER_RECIPIENT_ID + "): duplicate"), errors);
+			verify(messageDAO).createMessageStatus_NewTransaction(MESSAGE_ID, RECIPIENT_ID.toString(), null);
+			verify(notificationEmailDao).getNotificationEmailsForPrincipals(Collections.singleton(RECIPIENT_ID));
+			verify(sesClient).sendRawEmail(any(SendRawEmailRequest.class));
+			verify(messageDAO, never()).updateMessageStatus_NewTransaction(any(MessageStatus.class));
+		} finally {
+			pool.shutdown();
+		}
+	}
 }
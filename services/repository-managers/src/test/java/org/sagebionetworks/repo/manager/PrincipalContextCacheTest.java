@@ -0,0 +1,251 @@
+package org.sagebionetworks.repo.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.repo.manager.PrincipalContextCache.PrincipalContext;
+import org.sagebionetworks.repo.model.GroupMembersDAO;
+import org.sagebionetworks.repo.model.ObjectType;
+import org.sagebionetworks.repo.model.dbo.dao.DBOChangeDAO;
+import org.sagebionetworks.repo.model.message.ChangeMessage;
+import org.sagebionetworks.repo.model.message.ChangeType;
+import org.sagebionetworks.repo.model.message.TransactionalMessenger;
+import org.sagebionetworks.util.Clock;
+import org.sagebionetworks.util.SortedLongSet;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PrincipalContextCacheTest {
+
+	@Mock
+	TransactionalMessenger mockTransactionalMessenger;
+	@Mock
+	DBOChangeDAO mockChangeDAO;
+	@Mock
+	GroupMembersDAO mockGroupMembersDAO;
+	@Mock
+	Clock mockClock;
+	@InjectMocks
+	PrincipalContextCache cache;
+
+	PrincipalContext userOne;
+	PrincipalContext userTwo;
+	PrincipalContext userThree;
+
+	@Before
+	public void before() {
+		when(mockClock.currentTimeMillis()).thenReturn(1000L);
+		when(mockChangeDAO.getCurrentChangeNumber()).thenReturn(4L);
+		cache.setCommitGraceMS(0L);
+		cache.setPollIntervalMS(0L);
+		cache.initialize();
+		userOne = new PrincipalContext(1L, new Date(1), new SortedLongSet(1L, 100L), false);
+		userTwo = new PrincipalContext(2L, new Date(2), new SortedLongSet(2L, 100L), false);
+		userThree = new PrincipalContext(3L, new Date(3), new SortedLongSet(3L), false);
+	}
+
+	@Test
+	public void testInitialize() {
+		verify(mockTransactionalMessenger).removeObserver(cache);
+		verify(mockTransactionalMessenger).registerObserver(cache);
+		verify(mockChangeDAO).getCurrentChangeNumber();
+	}
+
+	@Test
+	public void testPutAndGet() {
+		assertNull(cache.get(1L));
+		cache.put(userOne, cache.getGeneration());
+		assertSame(userOne, cache.get(1L));
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(1L, cache.getMissCount());
+	}
+
+	@Test
+	public void testExpired() {
+		cache.setTimeToLiveMS(500L);
+		cache.put(userOne, cache.getGeneration());
+		when(mockClock.currentTimeMillis()).thenReturn(1499L);
+		assertSame(userOne, cache.get(1L));
+		when(mockClock.currentTimeMillis()).thenReturn(1500L);
+		assertNull(cache.get(1L));
+	}
+
+	@Test
+	public void testPutAfterInvalidation() {
+		long generation = cache.getGeneration();
+		// a change is committed while the context is loaded.
+		cache.invalidate(2L);
+		cache.put(userOne, generation);
+		assertNull(cache.get(1L));
+	}
+
+	@Test
+	public void testMaxEntries() {
+		cache.setMaxEntries(1);
+		cache.put(userOne, cache.getGeneration());
+		cache.put(userTwo, cache.getGeneration());
+		assertEquals(1, cache.size());
+		assertNull(cache.get(1L));
+		assertSame(userTwo, cache.get(2L));
+	}
+
+	@Test
+	public void testUserChange() {
+		cache.put(userOne, cache.getGeneration());
+		cache.put(userTwo, cache.getGeneration());
+		cache.fireChangeMessage(createMessage("1", ObjectType.PRINCIPAL, ChangeType.UPDATE));
+		assertNull(cache.get(1L));
+		assertSame(userTwo, cache.get(2L));
+	}
+
+	@Test
+	public void testGroupChange() {
+		cache.put(userOne, cache.getGeneration());
+		cache.put(userTwo, cache.getGeneration());
+		cache.put(userThree, cache.getGeneration());
+		// user two was removed from the group.
+		when(mockGroupMembersDAO.getMemberIds(100L)).thenReturn(new HashSet<Long>(Arrays.asList(1L)));
+		cache.fireChangeMessage(createMessage("100", ObjectType.PRINCIPAL, ChangeType.UPDATE));
+		assertNull(cache.get(1L));
+		assertNull(cache.get(2L));
+		assertSame(userThree, cache.get(3L));
+	}
+
+	@Test
+	public void testGroupChangeAddsMember() {
+		cache.put(userOne, cache.getGeneration());
+		cache.put(userThree, cache.getGeneration());
+		// user three was added to group 200.
+		when(mockGroupMembersDAO.getMemberIds(200L)).thenReturn(new HashSet<Long>(Arrays.asList(3L)));
+		cache.fireChangeMessage(createMessage("200", ObjectType.PRINCIPAL, ChangeType.UPDATE));
+		assertSame(userOne, cache.get(1L));
+		assertNull(cache.get(3L));
+	}
+
+	@Test
+	public void testGroupChangeWhileLoading() {
+		long generation = cache.getGeneration();
+		// a change to a group the user is not cached in is committed while the context is loaded.
+		cache.fireChangeMessage(createMessage("200", ObjectType.PRINCIPAL, ChangeType.UPDATE));
+		cache.put(userThree, generation);
+		assertNull(cache.get(3L));
+	}
+
+	@Test
+	public void testPrincipalCreate() {
+		cache.put(userOne, cache.getGeneration());
+		cache.fireChangeMessage(createMessage("100", ObjectType.PRINCIPAL, ChangeType.CREATE));
+		assertSame(userOne, cache.get(1L));
+	}
+
+	@Test
+	public void testOtherObjectType() {
+		cache.put(userOne, cache.getGeneration());
+		cache.fireChangeMessage(createMessage("1", ObjectType.ENTITY, ChangeType.UPDATE));
+		assertSame(userOne, cache.get(1L));
+	}
+
+	@Test
+	public void testPollUserChangeFromOtherInstance() {
+		cache.put(userOne, cache.getGeneration());
+		cache.put(userTwo, cache.getGeneration());
+		when(mockChangeDAO.listChanges(5L, ObjectType.PRINCIPAL, 1000L)).thenReturn(
+				Collections.singletonList(createChange(5L, "1", ChangeType.UPDATE)));
+		// call under test
+		assertNull(cache.get(1L));
+		assertSame(userTwo, cache.get(2L));
+	}
+
+	@Test
+	public void testPollGroupChangeFromOtherInstance() {
+		cache.put(userOne, cache.getGeneration());
+		cache.put(userTwo, cache.getGeneration());
+		when(mockChangeDAO.listChanges(5L, ObjectType.PRINCIPAL, 1000L)).thenReturn(
+				Collections.singletonList(createChange(5L, "100", ChangeType.UPDATE)));
+		// call under test
+		assertNull(cache.get(1L));
+		assertNull(cache.get(2L));
+	}
+
+	@Test
+	public void testPollThrottled() {
+		cache.setPollIntervalMS(100L);
+		cache.get(1L);
+		when(mockClock.currentTimeMillis()).thenReturn(1099L);
+		cache.get(1L);
+		verify(mockChangeDAO, times(1)).listChanges(anyLong(), eq(ObjectType.PRINCIPAL), eq(1000L));
+		when(mockClock.currentTimeMillis()).thenReturn(1100L);
+		cache.get(1L);
+		verify(mockChangeDAO, times(2)).listChanges(anyLong(), eq(ObjectType.PRINCIPAL), eq(1000L));
+	}
+
+	@Test
+	public void testPollSkipsAppliedChanges() {
+		cache.setCommitGraceMS(500L);
+		when(mockClock.currentTimeMillis()).thenReturn(2000L);
+		when(mockChangeDAO.listChanges(5L, ObjectType.PRINCIPAL, 1000L)).thenReturn(
+				Collections.singletonList(createChange(7L, "1", ChangeType.UPDATE)));
+		assertNull(cache.get(1L));
+		cache.put(userOne, cache.getGeneration());
+		// change seven is read again within the grace period but not applied again.
+		assertSame(userOne, cache.get(1L));
+	}
+
+	@Test
+	public void testPollRereadsWithinCommitGrace() {
+		cache.setCommitGraceMS(500L);
+		when(mockChangeDAO.listChanges(anyLong(), eq(ObjectType.PRINCIPAL), eq(1000L))).thenReturn(
+				Collections.singletonList(createChange(7L, "1", ChangeType.UPDATE)),
+				Collections.<ChangeMessage>emptyList());
+		cache.get(1L);
+		when(mockClock.currentTimeMillis()).thenReturn(1499L);
+		cache.get(1L);
+		// change six could still commit so the poll starts before change seven.
+		verify(mockChangeDAO, times(2)).listChanges(5L, ObjectType.PRINCIPAL, 1000L);
+		when(mockClock.currentTimeMillis()).thenReturn(1500L);
+		cache.get(1L);
+		cache.get(1L);
+		verify(mockChangeDAO).listChanges(8L, ObjectType.PRINCIPAL, 1000L);
+	}
+
+	@Test
+	public void testPutWithinInitialCommitGrace() {
+		cache.setCommitGraceMS(500L);
+		when(mockClock.currentTimeMillis()).thenReturn(1499L);
+		cache.put(userOne, cache.getGeneration());
+		assertNull(cache.get(1L));
+		when(mockClock.currentTimeMillis()).thenReturn(1500L);
+		cache.put(userOne, cache.getGeneration());
+		assertSame(userOne, cache.get(1L));
+	}
+
+	private static ChangeMessage createChange(Long changeNumber, String objectId, ChangeType changeType) {
+		ChangeMessage change = createMessage(objectId, ObjectType.PRINCIPAL, changeType);
+		change.setChangeNumber(changeNumber);
+		return change;
+	}
+
+	private static ChangeMessage createMessage(String objectId, ObjectType type, ChangeType changeType) {
+		ChangeMessage message = new ChangeMessage();
+		message.setObjectId(objectId);
+		message.setObjectType(type);
+		message.setChangeType(changeType);
+		return message;
+	}
+}
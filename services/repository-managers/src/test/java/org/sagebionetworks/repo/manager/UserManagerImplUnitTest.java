@@ -1,6 +1,9 @@
 package org.sagebionetworks.repo.manager;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -13,6 +16,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -23,6 +27,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.repo.manager.PrincipalContextCache.PrincipalContext;
+import org.sagebionetworks.repo.manager.team.TeamConstants;
+import org.sagebionetworks.repo.model.AuthorizationConstants.BOOTSTRAP_PRINCIPAL;
 import org.sagebionetworks.repo.model.auth.AuthenticationDAO;
 import org.sagebionetworks.repo.model.GroupMembersDAO;
 import org.sagebionetworks.repo.model.UnauthorizedException;
@@ -37,6 +44,7 @@ import org.sagebionetworks.repo.model.principal.AliasType;
 import org.sagebionetworks.repo.model.principal.PrincipalAlias;
 import org.sagebionetworks.repo.model.principal.PrincipalAliasDAO;
 import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.util.SortedLongSet;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.google.common.collect.Lists;
@@ -61,6 +69,8 @@ public class UserManagerImplUnitTest {
 	private PrincipalAliasDAO mockPrincipalAliasDAO;
 	@Mock
 	private NotificationEmailDAO notificationEmailDao;
+	@Mock
+	private PrincipalContextCache mockPrincipalContextCache;
 	
 	private UserInfo admin;
 	private UserInfo notAdmin;
@@ -99,6 +109,7 @@ public class UserManagerImplUnitTest {
 		ReflectionTestUtils.setField(userManager, "notificationEmailDao", notificationEmailDao);
 		ReflectionTestUtils.setField(userManager, "basicDAO", basicDAO);
 		ReflectionTestUtils.setField(userManager, "groupMembersDAO", mockGroupMembersDAO);
+		ReflectionTestUtils.setField(userManager, "principalContextCache", mockPrincipalContextCache);
 		
 		admin = new UserInfo(true);
 		notAdmin = new UserInfo(false);
@@ -155,6 +166,7 @@ public class UserManagerImplUnitTest {
 		// Call with an admin
 		userManager.deletePrincipal(admin, Long.parseLong(mockId));
 		verify(mockUserGroupDAO).delete(anyString());
+		verify(mockPrincipalContextCache).invalidate(Long.parseLong(mockId));
 		
 		// Call with a non admin
 		try {
@@ -237,4 +249,40 @@ public class UserManagerImplUnitTest {
 			assertEquals("Did not find a user with alias: unknown",e.getMessage());
 		}
 	}
+	
+	@Test
+	public void testGetUserInfoNotCached() throws Exception {
+		UserGroup team = new UserGroup();
+		team.setId("" + TeamConstants.ADMINISTRATORS_TEAM_ID);
+		when(mockGroupMembersDAO.getUsersGroups(mockId)).thenReturn(Collections.singletonList(team));
+		when(mockPrincipalContextCache.getGeneration()).thenReturn(3L);
+		// call under test
+		UserInfo userInfo = userManager.getUserInfo(Long.parseLong(mockId));
+		assertEquals(Long.parseLong(mockId), userInfo.getId().longValue());
+		assertTrue(userInfo.isAdmin());
+		assertEquals(Sets.newHashSet(Long.parseLong(mockId), TeamConstants.ADMINISTRATORS_TEAM_ID,
+				BOOTSTRAP_PRINCIPAL.PUBLIC_GROUP.getPrincipalId(),
+				BOOTSTRAP_PRINCIPAL.AUTHENTICATED_USERS_GROUP.getPrincipalId()), userInfo.getGroups());
+		verify(mockPrincipalContextCache).put(any(PrincipalContext.class), eq(3L));
+	}
+	
+	@Test
+	public void testGetUserInfoCached() throws Exception {
+		Long principalId = 123L;
+		SortedLongSet groups = new SortedLongSet(principalId, BOOTSTRAP_PRINCIPAL.PUBLIC_GROUP.getPrincipalId());
+		PrincipalContext context = new PrincipalContext(principalId, new Date(1L), groups, false);
+		when(mockPrincipalContextCache.get(principalId)).thenReturn(context);
+		// call under test
+		UserInfo userInfo = userManager.getUserInfo(principalId);
+		assertEquals(principalId, userInfo.getId());
+		assertFalse(userInfo.isAdmin());
+		assertEquals(new Date(1L), userInfo.getCreationDate());
+		assertEquals(groups, userInfo.getGroups());
+		// changes to the user's groups must not change the cached groups.
+		assertNotSame(groups, userInfo.getGroups());
+		userInfo.getGroups().add(TeamConstants.ACT_TEAM_ID);
+		assertFalse(groups.contains(TeamConstants.ACT_TEAM_ID));
+		verify(mockUserGroupDAO, never()).get(anyLong());
+		verify(mockGroupMembersDAO, never()).getUsersGroups(anyString());
+	}
 }
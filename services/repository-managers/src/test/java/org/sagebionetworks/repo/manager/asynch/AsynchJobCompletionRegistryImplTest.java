@@ -0,0 +1,186 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.repo.model.asynch.AsynchJobState;
+import org.sagebionetworks.repo.model.dao.asynch.AsynchronousJobStatusDAO;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsynchJobCompletionRegistryImplTest {
+
+	@Mock
+	AsynchronousJobStatusDAO mockAsynchJobStatusDao;
+	@Mock
+	AsynchJobDoneListener mockListener;
+
+	@InjectMocks
+	AsynchJobCompletionRegistryImpl registry;
+
+	ExecutorService executor;
+	String jobId;
+
+	@Before
+	public void before() {
+		jobId = "123";
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testWaitAlreadyDone() throws Exception {
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.COMPLETE);
+		// call under test
+		assertTrue(registry.waitForJobDone(jobId, 10000L));
+		assertEquals(1L, registry.getStateCheckCount());
+		assertEquals(0, registry.getWaitingJobCount());
+	}
+
+	@Test
+	public void testWaitFailedIsDone() throws Exception {
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.FAILED);
+		assertTrue(registry.waitForJobDone(jobId, 10000L));
+	}
+
+	@Test
+	public void testWaitTimeout() throws Exception {
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.PROCESSING);
+		// call under test
+		assertFalse(registry.waitForJobDone(jobId, 120L));
+		assertEquals(1L, registry.getTimeoutCount());
+		assertEquals(0, registry.getWaitingJobCount());
+	}
+
+	@Test
+	public void testWaitWokenByJobDone() throws Exception {
+		registry.setMaxRecheckIntervalMs(60000L);
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.PROCESSING);
+		Future<Boolean> first = executor.submit(() -> registry.waitForJobDone(jobId, 60000L));
+		Future<Boolean> second = executor.submit(() -> registry.waitForJobDone(jobId, 60000L));
+		waitForWaiters(2);
+		long start = System.currentTimeMillis();
+		// call under test
+		registry.jobDone(jobId);
+		assertTrue(first.get(10, TimeUnit.SECONDS));
+		assertTrue(second.get(10, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - start < 10000L);
+		assertEquals(1L, registry.getNotifiedCount());
+		assertEquals(0, registry.getWaitingJobCount());
+	}
+
+	@Test
+	public void testWaitWokenByRemoteJobDone() throws Exception {
+		registry.setMaxRecheckIntervalMs(60000L);
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.PROCESSING);
+		Future<Boolean> waiting = executor.submit(() -> registry.waitForJobDone(jobId, 60000L));
+		waitForWaiters(1);
+		// call under test
+		registry.remoteJobDone(jobId);
+		assertTrue(waiting.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testWaitDetectsStateChange() throws Exception {
+		// finished on another node without a notification.
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.PROCESSING,
+				AsynchJobState.PROCESSING, AsynchJobState.COMPLETE);
+		// call under test
+		assertTrue(registry.waitForJobDone(jobId, 10000L));
+		assertEquals(3L, registry.getStateCheckCount());
+	}
+
+	@Test
+	public void testJobDoneNotifiesListeners() {
+		registry.setListeners(Arrays.asList(mockListener));
+		// call under test
+		registry.jobDone(jobId);
+		verify(mockListener).jobDone(jobId);
+		// no waiters to wake.
+		assertEquals(0L, registry.getNotifiedCount());
+	}
+
+	@Test
+	public void testJobDoneListenerFailure() {
+		AsynchJobDoneListener other = org.mockito.Mockito.mock(AsynchJobDoneListener.class);
+		registry.setListeners(Arrays.asList(mockListener, other));
+		doThrow(new IllegalStateException("broken")).when(mockListener).jobDone(jobId);
+		// call under test
+		registry.jobDone(jobId);
+		verify(other).jobDone(jobId);
+	}
+
+	@Test
+	public void testWaitOverMaxWaiters() throws Exception {
+		registry.setMaxWaiters(1);
+		registry.setMaxRecheckIntervalMs(60000L);
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.PROCESSING);
+		Future<Boolean> waiting = executor.submit(() -> registry.waitForJobDone(jobId, 60000L));
+		waitForWaiters(1);
+		long start = System.currentTimeMillis();
+		// call under test
+		assertFalse(registry.waitForJobDone(jobId, 60000L));
+		assertTrue(System.currentTimeMillis() - start < 10000L);
+		assertEquals(1L, registry.getRejectedCount());
+		registry.jobDone(jobId);
+		assertTrue(waiting.get(10, TimeUnit.SECONDS));
+		// the permit is returned once the first request is done waiting.
+		when(mockAsynchJobStatusDao.getJobState(jobId)).thenReturn(AsynchJobState.COMPLETE);
+		assertTrue(registry.waitForJobDone(jobId, 60000L));
+	}
+
+	@Test
+	public void testWaitWithNoWaitersAllowed() throws Exception {
+		registry.setMaxWaiters(0);
+		// call under test
+		assertFalse(registry.waitForJobDone(jobId, 60000L));
+		assertEquals(1L, registry.getRejectedCount());
+		assertEquals(0L, registry.getStateCheckCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxWaitersNegative() {
+		registry.setMaxWaiters(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxRecheckIntervalTooSmall() {
+		registry.setMaxRecheckIntervalMs(1L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWaitNullJobId() throws Exception {
+		registry.waitForJobDone(null, 1000L);
+	}
+
+	/**
+	 * Each waiter checks the state once after it is registered.
+	 */
+	private void waitForWaiters(int count) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		while (registry.getStateCheckCount() < count) {
+			assertTrue("Timed out waiting for the waiters", System.currentTimeMillis() - start < 10000L);
+			Thread.sleep(10L);
+		}
+	}
+}
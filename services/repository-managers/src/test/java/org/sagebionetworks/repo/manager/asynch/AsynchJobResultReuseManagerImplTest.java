@@ -0,0 +1,244 @@
+package org.sagebionetworks.repo.manager.asynch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.ids.IdGenerator;
+import org.sagebionetworks.ids.IdType;
+import org.sagebionetworks.repo.manager.table.TableManagerSupport;
+import org.sagebionetworks.repo.model.UnauthorizedException;
+import org.sagebionetworks.repo.model.UserInfo;
+import org.sagebionetworks.repo.model.asynch.AsynchJobState;
+import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
+import org.sagebionetworks.repo.model.asynch.AsynchronousRequestBody;
+import org.sagebionetworks.repo.model.asynch.AsynchronousResponseBody;
+import org.sagebionetworks.repo.model.dao.FileHandleDao;
+import org.sagebionetworks.repo.model.dao.asynch.AsynchronousJobStatusDAO;
+import org.sagebionetworks.repo.model.entity.IdAndVersion;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
+import org.sagebionetworks.repo.model.table.DownloadFromTableRequest;
+import org.sagebionetworks.repo.model.table.DownloadFromTableResult;
+import org.sagebionetworks.repo.model.table.Query;
+import org.sagebionetworks.repo.model.table.QueryBundleRequest;
+import org.sagebionetworks.repo.model.table.QueryResultBundle;
+import org.sagebionetworks.repo.web.NotFoundException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsynchJobResultReuseManagerImplTest {
+
+	@Mock
+	AsynchronousJobStatusDAO mockAsynchJobStatusDao;
+	@Mock
+	TableManagerSupport mockTableManagerSupport;
+	@Mock
+	FileHandleDao mockFileHandleDao;
+	@Mock
+	IdGenerator mockIdGenerator;
+	@Captor
+	ArgumentCaptor<AsynchronousResponseBody> responseCaptor;
+	@InjectMocks
+	AsynchJobResultReuseManagerImpl manager;
+
+	UserInfo user;
+	String requestHash;
+	QueryBundleRequest queryRequest;
+	QueryResultBundle queryResult;
+	AsynchronousJobStatus otherUsersJob;
+	AsynchronousJobStatus newJob;
+
+	@Before
+	public void before() {
+		user = new UserInfo(false);
+		user.setId(007L);
+		requestHash = "aBodyHash";
+
+		Query query = new Query();
+		query.setSql("select * from syn123");
+		queryRequest = new QueryBundleRequest();
+		queryRequest.setEntityId("syn123");
+		queryRequest.setQuery(query);
+		queryResult = new QueryResultBundle();
+		queryResult.setQueryCount(12L);
+
+		otherUsersJob = new AsynchronousJobStatus();
+		otherUsersJob.setJobId("111");
+		otherUsersJob.setStartedByUserId(456L);
+		otherUsersJob.setJobState(AsynchJobState.COMPLETE);
+		otherUsersJob.setRequestBody(queryRequest);
+		otherUsersJob.setResponseBody(queryResult);
+
+		newJob = new AsynchronousJobStatus();
+		newJob.setJobId("222");
+		newJob.setStartedByUserId(user.getId());
+	}
+
+	@Test
+	public void testReuseCompletedJob() {
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		when(mockAsynchJobStatusDao.startJob(user.getId(), queryRequest)).thenReturn(newJob);
+		when(mockAsynchJobStatusDao.getJobStatus("222")).thenReturn(newJob);
+		// call under test
+		AsynchronousJobStatus status = manager.reuseCompletedJob(user, requestHash, queryRequest);
+		assertEquals(newJob, status);
+		verify(mockTableManagerSupport).validateTableReadAccess(user, IdAndVersion.parse("syn123"));
+		verify(mockAsynchJobStatusDao).setComplete("222", queryResult, requestHash);
+		assertEquals(1L, manager.getReusedCount());
+		assertEquals(0L, manager.getIndexHitCount());
+	}
+
+	@Test
+	public void testReuseCompletedJobIndexHit() {
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		when(mockAsynchJobStatusDao.startJob(user.getId(), queryRequest)).thenReturn(newJob);
+		when(mockAsynchJobStatusDao.getJobStatus("222")).thenReturn(newJob);
+		manager.reuseCompletedJob(user, requestHash, queryRequest);
+		// call under test
+		manager.reuseCompletedJob(user, requestHash, queryRequest);
+		// the second match should come from the index.
+		verify(mockAsynchJobStatusDao, times(1)).findCompletedJobIds(requestHash);
+		assertEquals(2L, manager.getReusedCount());
+		assertEquals(1L, manager.getIndexHitCount());
+		assertEquals(2L, manager.getLookupCount());
+	}
+
+	@Test
+	public void testReuseCompletedJobIndexedJobCleared() {
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"),
+				Collections.<String>emptyList());
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob)
+				.thenThrow(new NotFoundException("cleared"));
+		when(mockAsynchJobStatusDao.startJob(user.getId(), queryRequest)).thenReturn(newJob);
+		when(mockAsynchJobStatusDao.getJobStatus("222")).thenReturn(newJob);
+		manager.reuseCompletedJob(user, requestHash, queryRequest);
+		// call under test
+		assertNull(manager.reuseCompletedJob(user, requestHash, queryRequest));
+		verify(mockAsynchJobStatusDao, times(2)).findCompletedJobIds(requestHash);
+		assertEquals(1L, manager.getReusedCount());
+	}
+
+	@Test
+	public void testReuseCompletedJobNoMatch() {
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.<String>emptyList());
+		// call under test
+		assertNull(manager.reuseCompletedJob(user, requestHash, queryRequest));
+		verify(mockAsynchJobStatusDao, never()).startJob(anyLong(), any(AsynchronousRequestBody.class));
+		assertEquals(0L, manager.getReusedCount());
+	}
+
+	/**
+	 * A hash is used to find the jobs so the body must still be compared.
+	 */
+	@Test
+	public void testReuseCompletedJobBodyNotEqual() {
+		QueryBundleRequest otherRequest = new QueryBundleRequest();
+		otherRequest.setEntityId("syn123");
+		otherUsersJob.setRequestBody(otherRequest);
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		// call under test
+		assertNull(manager.reuseCompletedJob(user, requestHash, queryRequest));
+		verify(mockAsynchJobStatusDao, never()).startJob(anyLong(), any(AsynchronousRequestBody.class));
+	}
+
+	@Test
+	public void testReuseCompletedJobNotComplete() {
+		otherUsersJob.setJobState(AsynchJobState.FAILED);
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Arrays.asList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		// call under test
+		assertNull(manager.reuseCompletedJob(user, requestHash, queryRequest));
+		verify(mockAsynchJobStatusDao, never()).startJob(anyLong(), any(AsynchronousRequestBody.class));
+	}
+
+	@Test
+	public void testReuseCompletedJobUnauthorized() {
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		when(mockTableManagerSupport.validateTableReadAccess(user, IdAndVersion.parse("syn123")))
+				.thenThrow(new UnauthorizedException("no"));
+		// call under test
+		assertNull(manager.reuseCompletedJob(user, requestHash, queryRequest));
+		verify(mockAsynchJobStatusDao, never()).startJob(anyLong(), any(AsynchronousRequestBody.class));
+		assertEquals(0L, manager.getReusedCount());
+	}
+
+	@Test
+	public void testReuseCompletedJobDownloadCopiesFileHandle() {
+		DownloadFromTableRequest downloadRequest = new DownloadFromTableRequest();
+		downloadRequest.setEntityId("syn123");
+		downloadRequest.setSql("select * from syn123");
+		DownloadFromTableResult downloadResult = new DownloadFromTableResult();
+		downloadResult.setTableId("syn123");
+		downloadResult.setResultsFileHandleId("999");
+		otherUsersJob.setRequestBody(downloadRequest);
+		otherUsersJob.setResponseBody(downloadResult);
+		S3FileHandle handle = new S3FileHandle();
+		handle.setId("999");
+		handle.setCreatedBy("456");
+		handle.setBucketName("bucket");
+		handle.setKey("key");
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		when(mockFileHandleDao.get("999")).thenReturn(handle);
+		when(mockIdGenerator.generateNewId(IdType.FILE_IDS)).thenReturn(333L);
+		when(mockFileHandleDao.createFile(any(S3FileHandle.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(mockAsynchJobStatusDao.startJob(user.getId(), downloadRequest)).thenReturn(newJob);
+		when(mockAsynchJobStatusDao.getJobStatus("222")).thenReturn(newJob);
+		// call under test
+		manager.reuseCompletedJob(user, requestHash, downloadRequest);
+		verify(mockAsynchJobStatusDao).setComplete(eq("222"), responseCaptor.capture(), eq(requestHash));
+		DownloadFromTableResult copy = (DownloadFromTableResult) responseCaptor.getValue();
+		assertEquals("333", copy.getResultsFileHandleId());
+		assertEquals("syn123", copy.getTableId());
+		// The new handle belongs to the caller and points to the same file.
+		assertEquals("333", handle.getId());
+		assertEquals(user.getId().toString(), handle.getCreatedBy());
+		assertEquals("key", handle.getKey());
+		// The shared response is unchanged.
+		assertEquals("999", downloadResult.getResultsFileHandleId());
+	}
+
+	@Test
+	public void testReuseCompletedJobDownloadFileMissing() {
+		DownloadFromTableRequest downloadRequest = new DownloadFromTableRequest();
+		downloadRequest.setEntityId("syn123");
+		downloadRequest.setSql("select * from syn123");
+		DownloadFromTableResult downloadResult = new DownloadFromTableResult();
+		downloadResult.setResultsFileHandleId("999");
+		otherUsersJob.setRequestBody(downloadRequest);
+		otherUsersJob.setResponseBody(downloadResult);
+		when(mockAsynchJobStatusDao.findCompletedJobIds(requestHash)).thenReturn(Collections.singletonList("111"));
+		when(mockAsynchJobStatusDao.getJobStatus("111")).thenReturn(otherUsersJob);
+		when(mockFileHandleDao.get("999")).thenThrow(new NotFoundException("gone"));
+		// call under test
+		assertNull(manager.reuseCompletedJob(user, requestHash, downloadRequest));
+		verify(mockAsynchJobStatusDao, never()).startJob(anyLong(), any(AsynchronousRequestBody.class));
+		verify(mockAsynchJobStatusDao, never()).setComplete(anyString(), any(AsynchronousResponseBody.class), anyString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxEntriesTooSmall() {
+		new AsynchJobResultReuseManagerImpl(0);
+	}
+}
@@ -40,10 +40,12 @@ import org.sagebionetworks.repo.model.asynch.AsynchJobState;
 import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
 import org.sagebionetworks.repo.model.asynch.AsynchronousRequestBody;
 import org.sagebionetworks.repo.model.asynch.AsynchronousResponseBody;
+import org.sagebionetworks.repo.model.asynch.CacheableRequestBody;
 import org.sagebionetworks.repo.model.asynch.ReadOnlyRequestBody;
 import org.sagebionetworks.repo.model.dao.asynch.AsynchronousJobStatusDAO;
 import org.sagebionetworks.repo.model.dbo.asynch.AsynchJobType;
 import org.sagebionetworks.repo.model.file.BulkFileDownloadRequest;
+import org.sagebionetworks.repo.model.message.TransactionSynchronizationProxy;
 import org.sagebionetworks.repo.model.status.StatusEnum;
 import org.sagebionetworks.repo.model.table.DownloadFromTableRequest;
 import org.sagebionetworks.repo.model.table.DownloadFromTableResult;
@@ -51,6 +53,8 @@ import org.sagebionetworks.repo.model.table.UploadToTableRequest;
 import org.sagebionetworks.repo.model.table.UploadToTableResult;
 import org.sagebionetworks.repo.web.NotFoundException;
 
+import org.springframework.transaction.support.TransactionSynchronization;
+
 import com.amazonaws.services.cloudwatch.model.StandardUnit;
 
 /**
@@ -78,6 +82,14 @@ public class AsynchJobStatusManagerImplTest {
 	StackConfiguration mockStackConfig;
 	@Mock
 	Consumer mockConsumer;
+	@Mock
+	AsynchJobCompletionRegistry mockCompletionRegistry;
+	@Mock
+	TransactionSynchronizationProxy mockTransactionSynchronization;
+	@Mock
+	AsynchJobResultReuseManager mockResultReuseManager;
+	@Captor
+	ArgumentCaptor<TransactionSynchronization> synchronizationCaptor;
 	@Captor
 	ArgumentCaptor<ProfileData> profileCaptor;
 	
@@ -157,10 +169,27 @@ public class AsynchJobStatusManagerImplTest {
 	
 	@Test(expected = UnauthorizedException.class)
 	public void testCancelJobStatusUnauthorizedException() throws DatastoreException, NotFoundException {
+		AsynchronousJobStatus status = new AsynchronousJobStatus();
+		status.setStartedByUserId(user.getId());
+		status.setJobId("999");
+		when(mockAsynchJobStatusDao.getJobStatusWithoutBodies("999")).thenReturn(status);
 		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(false);
 		manager.cancelJob(user, "999");
 	}
 
+	@Test
+	public void testCancelJobReadsWithoutBodies() throws DatastoreException, NotFoundException {
+		AsynchronousJobStatus status = new AsynchronousJobStatus();
+		status.setStartedByUserId(user.getId());
+		status.setJobId("999");
+		when(mockAsynchJobStatusDao.getJobStatusWithoutBodies("999")).thenReturn(status);
+		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(true);
+		// call under test
+		manager.cancelJob(user, "999");
+		verify(mockAsynchJobStatusDao).setJobCanceling("999");
+		verify(mockAsynchJobStatusDao, never()).getJobStatus(anyString());
+	}
+
 	@Test
 	public void testGetJobStatusHappy() throws DatastoreException, NotFoundException{
 		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(true);
@@ -532,6 +561,30 @@ public class AsynchJobStatusManagerImplTest {
 		verify(mockAsynchJobQueuePublisher, times(1)).publishMessage(status);
 	}
 	
+	@Test
+	public void testStartJobReuseOtherUsersJob(){
+		// request
+		DownloadFromTableRequest body = new DownloadFromTableRequest();
+		body.setEntityId("syn123");
+		body.setSql("select * from syn123");
+		String bodyHash = "aBodyHash";
+		when(mockJobHashProvider.getJobHash(body)).thenReturn(bodyHash);
+		// This user has not made the request before.
+		when(mockAsynchJobStatusDao.findCompletedJobStatus(bodyHash, user.getId())).thenReturn(new LinkedList<AsynchronousJobStatus>());
+		AsynchronousJobStatus reused = new AsynchronousJobStatus();
+		reused.setStartedByUserId(user.getId());
+		reused.setJobId("123456");
+		reused.setRequestBody(body);
+		reused.setJobState(AsynchJobState.COMPLETE);
+		when(mockResultReuseManager.reuseCompletedJob(user, bodyHash, body)).thenReturn(reused);
+		// call under test.
+		AsynchronousJobStatus status = manager.startJob(user, body);
+		assertEquals(reused, status);
+		// The job should not be started.
+		verify(mockAsynchJobStatusDao, never()).startJob(anyLong(), any(AsynchronousRequestBody.class));
+		verify(mockAsynchJobQueuePublisher, never()).publishMessage(any(AsynchronousJobStatus.class));
+	}
+	
 	/**
 	 * A null jobHash means the job cannot be cached.
 	 * 
@@ -553,6 +606,101 @@ public class AsynchJobStatusManagerImplTest {
 		verify(mockAsynchJobStatusDao, times(1)).startJob(anyLong(), any(AsynchronousRequestBody.class));
 		verify(mockAsynchJobQueuePublisher, times(1)).publishMessage(status);
 		verify(mockAsynchJobStatusDao, never()).findCompletedJobStatus(anyString(), anyLong());
+		verify(mockResultReuseManager, never()).reuseCompletedJob(any(UserInfo.class), anyString(), any(CacheableRequestBody.class));
+	}
+
+	@Test
+	public void testWaitForJobStatusAlreadyDone() throws Exception {
+		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(true);
+		AsynchronousJobStatus status = new AsynchronousJobStatus();
+		status.setStartedByUserId(user.getId());
+		status.setJobId("8888");
+		status.setJobState(AsynchJobState.COMPLETE);
+		when(mockAsynchJobStatusDao.getJobStatusWithoutBodies("8888")).thenReturn(status);
+		when(mockAsynchJobStatusDao.getJobStatus("8888")).thenReturn(status);
+		// call under test
+		assertEquals(status, manager.waitForJobStatus(user, "8888", 5000L));
+		verify(mockCompletionRegistry, never()).waitForJobDone(anyString(), anyLong());
+	}
+
+	@Test
+	public void testWaitForJobStatusNoWait() throws Exception {
+		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(true);
+		// call under test
+		manager.waitForJobStatus(user, "8888", 0L);
+		verify(mockAsynchJobStatusDao).getJobStatus("8888");
+		verify(mockAsynchJobStatusDao, never()).getJobStatusWithoutBodies(anyString());
+		verify(mockCompletionRegistry, never()).waitForJobDone(anyString(), anyLong());
+	}
+
+	@Test
+	public void testWaitForJobStatusProcessing() throws Exception {
+		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(true);
+		AsynchronousJobStatus processing = new AsynchronousJobStatus();
+		processing.setStartedByUserId(user.getId());
+		processing.setJobId("8888");
+		processing.setRequestBody(new BulkFileDownloadRequest());
+		processing.setJobState(AsynchJobState.PROCESSING);
+		AsynchronousJobStatus complete = new AsynchronousJobStatus();
+		complete.setStartedByUserId(user.getId());
+		complete.setJobId("8888");
+		complete.setJobState(AsynchJobState.COMPLETE);
+		// the bodies are only read once the job is done.
+		when(mockAsynchJobStatusDao.getJobStatusWithoutBodies("8888")).thenReturn(processing);
+		when(mockAsynchJobStatusDao.getJobStatus("8888")).thenReturn(complete);
+		when(mockCompletionRegistry.waitForJobDone("8888", 5000L)).thenReturn(true);
+		// call under test
+		assertEquals(complete, manager.waitForJobStatus(user, "8888", 5000L));
+		verify(mockCompletionRegistry).waitForJobDone("8888", 5000L);
+		verify(mockAsynchJobStatusDao, times(1)).getJobStatus("8888");
+	}
+
+	@Test
+	public void testWaitForJobStatusCapped() throws Exception {
+		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(true);
+		AsynchronousJobStatus processing = new AsynchronousJobStatus();
+		processing.setStartedByUserId(user.getId());
+		processing.setJobId("8888");
+		processing.setRequestBody(new BulkFileDownloadRequest());
+		processing.setJobState(AsynchJobState.PROCESSING);
+		when(mockAsynchJobStatusDao.getJobStatusWithoutBodies("8888")).thenReturn(processing);
+		when(mockAsynchJobStatusDao.getJobStatus("8888")).thenReturn(processing);
+		// call under test
+		manager.waitForJobStatus(user, "8888", Long.MAX_VALUE);
+		verify(mockCompletionRegistry).waitForJobDone("8888", AsynchJobStatusManagerImpl.MAX_WAIT_MS);
+	}
+
+	@Test (expected=UnauthorizedException.class)
+	public void testWaitForJobStatusUnauthorized() throws Exception {
+		when(mockAuthorizationManager.isUserCreatorOrAdmin(any(UserInfo.class), anyString())).thenReturn(false);
+		AsynchronousJobStatus status = new AsynchronousJobStatus();
+		status.setStartedByUserId(user.getId());
+		status.setJobId("8888");
+		status.setJobState(AsynchJobState.PROCESSING);
+		when(mockAsynchJobStatusDao.getJobStatusWithoutBodies("8888")).thenReturn(status);
+		manager.waitForJobStatus(user, "8888", 5000L);
+	}
+
+	@Test
+	public void testSetCompleteFiresJobDoneAfterCommit() throws Exception {
+		when(mockTransactionSynchronization.isSynchronizationActive()).thenReturn(true);
+		UploadToTableResult body = new UploadToTableResult();
+		// call under test
+		manager.setComplete("456", body);
+		verify(mockTransactionSynchronization).registerSynchronization(synchronizationCaptor.capture());
+		verify(mockCompletionRegistry, never()).jobDone(anyString());
+		synchronizationCaptor.getValue().afterCommit();
+		verify(mockCompletionRegistry).jobDone("456");
+	}
+
+	@Test
+	public void testSetJobFailedFiresJobDoneWithoutTransaction() {
+		when(mockTransactionSynchronization.isSynchronizationActive()).thenReturn(false);
+		when(mockAsynchJobStatusDao.setJobFailed(anyString(), any(Throwable.class))).thenReturn("etag");
+		// call under test
+		manager.setJobFailed("123", new Throwable("Failed"));
+		verify(mockTransactionSynchronization, never()).registerSynchronization(any(TransactionSynchronization.class));
+		verify(mockCompletionRegistry).jobDone("123");
 	}
 
 }
@@ -0,0 +1,72 @@
+package org.sagebionetworks.repo.manager.audit;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.sagebionetworks.repo.model.audit.AccessRecord;
+
+/**
+ * Measures the per-request cost of {@link S3AccessRecorder#save(AccessRecord)}
+ * with several request threads while the timer thread drains the queue. Not
+ * run as part of the build, run the main method directly.
+ *
+ */
+public class S3AccessRecorderBenchmark {
+
+	static final int THREADS = 8;
+	static final int RECORDS_PER_THREAD = 500_000;
+
+	public static void main(String[] args) throws Exception {
+		S3AccessRecorder recorder = new S3AccessRecorder();
+		recorder.setShouldAccessRecordsBePushedToS3(false);
+		List<AccessRecord> records = AuditTestUtils.createList(1000, 100);
+		// warm up
+		run(recorder, records, RECORDS_PER_THREAD / 10);
+		long totalNs = run(recorder, records, RECORDS_PER_THREAD);
+		System.out.println(String.format("%d threads: %d ns/save, %d dropped", THREADS,
+				totalNs / ((long) THREADS * RECORDS_PER_THREAD), recorder.getTotalDroppedCount()));
+	}
+
+	static long run(S3AccessRecorder recorder, List<AccessRecord> records, int perThread) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(THREADS);
+		long[] elapsed = new long[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int index = t;
+			new Thread(() -> {
+				try {
+					start.await();
+					long begin = System.nanoTime();
+					for (int i = 0; i < perThread; i++) {
+						recorder.save(records.get(i % records.size()));
+					}
+					elapsed[index] = System.nanoTime() - begin;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		Thread drainer = new Thread(() -> {
+			try {
+				while (done.getCount() > 0) {
+					recorder.timerFired();
+					Thread.sleep(100);
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		drainer.start();
+		start.countDown();
+		done.await();
+		drainer.join();
+		recorder.timerFired();
+		long total = 0;
+		for (long ns : elapsed) {
+			total += ns;
+		}
+		return total;
+	}
+}
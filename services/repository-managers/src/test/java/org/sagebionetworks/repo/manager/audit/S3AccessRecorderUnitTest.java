@@ -0,0 +1,85 @@
+package org.sagebionetworks.repo.manager.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sagebionetworks.repo.model.audit.AccessRecord;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class S3AccessRecorderUnitTest {
+
+	@Mock
+	AccessRecordManager mockAccessRecordManager;
+
+	S3AccessRecorder recorder;
+
+	@Before
+	public void before() {
+		MockitoAnnotations.initMocks(this);
+		recorder = new S3AccessRecorder();
+		ReflectionTestUtils.setField(recorder, "accessRecordManager", mockAccessRecordManager);
+		recorder.setShouldAccessRecordsBePushedToS3(true);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveUnderLimit() throws IOException {
+		recorder.setMaxQueueSize(10);
+		List<AccessRecord> records = AuditTestUtils.createList(5, 100);
+		for (AccessRecord record : records) {
+			recorder.save(record);
+		}
+		when(mockAccessRecordManager.saveBatch(any(List.class))).thenReturn("key");
+		// call under test
+		assertEquals("key", recorder.timerFired());
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		verify(mockAccessRecordManager).saveBatch(captor.capture());
+		assertEquals(records, captor.getValue());
+		assertEquals(0L, recorder.getTotalDroppedCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveOverLimit() throws IOException {
+		recorder.setMaxQueueSize(3);
+		List<AccessRecord> records = AuditTestUtils.createList(5, 100);
+		for (AccessRecord record : records) {
+			recorder.save(record);
+		}
+		assertEquals(2L, recorder.getTotalDroppedCount());
+		when(mockAccessRecordManager.saveBatch(any(List.class))).thenReturn("key");
+		// call under test
+		recorder.timerFired();
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		verify(mockAccessRecordManager).saveBatch(captor.capture());
+		assertEquals(records.subList(0, 3), captor.getValue());
+
+		// the queue was drained so there is room again.
+		recorder.save(records.get(4));
+		assertEquals(2L, recorder.getTotalDroppedCount());
+	}
+
+	@Test
+	public void testTimerFiredEmpty() throws IOException {
+		// call under test
+		assertNull(recorder.timerFired());
+		verify(mockAccessRecordManager, never()).saveBatch(any());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxQueueSizeInvalid() {
+		recorder.setMaxQueueSize(0);
+	}
+}
@@ -0,0 +1,132 @@
+package org.sagebionetworks.repo.manager.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.aws.SynapseS3Client;
+
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class S3MultipartOutputStreamTest {
+
+	@Mock
+	SynapseS3Client mockS3Client;
+
+	ExecutorService executor;
+	ObjectMetadata metadata;
+	int partSize;
+	S3MultipartOutputStream out;
+
+	@Before
+	public void before() {
+		executor = Executors.newSingleThreadExecutor();
+		metadata = new ObjectMetadata();
+		partSize = S3MultipartOutputStream.MINIMUM_PART_SIZE_BYTES;
+		out = new S3MultipartOutputStream(mockS3Client, executor, "bucket", "key", metadata, partSize);
+	}
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	private void setupMultipart() {
+		InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+		initResult.setUploadId("uploadId");
+		when(mockS3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initResult);
+		when(mockS3Client.uploadPart(any(UploadPartRequest.class))).then(invocation -> {
+			UploadPartRequest request = invocation.getArgument(0);
+			UploadPartResult result = new UploadPartResult();
+			result.setPartNumber(request.getPartNumber());
+			result.setETag("etag" + request.getPartNumber());
+			return result;
+		});
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testPartSizeTooSmall() {
+		new S3MultipartOutputStream(mockS3Client, executor, "bucket", "key", metadata, partSize - 1);
+	}
+
+	@Test
+	public void testSinglePart() throws Exception {
+		byte[] data = "some data".getBytes("UTF-8");
+		// call under test
+		out.write(data);
+		out.close();
+		ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(mockS3Client).putObject(captor.capture());
+		assertEquals("bucket", captor.getValue().getBucketName());
+		assertEquals(data.length, captor.getValue().getMetadata().getContentLength());
+		verify(mockS3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+		assertEquals(data.length, out.getBytesWritten());
+		assertEquals(BinaryUtils.toHex(Md5Utils.computeMD5Hash(data)), out.getContentMD5Hex());
+	}
+
+	@Test
+	public void testMultipleParts() throws Exception {
+		setupMultipart();
+		byte[] data = new byte[partSize * 2 + 10];
+		Arrays.fill(data, (byte) 7);
+		// call under test
+		out.write(data, 0, partSize + 5);
+		out.write(data, partSize + 5, data.length - partSize - 5);
+		out.close();
+		ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+		verify(mockS3Client, times(3)).uploadPart(partCaptor.capture());
+		assertEquals(partSize, partCaptor.getAllValues().get(0).getPartSize());
+		assertEquals(partSize, partCaptor.getAllValues().get(1).getPartSize());
+		assertEquals(10, partCaptor.getAllValues().get(2).getPartSize());
+		ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+		verify(mockS3Client).completeMultipartUpload(completeCaptor.capture());
+		assertEquals("uploadId", completeCaptor.getValue().getUploadId());
+		assertEquals(3, completeCaptor.getValue().getPartETags().size());
+		assertEquals(3, out.getPartCount());
+		assertEquals(data.length, out.getBytesWritten());
+		assertEquals(BinaryUtils.toHex(Md5Utils.computeMD5Hash(data)), out.getContentMD5Hex());
+	}
+
+	@Test
+	public void testAbortAfterPart() throws Exception {
+		setupMultipart();
+		out.write(new byte[partSize]);
+		// call under test
+		out.abort();
+		verify(mockS3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(mockS3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+	}
+
+	@Test
+	public void testAbortNoParts() throws Exception {
+		out.write(1);
+		// call under test
+		out.abort();
+		verify(mockS3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(mockS3Client, never()).putObject(any(PutObjectRequest.class));
+	}
+}
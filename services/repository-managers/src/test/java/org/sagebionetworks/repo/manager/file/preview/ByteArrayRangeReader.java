@@ -0,0 +1,39 @@
+package org.sagebionetworks.repo.manager.file.preview;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Simple in-memory {@link ByteRangeReader} for testing ranged preview
+ * generation.
+ *
+ */
+public class ByteArrayRangeReader implements ByteRangeReader {
+
+	private final byte[] data;
+	private long bytesRequested;
+
+	public ByteArrayRangeReader(byte[] data) {
+		this.data = data;
+		this.bytesRequested = 0L;
+	}
+
+	@Override
+	public long getContentSize() {
+		return data.length;
+	}
+
+	@Override
+	public InputStream openRange(long start, long length) {
+		long[] range = PreviewGeneratorUtils.clampRange(start, length, data.length);
+		int rangeLength = (int) (range[1] - range[0] + 1);
+		bytesRequested += rangeLength;
+		return new ByteArrayInputStream(data, (int) range[0], rangeLength);
+	}
+
+	@Override
+	public long getBytesRequested() {
+		return bytesRequested;
+	}
+
+}
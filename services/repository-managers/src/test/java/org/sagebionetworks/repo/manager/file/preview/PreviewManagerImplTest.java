@@ -9,6 +9,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -16,6 +17,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -23,6 +26,7 @@ import java.util.concurrent.Callable;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -61,6 +65,8 @@ public class PreviewManagerImplTest {
 	@Mock
 	private PreviewGenerator mockPreviewGenerator;
 	@Mock
+	private RangedPreviewGenerator mockRangedPreviewGenerator;
+	@Mock
 	private File mockUploadFile;
 	@Mock
 	private S3Object mockS3Object;
@@ -248,4 +254,48 @@ public class PreviewManagerImplTest {
 		assertEquals(pfm, fromDao);
 	}
 
+	@Test
+	public void testRangedS3Preview() throws Exception {
+		previewManager.setGeneratorList(Collections.singletonList(mockRangedPreviewGenerator));
+		when(mockRangedPreviewGenerator.supportsContentType(testContentType, "txt")).thenReturn(true);
+		// the ranged memory is used even though the file is larger than the pool.
+		testMetadata.setContentSize(maxPreviewSize * 10);
+		when(mockRangedPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(testContentType, maxPreviewSize * 10)).thenReturn(maxPreviewSize);
+		when(mockRangedPreviewGenerator.generatePreview(any(ByteRangeReader.class), eq(mockOutputStream))).thenReturn(previewContentType);
+
+		CloudProviderFileHandleInterface pfm = previewManager.generatePreview(testMetadata);
+		assertNotNull(pfm);
+		assertEquals(previewContentType.getContentType(), pfm.getContentType());
+		verify(mockRangedPreviewGenerator, never()).calculateNeededMemoryBytesForPreview(any(String.class), any(Long.class));
+		verify(mockRangedPreviewGenerator, never()).generatePreview(any(InputStream.class), any(OutputStream.class));
+		// the generator reads what it needs through the reader.
+		verify(mockS3Client, never()).getObject(any(GetObjectRequest.class));
+	}
+
+	@Test
+	public void testRangedGoogleCloudPreview() throws Exception {
+		previewManager.setGeneratorList(Collections.singletonList(mockRangedPreviewGenerator));
+		when(mockRangedPreviewGenerator.supportsContentType(testContentType, "txt")).thenReturn(true);
+		when(mockRangedPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(testContentType, 10L)).thenReturn(10L);
+		when(mockRangedPreviewGenerator.generatePreview(any(ByteRangeReader.class), eq(mockOutputStream))).thenReturn(previewContentType);
+
+		CloudProviderFileHandleInterface pfm = previewManager.generatePreview(testGoogleCloudMetadata);
+		assertNotNull(pfm);
+		assertEquals(previewContentType.getContentType(), pfm.getContentType());
+		verify(mockGoogleCloudClient, never()).getObject(any(String.class), any(String.class));
+	}
+
+	@Test
+	public void testS3ByteRangeReader() throws Exception {
+		S3ByteRangeReader reader = new S3ByteRangeReader(mockS3Client, "bucket", "key", 100L);
+		// call under test
+		InputStream in = reader.openRange(90L, 20L);
+		assertEquals(mockS3ObjectInputStream, in);
+		ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+		verify(mockS3Client).getObject(captor.capture());
+		assertEquals(90L, captor.getValue().getRange()[0]);
+		assertEquals(99L, captor.getValue().getRange()[1]);
+		assertEquals(10L, reader.getBytesRequested());
+	}
+
 }
@@ -515,4 +515,44 @@ public class TabCsvTextPreviewTest {
 		}
 		return new String(chars);
 	}
+
+	@Test
+	public void testGeneratePreviewRangedTruncated() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int rowCount = 0;
+		while (sb.length() < TabCsvPreviewGenerator.MAX_RANGED_READ_BYTES) {
+			sb.append(createStringOfLength(30000)).append(",b\n");
+			rowCount++;
+		}
+		// one more row that will not be read.
+		sb.append("last,row\n");
+		assertTrue(rowCount < TabCsvPreviewGenerator.MAX_ROW_COUNT);
+		ByteArrayRangeReader reader = new ByteArrayRangeReader(sb.toString().getBytes("UTF-8"));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		// call under test
+		PreviewOutputMetadata type = csvPreviewGenerator.generatePreview(reader, baos);
+		assertEquals(TabCsvPreviewGenerator.TEXT_CSV_SEPARATED_VALUES, type.getContentType());
+		assertEquals(TabCsvPreviewGenerator.MAX_RANGED_READ_BYTES, reader.getBytesRequested());
+		String[] lines = baos.toString().split("\n");
+		// the partial last row is replaced with an ellipsis row.
+		assertEquals(rowCount, lines.length);
+		assertEquals("\"" + TabCsvPreviewGenerator.HTML_ELLIPSIS + "\",\"" + TabCsvPreviewGenerator.HTML_ELLIPSIS + "\"",
+				lines[lines.length - 1]);
+	}
+
+	@Test
+	public void testGeneratePreviewRangedNotTruncated() throws IOException {
+		String input = "a,b\nc,d\n";
+		ByteArrayRangeReader reader = new ByteArrayRangeReader(input.getBytes("UTF-8"));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		// call under test
+		csvPreviewGenerator.generatePreview(reader, baos);
+		assertEquals("\"a\",\"b\"\n\"c\",\"d\"\n", baos.toString());
+	}
+
+	@Test
+	public void testCalculateNeededMemoryBytesForRangedPreview() {
+		assertEquals(20L, tabPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(null, 20L));
+		assertEquals(TabCsvPreviewGenerator.MAX_RANGED_READ_BYTES, tabPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(null, 2000000L));
+	}
 }
@@ -42,4 +42,25 @@ public class TextPreviewTest {
 		assertFalse(textPreviewGenerator.supportsContentType("image/anything", null));
 		assertFalse(textPreviewGenerator.supportsContentType("csv", null));
 	}
+
+	@Test
+	public void testGeneratePreviewRanged() throws IOException {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		textPreviewGenerator.generatePreview(from, expected);
+		byte[] bytes = (testInputString + testInputString).getBytes("UTF-8");
+		assertTrue(bytes.length > TextPreviewGenerator.MAX_RANGED_READ_BYTES);
+		ByteArrayRangeReader reader = new ByteArrayRangeReader(bytes);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		// call under test
+		PreviewOutputMetadata type = textPreviewGenerator.generatePreview(reader, baos);
+		assertEquals(TextPreviewGenerator.TEXT_PLAIN, type.getContentType());
+		assertEquals(expected.toString(), baos.toString());
+		assertEquals(TextPreviewGenerator.MAX_RANGED_READ_BYTES, reader.getBytesRequested());
+	}
+
+	@Test
+	public void testCalculateNeededMemoryBytesForRangedPreview() {
+		assertEquals(20L, textPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(null, 20L));
+		assertEquals(TextPreviewGenerator.MAX_RANGED_READ_BYTES, textPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(null, 2000000L));
+	}
 }
@@ -1,6 +1,7 @@
 package org.sagebionetworks.repo.manager.file.preview;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -10,6 +11,7 @@ import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.junit.Before;
 import org.junit.Test;
@@ -55,4 +57,49 @@ public class ZipPreviewTest {
 		}
 	}
 
+	@Test
+	public void testGeneratePreviewRanged() throws IOException {
+		File f = File.createTempFile("ZipPreview", ".zip");
+		try {
+			final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(f));
+			out.setComment("a comment at the end of the file");
+			for (int i = 0; i < 10; i++) {
+				ZipEntry e = new ZipEntry("textFile" + i + ".txt");
+				out.putNextEntry(e);
+				byte[] data = ("Test String " + i).getBytes();
+				out.write(data, 0, data.length);
+				out.closeEntry();
+			}
+			out.putNextEntry(new ZipEntry("__MACOSX/ignored"));
+			out.closeEntry();
+			out.close();
+			ByteArrayRangeReader reader = new ByteArrayRangeReader(FileUtils.readFileToByteArray(f));
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			// call under test
+			PreviewOutputMetadata metadata = zipPreviewGenerator.generatePreview(reader, baos);
+			assertEquals(ZipPreviewGenerator.TEXT_CSV, metadata.getContentType());
+			assertEquals(".csv", metadata.getExtension());
+			String expected = "textFile0.txt\ntextFile1.txt\ntextFile2.txt\ntextFile3.txt\ntextFile4.txt\ntextFile5.txt\ntextFile6.txt\ntextFile7.txt\ntextFile8.txt\ntextFile9.txt\n";
+			assertEquals(expected, baos.toString());
+			// Only the tail should have been read
+			assertTrue(reader.getBytesRequested() <= reader.getContentSize() * 2);
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test (expected=PreviewGenerationNotSupportedException.class)
+	public void testGeneratePreviewRangedNotZip() throws IOException {
+		ByteArrayRangeReader reader = new ByteArrayRangeReader("not a zip file".getBytes());
+		// call under test
+		zipPreviewGenerator.generatePreview(reader, new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void testCalculateNeededMemoryBytesForRangedPreview() {
+		assertEquals(100L, zipPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(ZipPreviewGenerator.APPLICATION_ZIP, 100L));
+		assertEquals(ZipPreviewGenerator.MAX_TAIL_READ_BYTES + ZipPreviewGenerator.MAX_CENTRAL_DIRECTORY_READ_BYTES,
+				zipPreviewGenerator.calculateNeededMemoryBytesForRangedPreview(ZipPreviewGenerator.APPLICATION_ZIP, Long.MAX_VALUE / 2));
+	}
+
 }
@@ -1,7 +1,10 @@
 package org.sagebionetworks.repo.manager.message;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -15,12 +18,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sagebionetworks.StackConfiguration;
+import org.sagebionetworks.cloudwatch.Consumer;
+import org.sagebionetworks.cloudwatch.ProfileData;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.markdown.MarkdownClientException;
 import org.sagebionetworks.repo.manager.AuthorizationManager;
@@ -41,10 +51,13 @@ import org.sagebionetworks.repo.model.message.ChangeType;
 import org.sagebionetworks.repo.model.principal.PrincipalAliasDAO;
 import org.sagebionetworks.repo.model.subscription.SubscriptionObjectType;
 import org.sagebionetworks.repo.model.subscription.Topic;
+import org.sagebionetworks.util.SortedLongSet;
 import org.sagebionetworks.util.TimeoutUtils;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
 
 public class BroadcastMessageManagerImplTest {
 	
@@ -76,16 +89,25 @@ public class BroadcastMessageManagerImplTest {
 	UserManager mockUserManager;
 	@Mock
 	AuthorizationManager mockAuthManager;
+	@Mock
+	StackConfiguration mockStackConfig;
+	@Mock
+	Consumer mockCloudWatch;
 
 	@InjectMocks
 	BroadcastMessageManagerImpl manager;
 	ChangeMessage change;
 	List<Subscriber> subscribers;
 	Topic topic;
+	ExecutorService threadPool;
 
 	@Before
 	public void before() throws Exception{
 		MockitoAnnotations.initMocks(this);
+		threadPool = Executors.newFixedThreadPool(2);
+		manager.setEmailSendThreadPool(threadPool);
+		manager.setEmailRateLimiter(RateLimiter.create(1000));
+		when(mockStackConfig.getStackInstance()).thenReturn("123");
 
 		Map<ObjectType, MessageBuilderFactory> factoryMap = new HashMap<ObjectType, MessageBuilderFactory>();
 		factoryMap.put(ObjectType.REPLY, mockFactory);
@@ -123,12 +145,18 @@ public class BroadcastMessageManagerImplTest {
 		sub2.setSubscriberId("2");
 		subscribers = Lists.newArrayList(sub1, sub2);
 		
-		when(mockSubscriptionDAO.getAllEmailSubscribers(topic.getObjectId(), topic.getObjectType())).thenReturn(subscribers);
+		when(mockSubscriptionDAO.getSubscriberIds(topic.getObjectId(), topic.getObjectType())).thenReturn(new SortedLongSet(1L, 2L));
+		when(mockSubscriptionDAO.getEmailSubscribers(topic.getObjectId(), topic.getObjectType(), Arrays.asList(1L, 2L))).thenReturn(subscribers);
 		when(mockBroadcastMessageBuilder.buildEmailForSubscriber(any(Subscriber.class))).thenReturn(new SendRawEmailRequest());
 		when(mockBroadcastMessageBuilder.buildEmailForNonSubscriber(any(UserNotificationInfo.class))).thenReturn(new SendRawEmailRequest());
 
 	}
 	
+	@After
+	public void after(){
+		threadPool.shutdownNow();
+	}
+	
 	@Test
 	public void testBroadcastThreadWithoutMentionedUsers() throws Exception{
 		when(mockBroadcastMessageBuilder.getMarkdown()).thenReturn("");
@@ -138,8 +166,58 @@ public class BroadcastMessageManagerImplTest {
 		verify(mockBroadcastMessageDao).setBroadcast(change.getChangeNumber());
 		// two messages should be sent
 		verify(mockSesClient, times(2)).sendRawEmail(any(SendRawEmailRequest.class));
+		assertEquals(2L, manager.getEmailsSent());
+		assertEquals(0L, manager.getEmailsFailed());
+		ArgumentCaptor<ProfileData> captor = ArgumentCaptor.forClass(ProfileData.class);
+		verify(mockCloudWatch, times(4)).addProfileData(captor.capture());
+		ProfileData count = captor.getAllValues().get(0);
+		assertEquals("Broadcast-123", count.getNamespace());
+		assertEquals(BroadcastMessageManagerImpl.METRIC_EMAIL_COUNT, count.getName());
+		assertEquals(2.0, count.getValue(), 0.0);
 	}
 
+	@Test
+	public void testBroadcastWithMultiplePages() throws Exception{
+		List<Long> firstPage = new ArrayList<Long>();
+		for (long id = 1; id <= BroadcastMessageManagerImpl.SUBSCRIBER_PAGE_SIZE; id++) {
+			firstPage.add(id);
+		}
+		long lastId = BroadcastMessageManagerImpl.SUBSCRIBER_PAGE_SIZE + 1;
+		SortedLongSet subscriberIds = new SortedLongSet(firstPage);
+		subscriberIds.add(lastId);
+		when(mockSubscriptionDAO.getSubscriberIds(topic.getObjectId(), topic.getObjectType())).thenReturn(subscriberIds);
+		Subscriber last = new Subscriber();
+		last.setSubscriptionId("3");
+		last.setSubscriberId(Long.toString(lastId));
+		when(mockSubscriptionDAO.getEmailSubscribers(topic.getObjectId(), topic.getObjectType(), firstPage)).thenReturn(subscribers);
+		when(mockSubscriptionDAO.getEmailSubscribers(topic.getObjectId(), topic.getObjectType(), Arrays.asList(lastId))).thenReturn(Lists.newArrayList(last));
+		// call under test
+		manager.broadcastMessage(mockUser, mockCallback, change);
+		verify(mockSubscriptionDAO).getEmailSubscribers(topic.getObjectId(), topic.getObjectType(), firstPage);
+		verify(mockSubscriptionDAO).getEmailSubscribers(topic.getObjectId(), topic.getObjectType(), Arrays.asList(lastId));
+		verify(mockSesClient, times(3)).sendRawEmail(any(SendRawEmailRequest.class));
+	}
+
+	@Test
+	public void testBroadcastSendFailure() throws Exception{
+		SendRawEmailRequest first = new SendRawEmailRequest().withSource("first");
+		SendRawEmailRequest second = new SendRawEmailRequest().withSource("second");
+		when(mockBroadcastMessageBuilder.buildEmailForSubscriber(any(Subscriber.class))).thenReturn(first, second);
+		AmazonServiceException exception = new AmazonServiceException("throttled");
+		doThrow(exception).when(mockSesClient).sendRawEmail(first);
+		try {
+			// call under test
+			manager.broadcastMessage(mockUser, mockCallback, change);
+			fail();
+		} catch (AmazonServiceException e) {
+			assertEquals(exception, e);
+		}
+		// the failure should not stop the other email from being sent.
+		verify(mockSesClient).sendRawEmail(second);
+		assertEquals(1L, manager.getEmailsSent());
+		assertEquals(1L, manager.getEmailsFailed());
+	}
+	
 	@Test
 	public void testBroadcastThreadWithMentionedUsers() throws Exception {
 		Set<String> userIds = new HashSet<String>();
@@ -179,7 +257,7 @@ public class BroadcastMessageManagerImplTest {
 	@Test
 	public void testSendMessageToNonSubscribersEmptyNonSubscribers() throws Exception {
 		when(mockBroadcastMessageBuilder.getRelatedUsers()).thenReturn(new HashSet<String>());
-		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new ArrayList<String>(), topic);
+		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new SortedLongSet(), topic);
 		verify(mockBroadcastMessageBuilder).getRelatedUsers();
 		verify(mockUserProfileDao, never()).getUserNotificationInfo(any(Set.class));
 	}
@@ -188,7 +266,7 @@ public class BroadcastMessageManagerImplTest {
 	@Test
 	public void testSendMessageToNonSubscribersNullRelatedUsers() throws Exception {
 		when(mockBroadcastMessageBuilder.getRelatedUsers()).thenReturn(null);
-		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new ArrayList<String>(), topic);
+		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new SortedLongSet(), topic);
 		verify(mockBroadcastMessageBuilder).getRelatedUsers();
 		verify(mockUserProfileDao, never()).getUserNotificationInfo(any(Set.class));
 	}
@@ -199,7 +277,7 @@ public class BroadcastMessageManagerImplTest {
 		userIds.addAll(Arrays.asList("111", "222", "2"));
 		when(mockBroadcastMessageBuilder.getRelatedUsers()).thenReturn(userIds);
 		when(mockUserProfileDao.getUserNotificationInfo(userIds)).thenReturn(new ArrayList<UserNotificationInfo>());
-		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new ArrayList<String>(), topic);
+		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new SortedLongSet(), topic);
 		verify(mockBroadcastMessageBuilder).getRelatedUsers();
 		verify(mockUserProfileDao).getUserNotificationInfo(userIds);
 		verify(mockUserManager, never()).getUserInfo(anyLong());
@@ -226,7 +304,7 @@ public class BroadcastMessageManagerImplTest {
 				.thenReturn(AuthorizationStatus.authorized());
 		when(mockAuthManager.canSubscribe(accessDeniedUserInfo, topic.getObjectId(), topic.getObjectType()))
 				.thenReturn(AuthorizationStatus.accessDenied(""));
-		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new ArrayList<String>(), topic);
+		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new SortedLongSet(), topic);
 		verify(mockBroadcastMessageBuilder).getRelatedUsers();
 		verify(mockUserProfileDao).getUserNotificationInfo(userIds);
 		verify(mockUserManager).getUserInfo(111L);
@@ -256,7 +334,7 @@ public class BroadcastMessageManagerImplTest {
 				.thenReturn(AuthorizationStatus.authorized());
 		when(mockAuthManager.canSubscribe(hasAccessUserInfo2, topic.getObjectId(), topic.getObjectType()))
 				.thenReturn(AuthorizationStatus.authorized());
-		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new ArrayList<String>(), topic);
+		manager.sendMessageToNonSubscribers(mockCallback, change, mockBroadcastMessageBuilder, new SortedLongSet(), topic);
 		verify(mockBroadcastMessageBuilder).getRelatedUsers();
 		verify(mockUserProfileDao).getUserNotificationInfo(userIds);
 		verify(mockUserManager).getUserInfo(111L);
@@ -10,6 +10,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -255,4 +256,61 @@ public class DiscussionBroadcastMessageBuilderTest {
 		SendRawEmailRequest emailRequest = builder.buildEmailForNonSubscriber(user);
 		assertNotNull(emailRequest);
 	}
+
+	@Test
+	public void testBuildHtmlBodyForSubscriberRendersOnce() throws Exception{
+		when(mockMarkdownDao.convertMarkdown(anyString(), isNull())).thenAnswer(invocation -> "<p>" + invocation.getArgument(0) + "</p>");
+		Subscriber other = new Subscriber();
+		other.setFirstName("<b>Other</b>");
+		other.setLastName("Person");
+		other.setUsername("other");
+		other.setSubscriptionId("1000");
+		// call under test
+		String html = builder.buildHtmlBodyForSubscriber(subscriber);
+		String otherHtml = builder.buildHtmlBodyForSubscriber(other);
+		verify(mockMarkdownDao, times(1)).convertMarkdown(anyString(), isNull());
+		assertEquals("<p>" + builder.buildRawBodyForSubscriber(subscriber) + "</p>", html);
+		assertTrue(otherHtml.contains("Hello &lt;b&gt;Other&lt;/b&gt; Person (other)"));
+		assertTrue(otherHtml.contains("https://www.synapse.org/#!Subscription:subscriptionID=1000"));
+		assertFalse(otherHtml.contains(DiscussionBroadcastMessageBuilder.RECIPIENT_NAME_PLACEHOLDER));
+		assertFalse(otherHtml.contains(DiscussionBroadcastMessageBuilder.SUBSCRIPTION_ID_PLACEHOLDER));
+	}
+
+	@Test
+	public void testBuildHtmlBodyForNonSubscriberRendersOnce() throws Exception{
+		when(mockMarkdownDao.convertMarkdown(anyString(), isNull())).thenAnswer(invocation -> "<p>" + invocation.getArgument(0) + "</p>");
+		UserNotificationInfo other = new UserNotificationInfo();
+		other.setUsername("other");
+		// call under test
+		String html = builder.buildHtmlBodyForNonSubscriber(user);
+		String otherHtml = builder.buildHtmlBodyForNonSubscriber(other);
+		verify(mockMarkdownDao, times(1)).convertMarkdown(anyString(), isNull());
+		assertEquals("<p>" + builder.buildRawBodyForNonSubscriber(user) + "</p>", html);
+		assertTrue(otherHtml.startsWith("<p>Hello other,"));
+	}
+
+	@Test
+	public void testBuildHtmlBodyForSubscriberPlaceholderNotPreserved() throws Exception{
+		// the renderer drops the placeholders so each body must be rendered on its own.
+		when(mockMarkdownDao.convertMarkdown(anyString(), isNull())).thenReturn("content");
+		// call under test
+		builder.buildHtmlBodyForSubscriber(subscriber);
+		builder.buildHtmlBodyForSubscriber(subscriber);
+		verify(mockMarkdownDao).convertMarkdown(builder.buildRawBodyForSubscriber(
+				DiscussionBroadcastMessageBuilder.RECIPIENT_NAME_PLACEHOLDER, DiscussionBroadcastMessageBuilder.SUBSCRIPTION_ID_PLACEHOLDER), null);
+		verify(mockMarkdownDao, times(2)).convertMarkdown(builder.buildRawBodyForSubscriber(subscriber), null);
+	}
+
+	@Test
+	public void testBuildHtmlBodyForSubscriberPlaceholderInMarkdown() throws Exception{
+		when(mockMarkdownDao.convertMarkdown(anyString(), isNull())).thenAnswer(invocation -> "<p>" + invocation.getArgument(0) + "</p>");
+		builder = new DiscussionBroadcastMessageBuilder(actorUsername, actorUserId,
+				threadTitle, threadId, projectId, projectName, DiscussionBroadcastMessageBuilder.RECIPIENT_NAME_PLACEHOLDER,
+				ThreadMessageBuilderFactory.THREAD_TEMPLATE, ThreadMessageBuilderFactory.THREAD_CREATED_TITLE,
+				ThreadMessageBuilderFactory.UNSUBSCRIBE_FORUM, mockMarkdownDao, topic, mockUserManager);
+		// call under test
+		String html = builder.buildHtmlBodyForSubscriber(subscriber);
+		// the markdown must be left as written.
+		assertEquals("<p>" + builder.buildRawBodyForSubscriber(subscriber) + "</p>", html);
+	}
 }
@@ -5,9 +5,14 @@ import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -160,4 +165,41 @@ public class ChangeMessageToSearchDocumentTranslatorTest{
 		verify(mockRecordLogger).startRecordForChangeMessage(message);
 		verify(mockWikiPageDao).lookupWikiKey(wikiId);
 	}
+	
+	@Test
+	public void testGenerateSearchDocumentsIfNecessary() {
+		ChangeMessage wikiMessage = new ChangeMessage();
+		wikiMessage.setObjectId(wikiId);
+		wikiMessage.setObjectType(ObjectType.WIKI);
+		ChangeMessage deletedMessage = new ChangeMessage();
+		deletedMessage.setObjectId("syn444");
+		deletedMessage.setObjectType(ObjectType.ENTITY);
+		when(mockSearchDocumentDriver.formulateSearchDocuments(Arrays.asList(synapseId, synapseId, "syn444")))
+				.thenReturn(Collections.singletonMap(112233L, docOne));
+		// call under test
+		List<Document> results = translator
+				.generateSearchDocumentsIfNecessary(Arrays.asList(message, wikiMessage, deletedMessage));
+		Document expectedDelete = new Document();
+		expectedDelete.setId("syn444");
+		expectedDelete.setType(DocumentTypeNames.delete);
+		// the entity changed by both messages is only included once.
+		assertEquals(Arrays.asList(docOne, expectedDelete), results);
+		verify(mocKRecord, times(2)).withAction(DocumentAction.CREATE_OR_UPDATE);
+		verify(mocKRecord).withAction(DocumentAction.DELETE);
+		verify(mocKRecord).withWikiOwner(synapseId);
+		verify(mockSearchDocumentDriver, never()).formulateSearchDocument(anyString());
+	}
+	
+	@Test
+	public void testGenerateSearchDocumentsIfNecessaryWikiNotFound() {
+		when(mockWikiPageDao.lookupWikiKey(wikiId)).thenThrow(new NotFoundException());
+		message.setObjectId(wikiId);
+		message.setObjectType(ObjectType.WIKI);
+		when(mockSearchDocumentDriver.formulateSearchDocuments(Collections.emptyList()))
+				.thenReturn(Collections.emptyMap());
+		// call under test
+		List<Document> results = translator.generateSearchDocumentsIfNecessary(Arrays.asList(message));
+		assertEquals(Collections.emptyList(), results);
+		verify(mocKRecord).withAction(DocumentAction.IGNORE);
+	}
 }
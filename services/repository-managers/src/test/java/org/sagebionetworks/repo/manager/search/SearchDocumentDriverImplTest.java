@@ -8,32 +8,49 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.sagebionetworks.search.SearchConstants.FIELD_CONSORTIUM;
 import static org.sagebionetworks.search.SearchConstants.FIELD_DIAGNOSIS;
 import static org.sagebionetworks.search.SearchConstants.FIELD_ORGAN;
 import static org.sagebionetworks.search.SearchConstants.FIELD_TISSUE;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.sagebionetworks.repo.model.AccessControlList;
+import org.sagebionetworks.repo.model.AccessControlListDAO;
 import org.sagebionetworks.repo.model.EntityType;
 import org.sagebionetworks.repo.model.Node;
+import org.sagebionetworks.repo.model.NodeDAO;
+import org.sagebionetworks.repo.model.ObjectType;
 import org.sagebionetworks.repo.model.annotation.v2.Annotations;
 import org.sagebionetworks.repo.model.annotation.v2.AnnotationsV2TestUtils;
 import org.sagebionetworks.repo.model.annotation.v2.AnnotationsValueType;
+import org.sagebionetworks.repo.model.dao.WikiPageKey;
+import org.sagebionetworks.repo.model.dao.WikiPageKeyHelper;
+import org.sagebionetworks.repo.model.dbo.wikiV2.WikiMarkdownCache;
 import org.sagebionetworks.repo.model.search.Document;
 import org.sagebionetworks.repo.model.search.DocumentFields;
+import org.sagebionetworks.repo.model.v2.dao.V2WikiPageDao;
+import org.sagebionetworks.repo.model.v2.wiki.V2WikiHeader;
+import org.sagebionetworks.repo.model.v2.wiki.V2WikiPage;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SearchDocumentDriverImplTest {
@@ -49,6 +66,18 @@ public class SearchDocumentDriverImplTest {
 	@Mock
 	private AccessControlList mockAcl;
 
+	@Mock
+	private NodeDAO mockNodeDao;
+	@Mock
+	private AccessControlListDAO mockAclDao;
+	@Mock
+	private V2WikiPageDao mockWikiPageDao;
+	@Mock
+	private WikiMarkdownCache mockWikiMarkdownCache;
+
+	@InjectMocks
+	private SearchDocumentDriverImpl searchDocumentDriver;
+
 	private Node node;
 
 	private final String annoKey1 = "annoKey1";
@@ -89,6 +118,12 @@ public class SearchDocumentDriverImplTest {
 		node.setModifiedByPrincipalId(123L);
 		node.setModifiedOn(new Date());
 
+		searchDocumentDriver.searchDocumentThreadPool = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void after(){
+		searchDocumentDriver.searchDocumentThreadPool.shutdownNow();
 	}
 
 
@@ -192,4 +227,78 @@ public class SearchDocumentDriverImplTest {
 		assertEquals(sanitizedString, result.getFields().getDescription());
 	}
 
+	@Test
+	public void formulateSearchDocuments(){
+		Node one = createNode("syn1");
+		Node two = createNode("syn2");
+		List<Long> ids = Arrays.asList(1L, 2L, 3L);
+		when(mockNodeDao.getAvailableNodes(ids)).thenReturn(new HashSet<>(Arrays.asList(1L, 2L)));
+		when(mockNodeDao.getNodes(any())).thenReturn(Arrays.asList(one, two));
+		Map<Long, Long> benefactors = new HashMap<>();
+		benefactors.put(1L, 1L);
+		benefactors.put(2L, 1L);
+		when(mockNodeDao.getBenefactors(any())).thenReturn(benefactors);
+		Map<Long, Annotations> annotations = new HashMap<>();
+		annotations.put(1L, new Annotations());
+		annotations.put(2L, new Annotations());
+		when(mockNodeDao.getUserAnnotationsForCurrentVersions(any())).thenReturn(annotations);
+		AccessControlList acl = new AccessControlList();
+		acl.setResourceAccess(Collections.emptySet());
+		when(mockAclDao.get("syn1", ObjectType.ENTITY)).thenReturn(acl);
+
+		//method under test
+		Map<Long, Document> results = searchDocumentDriver.formulateSearchDocuments(Arrays.asList("syn1", "syn2", "syn3"));
+
+		assertEquals(2, results.size());
+		assertEquals("syn1", results.get(1L).getId());
+		assertEquals("syn2", results.get(2L).getId());
+		assertNull(results.get(3L));
+		// the shared benefactor ACL is only read once.
+		verify(mockAclDao, times(1)).get("syn1", ObjectType.ENTITY);
+		verify(mockWikiPageDao).getHeaderTree("syn1", ObjectType.ENTITY, 100L, 0L);
+		verify(mockWikiPageDao).getHeaderTree("syn2", ObjectType.ENTITY, 100L, 0L);
+	}
+
+	@Test
+	public void formulateSearchDocuments_noneAvailable(){
+		when(mockNodeDao.getAvailableNodes(Arrays.asList(3L))).thenReturn(Collections.emptySet());
+
+		//method under test
+		Map<Long, Document> results = searchDocumentDriver.formulateSearchDocuments(Arrays.asList("syn3"));
+
+		assertTrue(results.isEmpty());
+		verify(mockNodeDao, never()).getNodes(any());
+	}
+
+	@Test
+	public void getAllWikiPageText() throws Exception{
+		V2WikiHeader header = new V2WikiHeader();
+		header.setId("456");
+		when(mockWikiPageDao.getHeaderTree("syn123", ObjectType.ENTITY, 100L, 0L)).thenReturn(Arrays.asList(header));
+		V2WikiPage page = new V2WikiPage();
+		page.setTitle("title");
+		page.setMarkdownFileHandleId("789");
+		WikiPageKey key = WikiPageKeyHelper.createWikiPageKey("syn123", ObjectType.ENTITY, "456");
+		when(mockWikiPageDao.get(key, null)).thenReturn(page);
+		when(mockWikiMarkdownCache.getMarkdown("789")).thenReturn("markdown");
+
+		//method under test
+		String text = searchDocumentDriver.getAllWikiPageText("syn123");
+
+		assertEquals("\ntitle\nmarkdown", text);
+		// the markdown is read from the cache rather than the DAO.
+		verify(mockWikiPageDao, never()).getMarkdown(any(), any());
+	}
+
+	private Node createNode(String id){
+		Node toCreate = new Node();
+		toCreate.setId(id);
+		toCreate.setNodeType(EntityType.file);
+		toCreate.setCreatedByPrincipalId(123L);
+		toCreate.setCreatedOn(new Date());
+		toCreate.setModifiedByPrincipalId(123L);
+		toCreate.setModifiedOn(new Date());
+		return toCreate;
+	}
+
 }
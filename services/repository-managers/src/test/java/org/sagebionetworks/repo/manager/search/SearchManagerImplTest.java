@@ -160,21 +160,19 @@ public class SearchManagerImplTest {
 
 	@Test
 	public void testDocumentChangeMessages(){
-		Document doc2Null = null;
-
 		Document doc3 = new Document();
 		doc3.setId("syn3");
 
-		when(mockTranslator.generateSearchDocumentIfNecessary(any(ChangeMessage.class))).thenReturn(doc1, doc2Null, doc3);
-
 		List<ChangeMessage> messages = Arrays.asList(new ChangeMessage(), new ChangeMessage(), new ChangeMessage());
+		when(mockTranslator.generateSearchDocumentsIfNecessary(messages)).thenReturn(Arrays.asList(doc1, doc3));
+
 		//method under test
 		searchManager.documentChangeMessages(messages);
 
 		verify(mockSearchDao).sendDocuments(iteratorArgumentCaptor.capture());
 		verify(mockRecordLogger).pushAllRecordsAndReset();
 
-		//check that the document iterator now only contains non-null Documents
+		//check that the document iterator contains the generated Documents
 		Iterator<Document> generatedIterator = iteratorArgumentCaptor.getValue();
 		List<Document> documentsInIterator = Lists.newArrayList(generatedIterator);
 		assertEquals(2, documentsInIterator.size());
@@ -0,0 +1,138 @@
+package org.sagebionetworks.repo.web.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sagebionetworks.repo.model.table.ColumnType;
+import org.sagebionetworks.repo.model.table.Row;
+import org.sagebionetworks.repo.model.table.RowSet;
+import org.sagebionetworks.repo.model.table.SelectColumn;
+import org.sagebionetworks.schema.adapter.org.json.EntityFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+/**
+ * Measures the heap allocated and the p99 latency of a write/read round trip
+ * of large responses through the streaming converter and through the previous
+ * string based serialization. This is not run as part of the build.
+ *
+ */
+public class JSONEntityHttpMessageConverterBenchmark {
+
+	static final int ONE_MB = 1024 * 1024;
+
+	HttpOutputMessage mockOutMessage;
+	HttpInputMessage mockInMessage;
+	HttpHeaders headers;
+	JSONEntityHttpMessageConverter converter;
+
+	@Before
+	public void before() {
+		converter = new JSONEntityHttpMessageConverter();
+		mockOutMessage = Mockito.mock(HttpOutputMessage.class);
+		mockInMessage = Mockito.mock(HttpInputMessage.class);
+		headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		Mockito.when(mockOutMessage.getHeaders()).thenReturn(headers);
+		Mockito.when(mockInMessage.getHeaders()).thenReturn(headers);
+	}
+
+	@Test
+	public void benchmarkOneMB() throws Exception {
+		benchmark(createRowSet(ONE_MB), 50);
+	}
+
+	@Test
+	public void benchmarkTwentyMB() throws Exception {
+		benchmark(createRowSet(20 * ONE_MB), 10);
+	}
+
+	/**
+	 * Create a RowSet with a JSON size of about the given number of bytes.
+	 */
+	static RowSet createRowSet(int approximateBytes) {
+		SelectColumn column = new SelectColumn();
+		column.setName("value");
+		column.setColumnType(ColumnType.STRING);
+		RowSet rowSet = new RowSet();
+		rowSet.setTableId("syn123");
+		rowSet.setEtag("etag");
+		rowSet.setHeaders(Collections.singletonList(column));
+		List<Row> rows = new ArrayList<>();
+		// each row is about 100 bytes of JSON.
+		for (long i = 0; i < approximateBytes / 100; i++) {
+			Row row = new Row();
+			row.setRowId(i);
+			row.setVersionNumber(1L);
+			row.setValues(Arrays.asList("value number " + i + " of the benchmark"));
+			rows.add(row);
+		}
+		rowSet.setRows(rows);
+		return rowSet;
+	}
+
+	void benchmark(RowSet rowSet, int iterations) throws Exception {
+		long[] streamingNanos = new long[iterations];
+		long[] stringNanos = new long[iterations];
+		long streamingBytes = 0;
+		long stringBytes = 0;
+		int responseSize = 0;
+		for (int i = 0; i < iterations; i++) {
+			// streaming write and read
+			long startBytes = allocatedBytes();
+			long start = System.nanoTime();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Mockito.when(mockOutMessage.getBody()).thenReturn(out);
+			converter.write(rowSet, MediaType.APPLICATION_JSON, mockOutMessage);
+			byte[] body = out.toByteArray();
+			Mockito.when(mockInMessage.getBody()).thenReturn(new ByteArrayInputStream(body));
+			RowSet streamed = (RowSet) converter.read(RowSet.class, mockInMessage);
+			streamingNanos[i] = System.nanoTime() - start;
+			streamingBytes += allocatedBytes() - startBytes - body.length;
+			assertEquals(rowSet.getRows().size(), streamed.getRows().size());
+			responseSize = body.length;
+
+			// string write and read as done before streaming
+			startBytes = allocatedBytes();
+			start = System.nanoTime();
+			out = new ByteArrayOutputStream();
+			JSONEntityHttpMessageConverter.writeToStream(EntityFactory.createJSONStringForEntity(rowSet), out, StandardCharsets.UTF_8);
+			body = out.toByteArray();
+			String json = JSONEntityHttpMessageConverter.readToString(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+			RowSet fromString = EntityFactory.createEntityFromJSONString(json, RowSet.class);
+			stringNanos[i] = System.nanoTime() - start;
+			stringBytes += allocatedBytes() - startBytes - body.length;
+			assertEquals(rowSet.getRows().size(), fromString.getRows().size());
+		}
+		System.out.println(String.format("Response of %,d bytes: streaming allocated %,d bytes/request p99 %d ms, string allocated %,d bytes/request p99 %d ms",
+				responseSize, streamingBytes / iterations, p99Millis(streamingNanos), stringBytes / iterations, p99Millis(stringNanos)));
+	}
+
+	/**
+	 * The bytes allocated by the current thread.
+	 */
+	static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	static long p99Millis(long[] nanos) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(sorted.length * 0.99) - 1;
+		return sorted[index] / 1_000_000L;
+	}
+}
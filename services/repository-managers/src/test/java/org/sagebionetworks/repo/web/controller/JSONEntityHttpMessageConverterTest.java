@@ -30,6 +30,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 
 import com.amazonaws.util.StringInputStream;
@@ -117,6 +118,21 @@ public class JSONEntityHttpMessageConverterTest {
 		assertEquals("foo", IOUtils.toString(in));
 	}
 	
+	@Test (expected=HttpMessageNotReadableException.class)
+	public void testReadMalformedJSON() throws IOException{
+		JSONEntityHttpMessageConverter converter = new JSONEntityHttpMessageConverter();
+		Mockito.when(mockInMessage.getBody()).thenReturn(new StringInputStream("{\"name\":"));
+		converter.read(Project.class, mockInMessage);
+	}
+	
+	@Test
+	public void testWriteJSONObjectToStream() throws Exception {
+		JSONObject json = EntityFactory.createJSONObjectForEntity(project);
+		long length = JSONEntityHttpMessageConverter.writeToStream(json, outStream, Charset.forName("UTF-8"));
+		assertEquals(outStream.size(), length);
+		assertEquals(EntityFactory.createJSONStringForEntity(project), new String(outStream.toByteArray(), "UTF-8"));
+	}
+	
 	@Test
 	public void testConvertEntityToPlainText() throws Exception {
 		ErrorResponse error = new ErrorResponse();
@@ -15,6 +15,7 @@ import org.sagebionetworks.repo.model.AuthorizationConstants;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.ListWrapper;
 import org.sagebionetworks.repo.model.NotReadyException;
+import org.sagebionetworks.repo.model.ServiceConstants;
 import org.sagebionetworks.repo.model.asynch.AsyncJobId;
 import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
 import org.sagebionetworks.repo.model.file.AddFileToDownloadListRequest;
@@ -658,9 +659,15 @@ public class UploadController {
 	 * href="${org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus}"
 	 * >AsynchronousJobStatus</a> object.
 	 * </p>
+	 * <p>
+	 * Pass waitMs to have the request wait up to that many milliseconds
+	 * (at most 30000) for the job to finish instead of returning 202 right away.
+	 * </p>
 	 * 
 	 * @param userId
 	 * @param asyncToken
+	 * @param waitMs
+	 *            The maximum number of milliseconds to wait for the job to finish.
 	 * @return
 	 * @throws NotReadyException
 	 * @throws NotFoundException
@@ -670,10 +677,11 @@ public class UploadController {
 	@RequestMapping(value = UrlHelpers.BULK_FILE_DOWNLOAD_ASYNC_GET, method = RequestMethod.GET)
 	public @ResponseBody BulkFileDownloadResponse getBulkFileDownloadResults(
 			@RequestParam(value = AuthorizationConstants.USER_ID_PARAM) Long userId,
-			@PathVariable String asyncToken) throws Throwable {
+			@PathVariable String asyncToken,
+			@RequestParam(value = ServiceConstants.ASYNC_WAIT_MS_PARAM, required = false, defaultValue = "0") long waitMs) throws Throwable {
 		AsynchronousJobStatus jobStatus = serviceProvider
 				.getAsynchronousJobServices().getJobStatusAndThrow(userId,
-						asyncToken);
+						asyncToken, waitMs);
 		return (BulkFileDownloadResponse) jobStatus.getResponseBody();
 	}
 	
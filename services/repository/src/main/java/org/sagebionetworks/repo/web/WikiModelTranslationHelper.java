@@ -6,8 +6,6 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.UUID;
 
@@ -21,6 +19,7 @@ import org.sagebionetworks.repo.manager.file.FileHandleManager;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.UserInfo;
 import org.sagebionetworks.repo.model.dao.FileHandleDao;
+import org.sagebionetworks.repo.model.dbo.wikiV2.WikiMarkdownCache;
 import org.sagebionetworks.repo.model.file.ChunkedFileToken;
 import org.sagebionetworks.repo.model.file.CreateChunkedFileTokenRequest;
 import org.sagebionetworks.repo.model.file.S3FileHandle;
@@ -28,12 +27,10 @@ import org.sagebionetworks.repo.model.v2.wiki.V2WikiPage;
 import org.sagebionetworks.repo.model.wiki.WikiPage;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.util.FileProvider;
-import org.sagebionetworks.utils.ContentTypeUtil;
 import org.sagebionetworks.utils.MD5ChecksumHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.util.BinaryUtils;
 
 /**
@@ -52,18 +49,21 @@ public class WikiModelTranslationHelper implements WikiModelTranslator {
 	FileProvider tempFileProvider;
 	@Autowired
 	IdGenerator idGenerator;
+	@Autowired
+	WikiMarkdownCache wikiMarkdownCache;
 	
 	public static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
 
 	public WikiModelTranslationHelper() {}
 	
 	public WikiModelTranslationHelper(FileHandleManager fileHandleManager, FileHandleDao fileMetadataDao,
-			SynapseS3Client s3Client, FileProvider tempFileProvider) {
+			SynapseS3Client s3Client, FileProvider tempFileProvider, WikiMarkdownCache wikiMarkdownCache) {
 		super();
 		this.fileMetadataDao = fileMetadataDao;
 		this.fileHandleManager = fileHandleManager;
 		this.s3Client = s3Client;
 		this.tempFileProvider = tempFileProvider;
+		this.wikiMarkdownCache = wikiMarkdownCache;
 	}
 	
 	private static final String DEFAULT_WIKI_MIME_TYPE = "application/x-gzip";
@@ -148,20 +148,9 @@ public class WikiModelTranslationHelper implements WikiModelTranslator {
 		wiki.setTitle(from.getTitle());
 		wiki.setAttachmentFileHandleIds(from.getAttachmentFileHandleIds());
 		
-		S3FileHandle markdownHandle = (S3FileHandle) fileMetadataDao.get(from.getMarkdownFileHandleId());
 		// Retrieve uploaded markdown
-		S3Object s3Object = s3Client.getObject(markdownHandle.getBucketName(), markdownHandle.getKey());
-		Charset charset = ContentTypeUtil.getCharsetFromS3Object(s3Object);
-		InputStream in = s3Object.getObjectContent();
-		try{
-			// Read the file as a string
-			String markdownString = FileUtils.readStreamAsString(in, charset, /*gunzip*/true);
-			wiki.setMarkdown(markdownString);
-			return wiki;
-		}finally{
-			in.close();
-		}
-
+		wiki.setMarkdown(wikiMarkdownCache.getMarkdown(from.getMarkdownFileHandleId()));
+		return wiki;
 	}
 
 
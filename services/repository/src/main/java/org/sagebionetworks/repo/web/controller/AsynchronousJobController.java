@@ -3,6 +3,7 @@ package org.sagebionetworks.repo.web.controller;
 import org.sagebionetworks.repo.model.AsynchJobFailedException;
 import org.sagebionetworks.repo.model.AuthorizationConstants;
 import org.sagebionetworks.repo.model.NotReadyException;
+import org.sagebionetworks.repo.model.ServiceConstants;
 import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
 import org.sagebionetworks.repo.model.asynch.AsynchronousRequestBody;
 import org.sagebionetworks.repo.web.NotFoundException;
@@ -66,10 +67,15 @@ public class AsynchronousJobController {
 	
 	/**
 	 * Once a job is launched its progress can be monitored by getting its status with this method.
+	 * <p>
+	 * Rather than polling, pass waitMs to have the request wait up to that many milliseconds (at most 30000) for
+	 * the job to finish. The status is returned as soon as the job is complete or failed, or when the wait ends.
+	 * </p>
 	 * 
 	 * @param userId
 	 * @param jobId The jobId issued to a job that has been launched with <a href="${POST.asynchronous.job}">POST
 	 *        /asynchronous/job</a>
+	 * @param waitMs The maximum number of milliseconds to wait for the job to finish. Defaults to zero.
 	 * @return
 	 * @throws NotFoundException
 	 * @throws NotReadyException
@@ -78,9 +84,10 @@ public class AsynchronousJobController {
 	@ResponseStatus(HttpStatus.OK)
 	@RequestMapping(value = UrlHelpers.ASYNCHRONOUS_JOB_ID, method = RequestMethod.GET)
 	public @ResponseBody
-	AsynchronousJobStatus getJobStatus(@RequestParam(value = AuthorizationConstants.USER_ID_PARAM) Long userId, @PathVariable String jobId)
+	AsynchronousJobStatus getJobStatus(@RequestParam(value = AuthorizationConstants.USER_ID_PARAM) Long userId, @PathVariable String jobId,
+			@RequestParam(value = ServiceConstants.ASYNC_WAIT_MS_PARAM, required = false, defaultValue = "0") long waitMs)
 			throws NotFoundException, AsynchJobFailedException, NotReadyException {
-		return serviceProvider.getAsynchronousJobServices().getJobStatus(userId, jobId);
+		return serviceProvider.getAsynchronousJobServices().getJobStatus(userId, jobId, waitMs);
 	}
 
 	/**
@@ -5,6 +5,8 @@ import org.sagebionetworks.repo.model.AuthorizationConstants;
 import org.sagebionetworks.repo.model.ConflictingUpdateException;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleCreate;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
 import org.sagebionetworks.repo.model.InvalidModelException;
@@ -91,6 +93,32 @@ public class EntityBundleV2Controller {
 		return serviceProvider.getEntityBundleService().getEntityBundle(userId, id, versionNumber, request);
 	}
 
+	/**
+	 * Get the bundles of the current version of many entities with a single
+	 * POST, such as for the children of a folder. The same fields are included
+	 * in each bundle. The parts that the entities share, such as the ACLs of
+	 * their benefactors and their paths, are only looked up once. At most 100
+	 * entities can be requested at a time.
+	 *
+	 * @param userId -The user that is doing the get.
+	 * @param request
+	 * @return One bundle for each requested entity, in the order of the request.
+	 * @throws NotFoundException - Thrown if one of the requested entities does not exist.
+	 * @throws DatastoreException - Thrown when an there is a server failure.
+	 * @throws UnauthorizedException
+	 * @throws ACLInheritanceException
+	 * @throws ParseException - Thrown if the childCount query failed
+	 */
+	@ResponseStatus(HttpStatus.OK)
+	@RequestMapping(value = UrlHelpers.ENTITY_BUNDLE_V2_BATCH, method = RequestMethod.POST)
+	public @ResponseBody
+	EntityBundleBatchResponse getEntityBundles(
+			@RequestParam(value = AuthorizationConstants.USER_ID_PARAM) Long userId,
+			@RequestBody EntityBundleBatchRequest request)
+			throws NotFoundException, DatastoreException, UnauthorizedException, ACLInheritanceException, ParseException {
+		return serviceProvider.getEntityBundleService().getEntityBundles(userId, request);
+	}
+
 	/**
 	 * Create an entity and associated components with a single POST.
 	 * Specifically, this operation supports creation of an Entity, its
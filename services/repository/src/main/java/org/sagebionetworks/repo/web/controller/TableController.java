@@ -916,11 +916,17 @@ public class TableController {
 	 * href="${org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus}"
 	 * >AsynchronousJobStatus</a> object.
 	 * </p>
+	 * <p>
+	 * Pass waitMs to have the request wait up to that many milliseconds
+	 * (at most 30000) for the job to finish instead of returning 202 right away.
+	 * </p>
 	 * 
 	 * @param userId
 	 * @param id
 	 *            The ID of the TableEntity.
 	 * @param asyncToken
+	 * @param waitMs
+	 *            The maximum number of milliseconds to wait for the query to finish.
 	 * @return
 	 * @throws NotReadyException
 	 *             when the result is not ready yet
@@ -932,12 +938,13 @@ public class TableController {
 	@RequestMapping(value = UrlHelpers.ENTITY_TABLE_QUERY_ASYNC_GET, method = RequestMethod.GET)
 	public @ResponseBody
 	QueryResultBundle queryAsyncGet(@RequestParam(value = AuthorizationConstants.USER_ID_PARAM) Long userId, @PathVariable String id,
-			@PathVariable String asyncToken) throws Throwable {
+			@PathVariable String asyncToken,
+			@RequestParam(value = ServiceConstants.ASYNC_WAIT_MS_PARAM, required = false, defaultValue = "0") long waitMs) throws Throwable {
 		if (id == null)
 			throw new IllegalArgumentException("{id} cannot be null");
 		AsynchronousJobStatus jobStatus = serviceProvider
 				.getAsynchronousJobServices().getJobStatusAndThrow(userId,
-						asyncToken);
+						asyncToken, waitMs);
 		return (QueryResultBundle) jobStatus.getResponseBody();
 	}
 
@@ -1075,11 +1082,17 @@ public class TableController {
 	 * href="${org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus}"
 	 * >AsynchronousJobStatus</a> object.
 	 * </p>
+	 * <p>
+	 * Pass waitMs to have the request wait up to that many milliseconds
+	 * (at most 30000) for the job to finish instead of returning 202 right away.
+	 * </p>
 	 * 
 	 * @param userId
 	 * @param id
 	 *            The ID of the TableEntity.
 	 * @param asyncToken
+	 * @param waitMs
+	 *            The maximum number of milliseconds to wait for the download to finish.
 	 * @return
 	 * @throws DatastoreException
 	 * @throws NotFoundException
@@ -1091,12 +1104,13 @@ public class TableController {
 	@RequestMapping(value = UrlHelpers.ENTITY_TABLE_DOWNLOAD_CSV_ASYNC_GET, method = RequestMethod.GET)
 	public @ResponseBody
 	DownloadFromTableResult csvDownloadAsyncGet(@RequestParam(value = AuthorizationConstants.USER_ID_PARAM) Long userId,
-			@PathVariable String id, @PathVariable String asyncToken) throws Throwable {
+			@PathVariable String id, @PathVariable String asyncToken,
+			@RequestParam(value = ServiceConstants.ASYNC_WAIT_MS_PARAM, required = false, defaultValue = "0") long waitMs) throws Throwable {
 		if (id == null)
 			throw new IllegalArgumentException("{id} cannot be null");
 		AsynchronousJobStatus jobStatus = serviceProvider
 				.getAsynchronousJobServices().getJobStatusAndThrow(userId,
-						asyncToken);
+						asyncToken, waitMs);
 		return (DownloadFromTableResult) jobStatus.getResponseBody();
 	}
 
@@ -37,6 +37,18 @@ public interface AsynchronousJobServices {
 	 */
 	AsynchronousJobStatus getJobStatus(Long userId, String jobId) throws NotFoundException;
 
+	/**
+	 * Get the status for an existing job, waiting up to waitMs for the job to
+	 * finish if it is still processing.
+	 * 
+	 * @param userId
+	 * @param jobId
+	 * @param waitMs
+	 * @return
+	 * @throws NotFoundException
+	 */
+	AsynchronousJobStatus getJobStatus(Long userId, String jobId, long waitMs) throws NotFoundException;
+
 	/**
 	 * Stop an existing job.
 	 * 
@@ -58,4 +70,16 @@ public interface AsynchronousJobServices {
 	 * @throws Throwable 
 	 */
 	AsynchronousJobStatus getJobStatusAndThrow(Long userId, String jobId) throws Throwable;
+
+	/**
+	 * Get the status for an existing job, waiting up to waitMs for the job to
+	 * finish, and throw exceptions on error and not done.
+	 * 
+	 * @param userId
+	 * @param jobId
+	 * @param waitMs
+	 * @return
+	 * @throws Throwable
+	 */
+	AsynchronousJobStatus getJobStatusAndThrow(Long userId, String jobId, long waitMs) throws Throwable;
 }
@@ -43,6 +43,11 @@ public class AsynchronousJobServicesImpl implements AsynchronousJobServices {
 
 	@Override
 	public AsynchronousJobStatus getJobStatus(Long userId, String jobId) throws NotFoundException {
+		return getJobStatus(userId, jobId, 0L);
+	}
+
+	@Override
+	public AsynchronousJobStatus getJobStatus(Long userId, String jobId, long waitMs) throws NotFoundException {
 		if (userId == null) {
 			throw new IllegalArgumentException("UserId cannot be null");
 		}
@@ -51,10 +56,20 @@ public class AsynchronousJobServicesImpl implements AsynchronousJobServices {
 		}
 
 		UserInfo user = userManager.getUserInfo(userId);
-		AsynchronousJobStatus jobStatus = asynchJobStatusManager.getJobStatus(user, jobId);
+		AsynchronousJobStatus jobStatus = readJobStatus(user, jobId, waitMs);
 		return jobStatus;
 	}
 
+	/**
+	 * Only wait when asked to so a plain status read stays a single lookup.
+	 */
+	private AsynchronousJobStatus readJobStatus(UserInfo user, String jobId, long waitMs) {
+		if (waitMs > 0L) {
+			return asynchJobStatusManager.waitForJobStatus(user, jobId, waitMs);
+		}
+		return asynchJobStatusManager.getJobStatus(user, jobId);
+	}
+
 	@Override
 	public void cancelJob(Long userId, String jobId) throws NotFoundException {
 		if (userId == null) {
@@ -70,6 +85,11 @@ public class AsynchronousJobServicesImpl implements AsynchronousJobServices {
 
 	@Override
 	public AsynchronousJobStatus getJobStatusAndThrow(Long userId, String jobId) throws Throwable {
+		return getJobStatusAndThrow(userId, jobId, 0L);
+	}
+
+	@Override
+	public AsynchronousJobStatus getJobStatusAndThrow(Long userId, String jobId, long waitMs) throws Throwable {
 		if (userId == null) {
 			throw new IllegalArgumentException("UserId cannot be null");
 		}
@@ -78,7 +98,7 @@ public class AsynchronousJobServicesImpl implements AsynchronousJobServices {
 		}
 
 		UserInfo user = userManager.getUserInfo(userId);
-		AsynchronousJobStatus jobStatus = asynchJobStatusManager.getJobStatus(user, jobId);
+		AsynchronousJobStatus jobStatus = readJobStatus(user, jobId, waitMs);
 
 		if (jobStatus.getJobState() == AsynchJobState.FAILED) {
 			if (jobStatus.getException() != null) {
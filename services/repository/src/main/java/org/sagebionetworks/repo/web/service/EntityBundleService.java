@@ -4,6 +4,8 @@ import org.sagebionetworks.repo.model.ACLInheritanceException;
 import org.sagebionetworks.repo.model.ConflictingUpdateException;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleCreate;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
 import org.sagebionetworks.repo.model.InvalidModelException;
@@ -52,6 +54,17 @@ public interface EntityBundleService {
 	public EntityBundle getEntityBundle(Long userId, String entityId, Long versionNumber, EntityBundleRequest request) throws NotFoundException,
 			DatastoreException, UnauthorizedException, ACLInheritanceException, ParseException;
 
+	/**
+	 * Get the bundles of the current version of many entities. The parts that
+	 * are shared between the entities are fetched for the whole batch at once.
+	 * 
+	 * @param userId
+	 * @param request
+	 * @return One bundle for each requested entity, in the order of the request.
+	 */
+	public EntityBundleBatchResponse getEntityBundles(Long userId, EntityBundleBatchRequest request) throws NotFoundException,
+			DatastoreException, UnauthorizedException, ACLInheritanceException, ParseException;
+
 	/**
 	 * Get an entity and related data with a single GET.
 	 * 
@@ -2,20 +2,32 @@ package org.sagebionetworks.repo.web.service;
 
 import static org.apache.commons.lang3.BooleanUtils.isTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.sagebionetworks.repo.manager.AccessRequirementManager;
 import org.sagebionetworks.repo.manager.UserManager;
+import org.sagebionetworks.repo.manager.discussion.DiscussionThreadManagerImpl;
 import org.sagebionetworks.repo.model.ACCESS_TYPE;
 import org.sagebionetworks.repo.model.ACLInheritanceException;
 import org.sagebionetworks.repo.model.AccessControlList;
 import org.sagebionetworks.repo.model.AccessRequirement;
+import org.sagebionetworks.repo.model.AuthorizationConstants;
 import org.sagebionetworks.repo.model.ConflictingUpdateException;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.Entity;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleCreate;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
 import org.sagebionetworks.repo.model.EntityHeader;
@@ -25,6 +37,7 @@ import org.sagebionetworks.repo.model.EntityTypeUtils;
 import org.sagebionetworks.repo.model.FileEntity;
 import org.sagebionetworks.repo.model.InvalidModelException;
 import org.sagebionetworks.repo.model.ObjectType;
+import org.sagebionetworks.repo.model.Reference;
 import org.sagebionetworks.repo.model.RestrictableObjectDescriptor;
 import org.sagebionetworks.repo.model.RestrictableObjectType;
 import org.sagebionetworks.repo.model.RestrictionInformationRequest;
@@ -33,17 +46,28 @@ import org.sagebionetworks.repo.model.UnauthorizedException;
 import org.sagebionetworks.repo.model.VersionableEntity;
 import org.sagebionetworks.repo.model.annotation.v2.Annotations;
 import org.sagebionetworks.repo.model.annotation.v2.AnnotationsV2Translator;
+import org.sagebionetworks.repo.model.auth.UserEntityPermissions;
 import org.sagebionetworks.repo.model.dao.WikiPageKey;
+import org.sagebionetworks.repo.model.discussion.EntityThreadCount;
 import org.sagebionetworks.repo.model.discussion.EntityThreadCounts;
+import org.sagebionetworks.repo.model.doi.v2.DoiAssociation;
 import org.sagebionetworks.repo.model.entity.IdAndVersion;
 import org.sagebionetworks.repo.model.file.FileHandle;
 import org.sagebionetworks.repo.model.jdo.KeyFactory;
+import org.sagebionetworks.repo.model.table.TableBundle;
 import org.sagebionetworks.repo.queryparser.ParseException;
 import org.sagebionetworks.repo.transactions.WriteTransaction;
 import org.sagebionetworks.repo.web.NotFoundException;
+import org.sagebionetworks.util.ThreadLocalProvider;
+import org.sagebionetworks.util.ValidateArgument;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.Lists;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
 public class EntityBundleServiceImpl implements EntityBundleService {
+
+	public static final int MAX_BATCH_SIZE = 100;
 	
 	@Autowired
 	ServiceProvider serviceProvider;
@@ -54,6 +78,13 @@ public class EntityBundleServiceImpl implements EntityBundleService {
 	@Autowired
 	AccessRequirementManager accessRequirementManager;
 	
+	/*
+	 * The independent parts of a bundle are fetched concurrently from this pool,
+	 * so the latency of a bundle is that of its slowest part rather than the sum
+	 * of all parts. Injected (IoC).
+	 */
+	ExecutorService entityBundleThreadPool;
+	
 	public EntityBundleServiceImpl() {}
 	
 	/**
@@ -77,134 +108,528 @@ public class EntityBundleServiceImpl implements EntityBundleService {
 			throws NotFoundException, DatastoreException,
 			UnauthorizedException, ACLInheritanceException, ParseException {
 
-		EntityBundle eb = new EntityBundle();
-		Entity entity = null;
 		IdAndVersion idAndVersion = KeyFactory.idAndVersion(entityId, versionNumber);
+		BundleFetcher fetcher = new BundleFetcher(getExecutor());
+		EntityService entityService = serviceProvider.getEntityService();
+
+		// Parts that are used by more than one field of the bundle are only fetched once.
+		CompletableFuture<Entity> entityFuture = null;
 		if (isTrue(request.getIncludeEntity()) || isTrue(request.getIncludeFileName())) {
-			if(versionNumber == null) {
-				entity = serviceProvider.getEntityService().getEntity(userId, entityId);
-			} else {
-				entity = serviceProvider.getEntityService().getEntityForVersion(userId, entityId, versionNumber);
-			}
-			if (isTrue(request.getIncludeEntity())) {
-				eb.setEntity(entity);
-				eb.setEntityType(EntityTypeUtils.getEntityTypeForClass(entity.getClass()));
-			}
+			entityFuture = fetcher.fetch(() -> versionNumber == null ? entityService.getEntity(userId, entityId)
+					: entityService.getEntityForVersion(userId, entityId, versionNumber));
 		}
+		CompletableFuture<Annotations> annotationsFuture = null;
 		if (isTrue(request.getIncludeAnnotations())) {
-			if(versionNumber == null) {
-				eb.setAnnotations(serviceProvider.getEntityService().getEntityAnnotations(userId, entityId));
-			} else {
-				eb.setAnnotations(serviceProvider.getEntityService().getEntityAnnotationsForVersion(userId, entityId, versionNumber));
-			}
+			annotationsFuture = fetcher.fetch(() -> versionNumber == null ? entityService.getEntityAnnotations(userId, entityId)
+					: entityService.getEntityAnnotationsForVersion(userId, entityId, versionNumber));
 		}
+		CompletableFuture<UserEntityPermissions> permissionsFuture = null;
 		if (isTrue(request.getIncludePermissions())) {
-			eb.setPermissions(serviceProvider.getEntityService().getUserEntityPermissions(userId, entityId));
+			permissionsFuture = fetcher.fetch(() -> entityService.getUserEntityPermissions(userId, entityId));
 		}
+		CompletableFuture<List<EntityHeader>> pathFuture = null;
 		if (isTrue(request.getIncludeEntityPath())) {
-			List<EntityHeader> path = serviceProvider.getEntityService().getEntityPath(userId, entityId);
+			pathFuture = fetcher.fetch(() -> entityService.getEntityPath(userId, entityId));
+		}
+		CompletableFuture<Boolean> hasChildrenFuture = null;
+		if (isTrue(request.getIncludeHasChildren())) {
+			hasChildrenFuture = fetcher.fetch(() -> entityService.doesEntityHaveChildren(userId, entityId));
+		}
+		CompletableFuture<EntityAcl> aclFuture = null;
+		CompletableFuture<AccessControlList> benefactorAclFuture = null;
+		if (isTrue(request.getIncludeAccessControlList()) || isTrue(request.getIncludeBenefactorACL())) {
+			aclFuture = fetcher.fetch(() -> {
+				try {
+					return new EntityAcl(entityService.getEntityACL(entityId, userId), null);
+				} catch (ACLInheritanceException e) {
+					return new EntityAcl(null, e.getBenefactorId());
+				}
+			});
+			if (isTrue(request.getIncludeBenefactorACL())) {
+				benefactorAclFuture = aclFuture.thenCompose(result -> {
+					if (result.getAcl() != null) {
+						// If this entity is its own benefactor then we just use its ACL
+						return CompletableFuture.completedFuture(result.getAcl());
+					}
+					// ACL is inherited from benefactor. So get the benefactor's ACL
+					return fetcher.fetch(() -> entityService.getEntityACL(result.getBenefactorId(), userId));
+				});
+			}
+		}
+		CompletableFuture<List<FileHandle>> fileHandlesFuture = null;
+		if (isTrue(request.getIncludeFileHandles()) || isTrue(request.getIncludeFileName())) {
+			fileHandlesFuture = fetcher.fetch(() -> {
+				try {
+					if (versionNumber == null) {
+						return entityService.getEntityFileHandlesForCurrentVersion(userId, entityId).getList();
+					} else {
+						return entityService.getEntityFileHandlesForVersion(userId, entityId, versionNumber).getList();
+					}
+				} catch (Exception e) {
+					// If the user does not have permission to see the handles then set them to be an empty list.
+					return new LinkedList<FileHandle>();
+				}
+			});
+		}
+		CompletableFuture<TableBundle> tableBundleFuture = null;
+		if (isTrue(request.getIncludeTableBundle())) {
+			// This mask only has meaning for implementations of tables.
+			tableBundleFuture = fetcher.fetch(() -> serviceProvider.getTableServices().getTableBundle(idAndVersion));
+		}
+		CompletableFuture<String> rootWikiIdFuture = null;
+		if (isTrue(request.getIncludeRootWikiId())) {
+			rootWikiIdFuture = fetcher.fetch(() -> {
+				try {
+					WikiPageKey rootKey = serviceProvider.getWikiService().getRootWikiKey(userId, entityId, ObjectType.ENTITY);
+					return rootKey.getWikiPageId();
+				} catch (NotFoundException e) {
+					// does not exist
+					return null;
+				}
+			});
+		}
+		CompletableFuture<DoiAssociation> doiFuture = null;
+		if (isTrue(request.getIncludeDOIAssociation())) {
+			if (versionNumber == null && entityFuture != null) {
+				// DOIs on VersionableEntity cannot be versionless, so we want to get the DOI for the current version
+				doiFuture = entityFuture.thenCompose(loaded -> fetcher.fetch(() -> getDoiAssociation(userId, entityId,
+						loaded instanceof VersionableEntity ? ((VersionableEntity) loaded).getVersionNumber() : null)));
+			} else {
+				doiFuture = fetcher.fetch(() -> getDoiAssociation(userId, entityId, versionNumber));
+			}
+		}
+		CompletableFuture<Long> threadCountFuture = null;
+		if (isTrue(request.getIncludeThreadCount())) {
+			threadCountFuture = fetcher.fetch(() -> getThreadCount(userId, entityId));
+		}
+		CompletableFuture<RestrictionInformationResponse> restrictionInfoFuture = null;
+		if (isTrue(request.getIncludeRestrictionInformation())) {
+			restrictionInfoFuture = fetcher.fetch(() -> {
+				RestrictionInformationRequest restrictionInfoRequest = new RestrictionInformationRequest();
+				restrictionInfoRequest.setObjectId(entityId);
+				restrictionInfoRequest.setRestrictableObjectType(RestrictableObjectType.ENTITY);
+				return serviceProvider.getDataAccessService().getRestrictionInformation(userId, restrictionInfoRequest);
+			});
+		}
+
+		// Failures are reported in the same order as when the parts were fetched one at a time.
+		EntityBundle eb = new EntityBundle();
+		Entity entity = fetcher.join(entityFuture);
+		if (isTrue(request.getIncludeEntity())) {
+			eb.setEntity(entity);
+			eb.setEntityType(EntityTypeUtils.getEntityTypeForClass(entity.getClass()));
+		}
+		if (annotationsFuture != null) {
+			eb.setAnnotations(fetcher.join(annotationsFuture));
+		}
+		if (permissionsFuture != null) {
+			eb.setPermissions(fetcher.join(permissionsFuture));
+		}
+		if (pathFuture != null) {
 			EntityPath ep = new EntityPath();
-			ep.setPath(path);
+			ep.setPath(fetcher.join(pathFuture));
 			eb.setPath(ep);
 		}
-		if (isTrue(request.getIncludeHasChildren())) {
-			eb.setHasChildren(serviceProvider.getEntityService().doesEntityHaveChildren(userId, entityId));
+		if (hasChildrenFuture != null) {
+			eb.setHasChildren(fetcher.join(hasChildrenFuture));
 		}
+		EntityAcl entityAcl = fetcher.join(aclFuture);
 		if (isTrue(request.getIncludeAccessControlList())) {
-			try {
-				eb.setAccessControlList(serviceProvider.getEntityService().getEntityACL(entityId, userId));
-			} catch (ACLInheritanceException e) {
-				// ACL is inherited from benefactor. Set ACL to null.
-				eb.setAccessControlList(null);
-			}
+			// ACL is inherited from benefactor. Set ACL to null.
+			eb.setAccessControlList(entityAcl.getAcl());
 		}
+		if (benefactorAclFuture != null) {
+			eb.setBenefactorAcl(fetcher.join(benefactorAclFuture));
+		}
+		List<FileHandle> fileHandles = fetcher.join(fileHandlesFuture);
+		if (isTrue(request.getIncludeFileHandles())) {
+			eb.setFileHandles(fileHandles);
+		}
+		if (tableBundleFuture != null) {
+			eb.setTableBundle(fetcher.join(tableBundleFuture));
+		}
+		if (rootWikiIdFuture != null) {
+			eb.setRootWikiId(fetcher.join(rootWikiIdFuture));
+		}
+		if (doiFuture != null) {
+			eb.setDoiAssociation(fetcher.join(doiFuture));
+		}
+		if (isTrue(request.getIncludeFileName())) {
+			eb.setFileName(getFileName(entity, fileHandles));
+		}
+		if (threadCountFuture != null) {
+			eb.setThreadCount(fetcher.join(threadCountFuture));
+		}
+		if (restrictionInfoFuture != null) {
+			eb.setRestrictionInformation(fetcher.join(restrictionInfoFuture));
+		}
+		return eb;
+	}
+
+	@Override
+	public EntityBundleBatchResponse getEntityBundles(Long userId, EntityBundleBatchRequest batchRequest)
+			throws NotFoundException, DatastoreException, UnauthorizedException, ACLInheritanceException, ParseException {
+		ValidateArgument.required(batchRequest, "request");
+		ValidateArgument.required(batchRequest.getEntityIds(), "request.entityIds");
+		ValidateArgument.required(batchRequest.getRequest(), "request.request");
+		ValidateArgument.requirement(batchRequest.getEntityIds().size() <= MAX_BATCH_SIZE,
+				"The number of entityIds cannot exceed " + MAX_BATCH_SIZE);
+		EntityBundleRequest request = batchRequest.getRequest();
+		List<String> entityIds = new ArrayList<String>(batchRequest.getEntityIds().size());
+		for (String entityId : batchRequest.getEntityIds()) {
+			entityIds.add(KeyFactory.keyToString(KeyFactory.stringToKey(entityId)));
+		}
+		BundleFetcher fetcher = new BundleFetcher(getExecutor());
+		EntityService entityService = serviceProvider.getEntityService();
+
+		// The shared parts are looked up for all of the entities at once.
+		CompletableFuture<Map<String, EntityHeader>> headersFuture = null;
 		if (isTrue(request.getIncludeBenefactorACL())) {
-			try {
-				// If this entity is its own benefactor then we just get the ACL
-				eb.setBenefactorAcl(serviceProvider.getEntityService().getEntityACL(entityId, userId));
-			} catch (ACLInheritanceException e) {
-				// ACL is inherited from benefactor. So get the benefactor's ACL
-				eb.setBenefactorAcl(serviceProvider.getEntityService().getEntityACL(e.getBenefactorId(), userId));
-			}
+			headersFuture = fetcher.fetch(() -> getEntityHeaders(userId, entityIds));
 		}
-		List<FileHandle> fileHandles = null;
+		CompletableFuture<Map<String, List<FileHandle>>> fileHandlesFuture = null;
 		if (isTrue(request.getIncludeFileHandles()) || isTrue(request.getIncludeFileName())) {
-			try {
-				if (versionNumber == null) {
-					fileHandles = serviceProvider.getEntityService().
-							getEntityFileHandlesForCurrentVersion(userId, entityId).getList();
-				} else{
-					fileHandles = serviceProvider.getEntityService().
-							getEntityFileHandlesForVersion(userId, entityId, versionNumber).getList();
-				}
-			}catch (Exception e) {
-				// If the user does not have permission to see the handles then set them to be an empty list.
-				fileHandles = new LinkedList<FileHandle>();
+			fileHandlesFuture = fetcher.fetch(() -> entityService.getEntityFileHandlesForCurrentVersion(userId, entityIds));
+		}
+		CompletableFuture<Map<String, Long>> threadCountsFuture = null;
+		if (isTrue(request.getIncludeThreadCount())) {
+			threadCountsFuture = fetcher.fetch(() -> getThreadCounts(userId, entityIds));
+		}
+
+		// The remaining parts are fetched for each entity. The bundles are built one
+		// at a time since each bundle already fetches its own parts in parallel.
+		EntityBundleRequest entityRequest = createEntityRequest(request);
+		List<EntityBundle> bundles = new ArrayList<EntityBundle>(entityIds.size());
+		for (String entityId : entityIds) {
+			bundles.add(getEntityBundle(userId, entityId, null, entityRequest));
+		}
+
+		Map<String, EntityHeader> headers = fetcher.join(headersFuture);
+		Map<String, List<FileHandle>> fileHandles = fetcher.join(fileHandlesFuture);
+		Map<String, Long> threadCounts = fetcher.join(threadCountsFuture);
+		Map<String, List<EntityHeader>> parentPaths = new HashMap<String, List<EntityHeader>>();
+		Map<Long, AccessControlList> benefactorAcls = new HashMap<Long, AccessControlList>();
+		for (int i = 0; i < entityIds.size(); i++) {
+			String entityId = entityIds.get(i);
+			EntityBundle eb = bundles.get(i);
+			Entity entity = eb.getEntity();
+			if (isTrue(request.getIncludeEntityPath())) {
+				EntityPath ep = new EntityPath();
+				ep.setPath(getEntityPath(userId, entity, parentPaths));
+				eb.setPath(ep);
+			}
+			if (isTrue(request.getIncludeBenefactorACL())) {
+				eb.setBenefactorAcl(getBenefactorAcl(userId, entityId, headers.get(entityId), benefactorAcls));
 			}
 			if (isTrue(request.getIncludeFileHandles())) {
-				eb.setFileHandles(fileHandles);
+				eb.setFileHandles(fileHandles.get(entityId));
+			}
+			if (isTrue(request.getIncludeFileName())) {
+				eb.setFileName(getFileName(entity, fileHandles.get(entityId)));
+			}
+			if (threadCounts != null) {
+				Long count = threadCounts.get(entityId);
+				eb.setThreadCount(count == null ? 0L : count);
+			}
+			if (!isTrue(request.getIncludeEntity())) {
+				// The entity was only needed to build the other parts.
+				eb.setEntity(null);
+				eb.setEntityType(null);
 			}
 		}
-		if (isTrue(request.getIncludeTableBundle())) {
-			// This mask only has meaning for implementations of tables.
-			eb.setTableBundle(serviceProvider.getTableServices().getTableBundle(idAndVersion));
+		EntityBundleBatchResponse response = new EntityBundleBatchResponse();
+		response.setBundles(bundles);
+		return response;
+	}
+
+	/**
+	 * The request used for each entity of a batch, which leaves out the parts
+	 * that are looked up for the whole batch.
+	 * 
+	 * @param request
+	 * @return
+	 */
+	static EntityBundleRequest createEntityRequest(EntityBundleRequest request) {
+		EntityBundleRequest entityRequest = new EntityBundleRequest();
+		// The entity provides the parent of the path and the data file handle of the file name.
+		entityRequest.setIncludeEntity(isTrue(request.getIncludeEntity()) || isTrue(request.getIncludeEntityPath())
+				|| isTrue(request.getIncludeFileName()));
+		entityRequest.setIncludeAnnotations(request.getIncludeAnnotations());
+		entityRequest.setIncludePermissions(request.getIncludePermissions());
+		entityRequest.setIncludeHasChildren(request.getIncludeHasChildren());
+		entityRequest.setIncludeAccessControlList(request.getIncludeAccessControlList());
+		entityRequest.setIncludeTableBundle(request.getIncludeTableBundle());
+		entityRequest.setIncludeRootWikiId(request.getIncludeRootWikiId());
+		entityRequest.setIncludeDOIAssociation(request.getIncludeDOIAssociation());
+		entityRequest.setIncludeRestrictionInformation(request.getIncludeRestrictionInformation());
+		return entityRequest;
+	}
+
+	/**
+	 * Get the headers of the given entities with a single lookup. The headers
+	 * of entities the user cannot read are not included.
+	 * 
+	 * @param userId
+	 * @param entityIds
+	 * @return
+	 */
+	Map<String, EntityHeader> getEntityHeaders(Long userId, List<String> entityIds) {
+		List<Reference> references = new ArrayList<Reference>(entityIds.size());
+		for (String entityId : entityIds) {
+			Reference reference = new Reference();
+			reference.setTargetId(entityId);
+			references.add(reference);
 		}
-		if(isTrue(request.getIncludeRootWikiId())){
-			try {
-				WikiPageKey rootKey = serviceProvider.getWikiService().getRootWikiKey(userId, entityId, ObjectType.ENTITY);
-				eb.setRootWikiId(rootKey.getWikiPageId());
-			} catch (NotFoundException e) {
-				// does not exist
-				eb.setRootWikiId(null);
+		Map<String, EntityHeader> headers = new HashMap<String, EntityHeader>(entityIds.size());
+		for (EntityHeader header : serviceProvider.getEntityService().getEntityHeader(userId, references).getResults()) {
+			headers.put(header.getId(), header);
+		}
+		return headers;
+	}
+
+	/**
+	 * The path of an entity is the path of its parent followed by the entity, so
+	 * the path of each parent is only looked up once for a batch. The entity has
+	 * already been read by the user, which is the access the path requires.
+	 * 
+	 * @param userId
+	 * @param entity
+	 * @param parentPaths
+	 * @return
+	 */
+	List<EntityHeader> getEntityPath(Long userId, Entity entity, Map<String, List<EntityHeader>> parentPaths) {
+		List<EntityHeader> parentPath = entity.getParentId() == null ? null : parentPaths.get(entity.getParentId());
+		if (parentPath == null) {
+			List<EntityHeader> path = serviceProvider.getEntityService().getEntityPath(userId, entity.getId());
+			if (entity.getParentId() != null) {
+				parentPaths.put(entity.getParentId(), new ArrayList<EntityHeader>(path.subList(0, path.size() - 1)));
 			}
+			return path;
 		}
-		if(isTrue(request.getIncludeDOIAssociation()) ){
+		EntityHeader header = new EntityHeader();
+		header.setId(entity.getId());
+		header.setName(entity.getName());
+		header.setType(EntityTypeUtils.getEntityTypeClassName(EntityTypeUtils.getEntityTypeForClass(entity.getClass())));
+		List<EntityHeader> path = new ArrayList<EntityHeader>(parentPath.size() + 1);
+		path.addAll(parentPath);
+		path.add(header);
+		return path;
+	}
+
+	/**
+	 * Entities that share a benefactor share the lookup of its ACL. An entity
+	 * without a header is looked up on its own, which reports why it could not
+	 * be read.
+	 * 
+	 * @param userId
+	 * @param entityId
+	 * @param header
+	 * @param benefactorAcls
+	 * @return
+	 * @throws ACLInheritanceException
+	 */
+	AccessControlList getBenefactorAcl(Long userId, String entityId, EntityHeader header,
+			Map<Long, AccessControlList> benefactorAcls) throws ACLInheritanceException {
+		EntityService entityService = serviceProvider.getEntityService();
+		if (header == null || header.getBenefactorId() == null) {
 			try {
-				if (versionNumber == null && (entity instanceof VersionableEntity)) {
-					// DOIs on VersionableEntity cannot be versionless, so we want to get the DOI for the current version
-					Long currentVersionNumber = ((VersionableEntity) entity).getVersionNumber();
-					eb.setDoiAssociation(serviceProvider.getDoiServiceV2().getDoiAssociation(userId, entityId, ObjectType.ENTITY, currentVersionNumber));
-				} else {
-					eb.setDoiAssociation(serviceProvider.getDoiServiceV2().getDoiAssociation(userId, entityId, ObjectType.ENTITY, versionNumber));
-				}
-			} catch (NotFoundException e) {
-				// does not exist
-				eb.setDoiAssociation(null);
+				return entityService.getEntityACL(entityId, userId);
+			} catch (ACLInheritanceException e) {
+				return entityService.getEntityACL(e.getBenefactorId(), userId);
 			}
 		}
-		if(isTrue(request.getIncludeFileName()) && (entity instanceof FileEntity)){
-			FileEntity fileEntity = (FileEntity)entity;
-			if (fileEntity.getFileNameOverride()==null) {
-				for (FileHandle fileHandle : fileHandles) {
-					if (fileHandle.getId().equals(fileEntity.getDataFileHandleId())) {
-						eb.setFileName(fileHandle.getFileName());
-						break;
-					}
-				}
-			} else {
-				eb.setFileName(fileEntity.getFileNameOverride());
-			}
+		AccessControlList acl = benefactorAcls.get(header.getBenefactorId());
+		if (acl == null) {
+			acl = entityService.getEntityACL(KeyFactory.keyToString(header.getBenefactorId()), userId);
+			benefactorAcls.put(header.getBenefactorId(), acl);
 		}
-		if (isTrue(request.getIncludeThreadCount())) {
+		return acl;
+	}
+
+	/**
+	 * Get the thread counts of the given entities, keyed by entity ID.
+	 * Entities without threads are not included.
+	 * 
+	 * @param userId
+	 * @param entityIds
+	 * @return
+	 */
+	Map<String, Long> getThreadCounts(Long userId, List<String> entityIds) {
+		Map<String, Long> counts = new HashMap<String, Long>(entityIds.size());
+		for (List<String> batch : Lists.partition(entityIds, (int) DiscussionThreadManagerImpl.MAX_LIMIT)) {
 			EntityIdList entityIdList = new EntityIdList();
-			entityIdList.setIdList(Arrays.asList(entityId));
-			EntityThreadCounts result = serviceProvider.getDiscussionService().getThreadCounts(userId, entityIdList );
-			if (result.getList().isEmpty()) {
-				eb.setThreadCount(0L);
-			} else if (result.getList().size() == 1) {
-				eb.setThreadCount(result.getList().get(0).getCount());
-			} else {
-				throw new IllegalStateException("Unexpected EntityThreadCount list size: "+result.getList().size());
+			entityIdList.setIdList(batch);
+			for (EntityThreadCount count : serviceProvider.getDiscussionService().getThreadCounts(userId, entityIdList).getList()) {
+				counts.put(count.getEntityId(), count.getCount());
 			}
 		}
-		if (isTrue(request.getIncludeRestrictionInformation())) {
-			RestrictionInformationRequest restrictionInfoRequest = new RestrictionInformationRequest();
-			restrictionInfoRequest.setObjectId(entityId);
-			restrictionInfoRequest.setRestrictableObjectType(RestrictableObjectType.ENTITY);
-			RestrictionInformationResponse restrictionInfo = serviceProvider.getDataAccessService().getRestrictionInformation(userId, restrictionInfoRequest);
-			eb.setRestrictionInformation(restrictionInfo);
+		return counts;
+	}
+
+	/**
+	 * The file name of a file entity is either its override or the name of its
+	 * data file handle.
+	 * 
+	 * @param entity
+	 * @param fileHandles
+	 * @return
+	 */
+	static String getFileName(Entity entity, List<FileHandle> fileHandles) {
+		if (!(entity instanceof FileEntity)) {
+			return null;
+		}
+		FileEntity fileEntity = (FileEntity) entity;
+		if (fileEntity.getFileNameOverride() != null) {
+			return fileEntity.getFileNameOverride();
+		}
+		for (FileHandle fileHandle : fileHandles) {
+			if (fileHandle.getId().equals(fileEntity.getDataFileHandleId())) {
+				return fileHandle.getFileName();
+			}
+		}
+		return null;
+	}
+
+	DoiAssociation getDoiAssociation(Long userId, String entityId, Long versionNumber) {
+		try {
+			return serviceProvider.getDoiServiceV2().getDoiAssociation(userId, entityId, ObjectType.ENTITY, versionNumber);
+		} catch (NotFoundException e) {
+			// does not exist
+			return null;
+		}
+	}
+
+	Long getThreadCount(Long userId, String entityId) {
+		EntityIdList entityIdList = new EntityIdList();
+		entityIdList.setIdList(Arrays.asList(entityId));
+		EntityThreadCounts result = serviceProvider.getDiscussionService().getThreadCounts(userId, entityIdList );
+		if (result.getList().isEmpty()) {
+			return 0L;
+		} else if (result.getList().size() == 1) {
+			return result.getList().get(0).getCount();
+		} else {
+			throw new IllegalStateException("Unexpected EntityThreadCount list size: "+result.getList().size());
+		}
+	}
+
+	/**
+	 * The parts of a bundle are fetched on the calling thread when there is no
+	 * pool or when a transaction is active, since other threads would not see the
+	 * changes made by the transaction.
+	 * 
+	 * @return
+	 */
+	Executor getExecutor() {
+		if (entityBundleThreadPool == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+			return Runnable::run;
+		}
+		return entityBundleThreadPool;
+	}
+
+	/**
+	 * IoC
+	 * 
+	 * @param entityBundleThreadPool
+	 */
+	public void setEntityBundleThreadPool(ExecutorService entityBundleThreadPool) {
+		this.entityBundleThreadPool = entityBundleThreadPool;
+	}
+
+	/**
+	 * The ACL of an entity, which is null when the ACL is inherited from the
+	 * benefactor.
+	 */
+	static class EntityAcl {
+
+		private final AccessControlList acl;
+		private final String benefactorId;
+
+		EntityAcl(AccessControlList acl, String benefactorId) {
+			this.acl = acl;
+			this.benefactorId = benefactorId;
+		}
+
+		AccessControlList getAcl() {
+			return acl;
+		}
+
+		String getBenefactorId() {
+			return benefactorId;
+		}
+	}
+
+	@FunctionalInterface
+	interface BundlePart<T> {
+		T fetch() throws Exception;
+	}
+
+	/**
+	 * Fetches the parts of a single bundle on the given executor. If joining a
+	 * part fails, the parts that are still running are cancelled and the
+	 * original exception is thrown. Each part runs with the user ID of the
+	 * thread that added it, which the TransactionalMessenger reads.
+	 */
+	static class BundleFetcher {
+
+		private static final ThreadLocal<Long> currentUserIdThreadLocal = ThreadLocalProvider.getInstance(AuthorizationConstants.USER_ID_PARAM, Long.class);
+
+		private final Executor executor;
+		// Parts that depend on other parts are added from the pool threads.
+		private final List<CompletableFuture<?>> futures = new CopyOnWriteArrayList<CompletableFuture<?>>();
+
+		BundleFetcher(Executor executor) {
+			this.executor = executor;
+		}
+
+		<T> CompletableFuture<T> fetch(BundlePart<T> part) {
+			Long userId = currentUserIdThreadLocal.get();
+			CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+				Long previousUserId = currentUserIdThreadLocal.get();
+				currentUserIdThreadLocal.set(userId);
+				try {
+					return part.fetch();
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				} finally {
+					if (previousUserId == null) {
+						currentUserIdThreadLocal.remove();
+					} else {
+						currentUserIdThreadLocal.set(previousUserId);
+					}
+				}
+			}, executor);
+			futures.add(future);
+			return future;
+		}
+
+		<T> T join(CompletableFuture<T> future) throws ACLInheritanceException, ParseException {
+			if (future == null) {
+				return null;
+			}
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				for (CompletableFuture<?> other : futures) {
+					other.cancel(true);
+				}
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				if (cause instanceof ACLInheritanceException) {
+					throw (ACLInheritanceException) cause;
+				}
+				if (cause instanceof ParseException) {
+					throw (ParseException) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
 		}
-		return eb;
 	}
 
 
@@ -1,6 +1,7 @@
 package org.sagebionetworks.repo.web.service;
 
 import java.util.List;
+import java.util.Map;
 
 import org.sagebionetworks.reflection.model.PaginatedResults;
 import org.sagebionetworks.repo.model.ACLInheritanceException;
@@ -22,6 +23,7 @@ import org.sagebionetworks.repo.model.VersionInfo;
 import org.sagebionetworks.repo.model.annotation.v2.Annotations;
 import org.sagebionetworks.repo.model.auth.UserEntityPermissions;
 import org.sagebionetworks.repo.model.entity.EntityLookupRequest;
+import org.sagebionetworks.repo.model.file.FileHandle;
 import org.sagebionetworks.repo.model.file.FileHandleResults;
 import org.sagebionetworks.repo.model.provenance.Activity;
 import org.sagebionetworks.repo.queryparser.ParseException;
@@ -612,6 +614,18 @@ public interface EntityService {
 	 */
 	public FileHandleResults getEntityFileHandlesForCurrentVersion(Long userId, String entityId) throws DatastoreException, NotFoundException;
 
+	/**
+	 * Get the entity file handles for the current version of each of the given
+	 * entities. The file handles and their previews are fetched with batch
+	 * lookups. An entity that the user cannot download, or that has no file
+	 * handle, is mapped to an empty list.
+	 * 
+	 * @param userId
+	 * @param entityIds
+	 * @return The file handles of each entity, keyed by entity ID.
+	 */
+	public Map<String, List<FileHandle>> getEntityFileHandlesForCurrentVersion(Long userId, List<String> entityIds) throws DatastoreException;
+
 	/**
 	 * Get the entity file handles for a given version of an entity.
 	 * @param userId
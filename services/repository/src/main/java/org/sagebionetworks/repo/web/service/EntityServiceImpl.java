@@ -1,7 +1,10 @@
 package org.sagebionetworks.repo.web.service;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.sagebionetworks.reflection.model.PaginatedResults;
 import org.sagebionetworks.repo.manager.EntityManager;
@@ -32,6 +35,8 @@ import org.sagebionetworks.repo.model.VersionInfo;
 import org.sagebionetworks.repo.model.annotation.v2.Annotations;
 import org.sagebionetworks.repo.model.auth.UserEntityPermissions;
 import org.sagebionetworks.repo.model.entity.EntityLookupRequest;
+import org.sagebionetworks.repo.model.file.CloudProviderFileHandleInterface;
+import org.sagebionetworks.repo.model.file.FileHandle;
 import org.sagebionetworks.repo.model.file.FileHandleAssociateType;
 import org.sagebionetworks.repo.model.file.FileHandleResults;
 import org.sagebionetworks.repo.model.provenance.Activity;
@@ -641,6 +646,50 @@ public class EntityServiceImpl implements EntityService {
 		return fileHandleManager.getAllFileHandles(idsList, true);
 	}
 
+	@Override
+	public Map<String, List<FileHandle>> getEntityFileHandlesForCurrentVersion(Long userId, List<String> entityIds) throws DatastoreException {
+		ValidateArgument.required(userId, "userId");
+		ValidateArgument.required(entityIds, "entityIds");
+		UserInfo userInfo = userManager.getUserInfo(userId);
+		// Download access is still checked for each entity.
+		Map<String, String> fileHandleIds = new HashMap<String, String>(entityIds.size());
+		for (String entityId : entityIds) {
+			try {
+				fileHandleIds.put(entityId, entityManager.getFileHandleIdForVersion(userInfo, entityId, null));
+			} catch (UnauthorizedException | NotFoundException e) {
+				// The user cannot see the file handles of this entity.
+			}
+		}
+		Map<String, FileHandle> fileHandles = fileHandleManager.getAllFileHandlesBatch(fileHandleIds.values());
+		List<String> previewIds = new LinkedList<String>();
+		for (FileHandle fileHandle : fileHandles.values()) {
+			if (fileHandle instanceof CloudProviderFileHandleInterface) {
+				String previewId = ((CloudProviderFileHandleInterface) fileHandle).getPreviewId();
+				if (previewId != null) {
+					previewIds.add(previewId);
+				}
+			}
+		}
+		Map<String, FileHandle> previews = previewIds.isEmpty() ? Collections.<String, FileHandle>emptyMap()
+				: fileHandleManager.getAllFileHandlesBatch(previewIds);
+		Map<String, List<FileHandle>> results = new HashMap<String, List<FileHandle>>(entityIds.size());
+		for (String entityId : entityIds) {
+			List<FileHandle> entityFileHandles = new LinkedList<FileHandle>();
+			FileHandle fileHandle = fileHandles.get(fileHandleIds.get(entityId));
+			if (fileHandle != null) {
+				entityFileHandles.add(fileHandle);
+				if (fileHandle instanceof CloudProviderFileHandleInterface) {
+					FileHandle preview = previews.get(((CloudProviderFileHandleInterface) fileHandle).getPreviewId());
+					if (preview != null) {
+						entityFileHandles.add(preview);
+					}
+				}
+			}
+			results.put(entityId, entityFileHandles);
+		}
+		return results;
+	}
+
 	@Override
 	public FileHandleResults getEntityFileHandlesForVersion(Long userId, String entityId, Long versionNumber) throws DatastoreException, NotFoundException {
 		if(entityId == null) throw new IllegalArgumentException("Entity Id cannot be null");
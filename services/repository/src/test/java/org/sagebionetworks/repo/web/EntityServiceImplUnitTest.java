@@ -5,11 +5,16 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -27,7 +32,10 @@ import org.sagebionetworks.repo.model.Entity;
 import org.sagebionetworks.repo.model.EntityType;
 import org.sagebionetworks.repo.model.FileEntity;
 import org.sagebionetworks.repo.model.Project;
+import org.sagebionetworks.repo.model.UnauthorizedException;
 import org.sagebionetworks.repo.model.UserInfo;
+import org.sagebionetworks.repo.model.file.FileHandle;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
 import org.sagebionetworks.repo.web.service.EntityServiceImpl;
 import org.sagebionetworks.repo.web.service.metadata.AllTypesValidator;
 import org.sagebionetworks.repo.web.service.metadata.EntityProvider;
@@ -137,6 +145,33 @@ public class EntityServiceImplUnitTest {
 		verify(mockProjectUpdateProvider).entityUpdated(userInfo, project, newVersion);
 	}
 
+	@Test
+	public void testGetEntityFileHandlesForCurrentVersionBatch() throws Exception {
+		S3FileHandle fileHandle = new S3FileHandle();
+		fileHandle.setId("111");
+		fileHandle.setPreviewId("222");
+		S3FileHandle preview = new S3FileHandle();
+		preview.setId("222");
+		S3FileHandle otherFileHandle = new S3FileHandle();
+		otherFileHandle.setId("333");
+		when(mockEntityManager.getFileHandleIdForVersion(userInfo, "syn1", null)).thenReturn("111");
+		when(mockEntityManager.getFileHandleIdForVersion(userInfo, "syn2", null)).thenReturn("333");
+		when(mockEntityManager.getFileHandleIdForVersion(userInfo, "syn3", null)).thenThrow(new UnauthorizedException("no download"));
+		Map<String, FileHandle> fileHandles = new HashMap<String, FileHandle>();
+		fileHandles.put("111", fileHandle);
+		fileHandles.put("333", otherFileHandle);
+		when(mockFileHandleManager.getAllFileHandlesBatch(any(Iterable.class))).thenReturn(fileHandles,
+				Collections.<String, FileHandle>singletonMap("222", preview));
+		// Call under test.
+		Map<String, List<FileHandle>> results = entityService.getEntityFileHandlesForCurrentVersion(PRINCIPAL_ID,
+				Arrays.asList("syn1", "syn2", "syn3"));
+		assertEquals(Arrays.asList(fileHandle, preview), results.get("syn1"));
+		assertEquals(Arrays.asList(otherFileHandle), results.get("syn2"));
+		assertEquals(Collections.emptyList(), results.get("syn3"));
+		// one lookup for the file handles and one for their previews.
+		verify(mockFileHandleManager, times(2)).getAllFileHandlesBatch(any(Iterable.class));
+	}
+
 	/**
 	 * The new version parameter might be false, but we will still create a new
 	 * version under some conditions such as changing a file's handle ID. When a new
@@ -285,4 +285,62 @@ public class EntityBundleV2ControllerTest extends AbstractAutowiredControllerJun
 		assertEquals(handleTwo.getId(), bundle.getFileHandles().get(0).getId());
 	}
 
-}
\ No newline at end of file
+	/**
+	 * The batch must return the same bundles as one call for each entity. The
+	 * time of both is printed to compare them.
+	 */
+	@Test
+	public void testGetEntityBundles() throws Exception {
+		Project project = new Project();
+		project.setName(DUMMY_PROJECT);
+		project = (Project) entityServletHelper.createEntity(project, adminUserId, null);
+		toDelete.add(project.getId());
+
+		Folder folder = new Folder();
+		folder.setName(DUMMY_STUDY_1);
+		folder.setParentId(project.getId());
+		folder = (Folder) entityServletHelper.createEntity(folder, adminUserId, null);
+
+		List<FileHandle> fileHandles = new LinkedList<FileHandle>();
+		List<String> entityIds = new ArrayList<String>();
+		int fileCount = 20;
+		for (int i = 0; i < fileCount; i++) {
+			S3FileHandle handle = TestUtils.createS3FileHandle(adminUserIdString, idGenerator.generateNewId(IdType.FILE_IDS).toString());
+			handle.setKey("EntityBundleV2ControllerTest.testGetEntityBundles" + i);
+			fileHandles.add(handle);
+			filesToDelete.add(handle.getId());
+		}
+		fileHandleDao.createBatch(fileHandles);
+		for (FileHandle handle : fileHandles) {
+			FileEntity file = new FileEntity();
+			file.setParentId(folder.getId());
+			file.setDataFileHandleId(handle.getId());
+			file = (FileEntity) entityServletHelper.createEntity(file, adminUserId, null);
+			entityIds.add(file.getId());
+		}
+
+		EntityBundleRequest request = new EntityBundleRequest();
+		request.setIncludeEntity(true);
+		request.setIncludeEntityPath(true);
+		request.setIncludeBenefactorACL(true);
+		request.setIncludePermissions(true);
+		request.setIncludeFileHandles(true);
+		request.setIncludeFileName(true);
+		request.setIncludeThreadCount(true);
+		EntityBundleBatchRequest batchRequest = new EntityBundleBatchRequest();
+		batchRequest.setEntityIds(entityIds);
+		batchRequest.setRequest(request);
+
+		List<EntityBundle> single = new ArrayList<EntityBundle>();
+		for (String entityId : entityIds) {
+			single.add(entityServletHelper.getEntityBundle(entityId, request, adminUserId));
+		}
+		// call under test
+		List<EntityBundle> batch = entityServletHelper.getEntityBundles(batchRequest, adminUserId).getBundles();
+
+		assertEquals(single, batch);
+		assertEquals(fileHandles.get(0).getFileName(), batch.get(0).getFileName());
+		assertEquals(folder.getId(), batch.get(0).getPath().getPath().get(2).getId());
+	}
+
+}
@@ -18,6 +18,8 @@ import org.sagebionetworks.repo.model.AccessControlList;
 import org.sagebionetworks.repo.model.AuthorizationConstants;
 import org.sagebionetworks.repo.model.Entity;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
 import org.sagebionetworks.repo.model.EntityHeader;
 import org.sagebionetworks.repo.model.EntityPath;
@@ -126,6 +128,23 @@ public class EntityServletTestHelper {
 				ServletTestHelperUtils.readResponseJSON(response));
 	}
 
+	/**
+	 * Get the bundles of a batch of entities
+	 */
+	public EntityBundleBatchResponse getEntityBundles(EntityBundleBatchRequest batchRequest, Long userId)
+			throws Exception {
+		MockHttpServletRequest request = ServletTestHelperUtils.initRequest(
+				HTTPMODE.POST, UrlHelpers.ENTITY_BUNDLE_V2_BATCH, userId, null);
+		request.setContent(EntityFactory.createJSONStringForEntity(batchRequest).getBytes(StandardCharsets.UTF_8));
+		request.setContentType("application/json");
+
+		MockHttpServletResponse response = ServletTestHelperUtils
+				.dispatchRequest(dispatcherServlet, request, HttpStatus.OK);
+
+		return new EntityBundleBatchResponse(
+				ServletTestHelperUtils.readResponseJSON(response));
+	}
+
 	/**
 	 * Get an entity bundle for a specific version using the ID and
 	 * versionNumber.
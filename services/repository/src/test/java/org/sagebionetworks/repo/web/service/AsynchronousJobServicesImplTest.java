@@ -1,7 +1,12 @@
 package org.sagebionetworks.repo.web.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.After;
@@ -11,8 +16,10 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.repo.manager.UserManager;
 import org.sagebionetworks.repo.manager.asynch.AsynchJobStatusManager;
+import org.sagebionetworks.repo.model.NotReadyException;
 import org.sagebionetworks.repo.model.UnauthorizedException;
 import org.sagebionetworks.repo.model.UserInfo;
+import org.sagebionetworks.repo.model.asynch.AsynchJobState;
 import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
 import org.sagebionetworks.repo.model.asynch.AsynchronousRequestBody;
 import org.sagebionetworks.repo.model.migration.AsyncMigrationRequest;
@@ -94,4 +101,44 @@ public class AsynchronousJobServicesImplTest {
 	}
 	
 
+	@Test
+	public void testGetJobStatusNoWait() {
+		Long userId = 123L;
+		UserInfo expectedUser = new UserInfo(false);
+		expectedUser.setId(userId);
+		when(mockUserManager.getUserInfo(eq(userId))).thenReturn(expectedUser);
+		AsynchronousJobStatus expectedStatus = new AsynchronousJobStatus();
+		expectedStatus.setJobId("jobId");
+		when(mockAsynchJobStatusManager.getJobStatus(expectedUser, "jobId")).thenReturn(expectedStatus);
+		assertEquals(expectedStatus, svc.getJobStatus(userId, "jobId", 0L));
+		verify(mockAsynchJobStatusManager, never()).waitForJobStatus(any(UserInfo.class), anyString(), anyLong());
+	}
+
+	@Test
+	public void testGetJobStatusAndThrowWithWait() throws Throwable {
+		Long userId = 123L;
+		UserInfo expectedUser = new UserInfo(false);
+		expectedUser.setId(userId);
+		when(mockUserManager.getUserInfo(eq(userId))).thenReturn(expectedUser);
+		AsynchronousJobStatus expectedStatus = new AsynchronousJobStatus();
+		expectedStatus.setJobId("jobId");
+		expectedStatus.setJobState(AsynchJobState.COMPLETE);
+		when(mockAsynchJobStatusManager.waitForJobStatus(expectedUser, "jobId", 5000L)).thenReturn(expectedStatus);
+		assertEquals(expectedStatus, svc.getJobStatusAndThrow(userId, "jobId", 5000L));
+		verify(mockAsynchJobStatusManager, never()).getJobStatus(any(UserInfo.class), anyString());
+	}
+
+	@Test(expected = NotReadyException.class)
+	public void testGetJobStatusAndThrowWithWaitStillProcessing() throws Throwable {
+		Long userId = 123L;
+		UserInfo expectedUser = new UserInfo(false);
+		expectedUser.setId(userId);
+		when(mockUserManager.getUserInfo(eq(userId))).thenReturn(expectedUser);
+		AsynchronousJobStatus expectedStatus = new AsynchronousJobStatus();
+		expectedStatus.setJobId("jobId");
+		expectedStatus.setJobState(AsynchJobState.PROCESSING);
+		when(mockAsynchJobStatusManager.waitForJobStatus(expectedUser, "jobId", 5000L)).thenReturn(expectedStatus);
+		svc.getJobStatusAndThrow(userId, "jobId", 5000L);
+	}
+
 }
@@ -15,6 +15,7 @@ import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -22,10 +23,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.servlet.ServletException;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -33,14 +39,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.sagebionetworks.reflection.model.PaginatedResults;
 import org.sagebionetworks.repo.model.ACCESS_TYPE;
 import org.sagebionetworks.repo.model.ACLInheritanceException;
 import org.sagebionetworks.repo.model.AccessControlList;
+import org.sagebionetworks.repo.model.AuthorizationConstants;
 import org.sagebionetworks.repo.model.ConflictingUpdateException;
 import org.sagebionetworks.repo.model.DatastoreException;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundle;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchRequest;
+import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleBatchResponse;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleCreate;
 import org.sagebionetworks.repo.model.entitybundle.v2.EntityBundleRequest;
+import org.sagebionetworks.repo.model.EntityHeader;
 import org.sagebionetworks.repo.model.EntityIdList;
 import org.sagebionetworks.repo.model.EntityPath;
 import org.sagebionetworks.repo.model.FileEntity;
@@ -74,6 +85,7 @@ import org.sagebionetworks.repo.web.service.dataaccess.DataAccessService;
 import org.sagebionetworks.repo.web.service.discussion.DiscussionService;
 import org.sagebionetworks.repo.web.service.table.TableServices;
 import org.sagebionetworks.schema.adapter.JSONObjectAdapterException;
+import org.sagebionetworks.util.ThreadLocalProvider;
 
 @ExtendWith(MockitoExtension.class)
 public class EntityBundleServiceImplTest {
@@ -401,6 +413,119 @@ public class EntityBundleServiceImplTest {
 		assertNotNull(bundle);
 		assertEquals(acl, bundle.getBenefactorAcl());
 	}
+
+	@Test
+	public void testGetEntityBundleWithThreadPool() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			((EntityBundleServiceImpl) entityBundleService).setEntityBundleThreadPool(pool);
+			String entityId = "syn123";
+			AccessControlList acl = new AccessControlList();
+			acl.setId("123");
+			FileEntity entity = new FileEntity();
+			entity.setDataFileHandleId("101");
+			S3FileHandle fh = new S3FileHandle();
+			fh.setId("101");
+			fh.setFileName("foo.txt");
+			FileHandleResults fhr = new FileHandleResults();
+			fhr.setList(Collections.singletonList((FileHandle) fh));
+			when(mockEntityService.getEntity(TEST_USER1, entityId)).thenReturn(entity);
+			when(mockEntityService.getEntityACL(entityId, TEST_USER1)).thenReturn(acl);
+			when(mockEntityService.getEntityFileHandlesForCurrentVersion(TEST_USER1, entityId)).thenReturn(fhr);
+			EntityBundleRequest request = new EntityBundleRequest();
+			request.setIncludeEntity(true);
+			request.setIncludeFileName(true);
+			request.setIncludeFileHandles(true);
+			request.setIncludeAccessControlList(true);
+			request.setIncludeBenefactorACL(true);
+			// call under test
+			EntityBundle bundle = entityBundleService.getEntityBundle(TEST_USER1, entityId, request);
+			assertEquals(entity, bundle.getEntity());
+			assertEquals("foo.txt", bundle.getFileName());
+			assertEquals(fhr.getList(), bundle.getFileHandles());
+			assertEquals(acl, bundle.getAccessControlList());
+			assertEquals(acl, bundle.getBenefactorAcl());
+			// shared parts are only fetched once.
+			verify(mockEntityService).getEntity(TEST_USER1, entityId);
+			verify(mockEntityService).getEntityACL(entityId, TEST_USER1);
+			verify(mockEntityService).getEntityFileHandlesForCurrentVersion(TEST_USER1, entityId);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testGetEntityBundleWithThreadPoolInheritedAcl() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			((EntityBundleServiceImpl) entityBundleService).setEntityBundleThreadPool(pool);
+			String entityId = "syn123";
+			String benefactorId = "syn456";
+			AccessControlList acl = new AccessControlList();
+			acl.setId("456");
+			when(mockEntityService.getEntityACL(entityId, TEST_USER1)).thenThrow(new ACLInheritanceException("Has a benefactor", benefactorId));
+			when(mockEntityService.getEntityACL(benefactorId, TEST_USER1)).thenReturn(acl);
+			EntityBundleRequest request = new EntityBundleRequest();
+			request.setIncludeAccessControlList(true);
+			request.setIncludeBenefactorACL(true);
+			// call under test
+			EntityBundle bundle = entityBundleService.getEntityBundle(TEST_USER1, entityId, request);
+			assertNull(bundle.getAccessControlList());
+			assertEquals(acl, bundle.getBenefactorAcl());
+			verify(mockEntityService).getEntityACL(entityId, TEST_USER1);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testGetEntityBundleWithThreadPoolFailure() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			((EntityBundleServiceImpl) entityBundleService).setEntityBundleThreadPool(pool);
+			String entityId = "syn123";
+			UnauthorizedException exception = new UnauthorizedException("no read");
+			when(mockEntityService.getEntity(TEST_USER1, entityId)).thenThrow(exception);
+			lenient().when(mockEntityService.getEntityPath(TEST_USER1, entityId)).thenThrow(new NotFoundException("gone"));
+			EntityBundleRequest request = new EntityBundleRequest();
+			request.setIncludeEntity(true);
+			request.setIncludeEntityPath(true);
+			// call under test
+			UnauthorizedException thrown = assertThrows(UnauthorizedException.class, () -> {
+				entityBundleService.getEntityBundle(TEST_USER1, entityId, request);
+			});
+			// the failure of the first part is reported.
+			assertSame(exception, thrown);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testGetEntityBundleWithThreadPoolUserId() throws Exception {
+		ThreadLocal<Long> userIdThreadLocal = ThreadLocalProvider.getInstance(AuthorizationConstants.USER_ID_PARAM, Long.class);
+		ExecutorService pool = Executors.newFixedThreadPool(1);
+		try {
+			((EntityBundleServiceImpl) entityBundleService).setEntityBundleThreadPool(pool);
+			String entityId = "syn123";
+			AtomicReference<Long> userIdOfPart = new AtomicReference<Long>();
+			when(mockEntityService.getEntity(TEST_USER1, entityId)).thenAnswer(invocation -> {
+				userIdOfPart.set(userIdThreadLocal.get());
+				return new FileEntity();
+			});
+			EntityBundleRequest request = new EntityBundleRequest();
+			request.setIncludeEntity(true);
+			userIdThreadLocal.set(TEST_USER1);
+			// call under test
+			entityBundleService.getEntityBundle(TEST_USER1, entityId, request);
+			assertEquals(TEST_USER1, userIdOfPart.get());
+			// the pool thread does not keep the user ID.
+			assertNull(pool.submit(() -> userIdThreadLocal.get()).get());
+		} finally {
+			userIdThreadLocal.remove();
+			pool.shutdownNow();
+		}
+	}
 	
 	@Test
 	public void testFileNameNoOverride() throws Exception {
@@ -510,6 +635,145 @@ public class EntityBundleServiceImplTest {
 		verify(mockDataAccessService).getRestrictionInformation(TEST_USER1, request);
 	}
 
+	private FileEntity createFile(String id, String parentId, String fileHandleId) {
+		FileEntity entity = new FileEntity();
+		entity.setId(id);
+		entity.setName("name-" + id);
+		entity.setParentId(parentId);
+		entity.setDataFileHandleId(fileHandleId);
+		return entity;
+	}
+
+	private EntityHeader createHeader(String id, String name, String type, Long benefactorId) {
+		EntityHeader header = new EntityHeader();
+		header.setId(id);
+		header.setName(name);
+		header.setType(type);
+		header.setBenefactorId(benefactorId);
+		return header;
+	}
+
+	@Test
+	public void testGetEntityBundles() throws Exception {
+		String folderId = "syn10";
+		String fileType = FileEntity.class.getName();
+		List<String> entityIds = Arrays.asList("syn1", "syn2");
+		when(mockEntityService.getEntity(TEST_USER1, "syn1")).thenReturn(createFile("syn1", folderId, "101"));
+		when(mockEntityService.getEntity(TEST_USER1, "syn2")).thenReturn(createFile("syn2", folderId, "102"));
+		EntityHeader projectHeader = createHeader("syn9", "project", Project.class.getName(), null);
+		EntityHeader folderHeader = createHeader(folderId, "folder", Folder.class.getName(), null);
+		when(mockEntityService.getEntityPath(TEST_USER1, "syn1")).thenReturn(
+				Arrays.asList(projectHeader, folderHeader, createHeader("syn1", "name-syn1", fileType, null)));
+		when(mockEntityService.getEntityHeader(eq(TEST_USER1), any(List.class))).thenReturn(PaginatedResults
+				.createMisusedPaginatedResults(Arrays.asList(createHeader("syn1", "name-syn1", fileType, 9L),
+						createHeader("syn2", "name-syn2", fileType, 9L))));
+		AccessControlList benefactorAcl = new AccessControlList();
+		benefactorAcl.setId("syn9");
+		when(mockEntityService.getEntityACL("syn9", TEST_USER1)).thenReturn(benefactorAcl);
+		S3FileHandle one = new S3FileHandle();
+		one.setId("101");
+		one.setFileName("one.txt");
+		S3FileHandle two = new S3FileHandle();
+		two.setId("102");
+		two.setFileName("two.txt");
+		Map<String, List<FileHandle>> fileHandles = new HashMap<String, List<FileHandle>>();
+		fileHandles.put("syn1", Collections.singletonList((FileHandle) one));
+		fileHandles.put("syn2", Collections.singletonList((FileHandle) two));
+		when(mockEntityService.getEntityFileHandlesForCurrentVersion(TEST_USER1, entityIds)).thenReturn(fileHandles);
+		EntityThreadCount count = new EntityThreadCount();
+		count.setEntityId("syn2");
+		count.setCount(3L);
+		threadCounts = new EntityThreadCounts();
+		threadCounts.setList(Collections.singletonList(count));
+		when(mockDiscussionService.getThreadCounts(eq(TEST_USER1), any(EntityIdList.class))).thenReturn(threadCounts);
+
+		EntityBundleRequest request = new EntityBundleRequest();
+		request.setIncludeEntityPath(true);
+		request.setIncludeBenefactorACL(true);
+		request.setIncludeFileHandles(true);
+		request.setIncludeFileName(true);
+		request.setIncludeThreadCount(true);
+		EntityBundleBatchRequest batchRequest = new EntityBundleBatchRequest();
+		batchRequest.setEntityIds(entityIds);
+		batchRequest.setRequest(request);
+		// call under test
+		List<EntityBundle> bundles = entityBundleService.getEntityBundles(TEST_USER1, batchRequest).getBundles();
+		assertEquals(2, bundles.size());
+		EntityBundle first = bundles.get(0);
+		EntityBundle second = bundles.get(1);
+		// the entity was only used to build the other parts.
+		assertNull(first.getEntity());
+		assertNull(first.getEntityType());
+		assertEquals(Arrays.asList(projectHeader, folderHeader, createHeader("syn1", "name-syn1", fileType, null)),
+				first.getPath().getPath());
+		assertEquals(Arrays.asList(projectHeader, folderHeader, createHeader("syn2", "name-syn2", fileType, null)),
+				second.getPath().getPath());
+		assertEquals(benefactorAcl, first.getBenefactorAcl());
+		assertEquals(benefactorAcl, second.getBenefactorAcl());
+		assertEquals(Collections.singletonList(one), first.getFileHandles());
+		assertEquals("one.txt", first.getFileName());
+		assertEquals("two.txt", second.getFileName());
+		assertEquals((Long) 0L, first.getThreadCount());
+		assertEquals((Long) 3L, second.getThreadCount());
+		// the shared parts are only looked up once.
+		verify(mockEntityService).getEntityPath(TEST_USER1, "syn1");
+		verify(mockEntityService, never()).getEntityPath(TEST_USER1, "syn2");
+		verify(mockEntityService).getEntityACL("syn9", TEST_USER1);
+		verify(mockEntityService, never()).getEntityACL("syn1", TEST_USER1);
+		verify(mockDiscussionService).getThreadCounts(eq(TEST_USER1), any(EntityIdList.class));
+	}
+
+	@Test
+	public void testGetEntityBundlesBenefactorAclWithoutHeader() throws Exception {
+		String benefactorId = "syn456";
+		AccessControlList acl = new AccessControlList();
+		acl.setId(benefactorId);
+		when(mockEntityService.getEntityHeader(eq(TEST_USER1), any(List.class)))
+				.thenReturn(PaginatedResults.createMisusedPaginatedResults(Collections.<EntityHeader>emptyList()));
+		when(mockEntityService.getEntityACL("syn123", TEST_USER1)).thenThrow(new ACLInheritanceException("Has a benefactor", benefactorId));
+		when(mockEntityService.getEntityACL(benefactorId, TEST_USER1)).thenReturn(acl);
+		EntityBundleRequest request = new EntityBundleRequest();
+		request.setIncludeBenefactorACL(true);
+		EntityBundleBatchRequest batchRequest = new EntityBundleBatchRequest();
+		// IDs without the prefix are accepted.
+		batchRequest.setEntityIds(Collections.singletonList("123"));
+		batchRequest.setRequest(request);
+		// call under test
+		EntityBundleBatchResponse response = entityBundleService.getEntityBundles(TEST_USER1, batchRequest);
+		assertEquals(acl, response.getBundles().get(0).getBenefactorAcl());
+	}
+
+	@Test
+	public void testGetEntityBundlesOverLimit() throws Exception {
+		List<String> entityIds = new ArrayList<String>();
+		for (int i = 0; i < EntityBundleServiceImpl.MAX_BATCH_SIZE + 1; i++) {
+			entityIds.add("syn" + i);
+		}
+		EntityBundleBatchRequest batchRequest = new EntityBundleBatchRequest();
+		batchRequest.setEntityIds(entityIds);
+		batchRequest.setRequest(new EntityBundleRequest());
+		assertThrows(IllegalArgumentException.class, () -> {
+			// call under test
+			entityBundleService.getEntityBundles(TEST_USER1, batchRequest);
+		});
+	}
+
+	@Test
+	public void testGetThreadCountsBatch() throws Exception {
+		List<String> entityIds = new ArrayList<String>();
+		for (int i = 0; i < 25; i++) {
+			entityIds.add("syn" + i);
+		}
+		threadCounts = new EntityThreadCounts();
+		threadCounts.setList(Collections.<EntityThreadCount>emptyList());
+		when(mockDiscussionService.getThreadCounts(eq(TEST_USER1), any(EntityIdList.class))).thenReturn(threadCounts);
+		// call under test
+		Map<String, Long> counts = ((EntityBundleServiceImpl) entityBundleService).getThreadCounts(TEST_USER1, entityIds);
+		assertTrue(counts.isEmpty());
+		// each call is limited to 20 entities.
+		verify(mockDiscussionService, times(2)).getThreadCounts(eq(TEST_USER1), any(EntityIdList.class));
+	}
+
 	@Test
 	public void testRequestFromMask_individualMasks() {
 		//assert individual requests
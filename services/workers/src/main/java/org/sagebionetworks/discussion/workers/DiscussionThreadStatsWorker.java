@@ -1,13 +1,9 @@
 package org.sagebionetworks.discussion.workers;
 
-import java.util.Arrays;
-
 import org.sagebionetworks.asynchronous.workers.changes.ChangeMessageDrivenRunner;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.repo.model.dao.discussion.DiscussionReplyDAO;
 import org.sagebionetworks.repo.model.dao.discussion.DiscussionThreadDAO;
-import org.sagebionetworks.repo.model.discussion.DiscussionThreadReplyStat;
-import org.sagebionetworks.repo.model.discussion.DiscussionThreadStat;
 import org.sagebionetworks.repo.model.message.ChangeMessage;
 import org.sagebionetworks.repo.model.message.ChangeType;
 import org.sagebionetworks.workers.util.aws.message.RecoverableMessageException;
@@ -28,18 +24,12 @@ public class DiscussionThreadStatsWorker implements ChangeMessageDrivenRunner{
 			return;
 		}
 		long threadId = Long.parseLong(message.getObjectId());
-
-		DiscussionThreadStat stat = new DiscussionThreadStat();
-		stat.setThreadId(threadId);
-		stat.setActiveAuthors(replyDao.getActiveAuthors(threadId));
-
-		DiscussionThreadReplyStat replyStat = replyDao.getThreadReplyStat(threadId);
-		stat.setLastActivity(replyStat.getLastActivity());
-		stat.setNumberOfReplies(replyStat.getNumberOfReplies());
-
-		stat.setNumberOfViews(threadDao.countThreadView(threadId));
 		try {
-			threadDao.updateThreadStats(Arrays.asList(stat));
+			// The reply stats are maintained with each reply, so only threads without current stats scan their replies.
+			if (!replyDao.isThreadStatsCurrent(threadId)) {
+				replyDao.rebuildThreadStats(threadId);
+			}
+			threadDao.updateThreadViewStats(threadId, threadDao.countThreadView(threadId));
 		} catch (DataIntegrityViolationException e) {
 			// the thread no longer exist, do nothing
 		}
@@ -0,0 +1,67 @@
+package org.sagebionetworks.discussion.workers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.common.util.progress.ProgressCallback;
+import org.sagebionetworks.common.util.progress.ProgressingRunner;
+import org.sagebionetworks.repo.model.dao.discussion.DiscussionThreadDAO;
+import org.sagebionetworks.util.Clock;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Worker that recounts the entity thread counts of entities whose counts do
+ * not match their references, such as migrated references or threads deleted
+ * without updating the counts. Each run checks one page of referenced
+ * entities. Once every entity has been checked a new pass only starts after
+ * {@link #PASS_INTERVAL_MS}.
+ * 
+ * The count table is not migrated. Until a pass reaches an entity its counts
+ * are counted from the reference table when they are read.
+ *
+ */
+public class EntityThreadCountReconciliationWorker implements ProgressingRunner {
+
+	static private Logger log = LogManager.getLogger(EntityThreadCountReconciliationWorker.class);
+
+	/**
+	 * Small enough that a page is checked within a few seconds.
+	 */
+	public static final long PAGE_SIZE = 1000L;
+	public static final long PASS_INTERVAL_MS = 60 * 60 * 1000L;
+
+	@Autowired
+	DiscussionThreadDAO threadDao;
+	@Autowired
+	Clock clock;
+
+	/**
+	 * The ID of the last entity checked in the current pass.
+	 */
+	private long lastEntityId = Long.MIN_VALUE;
+	/**
+	 * When the last pass finished, or null if no pass has finished yet.
+	 */
+	private Long passFinishedOn = null;
+
+	@Override
+	public void run(ProgressCallback progressCallback) throws Exception {
+		if (passFinishedOn != null) {
+			if (clock.currentTimeMillis() - passFinishedOn < PASS_INTERVAL_MS) {
+				return;
+			}
+			passFinishedOn = null;
+		}
+		long startTimeMs = clock.currentTimeMillis();
+		Long lastId = threadDao.reconcileEntityThreadCounts(lastEntityId, PAGE_SIZE);
+		long elapseMS = clock.currentTimeMillis() - startTimeMs;
+		if (lastId == null) {
+			log.info("Finished reconciling entity thread counts");
+			lastEntityId = Long.MIN_VALUE;
+			passFinishedOn = clock.currentTimeMillis();
+		} else {
+			lastEntityId = lastId;
+		}
+		// Sleep to guarantee the reconciliation does not dominate the database activity.
+		clock.sleep(2 * elapseMS);
+	}
+}
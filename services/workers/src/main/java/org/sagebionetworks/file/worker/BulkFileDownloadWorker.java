@@ -2,12 +2,17 @@ package org.sagebionetworks.file.worker;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
@@ -59,6 +64,14 @@ public class BulkFileDownloadWorker implements MessageDrivenRunner {
 
 	public static final String FILE_ALREADY_ADDED = "File already added.";
 
+	/**
+	 * The maximum number of bytes of source files that can be fetched ahead of
+	 * the zip writer when streaming.
+	 */
+	public static final long MAX_PREFETCH_BYTES = 64L * 1024L * 1024L;
+
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
 	static private Logger log = LogManager
 			.getLogger(BulkFileDownloadWorker.class);
 
@@ -70,6 +83,21 @@ public class BulkFileDownloadWorker implements MessageDrivenRunner {
 	FileHandleSupport fileHandleSupport; 
 	@Autowired
 	EventsCollector statisticsCollector;
+	@Autowired
+	ExecutorService bulkDownloadFetchThreadPool;
+	
+	private boolean streamingEnabled = false;
+
+	/**
+	 * When enabled, the zip is streamed directly to S3 while the source files
+	 * are fetched in parallel. Otherwise the zip is first built in a local temp
+	 * file.
+	 * 
+	 * @param streamingEnabled
+	 */
+	public void setStreamingEnabled(boolean streamingEnabled) {
+		this.streamingEnabled = streamingEnabled;
+	}
 
 	@Override
 	public void run(ProgressCallback progressCallback, Message message)
@@ -84,8 +112,12 @@ public class BulkFileDownloadWorker implements MessageDrivenRunner {
 			}
 			BulkFileDownloadRequest request = AsynchJobUtils.extractRequestBody(status, BulkFileDownloadRequest.class);
 			// build the zip from the results
-			BulkFileDownloadResponse response = buildZip(progressCallback,
-					message, status, request);
+			BulkFileDownloadResponse response;
+			if (streamingEnabled) {
+				response = buildZipStreaming(status, request);
+			} else {
+				response = buildZip(progressCallback, message, status, request);
+			}
 			asynchJobStatusManager.setComplete(status.getJobId(), response);
 		} catch (Throwable e) {
 			asynchJobStatusManager.setJobFailed(status.getJobId(), e);
@@ -191,28 +223,214 @@ public class BulkFileDownloadWorker implements MessageDrivenRunner {
 				fileIdsInZip.add(fileHandleId);
 				summary.setStatus(FileDownloadStatus.SUCCESS);
 				summary.setZipEntryName(zipEntryName);
-			} catch (BulkFileException e) {
-				// known error conditions.
-				summary.setStatus(FileDownloadStatus.FAILURE);
-				summary.setFailureMessage(e.getMessage());
-				summary.setFailureCode(e.getFailureCode());
-			} catch (NotFoundException e) {
-				// file did not exist
-				summary.setStatus(FileDownloadStatus.FAILURE);
-				summary.setFailureMessage(e.getMessage());
-				summary.setFailureCode(FileDownloadCode.NOT_FOUND);
 			} catch (Exception e) {
-				// all unknown errors.
-				summary.setStatus(FileDownloadStatus.FAILURE);
-				summary.setFailureMessage(e.getMessage());
-				summary.setFailureCode(FileDownloadCode.UNKNOWN_ERROR);
-				log.error("Failed on: " + fhas.getAssociation(), e);
+				setFailure(summary, fhas, e);
 			}
 			currentProgress++;
 		}
 		return fileSummaries;
 	}
 
+	/**
+	 * Build the result zip for each authorized file without a local temp file.
+	 * The zip is uploaded to S3 in parts as it is written while the source files
+	 * are fetched in parallel.
+	 * 
+	 * @param status
+	 * @param request
+	 * @return
+	 */
+	public BulkFileDownloadResponse buildZipStreaming(AsynchronousJobStatus status,
+			BulkFileDownloadRequest request) {
+		UserInfo user = userManger.getUserInfo(status.getStartedByUserId());
+		List<FileHandleAssociationAuthorizationStatus> authResults = fileHandleSupport
+				.canDownLoadFile(user, request.getRequestedFiles());
+		ZipEntryNameProvider zipEntryNameProvider = createZipEntryNameProvider(request.getZipFileFormat());
+		Set<String> fileIdsInZip = Sets.newHashSet();
+		List<FileDownloadSummary> results = Lists.newLinkedList();
+		S3FileHandle resultHandle = fileHandleSupport.multipartUploadStream(
+				new LocalFileUploadRequest().withFileName(request.getZipFileName())
+						.withUserId(user.getId().toString()).withContentType(APPLICATION_ZIP),
+				(OutputStream out) -> {
+					results.addAll(streamFilesToZip(authResults, out, status, fileIdsInZip, zipEntryNameProvider));
+					// Only upload the zip if there is at least one file in it.
+					return !fileIdsInZip.isEmpty();
+				});
+		collectDownloadStatistics(user.getId(), results);
+
+		BulkFileDownloadResponse response = new BulkFileDownloadResponse();
+		response.setFileSummary(results);
+		response.setUserId("" + user.getId());
+		response.setResultZipFileHandleId(resultHandle == null ? null : resultHandle.getId());
+		return response;
+	}
+
+	/**
+	 * Write each authorized file to a zip on the given stream. All of the files
+	 * are validated first so the valid files can be fetched in parallel, then
+	 * the zip entries are written in the requested order.
+	 * 
+	 * @param authResults
+	 * @param out
+	 * @param status
+	 * @param fileIdsInZip
+	 * @param zipEntryNameProvider
+	 * @return
+	 * @throws IOException
+	 */
+	List<FileDownloadSummary> streamFilesToZip(List<FileHandleAssociationAuthorizationStatus> authResults,
+			OutputStream out, AsynchronousJobStatus status, Set<String> fileIdsInZip,
+			ZipEntryNameProvider zipEntryNameProvider) throws IOException {
+		long start = System.currentTimeMillis();
+		List<FileDownloadSummary> fileSummaries = Lists.newLinkedList();
+		List<S3FileHandle> toZip = Lists.newLinkedList();
+		ParallelFileFetcher fetcher = new ParallelFileFetcher(fileHandleSupport, bulkDownloadFetchThreadPool,
+				MAX_PREFETCH_BYTES);
+		// Validate each file so the valid files can be fetched ahead of the writer.
+		Set<String> fileIdsToZip = Sets.newHashSet();
+		for (FileHandleAssociationAuthorizationStatus fhas : authResults) {
+			FileDownloadSummary summary = new FileDownloadSummary();
+			summary.setFileHandleId(fhas.getAssociation().getFileHandleId());
+			summary.setAssociateObjectId(fhas.getAssociation().getAssociateObjectId());
+			summary.setAssociateObjectType(fhas.getAssociation().getAssociateObjectType());
+			fileSummaries.add(summary);
+			S3FileHandle s3Handle = null;
+			try {
+				validateAssociation(fhas, fileIdsToZip);
+				s3Handle = getFileHandleForZip(fhas.getAssociation().getFileHandleId());
+				fileIdsToZip.add(s3Handle.getId());
+				fetcher.add(s3Handle);
+			} catch (Exception e) {
+				setFailure(summary, fhas, e);
+			}
+			toZip.add(s3Handle);
+		}
+		CountingOutputStream countingOut = new CountingOutputStream(out);
+		ZipOutputStream zipOut = new ZipOutputStream(countingOut);
+		try {
+			long currentProgress = 0L;
+			final long totalProgress = (long) authResults.size();
+			for (int i = 0; i < authResults.size(); i++) {
+				FileHandleAssociationAuthorizationStatus fhas = authResults.get(i);
+				FileDownloadSummary summary = fileSummaries.get(i);
+				S3FileHandle s3Handle = toZip.get(i);
+				asynchJobStatusManager.updateJobProgress(status.getJobId(), currentProgress, totalProgress,
+						PROCESSING_FILE_HANDLE_ID + fhas.getAssociation().getFileHandleId());
+				currentProgress++;
+				if (s3Handle == null) {
+					// failed validation.
+					continue;
+				}
+				if (countingOut.getByteCount() > FileConstants.BULK_FILE_DOWNLOAD_MAX_SIZE_BYTES) {
+					fetcher.skipNext();
+					setFailure(summary, fhas, new BulkFileException(RESULT_FILE_HAS_REACHED_THE_MAXIMUM_SIZE,
+							FileDownloadCode.EXCEEDS_SIZE_LIMIT));
+					continue;
+				}
+				InputStream fetched;
+				try {
+					fetched = fetcher.openNext();
+				} catch (Exception e) {
+					// A failed fetch only fails this file.
+					setFailure(summary, fhas, e);
+					continue;
+				}
+				try (InputStream in = fetched) {
+					String zipEntryName = zipEntryNameProvider.createZipEntryName(s3Handle.getFileName(),
+							Long.parseLong(s3Handle.getId()));
+					zipOut.putNextEntry(new ZipEntry(zipEntryName));
+					try {
+						copyFileContent(in, zipOut);
+					} catch (FileContentException e) {
+						// The entry is left truncated, so the file is reported as failed.
+						zipOut.closeEntry();
+						setFailure(summary, fhas, e.getCause());
+						continue;
+					}
+					zipOut.closeEntry();
+					fileIdsInZip.add(s3Handle.getId());
+					summary.setStatus(FileDownloadStatus.SUCCESS);
+					summary.setZipEntryName(zipEntryName);
+				}
+			}
+			zipOut.finish();
+		} finally {
+			fetcher.cancelAll();
+		}
+		long elapsedMS = Math.max(1L, System.currentTimeMillis() - start);
+		log.info("Streamed bulk download zip for job: " + status.getJobId() + " files: " + fileIdsInZip.size()
+				+ " bytes: " + countingOut.getByteCount() + " rate: "
+				+ (countingOut.getByteCount() * 1000L / elapsedMS) + " bytes/s fetch wait: "
+				+ fetcher.getFetchWaitMS() + " ms");
+		return fileSummaries;
+	}
+
+	/**
+	 * Copy the content of a file to the zip. A failure to read the content is
+	 * thrown as a {@link FileContentException} so it can be told apart from a
+	 * failure to write the zip.
+	 * 
+	 * @param in
+	 * @param zipOut
+	 * @throws IOException
+	 */
+	static void copyFileContent(InputStream in, OutputStream zipOut) throws IOException {
+		byte[] buffer = new byte[COPY_BUFFER_SIZE];
+		while (true) {
+			int read;
+			try {
+				read = in.read(buffer);
+			} catch (IOException | RuntimeException e) {
+				throw new FileContentException(e);
+			}
+			if (read < 0) {
+				return;
+			}
+			zipOut.write(buffer, 0, read);
+		}
+	}
+
+	/**
+	 * Thrown when the content of a single file could not be read.
+	 */
+	static class FileContentException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		FileContentException(Exception cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized Exception getCause() {
+			return (Exception) super.getCause();
+		}
+	}
+
+	/**
+	 * Record the failure of a single file in its summary.
+	 * 
+	 * @param summary
+	 * @param fhas
+	 * @param e
+	 */
+	private static void setFailure(FileDownloadSummary summary, FileHandleAssociationAuthorizationStatus fhas,
+			Exception e) {
+		summary.setStatus(FileDownloadStatus.FAILURE);
+		summary.setFailureMessage(e.getMessage());
+		if (e instanceof BulkFileException) {
+			// known error conditions.
+			summary.setFailureCode(((BulkFileException) e).getFailureCode());
+		} else if (e instanceof NotFoundException) {
+			// file did not exist
+			summary.setFailureCode(FileDownloadCode.NOT_FOUND);
+		} else {
+			// all unknown errors.
+			summary.setFailureCode(FileDownloadCode.UNKNOWN_ERROR);
+			log.error("Failed on: " + fhas.getAssociation(), e);
+		}
+	}
+
 	/**
 	 * Write a single file to the given zip stream.
 	 * 
@@ -226,30 +444,14 @@ public class BulkFileDownloadWorker implements MessageDrivenRunner {
 	public String writeOneFileToZip(ZipOutputStream zipOut, long zipFileSize,
 			FileHandleAssociationAuthorizationStatus fhas,
 			Set<String> fileIdsInZip, ZipEntryNameProvider zipEntryNameProvider) throws IOException {
-		String fileHandleId = fhas.getAssociation().getFileHandleId();
-		// Is the user authorized to download this file?
-		if (!fhas.getStatus().isAuthorized()) {
-			throw new BulkFileException(fhas.getStatus().getMessage(),
-					FileDownloadCode.UNAUTHORIZED);
-		}
-		// Each file handle should only be added once
-		if (fileIdsInZip.contains(fileHandleId)) {
-			throw new BulkFileException(FILE_ALREADY_ADDED,
-					FileDownloadCode.DUPLICATE);
-		}
+		validateAssociation(fhas, fileIdsInZip);
 		// Each file must be less than the max.
 		if (zipFileSize > FileConstants.BULK_FILE_DOWNLOAD_MAX_SIZE_BYTES) {
 			throw new BulkFileException(
 					RESULT_FILE_HAS_REACHED_THE_MAXIMUM_SIZE,
 					FileDownloadCode.EXCEEDS_SIZE_LIMIT);
 		}
-		// Get this filehandle.
-		S3FileHandle s3Handle = fileHandleSupport.getS3FileHandle(fileHandleId);
-		// Each file must be under the max.s
-		if (s3Handle.getContentSize() > FileConstants.BULK_FILE_DOWNLOAD_MAX_SIZE_BYTES) {
-			throw new BulkFileException(FILE_EXCEEDS_THE_MAXIMUM_SIZE_LIMIT,
-					FileDownloadCode.EXCEEDS_SIZE_LIMIT);
-		}
+		S3FileHandle s3Handle = getFileHandleForZip(fhas.getAssociation().getFileHandleId());
 		// This file will be downloaded to this temp.
 		File downloadTemp = fileHandleSupport.downloadToTempFile(s3Handle);
 		try {
@@ -264,6 +466,44 @@ public class BulkFileDownloadWorker implements MessageDrivenRunner {
 		}
 	}
 	
+	/**
+	 * Validate that the user can download the file and that it has not already
+	 * been added.
+	 * 
+	 * @param fhas
+	 * @param fileIdsInZip
+	 */
+	static void validateAssociation(FileHandleAssociationAuthorizationStatus fhas, Set<String> fileIdsInZip) {
+		String fileHandleId = fhas.getAssociation().getFileHandleId();
+		// Is the user authorized to download this file?
+		if (!fhas.getStatus().isAuthorized()) {
+			throw new BulkFileException(fhas.getStatus().getMessage(),
+					FileDownloadCode.UNAUTHORIZED);
+		}
+		// Each file handle should only be added once
+		if (fileIdsInZip.contains(fileHandleId)) {
+			throw new BulkFileException(FILE_ALREADY_ADDED,
+					FileDownloadCode.DUPLICATE);
+		}
+	}
+
+	/**
+	 * Get the file handle of a file to add to the zip.
+	 * 
+	 * @param fileHandleId
+	 * @return
+	 */
+	S3FileHandle getFileHandleForZip(String fileHandleId) {
+		// Get this filehandle.
+		S3FileHandle s3Handle = fileHandleSupport.getS3FileHandle(fileHandleId);
+		// Each file must be under the max.s
+		if (s3Handle.getContentSize() > FileConstants.BULK_FILE_DOWNLOAD_MAX_SIZE_BYTES) {
+			throw new BulkFileException(FILE_EXCEEDS_THE_MAXIMUM_SIZE_LIMIT,
+					FileDownloadCode.EXCEEDS_SIZE_LIMIT);
+		}
+		return s3Handle;
+	}
+
 	private void collectDownloadStatistics(Long userId, List<FileDownloadSummary> results) {
 		
 		List<StatisticsFileEvent> downloadEvents = results.stream()
@@ -2,11 +2,13 @@ package org.sagebionetworks.file.worker;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.zip.ZipOutputStream;
 
 import org.sagebionetworks.repo.manager.file.FileHandleAssociationAuthorizationStatus;
 import org.sagebionetworks.repo.manager.file.LocalFileUploadRequest;
+import org.sagebionetworks.repo.manager.file.UploadStreamWriter;
 import org.sagebionetworks.repo.model.UserInfo;
 import org.sagebionetworks.repo.model.file.FileHandleAssociateType;
 import org.sagebionetworks.repo.model.file.FileHandleAssociation;
@@ -59,6 +61,17 @@ public interface FileHandleSupport {
 	 */
 	S3FileHandle multipartUploadLocalFile(LocalFileUploadRequest request);
 	
+	/**
+	 * Multi-part upload a file to S3 as it is written by the given writer,
+	 * without a local file.
+	 * 
+	 * @param request
+	 * @param writer
+	 * @return The resulting file handle or null if the writer abandoned the
+	 *         upload.
+	 */
+	S3FileHandle multipartUploadStream(LocalFileUploadRequest request, UploadStreamWriter writer);
+	
 	/**
 	 * Get the S3FileHandle for the given FileHandle.id.
 	 * 
@@ -76,6 +89,15 @@ public interface FileHandleSupport {
 	 */
 	public File downloadToTempFile(S3FileHandle fileHandle) throws IOException;
 	
+	/**
+	 * Open a stream of the content of the given FileHandle. The caller must
+	 * close the stream.
+	 * 
+	 * @param fileHandle
+	 * @return
+	 */
+	public InputStream openFileContent(S3FileHandle fileHandle);
+	
 	/**
 	 * Add the given file to 
 	 * @param zipOut
@@ -15,6 +15,7 @@ import org.sagebionetworks.repo.manager.file.FileHandleAssociationAuthorizationS
 import org.sagebionetworks.repo.manager.file.FileHandleAuthorizationManager;
 import org.sagebionetworks.repo.manager.file.FileHandleManager;
 import org.sagebionetworks.repo.manager.file.LocalFileUploadRequest;
+import org.sagebionetworks.repo.manager.file.UploadStreamWriter;
 import org.sagebionetworks.repo.model.UserInfo;
 import org.sagebionetworks.repo.model.dao.FileHandleDao;
 import org.sagebionetworks.repo.model.file.FileHandle;
@@ -70,6 +71,11 @@ public class FileHandleSupportImpl implements FileHandleSupport {
 		return fileHandleManager.multipartUploadLocalFile(request);
 	}
 
+	@Override
+	public S3FileHandle multipartUploadStream(LocalFileUploadRequest request, UploadStreamWriter writer) {
+		return fileHandleManager.multipartUploadStream(request, writer);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.sagebionetworks.file.worker.BulkDownloadDao#getS3FileHandle(java.lang.String)
@@ -97,6 +103,11 @@ public class FileHandleSupportImpl implements FileHandleSupport {
 		return tempFile;
 	}
 
+	@Override
+	public InputStream openFileContent(S3FileHandle fileHandle) {
+		return s3client.getObject(new GetObjectRequest(fileHandle.getBucketName(), fileHandle.getKey())).getObjectContent();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.sagebionetworks.file.worker.BulkDownloadDao#addFileToZip(java.util.zip.ZipOutputStream, java.io.File, java.lang.String)
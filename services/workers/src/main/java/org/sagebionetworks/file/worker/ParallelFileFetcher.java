@@ -0,0 +1,201 @@
+package org.sagebionetworks.file.worker;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
+
+/**
+ * Fetches the content of a sequence of files from S3 concurrently while
+ * handing them back in their original order.
+ * <p>
+ * Files are fetched ahead of the consumer into memory, but the total size of
+ * the files buffered at any time is bounded by the configured maximum. Files
+ * that are larger than the maximum are never buffered and are instead streamed
+ * directly from S3 when the consumer reaches them. All scheduling is done on
+ * the consumer's thread, so the fetch threads never block on each other.
+ *
+ */
+public class ParallelFileFetcher {
+
+	private final FileHandleSupport fileHandleSupport;
+	private final ExecutorService fetchExecutor;
+	private final long maxBufferedBytes;
+	private final LinkedList<PendingFile> pending;
+
+	private long bufferedBytes;
+	private long fetchWaitMS;
+	private long bytesFetched;
+
+	/**
+	 * 
+	 * @param fileHandleSupport
+	 * @param fetchExecutor     Used to fetch the files concurrently.
+	 * @param maxBufferedBytes  The maximum number of bytes that can be fetched
+	 *                          ahead of the consumer.
+	 */
+	public ParallelFileFetcher(FileHandleSupport fileHandleSupport, ExecutorService fetchExecutor,
+			long maxBufferedBytes) {
+		this.fileHandleSupport = fileHandleSupport;
+		this.fetchExecutor = fetchExecutor;
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.pending = new LinkedList<>();
+		this.bufferedBytes = 0L;
+		this.fetchWaitMS = 0L;
+		this.bytesFetched = 0L;
+	}
+
+	/**
+	 * Add a file to the end of the sequence of files to fetch.
+	 * 
+	 * @param fileHandle
+	 */
+	public void add(S3FileHandle fileHandle) {
+		pending.add(new PendingFile(fileHandle));
+	}
+
+	/**
+	 * Open the next file in the sequence. Starts fetching as many of the
+	 * following files as the memory budget allows, then waits for the next file.
+	 * The caller must close the returned stream.
+	 * 
+	 * @return
+	 * @throws IOException If the file could not be fetched.
+	 */
+	public InputStream openNext() throws IOException {
+		PendingFile next = removeNext();
+		if (next.future == null) {
+			// Too large to buffer so stream it directly.
+			bytesFetched += next.size;
+			return fileHandleSupport.openFileContent(next.fileHandle);
+		}
+		long start = System.currentTimeMillis();
+		try {
+			byte[] content = next.future.get();
+			bytesFetched += content.length;
+			return new ByteArrayInputStream(content);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			fetchWaitMS += System.currentTimeMillis() - start;
+		}
+	}
+
+	/**
+	 * Skip the next file in the sequence without reading it.
+	 */
+	public void skipNext() {
+		PendingFile next = removeNext();
+		if (next.future != null) {
+			next.future.cancel(true);
+		}
+	}
+
+	/**
+	 * Remove the next file from the sequence after topping up the fetch window.
+	 * The memory of a buffered file is released as soon as it is removed since
+	 * the consumer will handle it before asking for another file.
+	 * 
+	 * @return
+	 */
+	private PendingFile removeNext() {
+		if (pending.isEmpty()) {
+			throw new IllegalStateException("No more files to fetch");
+		}
+		scheduleFetches();
+		PendingFile next = pending.removeFirst();
+		if (next.future != null) {
+			bufferedBytes -= next.size;
+		}
+		return next;
+	}
+
+	/**
+	 * Start fetching files in order while they fit within the memory budget.
+	 * Files too large to ever fit are skipped since they will be streamed.
+	 */
+	private void scheduleFetches() {
+		Iterator<PendingFile> it = pending.iterator();
+		while (it.hasNext()) {
+			PendingFile file = it.next();
+			if (file.future != null || file.size > maxBufferedBytes) {
+				continue;
+			}
+			if (bufferedBytes + file.size > maxBufferedBytes) {
+				// Keep the order by waiting for memory to free up.
+				break;
+			}
+			bufferedBytes += file.size;
+			final S3FileHandle toFetch = file.fileHandle;
+			file.future = fetchExecutor.submit(() -> {
+				try (InputStream in = fileHandleSupport.openFileContent(toFetch)) {
+					return IOUtils.toByteArray(in);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Cancel any fetches that are still running.
+	 */
+	public void cancelAll() {
+		for (PendingFile file : pending) {
+			if (file.future != null) {
+				file.future.cancel(true);
+			}
+		}
+		pending.clear();
+		bufferedBytes = 0L;
+	}
+
+	/**
+	 * The total time in milliseconds the consumer spent waiting for fetches.
+	 * 
+	 * @return
+	 */
+	public long getFetchWaitMS() {
+		return fetchWaitMS;
+	}
+
+	/**
+	 * The total number of bytes handed to the consumer.
+	 * 
+	 * @return
+	 */
+	public long getBytesFetched() {
+		return bytesFetched;
+	}
+
+	/**
+	 * The number of bytes currently fetched ahead of the consumer.
+	 * 
+	 * @return
+	 */
+	long getBufferedBytes() {
+		return bufferedBytes;
+	}
+
+	private static class PendingFile {
+		final S3FileHandle fileHandle;
+		final long size;
+		Future<byte[]> future;
+
+		PendingFile(S3FileHandle fileHandle) {
+			this.fileHandle = fileHandle;
+			this.size = fileHandle.getContentSize() == null ? 0L : fileHandle.getContentSize();
+		}
+	}
+}
@@ -1,10 +1,18 @@
 package org.sagebionetworks.log.worker;
 
 import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPOutputStream;
 
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.logging.s3.LogEntry;
+import org.sagebionetworks.logging.s3.LogIndexEntry;
 import org.sagebionetworks.logging.s3.LogReader;
 
 /**
@@ -15,6 +23,11 @@ import org.sagebionetworks.logging.s3.LogReader;
  */
 public class CollateUtils {
 
+	/**
+	 * The default number of log entries written to each gzip member of a collated file.
+	 */
+	public static final int DEFAULT_ENTRIES_PER_BLOCK = 10000;
+
 	/**
 	 * Collate all of the log data from the list of LogReaders into the passed writer
 	 * @param toCollate
@@ -22,61 +35,153 @@ public class CollateUtils {
 	 * @throws IOException 
 	 */
 	public static void collateLogs(LogReader[] toCollate, BufferedWriter out, ProgressCallback progressCallback) throws IOException{
-		// First find the
-		int minIndex;
-		// This array will contain the head entry from each input log.
-		LogEntry[] heads = new LogEntry[toCollate.length];
-		// prime the pump by reading in the head from each log.
-		for(int i=0; i<toCollate.length; i++){
-			heads[i] = toCollate[i].read();
+		LogMerge merge = new LogMerge(toCollate);
+		// Write the earliest log entry from all of the heads until there is nothing else to write.
+		for(LogEntry toWrite = merge.next(); toWrite != null; toWrite = merge.next()){
+			out.write(toWrite.getEntryString());
+			out.newLine();
+		}
+	}
+
+	/**
+	 * Collate all of the log data from the list of LogReaders into the passed
+	 * stream as gzip. A new gzip member is started every entriesPerBlock
+	 * entries so the result can be read from the start of any member.
+	 * 
+	 * @param toCollate
+	 * @param out              The raw output. This stream is not closed.
+	 * @param entriesPerBlock
+	 * @param progressCallback
+	 * @return A sparse index with the time stamp of the first entry and offset of each gzip member.
+	 * @throws IOException
+	 */
+	public static List<LogIndexEntry> collateLogsToGzipBlocks(LogReader[] toCollate, OutputStream out, int entriesPerBlock, ProgressCallback progressCallback) throws IOException{
+		if(entriesPerBlock < 1){
+			throw new IllegalArgumentException("entriesPerBlock must be at least one");
 		}
-		// Now find the earliest log entry from all of the heads
-		// and write it to the output.
-		LogEntry toWrite = null;
-		do{
-			// Find the minimum;
-			minIndex = findMiniumnIndex(heads, progressCallback);
-			// write the entry at the minimum index to the log
-			toWrite = heads[minIndex];
-			if(toWrite != null){
-				// write the entry at the minimum index.
-				out.write(toWrite.getEntryString());
-				out.newLine();
-				// Now read the next entry the minimum log
-				heads[minIndex] = toCollate[minIndex].read();
+		LogMerge merge = new LogMerge(toCollate);
+		CountingOutputStream counting = new CountingOutputStream(out);
+		List<LogIndexEntry> index = new LinkedList<LogIndexEntry>();
+		GZIPOutputStream zipOut = null;
+		BufferedWriter writer = null;
+		int entriesInBlock = 0;
+		for(LogEntry toWrite = merge.next(); toWrite != null; toWrite = merge.next()){
+			if(writer == null){
+				// start a new gzip member.
+				index.add(new LogIndexEntry(toWrite.getTimeStamp(), counting.getCount()));
+				zipOut = new GZIPOutputStream(counting);
+				writer = new BufferedWriter(new OutputStreamWriter(zipOut));
+			}
+			writer.write(toWrite.getEntryString());
+			writer.newLine();
+			entriesInBlock++;
+			if(entriesInBlock >= entriesPerBlock){
+				writer.flush();
+				zipOut.finish();
+				writer = null;
+				entriesInBlock = 0;
 			}
-			// continue until there is nothing else to write.
-		}while(toWrite != null);
+		}
+		if(writer != null){
+			writer.flush();
+			zipOut.finish();
+		}
+		counting.flush();
+		return index;
 	}
+
 	/**
-	 * Look at all of the current heads from the input log files and find the one
-	 * with the minimum time stamp
-	 * @param heads
-	 * @return The index of LogEntry that has the earliest time stamp.
-	 * If the passed array contains all null values then zero will be returned.
+	 * K-way merge of the entries of the logs. Each log is already sorted by time
+	 * stamp so the earliest entry is always one of the heads, which are kept in a
+	 * priority queue. Entries with the same time stamp are returned in the order
+	 * of their logs.
+	 *
 	 */
-	private static int findMiniumnIndex(LogEntry[] heads, ProgressCallback progressCallback){
-		int minIndex = 0;
-		for(int i=1; i<heads.length; i++){
-			// If data is null at the current minIndex
-			// this this index becomes the minimum.
-			if(heads[minIndex] == null){
-				minIndex = i;
-				continue;
+	private static class LogMerge {
+
+		private final LogReader[] toCollate;
+		private final PriorityQueue<Head> heads;
+
+		LogMerge(LogReader[] toCollate) throws IOException {
+			this.toCollate = toCollate;
+			this.heads = new PriorityQueue<Head>(Math.max(1, toCollate.length));
+			// prime the pump by reading in the head from each log.
+			for(int i=0; i<toCollate.length; i++){
+				LogEntry entry = toCollate[i].read();
+				if(entry != null){
+					heads.add(new Head(entry, i));
+				}
 			}
-			// There is data at the minimum index
-			// but is there data at this index?
-			if(heads[i] == null){
-				// There is no data at this index so it cannot be the minimum.
-				continue;
+		}
+
+		/**
+		 * The earliest entry of all of the logs.
+		 * @return null when there is nothing else to read.
+		 * @throws IOException
+		 */
+		LogEntry next() throws IOException {
+			Head head = heads.poll();
+			if(head == null){
+				return null;
 			}
-			// There is data both at this index and the current minimum
-			// so determine which occurred earlier.
-			if(heads[i].getTimeStamp() < heads[minIndex].getTimeStamp()){
-				// This current index becomes the new minimum.
-				minIndex = i;
+			// Now read the next entry from the same log
+			LogEntry next = toCollate[head.index].read();
+			if(next != null){
+				heads.add(new Head(next, head.index));
 			}
+			return head.entry;
+		}
+	}
+
+	private static class Head implements Comparable<Head> {
+		final LogEntry entry;
+		final int index;
+
+		Head(LogEntry entry, int index) {
+			this.entry = entry;
+			this.index = index;
+		}
+
+		@Override
+		public int compareTo(Head o) {
+			int compare = Long.compare(entry.getTimeStamp(), o.entry.getTimeStamp());
+			if(compare != 0){
+				return compare;
+			}
+			return Integer.compare(index, o.index);
+		}
+	}
+
+	/**
+	 * Counts the bytes written to the wrapped stream. Closing this stream does not close the wrapped stream.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+		long getCount() {
+			return count;
 		}
-		return minIndex;
 	}
 }
@@ -1,34 +1,39 @@
 package org.sagebionetworks.log.worker;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.common.util.progress.ProgressingRunner;
 import org.sagebionetworks.logging.s3.LogDAO;
+import org.sagebionetworks.logging.s3.LogIndexEntry;
 import org.sagebionetworks.logging.s3.LogKeyUtils;
 import org.sagebionetworks.logging.s3.LogReader;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.amazonaws.services.s3.model.ObjectListing;
-import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 
 /**
  * This worker collates all logs based on log type and time.
  * 
+ * The logs of a batch are downloaded in parallel and merged into a file made of
+ * gzip members with a sparse time stamp index, see
+ * {@link CollateUtils#collateLogsToGzipBlocks(LogReader[], OutputStream, int, ProgressCallback)}.
+ * 
  * @author John
  *
  */
@@ -39,6 +44,9 @@ public class LogCollateWorker implements ProgressingRunner {
 	@Autowired
 	LogDAO logDAO;
 
+	@Autowired
+	ExecutorService logCollateDownloadThreadPool;
+
 
 	@Override
 	public void run(ProgressCallback progressCallback) throws Exception {
@@ -106,27 +114,39 @@ public class LogCollateWorker implements ProgressingRunner {
 					long timestamp = LogKeyUtils.getTimestampFromTypeDateHour(data.batchDateString);
 					String newFileKey = null;
 					File temp = File.createTempFile(type+".", ".log.gz");
-					BufferedWriter outWriter = null;
+					OutputStream outWriter = null;
 					LogReader[] toCollate = new LogReader[data.mergedKeys.size()];
 					File[] tempFiles = new File[data.mergedKeys.size()];
 					try{
 						// Now setup the writer
-						outWriter = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(temp))));
-						// Get the log reader for each file to collate
+						outWriter = new BufferedOutputStream(new FileOutputStream(temp));
+						// Download all of the files to collate in parallel
+						List<Future<?>> downloads = new LinkedList<Future<?>>();
 						int index = 0;
 						for(String key: data.mergedKeys){
-							tempFiles[index] = File.createTempFile("collateDownload", ".log.gz");
-							ObjectMetadata meta = logDAO.downloadLogFile(key, tempFiles[index]);
-							toCollate[index] = new LogReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(tempFiles[index])))));
+							final File tempFile = File.createTempFile("collateDownload", ".log.gz");
+							tempFiles[index] = tempFile;
+							downloads.add(logCollateDownloadThreadPool.submit(() -> {
+								logDAO.downloadLogFile(key, tempFile);
+								return null;
+							}));
 							index++;
 						}
+						for(Future<?> download: downloads){
+							download.get();
+						}
+						// Get the log reader for each file to collate
+						for(index = 0; index < tempFiles.length; index++){
+							toCollate[index] = new LogReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(tempFiles[index])))));
+						}
 						// Now collate all of the files
-						CollateUtils.collateLogs(toCollate, outWriter, progressCallback);
+						List<LogIndexEntry> logIndex = CollateUtils.collateLogsToGzipBlocks(toCollate, outWriter, CollateUtils.DEFAULT_ENTRIES_PER_BLOCK, progressCallback);
 						// Flush and close the outupt files before we save it
 						outWriter.flush();
 						outWriter.close();
 						// Save the results back to s3
 						newFileKey = logDAO.saveLogFile(temp, timestamp);
+						logDAO.saveLogIndex(newFileKey, logIndex);
 					}catch(Exception e){
 						log.error("Worker failed", e);
 					}finally{
@@ -0,0 +1,91 @@
+package org.sagebionetworks.worker;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.sagebionetworks.StackConfiguration;
+import org.sagebionetworks.common.util.progress.ProgressCallback;
+import org.sagebionetworks.common.util.progress.ProgressingRunner;
+import org.sagebionetworks.repo.model.dbo.BlobReEncoder;
+import org.sagebionetworks.repo.model.dbo.BlobReEncoder.Target;
+import org.sagebionetworks.util.Clock;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Worker that moves legacy XStream blobs to the codec used for new writes.
+ * Each run re-encodes one page of each target that has not been finished
+ * yet. The position of each target is kept in memory, so a restarted worker
+ * scans again from the start, but rows that are already re-encoded are only
+ * read. Nothing is re-encoded until codec writes are enabled in the stack
+ * configuration.
+ *
+ */
+public class BlobReEncoderWorker implements ProgressingRunner {
+
+	static private Logger log = LogManager.getLogger(BlobReEncoderWorker.class);
+
+	/**
+	 * Small enough that a page is re-encoded within a few seconds.
+	 */
+	public static final int PAGE_SIZE = 1000;
+
+	@Autowired
+	BlobReEncoder blobReEncoder;
+	@Autowired
+	Clock clock;
+	@Autowired
+	StackConfiguration configuration;
+
+	List<Target> targets = BlobReEncoder.TARGETS;
+
+	/**
+	 * The ID of the last row scanned for each target. Finished targets map to
+	 * null.
+	 */
+	private Map<Target, Long> lastIds = new HashMap<>();
+
+	@Override
+	public void run(ProgressCallback progressCallback) throws Exception {
+		if (!configuration.getBlobCodecWriteEnabled() || isFinished()) {
+			return;
+		}
+		long startTimeMs = clock.currentTimeMillis();
+		for (Target target : targets) {
+			reEncodeNextPage(target);
+		}
+		long elapseMS = clock.currentTimeMillis() - startTimeMs;
+		// Sleep to guarantee the re-encoding does not dominate the database activity.
+		clock.sleep(2 * elapseMS);
+	}
+
+	/**
+	 * Re-encode the next page of a single target.
+	 *
+	 * @param target
+	 * @throws Exception
+	 */
+	void reEncodeNextPage(Target target) throws Exception {
+		if (lastIds.containsKey(target) && lastIds.get(target) == null) {
+			// this target is finished.
+			return;
+		}
+		long afterId = lastIds.containsKey(target) ? lastIds.get(target) : Long.MIN_VALUE;
+		Long lastId = blobReEncoder.reEncodePage(target, afterId, PAGE_SIZE);
+		lastIds.put(target, lastId);
+		if (lastId == null) {
+			log.info("Finished re-encoding blobs of " + target);
+		}
+	}
+
+	boolean isFinished() {
+		for (Target target : targets) {
+			if (!lastIds.containsKey(target) || lastIds.get(target) != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,27 +1,23 @@
 package org.sagebionetworks.discussion.workers;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
-import java.util.List;
-
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.repo.model.dao.discussion.DiscussionReplyDAO;
 import org.sagebionetworks.repo.model.dao.discussion.DiscussionThreadDAO;
-import org.sagebionetworks.repo.model.discussion.DiscussionThreadReplyStat;
-import org.sagebionetworks.repo.model.discussion.DiscussionThreadStat;
 import org.sagebionetworks.repo.model.message.ChangeMessage;
 import org.sagebionetworks.repo.model.message.ChangeType;
 import org.sagebionetworks.workers.util.aws.message.RecoverableMessageException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
 public class DiscussionThreadStatsWorkerUnitTest {
@@ -53,28 +49,39 @@ public class DiscussionThreadStatsWorkerUnitTest {
 	}
 
 	@Test
-	public void testUpdateMessage() throws RecoverableMessageException {
+	public void testUpdateMessageWithStaleStats() throws RecoverableMessageException {
+		Long threadId = 1L;
+		when(mockMessage.getObjectId()).thenReturn(threadId.toString());
+		when(mockMessage.getChangeType()).thenReturn(ChangeType.UPDATE);
+		when(mockReplyDao.isThreadStatsCurrent(threadId)).thenReturn(false);
+		when(mockThreadDao.countThreadView(threadId)).thenReturn(3L);
+		worker.run(mockCallback, mockMessage);
+		verify(mockReplyDao).rebuildThreadStats(threadId);
+		verify(mockThreadDao).updateThreadViewStats(threadId, 3L);
+	}
+
+	@Test
+	public void testUpdateMessageWithCurrentStats() throws RecoverableMessageException {
 		Long threadId = 1L;
-		DiscussionThreadReplyStat replyStat = new DiscussionThreadReplyStat();
-		Long lastActivity = System.currentTimeMillis();
-		replyStat.setLastActivity(lastActivity);
-		replyStat.setNumberOfReplies(2L);
 		when(mockMessage.getObjectId()).thenReturn(threadId.toString());
 		when(mockMessage.getChangeType()).thenReturn(ChangeType.UPDATE);
-		when(mockReplyDao.getThreadReplyStat(threadId)).thenReturn(replyStat);
+		when(mockReplyDao.isThreadStatsCurrent(threadId)).thenReturn(true);
 		when(mockThreadDao.countThreadView(threadId)).thenReturn(3L);
-		when(mockReplyDao.getActiveAuthors(threadId)).thenReturn(null);
 		worker.run(mockCallback, mockMessage);
-		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
-		verify(mockThreadDao).updateThreadStats(captor.capture());
-		List value = captor.getValue();
-		assertNotNull(value);
-		assertEquals(1, value.size());
-		DiscussionThreadStat stat = (DiscussionThreadStat) value.get(0);
-		assertEquals(threadId, stat.getThreadId());
-		assertEquals((Long)2L, stat.getNumberOfReplies());
-		assertEquals(lastActivity, stat.getLastActivity());
-		assertEquals((Long)3L, stat.getNumberOfViews());
-		assertNull(stat.getActiveAuthors());
+		verify(mockReplyDao, never()).rebuildThreadStats(threadId);
+		verify(mockReplyDao, never()).getThreadReplyStat(threadId);
+		verify(mockThreadDao).updateThreadViewStats(threadId, 3L);
+	}
+
+	@Test
+	public void testUpdateMessageWithDeletedThread() throws RecoverableMessageException {
+		Long threadId = 1L;
+		when(mockMessage.getObjectId()).thenReturn(threadId.toString());
+		when(mockMessage.getChangeType()).thenReturn(ChangeType.UPDATE);
+		when(mockReplyDao.isThreadStatsCurrent(threadId)).thenReturn(false);
+		doThrow(new DataIntegrityViolationException("")).when(mockReplyDao).rebuildThreadStats(threadId);
+		// call under test
+		worker.run(mockCallback, mockMessage);
+		verify(mockThreadDao, never()).updateThreadViewStats(anyLong(), anyLong());
 	}
 }
@@ -0,0 +1,69 @@
+package org.sagebionetworks.discussion.workers;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.common.util.progress.ProgressCallback;
+import org.sagebionetworks.repo.model.dao.discussion.DiscussionThreadDAO;
+import org.sagebionetworks.util.Clock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EntityThreadCountReconciliationWorkerTest {
+
+	@Mock
+	DiscussionThreadDAO mockThreadDao;
+	@Mock
+	Clock mockClock;
+	@Mock
+	ProgressCallback mockProgress;
+
+	EntityThreadCountReconciliationWorker worker;
+
+	@Before
+	public void before() {
+		worker = new EntityThreadCountReconciliationWorker();
+		ReflectionTestUtils.setField(worker, "threadDao", mockThreadDao);
+		ReflectionTestUtils.setField(worker, "clock", mockClock);
+	}
+
+	@Test
+	public void testRunResumesAfterLastId() throws Exception {
+		// setup two milliseconds between calls.
+		when(mockClock.currentTimeMillis()).thenReturn(0L, 2L, 4L, 6L, 8L);
+		when(mockThreadDao.reconcileEntityThreadCounts(Long.MIN_VALUE, EntityThreadCountReconciliationWorker.PAGE_SIZE)).thenReturn(123L);
+		when(mockThreadDao.reconcileEntityThreadCounts(123L, EntityThreadCountReconciliationWorker.PAGE_SIZE)).thenReturn(null);
+		// call under test
+		worker.run(mockProgress);
+		worker.run(mockProgress);
+		verify(mockThreadDao).reconcileEntityThreadCounts(Long.MIN_VALUE, EntityThreadCountReconciliationWorker.PAGE_SIZE);
+		verify(mockThreadDao).reconcileEntityThreadCounts(123L, EntityThreadCountReconciliationWorker.PAGE_SIZE);
+		// should sleep for twice the runtime of each page
+		verify(mockClock, times(2)).sleep(4L);
+	}
+
+	@Test
+	public void testRunWaitsBetweenPasses() throws Exception {
+		when(mockClock.currentTimeMillis()).thenReturn(0L, 0L, 0L,
+				EntityThreadCountReconciliationWorker.PASS_INTERVAL_MS - 1,
+				EntityThreadCountReconciliationWorker.PASS_INTERVAL_MS,
+				EntityThreadCountReconciliationWorker.PASS_INTERVAL_MS,
+				EntityThreadCountReconciliationWorker.PASS_INTERVAL_MS);
+		when(mockThreadDao.reconcileEntityThreadCounts(Long.MIN_VALUE, EntityThreadCountReconciliationWorker.PAGE_SIZE)).thenReturn(null);
+		// the first pass finishes
+		worker.run(mockProgress);
+		// call under test
+		worker.run(mockProgress);
+		verify(mockThreadDao, times(1)).reconcileEntityThreadCounts(anyLong(), anyLong());
+		// a new pass starts from the first entity
+		worker.run(mockProgress);
+		verify(mockThreadDao, times(2)).reconcileEntityThreadCounts(Long.MIN_VALUE, EntityThreadCountReconciliationWorker.PAGE_SIZE);
+	}
+}
@@ -3,22 +3,33 @@ package org.sagebionetworks.file.worker;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.IOUtils;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +48,7 @@ import org.sagebionetworks.repo.manager.asynch.AsynchJobStatusManager;
 import org.sagebionetworks.repo.manager.events.EventsCollector;
 import org.sagebionetworks.repo.manager.file.FileHandleAssociationAuthorizationStatus;
 import org.sagebionetworks.repo.manager.file.LocalFileUploadRequest;
+import org.sagebionetworks.repo.manager.file.UploadStreamWriter;
 import org.sagebionetworks.repo.model.UserInfo;
 import org.sagebionetworks.repo.model.asynch.AsynchronousJobStatus;
 import org.sagebionetworks.repo.model.auth.AuthorizationStatus;
@@ -52,6 +64,7 @@ import org.sagebionetworks.repo.model.file.S3FileHandle;
 import org.sagebionetworks.repo.model.file.ZipFileFormat;
 import org.sagebionetworks.repo.web.NotFoundException;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.model.Message;
 import com.google.common.collect.Lists;
 @RunWith(MockitoJUnitRunner.class)
@@ -90,6 +103,7 @@ public class BulkFileDownloadWorkerTest {
 	List<File> mockDownloadedFiles;
 
 	S3FileHandle resultHandle;
+	ByteArrayOutputStream streamedZip;
 
 	@Before
 	public void before() throws Exception {
@@ -540,6 +554,171 @@ public class BulkFileDownloadWorkerTest {
 				exception);
 	}
 	
+	@Test
+	public void testRunStreaming() throws Exception {
+		setupStreaming();
+		requestBody.setRequestedFiles(Arrays.asList(fha1, fha2, fha1));
+		when(mockBulkDownloadManager.canDownLoadFile(user, Arrays.asList(fha1, fha2, fha1))).thenReturn(Arrays.asList(
+				new FileHandleAssociationAuthorizationStatus(fha1, AuthorizationStatus.authorized()),
+				new FileHandleAssociationAuthorizationStatus(fha2, AuthorizationStatus.authorized()),
+				new FileHandleAssociationAuthorizationStatus(fha1, AuthorizationStatus.authorized())));
+		message = MessageUtils.buildMessage(jobStatus);
+		// call under test
+		worker.run(mockProgress, message);
+		// Nothing should be written locally.
+		verify(mockBulkDownloadManager, never()).createTempFile(anyString(), anyString());
+		verify(mockBulkDownloadManager, never()).downloadToTempFile(any(S3FileHandle.class));
+		verify(mockBulkDownloadManager, times(1)).multipartUploadStream(localFileRequestCaptor.capture(),
+				any(UploadStreamWriter.class));
+		LocalFileUploadRequest request = localFileRequestCaptor.getValue();
+		assertEquals(BulkFileDownloadWorker.APPLICATION_ZIP, request.getContentType());
+		assertEquals(user.getId().toString(), request.getUserId());
+		assertEquals(null, request.getFileToUpload());
+		verify(mockAsynchJobStatusManager, times(3)).updateJobProgress(anyString(), anyLong(), anyLong(),
+				anyString());
+		// The entries should be in the requested order.
+		ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(streamedZip.toByteArray()));
+		ZipEntry entry = zipIn.getNextEntry();
+		assertEquals("1/1/foo.txt", entry.getName());
+		assertEquals("content of 1", IOUtils.toString(zipIn, StandardCharsets.UTF_8));
+		entry = zipIn.getNextEntry();
+		assertEquals("2/2/bar.txt", entry.getName());
+		assertEquals("content of 2", IOUtils.toString(zipIn, StandardCharsets.UTF_8));
+		assertEquals(null, zipIn.getNextEntry());
+
+		FileDownloadSummary summary1 = new FileDownloadSummary();
+		summary1.setFileHandleId(fha1.getFileHandleId());
+		summary1.setAssociateObjectId(fha1.getAssociateObjectId());
+		summary1.setAssociateObjectType(fha1.getAssociateObjectType());
+		summary1.setStatus(FileDownloadStatus.SUCCESS);
+		summary1.setZipEntryName("1/1/foo.txt");
+		FileDownloadSummary summary2 = new FileDownloadSummary();
+		summary2.setFileHandleId(fha2.getFileHandleId());
+		summary2.setAssociateObjectId(fha2.getAssociateObjectId());
+		summary2.setAssociateObjectType(fha2.getAssociateObjectType());
+		summary2.setStatus(FileDownloadStatus.SUCCESS);
+		summary2.setZipEntryName("2/2/bar.txt");
+		FileDownloadSummary duplicate = new FileDownloadSummary();
+		duplicate.setFileHandleId(fha1.getFileHandleId());
+		duplicate.setAssociateObjectId(fha1.getAssociateObjectId());
+		duplicate.setAssociateObjectType(fha1.getAssociateObjectType());
+		duplicate.setStatus(FileDownloadStatus.FAILURE);
+		duplicate.setFailureCode(FileDownloadCode.DUPLICATE);
+		duplicate.setFailureMessage(BulkFileDownloadWorker.FILE_ALREADY_ADDED);
+		BulkFileDownloadResponse expectedResponse = new BulkFileDownloadResponse();
+		expectedResponse.setResultZipFileHandleId(resultHandle.getId());
+		expectedResponse.setFileSummary(Arrays.asList(summary1, summary2, duplicate));
+		expectedResponse.setUserId("" + user.getId());
+		verify(mockAsynchJobStatusManager).setComplete(jobStatus.getJobId(), expectedResponse);
+	}
+
+	@Test
+	public void testRunStreamingFetchFailure() throws Exception {
+		setupStreaming();
+		AmazonServiceException fetchError = new AmazonServiceException("fetch failed");
+		doThrow(fetchError).when(mockBulkDownloadManager).openFileContent(fileHandle1);
+		requestBody.setRequestedFiles(Arrays.asList(fha1, fha2));
+		when(mockBulkDownloadManager.canDownLoadFile(user, Arrays.asList(fha1, fha2))).thenReturn(Arrays.asList(
+				new FileHandleAssociationAuthorizationStatus(fha1, AuthorizationStatus.authorized()),
+				new FileHandleAssociationAuthorizationStatus(fha2, AuthorizationStatus.authorized())));
+		message = MessageUtils.buildMessage(jobStatus);
+		// call under test
+		worker.run(mockProgress, message);
+		// The other file is still added to the zip.
+		ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(streamedZip.toByteArray()));
+		ZipEntry entry = zipIn.getNextEntry();
+		assertEquals("2/2/bar.txt", entry.getName());
+		assertEquals("content of 2", IOUtils.toString(zipIn, StandardCharsets.UTF_8));
+		assertEquals(null, zipIn.getNextEntry());
+
+		FileDownloadSummary summary1 = new FileDownloadSummary();
+		summary1.setFileHandleId(fha1.getFileHandleId());
+		summary1.setAssociateObjectId(fha1.getAssociateObjectId());
+		summary1.setAssociateObjectType(fha1.getAssociateObjectType());
+		summary1.setStatus(FileDownloadStatus.FAILURE);
+		summary1.setFailureCode(FileDownloadCode.UNKNOWN_ERROR);
+		summary1.setFailureMessage(fetchError.getMessage());
+		FileDownloadSummary summary2 = new FileDownloadSummary();
+		summary2.setFileHandleId(fha2.getFileHandleId());
+		summary2.setAssociateObjectId(fha2.getAssociateObjectId());
+		summary2.setAssociateObjectType(fha2.getAssociateObjectType());
+		summary2.setStatus(FileDownloadStatus.SUCCESS);
+		summary2.setZipEntryName("2/2/bar.txt");
+		BulkFileDownloadResponse expectedResponse = new BulkFileDownloadResponse();
+		expectedResponse.setResultZipFileHandleId(resultHandle.getId());
+		expectedResponse.setFileSummary(Arrays.asList(summary1, summary2));
+		expectedResponse.setUserId("" + user.getId());
+		verify(mockAsynchJobStatusManager).setComplete(jobStatus.getJobId(), expectedResponse);
+	}
+
+	@Test
+	public void testCopyFileContentReadFailure() throws Exception {
+		IOException readError = new IOException("read failed");
+		InputStream in = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw readError;
+			}
+		};
+		try {
+			// call under test
+			BulkFileDownloadWorker.copyFileContent(in, new ByteArrayOutputStream());
+			fail();
+		} catch (BulkFileDownloadWorker.FileContentException e) {
+			assertEquals(readError, e.getCause());
+		}
+	}
+
+	@Test
+	public void testRunStreamingNoFilesAdded() throws Exception {
+		setupStreaming();
+		when(mockBulkDownloadManager.canDownLoadFile(user, Arrays.asList(fha1))).thenReturn(Arrays.asList(
+				new FileHandleAssociationAuthorizationStatus(fha1, AuthorizationStatus.accessDenied("because"))));
+		// call under test
+		worker.run(mockProgress, message);
+		verify(mockBulkDownloadManager, never()).openFileContent(any(S3FileHandle.class));
+
+		FileDownloadSummary summary = new FileDownloadSummary();
+		summary.setFileHandleId(fha1.getFileHandleId());
+		summary.setAssociateObjectId(fha1.getAssociateObjectId());
+		summary.setAssociateObjectType(fha1.getAssociateObjectType());
+		summary.setStatus(FileDownloadStatus.FAILURE);
+		summary.setFailureCode(FileDownloadCode.UNAUTHORIZED);
+		summary.setFailureMessage("because");
+		BulkFileDownloadResponse expectedResponse = new BulkFileDownloadResponse();
+		expectedResponse.setResultZipFileHandleId(null);
+		expectedResponse.setFileSummary(Arrays.asList(summary));
+		expectedResponse.setUserId("" + user.getId());
+		verify(mockStatisticsCollector, never()).collectEvents(any());
+		verify(mockAsynchJobStatusManager).setComplete(jobStatus.getJobId(), expectedResponse);
+	}
+
+	/**
+	 * Setup the worker to stream the zip to memory.
+	 * 
+	 * @throws IOException
+	 */
+	private void setupStreaming() throws IOException {
+		worker.setStreamingEnabled(true);
+		worker.bulkDownloadFetchThreadPool = Executors.newFixedThreadPool(2);
+		streamedZip = new ByteArrayOutputStream();
+		doAnswer(new Answer<S3FileHandle>() {
+			@Override
+			public S3FileHandle answer(InvocationOnMock invocation) throws Throwable {
+				UploadStreamWriter writer = invocation.getArgument(1);
+				return writer.write(streamedZip) ? resultHandle : null;
+			}
+		}).when(mockBulkDownloadManager).multipartUploadStream(any(LocalFileUploadRequest.class),
+				any(UploadStreamWriter.class));
+		doAnswer(new Answer<ByteArrayInputStream>() {
+			@Override
+			public ByteArrayInputStream answer(InvocationOnMock invocation) throws Throwable {
+				S3FileHandle handle = invocation.getArgument(0);
+				return new ByteArrayInputStream(("content of " + handle.getId()).getBytes(StandardCharsets.UTF_8));
+			}
+		}).when(mockBulkDownloadManager).openFileContent(any(S3FileHandle.class));
+	}
+
 	@Test
 	public void testCreateZipEntryNameProviderCommandLine() {
 		ZipFileFormat format = ZipFileFormat.CommandLineCache;
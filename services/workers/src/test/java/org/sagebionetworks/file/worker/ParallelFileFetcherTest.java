@@ -0,0 +1,110 @@
+package org.sagebionetworks.file.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.repo.model.file.S3FileHandle;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelFileFetcherTest {
+
+	@Mock
+	FileHandleSupport mockFileHandleSupport;
+
+	ExecutorService executor;
+	S3FileHandle small1;
+	S3FileHandle small2;
+	S3FileHandle large;
+
+	@Before
+	public void before() {
+		executor = Executors.newFixedThreadPool(2);
+		small1 = createHandle("1", 10L);
+		small2 = createHandle("2", 10L);
+		large = createHandle("3", 100L);
+		doAnswer(invocation -> {
+			S3FileHandle handle = invocation.getArgument(0);
+			return new ByteArrayInputStream(("content of " + handle.getId()).getBytes(StandardCharsets.UTF_8));
+		}).when(mockFileHandleSupport).openFileContent(any(S3FileHandle.class));
+	}
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testOpenNextInOrder() throws Exception {
+		ParallelFileFetcher fetcher = new ParallelFileFetcher(mockFileHandleSupport, executor, 50L);
+		fetcher.add(small1);
+		fetcher.add(large);
+		fetcher.add(small2);
+		// call under test
+		assertEquals("content of 1", readNext(fetcher));
+		assertEquals("content of 3", readNext(fetcher));
+		assertEquals("content of 2", readNext(fetcher));
+		assertEquals(0L, fetcher.getBufferedBytes());
+		verify(mockFileHandleSupport, times(3)).openFileContent(any(S3FileHandle.class));
+	}
+
+	@Test
+	public void testOpenNextBufferLimit() throws Exception {
+		// only one small file fits in the buffer at a time.
+		ParallelFileFetcher fetcher = new ParallelFileFetcher(mockFileHandleSupport, executor, 15L);
+		fetcher.add(small1);
+		fetcher.add(small2);
+		// call under test
+		assertEquals("content of 1", readNext(fetcher));
+		assertEquals(0L, fetcher.getBufferedBytes());
+		assertEquals("content of 2", readNext(fetcher));
+	}
+
+	@Test
+	public void testSkipNext() throws Exception {
+		ParallelFileFetcher fetcher = new ParallelFileFetcher(mockFileHandleSupport, executor, 50L);
+		fetcher.add(large);
+		fetcher.add(small1);
+		// call under test
+		fetcher.skipNext();
+		assertEquals("content of 1", readNext(fetcher));
+		// the large file is streamed so skipping it should not fetch it.
+		verify(mockFileHandleSupport, never()).openFileContent(large);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testOpenNextEmpty() throws Exception {
+		ParallelFileFetcher fetcher = new ParallelFileFetcher(mockFileHandleSupport, executor, 50L);
+		// call under test
+		fetcher.openNext();
+	}
+
+	private static String readNext(ParallelFileFetcher fetcher) throws Exception {
+		try (InputStream in = fetcher.openNext()) {
+			return IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static S3FileHandle createHandle(String id, long size) {
+		S3FileHandle handle = new S3FileHandle();
+		handle.setId(id);
+		handle.setContentSize(size);
+		return handle;
+	}
+}
@@ -4,16 +4,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.sagebionetworks.common.util.progress.ProgressCallback;
 import org.sagebionetworks.logging.s3.LogEntry;
+import org.sagebionetworks.logging.s3.LogIndexEntry;
 import org.sagebionetworks.logging.s3.LogReader;
 
 /**
@@ -95,4 +101,65 @@ public class CollateUtilsTest {
 		assertTrue(results.get(7).getEntryString().contains("four.5"));
 	}
 	
+	@Test
+	public void testCollateSameTimestamp() throws IOException{
+		// entries with the same time stamp keep the order of the logs.
+		LogReader one = LogTestUtils.createTestLogReader(new String[]{"a.1", "b.1"}, 0);
+		LogReader two = LogTestUtils.createTestLogReader(new String[]{"a.2", "b.2"}, 0);
+		LogReader[] toCollate = new LogReader[]{one, two};
+		StringWriter strWriter = new StringWriter();
+		BufferedWriter buffered = new BufferedWriter(strWriter);
+		CollateUtils.collateLogs(toCollate, buffered, mockCallback);
+		buffered.flush();
+		List<LogEntry> results = LogTestUtils.readLogEntries(strWriter.toString());
+		assertEquals(4, results.size());
+		assertTrue(results.get(0).getEntryString().contains("a.1"));
+		assertTrue(results.get(1).getEntryString().contains("a.2"));
+		assertTrue(results.get(2).getEntryString().contains("b.1"));
+		assertTrue(results.get(3).getEntryString().contains("b.2"));
+	}
+
+	@Test
+	public void testCollateToGzipBlocks() throws IOException{
+		LogReader one = LogTestUtils.createTestLogReader(new String[]{"one.0", "two.1","three.2"}, 0);
+		LogReader two = LogTestUtils.createTestLogReader(new String[]{"one.1"}, 1);
+		LogReader three = LogTestUtils.createTestLogReader(new String[]{"one.2", "two.3","three.4", "four.5"}, 2);
+		LogReader[] toCollate = new LogReader[]{two, one, three};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// call under test
+		List<LogIndexEntry> index = CollateUtils.collateLogsToGzipBlocks(toCollate, out, 3, mockCallback);
+		byte[] bytes = out.toByteArray();
+		// 8 entries in blocks of 3
+		assertEquals(3, index.size());
+		assertEquals(0L, index.get(0).getOffset());
+		assertEquals(0L, index.get(0).getTimeStamp());
+		assertEquals(2L, index.get(1).getTimeStamp());
+		assertEquals(4L, index.get(2).getTimeStamp());
+		// the whole file can be read as a single gzip.
+		List<LogEntry> results = readGzip(bytes, 0);
+		assertEquals(8, results.size());
+		assertTrue(results.get(0).getEntryString().contains("one.0"));
+		assertTrue(results.get(7).getEntryString().contains("four.5"));
+		// reading can start at any block.
+		results = readGzip(bytes, (int) index.get(1).getOffset());
+		assertEquals(5, results.size());
+		assertEquals(2L, results.get(0).getTimeStamp());
+		results = readGzip(bytes, (int) index.get(2).getOffset());
+		assertEquals(2, results.size());
+		assertTrue(results.get(1).getEntryString().contains("four.5"));
+	}
+
+	@Test
+	public void testCollateToGzipBlocksEmpty() throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		List<LogIndexEntry> index = CollateUtils.collateLogsToGzipBlocks(new LogReader[0], out, 3, mockCallback);
+		assertTrue(index.isEmpty());
+		assertEquals(0, out.size());
+	}
+
+	private static List<LogEntry> readGzip(byte[] bytes, int offset) throws IOException{
+		LogReader reader = new LogReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset)))));
+		return LogTestUtils.getAllLogEntiresFromReader(reader);
+	}
+
 }
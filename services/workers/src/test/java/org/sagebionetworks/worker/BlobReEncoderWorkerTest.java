@@ -0,0 +1,98 @@
+package org.sagebionetworks.worker;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.sagebionetworks.StackConfiguration;
+import org.sagebionetworks.common.util.progress.ProgressCallback;
+import org.sagebionetworks.repo.model.UnmodifiableXStream;
+import org.sagebionetworks.repo.model.dbo.BlobReEncoder;
+import org.sagebionetworks.repo.model.dbo.BlobReEncoder.Target;
+import org.sagebionetworks.util.Clock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BlobReEncoderWorkerTest {
+
+	@Mock
+	BlobReEncoder mockBlobReEncoder;
+	@Mock
+	Clock mockClock;
+	@Mock
+	ProgressCallback mockProgress;
+	@Mock
+	UnmodifiableXStream mockXStream;
+	@Mock
+	StackConfiguration mockConfiguration;
+
+	BlobReEncoderWorker worker;
+	Target target;
+	Target otherTarget;
+
+	@Before
+	public void before() {
+		worker = new BlobReEncoderWorker();
+		ReflectionTestUtils.setField(worker, "blobReEncoder", mockBlobReEncoder);
+		ReflectionTestUtils.setField(worker, "clock", mockClock);
+		ReflectionTestUtils.setField(worker, "configuration", mockConfiguration);
+		target = new Target("TABLE", "ID", "BLOB", "ETAG", mockXStream);
+		otherTarget = new Target("OTHER_TABLE", "ID", "BLOB", null, mockXStream);
+		worker.targets = Arrays.asList(target, otherTarget);
+	}
+
+	@Test
+	public void testRunResumesAfterLastId() throws Exception {
+		when(mockConfiguration.getBlobCodecWriteEnabled()).thenReturn(true);
+		// setup two milliseconds between calls.
+		when(mockClock.currentTimeMillis()).thenReturn(0L, 2L, 4L, 6L);
+		when(mockBlobReEncoder.reEncodePage(target, Long.MIN_VALUE, BlobReEncoderWorker.PAGE_SIZE)).thenReturn(123L);
+		when(mockBlobReEncoder.reEncodePage(target, 123L, BlobReEncoderWorker.PAGE_SIZE)).thenReturn(null);
+		when(mockBlobReEncoder.reEncodePage(otherTarget, Long.MIN_VALUE, BlobReEncoderWorker.PAGE_SIZE)).thenReturn(null);
+		// call under test
+		worker.run(mockProgress);
+		assertFalse(worker.isFinished());
+		worker.run(mockProgress);
+		assertTrue(worker.isFinished());
+		// a finished target is not scanned again
+		worker.run(mockProgress);
+		verify(mockBlobReEncoder, times(2)).reEncodePage(eq(target), anyLong(), anyInt());
+		verify(mockBlobReEncoder, times(1)).reEncodePage(eq(otherTarget), anyLong(), anyInt());
+		// should sleep once per run for twice the runtime of the run
+		verify(mockClock, times(2)).sleep(anyLong());
+		verify(mockClock, times(2)).sleep(4L);
+	}
+
+	@Test
+	public void testRunCodecWriteDisabled() throws Exception {
+		when(mockConfiguration.getBlobCodecWriteEnabled()).thenReturn(false);
+		// call under test
+		worker.run(mockProgress);
+		assertFalse(worker.isFinished());
+		verify(mockBlobReEncoder, never()).reEncodePage(eq(target), anyLong(), anyInt());
+		verify(mockClock, never()).sleep(anyLong());
+	}
+
+	@Test
+	public void testRunWithNoTargets() throws Exception {
+		when(mockConfiguration.getBlobCodecWriteEnabled()).thenReturn(true);
+		worker.targets = Arrays.<Target>asList();
+		// call under test
+		worker.run(mockProgress);
+		assertTrue(worker.isFinished());
+		verify(mockBlobReEncoder, never()).reEncodePage(eq(target), anyLong(), anyInt());
+	}
+}